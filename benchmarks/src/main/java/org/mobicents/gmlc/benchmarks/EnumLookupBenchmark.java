@@ -0,0 +1,71 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.benchmarks;
+
+import org.mobicents.gmlc.slee.http.EnumLookup;
+import org.mobicents.protocols.ss7.map.api.service.lsm.AreaType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Case insensitive enum parameter lookup: {@link EnumLookup} against the equalsIgnoreCase chain and valueOf
+ * call it replaced, for the first and the last areaType constant
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumLookupBenchmark {
+
+    private static final EnumLookup<AreaType> AREA_TYPES = new EnumLookup<AreaType>(AreaType.class);
+
+    @Param({"locationAreaId", "utranCellId"})
+    private String areaType;
+
+    @Benchmark
+    public AreaType enumLookup() {
+        return AREA_TYPES.get(areaType);
+    }
+
+    @Benchmark
+    public AreaType equalsIgnoreCaseChain() {
+        if (!areaType.equalsIgnoreCase("locationAreaId") && !areaType.equalsIgnoreCase("cellGlobalId")
+                && !areaType.equalsIgnoreCase("countryCode") && !areaType.equalsIgnoreCase("plmnId")
+                && !areaType.equalsIgnoreCase("routingAreaId") && !areaType.equalsIgnoreCase("utranCellId"))
+            throw new IllegalArgumentException("areaType argument must be one of locationAreaId, cellGlobalId, countryCode, plmnId, routingAreaId or utranCellId");
+        return AreaType.valueOf(areaType);
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.benchmarks;
+
+import org.mobicents.protocols.ss7.map.api.service.lsm.AreaType;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSPriority;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LocationEstimateType;
+import org.mobicents.protocols.ss7.map.api.service.lsm.OccurrenceInfo;
+import org.mobicents.protocols.ss7.map.api.service.lsm.ResponseTimeCategory;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Baseline for {@link RestLocationRequestParserBenchmark}: the REST parameter handling the location SBB did
+ * before {@link org.mobicents.gmlc.slee.http.RestLocationRequestParser}. Parameters were validated against
+ * equalsIgnoreCase chains and kept as strings, re-read by the HttpRequest constructor with another set of
+ * equalsIgnoreCase chains, then converted with valueOf and Integer.parseInt when the PSL was sent.
+ * The MAP parameter objects built along the way are left out, the new parser does not build them either.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class LegacyLocationRequestParser {
+
+    String msisdn, clientId, coreNetwork;
+    String pslLcsPriority, pslLcsHorizontalAccuracy, pslLcsVerticalAccuracy, pslVerticalCoordinateRequest,
+            pslResponseTimeCategory, pslLocationEstimateType, pslDeferredLocationEventType, pslAreaType, pslAreaId,
+            pslOccurrenceInfo, pslLcsServiceTypeID, pslIntervalTime, pslReportingAmount, pslReportingInterval,
+            slrCallbackUrl, psiService, psiServiceType, psiOnlyImsi, psiOnlyNnn;
+    Integer pslLcsReferenceNumber;
+
+    // HttpRequest constructor
+    LCSPriority lcsPriority;
+    boolean verticalCoordinateRequest;
+    ResponseTimeCategory responseTimeCategory;
+    AreaType areaT;
+    OccurrenceInfo occurrenceInformation;
+
+    // PSL values
+    LocationEstimateType locationEstimateType;
+    int horizontalAccuracy, verticalAccuracy, lcsServiceTypeID, intervalTime, reportingAmount, reportingInterval;
+
+    public LegacyLocationRequestParser parse(HttpServletRequest httpServletRequest) {
+        String inputIllegalArgument;
+        msisdn = httpServletRequest.getParameter("msisdn");
+        clientId = httpServletRequest.getHeader("X-API-Key");
+        if (clientId == null) {
+            clientId = httpServletRequest.getParameter("clientId");
+        }
+        coreNetwork = httpServletRequest.getParameter("coreNetwork");
+        if (coreNetwork == null) {
+            coreNetwork = "gsm";
+        }
+
+        pslLcsPriority = httpServletRequest.getParameter("priority");
+        if (pslLcsPriority == null) {
+            pslLcsPriority = String.valueOf(LCSPriority.normalPriority);
+        } else if (!pslLcsPriority.equalsIgnoreCase("normalPriority") && !pslLcsPriority.equalsIgnoreCase("highestPriority")) {
+            inputIllegalArgument = "priority argument must be normalPriority or highestPriority";
+            throw new IllegalArgumentException(inputIllegalArgument);
+        }
+
+        pslLcsHorizontalAccuracy = httpServletRequest.getParameter("horizontalAccuracy");
+        if (pslLcsHorizontalAccuracy == null) {
+            pslLcsHorizontalAccuracy = "999999";
+        }
+
+        pslLcsVerticalAccuracy = httpServletRequest.getParameter("verticalAccuracy");
+        if (pslLcsVerticalAccuracy == null) {
+            pslLcsVerticalAccuracy = "999999";
+        }
+
+        pslVerticalCoordinateRequest = httpServletRequest.getParameter("vertCoordinateRequest");
+        if (pslVerticalCoordinateRequest == null) {
+            pslVerticalCoordinateRequest = String.valueOf(false);
+        } else if (!pslVerticalCoordinateRequest.equalsIgnoreCase("true") && !pslVerticalCoordinateRequest.equalsIgnoreCase("false")) {
+            inputIllegalArgument = "vertCoordinateRequest argument must be true or false";
+            throw new IllegalArgumentException(inputIllegalArgument);
+        }
+
+        pslResponseTimeCategory = httpServletRequest.getParameter("responseTimeCategory");
+        if (pslResponseTimeCategory == null) {
+            pslResponseTimeCategory = String.valueOf(ResponseTimeCategory.delaytolerant);
+        } else if (!pslResponseTimeCategory.equalsIgnoreCase("delaytolerant") && !pslResponseTimeCategory.equalsIgnoreCase("lowdelay")) {
+            inputIllegalArgument = "responseTimeCategory argument must be delaytolerant or lowdelay";
+            throw new IllegalArgumentException(inputIllegalArgument);
+        }
+
+        pslLocationEstimateType = httpServletRequest.getParameter("locationEstimateType");
+        if (pslLocationEstimateType == null) {
+            pslLocationEstimateType = String.valueOf(LocationEstimateType.currentOrLastKnownLocation);
+        } else if (!pslLocationEstimateType.equalsIgnoreCase("currentOrLastKnownLocation") && !pslLocationEstimateType.equalsIgnoreCase("initialLocation")
+                && !pslLocationEstimateType.equalsIgnoreCase("currentLocation") && !pslLocationEstimateType.equalsIgnoreCase("activateDeferredLocation")
+                && !pslLocationEstimateType.equalsIgnoreCase("cancelDeferredLocation")) {
+            inputIllegalArgument = "locationEstimateType argument must be one of currentLocation, currentOrLastKnownLocation, initialLocation, activateDeferredLocation or cancelDeferredLocation";
+            throw new IllegalArgumentException(inputIllegalArgument);
+        }
+
+        pslDeferredLocationEventType = httpServletRequest.getParameter("deferredLocationEventType");
+        if (pslDeferredLocationEventType == null) {
+            pslDeferredLocationEventType = "available";
+        } else if (!pslDeferredLocationEventType.equalsIgnoreCase("inside") && !pslDeferredLocationEventType.equalsIgnoreCase("entering")
+                && !pslDeferredLocationEventType.equalsIgnoreCase("leaving") && !pslDeferredLocationEventType.equalsIgnoreCase("available")) {
+            inputIllegalArgument = "deferredLocationEventType argument must be one of available, inside, entering or leaving";
+            throw new IllegalArgumentException(inputIllegalArgument);
+        }
+
+        pslAreaType = httpServletRequest.getParameter("areaType");
+        if (pslAreaType == null) {
+            pslAreaType = String.valueOf(AreaType.cellGlobalId);
+        } else if (!pslAreaType.equalsIgnoreCase("locationAreaId") && !pslAreaType.equalsIgnoreCase("cellGlobalId")
+                && !pslAreaType.equalsIgnoreCase("countryCode") && !pslAreaType.equalsIgnoreCase("plmnId") &&
+                !pslAreaType.equalsIgnoreCase("routingAreaId") && !pslAreaType.equalsIgnoreCase("utranCellId")) {
+            inputIllegalArgument = "areaType argument must be one of locationAreaId, cellGlobalId, countryCode, plmnId, routingAreaId or utranCellId";
+            throw new IllegalArgumentException(inputIllegalArgument);
+        }
+
+        pslAreaId = httpServletRequest.getParameter("areaId");
+        if (pslAreaId == null) {
+            pslAreaId = "9999999";
+        }
+
+        pslOccurrenceInfo = httpServletRequest.getParameter("occurrenceInfo");
+        if (pslOccurrenceInfo == null) {
+            pslOccurrenceInfo = String.valueOf(OccurrenceInfo.oneTimeEvent);
+        } else if (!pslOccurrenceInfo.equalsIgnoreCase("oneTimeEvent") && !pslOccurrenceInfo.equalsIgnoreCase("multipleTimeEvent")) {
+            inputIllegalArgument = "occurrenceInfo argument must be oneTimeEvent or multipleTimeEvent";
+            throw new IllegalArgumentException(inputIllegalArgument);
+        }
+
+        try {
+            pslLcsReferenceNumber = Integer.parseInt(httpServletRequest.getParameter("lcsReferenceNumber"));
+        } catch (NumberFormatException nfe) {
+            pslLcsReferenceNumber = 0;
+        }
+
+        pslLcsServiceTypeID = httpServletRequest.getParameter("lcsServiceTypeID");
+        if (pslLcsServiceTypeID == null) {
+            pslLcsServiceTypeID = "1";
+        }
+
+        pslIntervalTime = httpServletRequest.getParameter("intervalTime");
+        if (pslIntervalTime == null) {
+            pslIntervalTime = "999999";
+        }
+
+        pslReportingAmount = httpServletRequest.getParameter("reportingAmount");
+        if (pslReportingAmount == null) {
+            pslReportingAmount = "0";
+        }
+
+        pslReportingInterval = httpServletRequest.getParameter("reportingInterval");
+        if (pslReportingInterval == null) {
+            pslReportingInterval = "999999";
+        }
+
+        slrCallbackUrl = httpServletRequest.getParameter("slrCallbackUrl");
+        if (slrCallbackUrl == null) {
+            slrCallbackUrl = "http://localhost:8080";
+        }
+
+        psiService = httpServletRequest.getParameter("psiService");
+        if (psiService == null) {
+            psiService = "false";
+        }
+
+        psiServiceType = httpServletRequest.getParameter("psiServiceType");
+        if (psiServiceType == null) {
+            psiServiceType = "sriFirst";
+        }
+        if (psiServiceType.equalsIgnoreCase("psiFirst")) {
+            psiServiceType = "psiFirst";
+        } else {
+            psiServiceType = "sriFirst";
+        }
+
+        psiOnlyImsi = httpServletRequest.getParameter("psiImsi");
+        psiOnlyNnn = httpServletRequest.getParameter("psiNnn");
+
+        httpRequest();
+        return this;
+    }
+
+    /**
+     * String checks of the former HttpRequest constructor, applied to the strings kept above
+     */
+    private void httpRequest() {
+        lcsPriority = LCSPriority.normalPriority;
+        if (pslLcsPriority.equalsIgnoreCase("highest")) {
+            lcsPriority = LCSPriority.highestPriority;
+        }
+        if (coreNetwork.equalsIgnoreCase("umts")) {
+            coreNetwork = "UMTS";
+        } else {
+            coreNetwork = "GSM";
+        }
+        verticalCoordinateRequest = !pslVerticalCoordinateRequest.equalsIgnoreCase("false");
+        responseTimeCategory = ResponseTimeCategory.delaytolerant;
+        if (!pslResponseTimeCategory.equalsIgnoreCase("tolerant")) {
+            responseTimeCategory = ResponseTimeCategory.lowdelay;
+        }
+        areaT = AreaType.locationAreaId;
+        if (pslAreaType.equalsIgnoreCase("routing")) {
+            areaT = AreaType.routingAreaId;
+        } else if (pslAreaType.equalsIgnoreCase("cgi")) {
+            areaT = AreaType.cellGlobalId;
+        } else if (pslAreaType.equalsIgnoreCase("cc")) {
+            areaT = AreaType.countryCode;
+        } else if (pslAreaType.equalsIgnoreCase("utranCid")) {
+            areaT = AreaType.utranCellId;
+        } else if (pslAreaType.equalsIgnoreCase("plmn")) {
+            areaT = AreaType.plmnId;
+        }
+        occurrenceInformation = OccurrenceInfo.oneTimeEvent;
+        if (pslOccurrenceInfo.equalsIgnoreCase("multiple")) {
+            occurrenceInformation = OccurrenceInfo.multipleTimeEvent;
+        }
+        horizontalAccuracy = Integer.parseInt(pslLcsHorizontalAccuracy);
+        verticalAccuracy = Integer.parseInt(pslLcsVerticalAccuracy);
+        lcsServiceTypeID = Integer.parseInt(pslLcsServiceTypeID);
+        intervalTime = Integer.parseInt(pslIntervalTime);
+        reportingAmount = Integer.parseInt(pslReportingAmount);
+        reportingInterval = Integer.parseInt(pslReportingInterval);
+    }
+
+    /**
+     * Conversions done again when a PSL request was built from the parsed strings
+     */
+    public void pslValues() {
+        locationEstimateType = LocationEstimateType.valueOf(pslLocationEstimateType);
+        lcsPriority = LCSPriority.valueOf(pslLcsPriority);
+        horizontalAccuracy = Integer.valueOf(pslLcsHorizontalAccuracy);
+        verticalAccuracy = Integer.valueOf(pslLcsVerticalAccuracy);
+        verticalCoordinateRequest = Boolean.parseBoolean(pslVerticalCoordinateRequest);
+        responseTimeCategory = ResponseTimeCategory.valueOf(pslResponseTimeCategory);
+        areaT = AreaType.valueOf(pslAreaType);
+        occurrenceInformation = OccurrenceInfo.valueOf(pslOccurrenceInfo);
+        intervalTime = Integer.parseInt(pslIntervalTime);
+        reportingAmount = Integer.parseInt(pslReportingAmount);
+        reportingInterval = Integer.parseInt(pslReportingInterval);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.benchmarks;
+
+import org.mobicents.gmlc.slee.map.SlrRequestValues;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Baseline for {@link SlrReportEncoderBenchmark}: how Subscriber Location Reports were built before
+ * {@link org.mobicents.gmlc.slee.map.SlrReportEncoder}. The location SBB collected one "Key=value, " string
+ * per SLR value, walking the nested getters again for each of them, and HttpReport concatenated the fragments
+ * behind the registration parameters before converting the body to bytes.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class LegacySlrReportBuilder {
+
+    private LegacySlrReportBuilder() {
+    }
+
+    /**
+     * Report body as HttpReport.Perform built it
+     */
+    public static byte[] encode(SlrRequestValues slrReq, Map<String, String> reportParameters) {
+        List<String> slrReportParameters = slrReportParameters(slrReq);
+        StringBuilder body = new StringBuilder();
+        if (reportParameters == null && slrReportParameters == null)
+            body.append("{}");
+        if (reportParameters != null)
+            body.append(reportParameters.toString());
+        if (slrReportParameters != null) {
+            for (String slrReportParameter : slrReportParameters)
+                body.append(slrReportParameter);
+        }
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * SLR Parameters construction for HTTP POST to send back to LCS requestor after SLR request
+     */
+    static List<String> slrReportParameters(SlrRequestValues slrReq) {
+
+        List<String> slrParamList = new ArrayList<>();
+        try {
+            /*** LCS Client ID ***/
+            if (slrReq.getLcsClientID() != null) {
+                if (slrReq.getLcsClientID().getLCSClientType() != null && (slrReq.getLcsClientID().getLCSClientType().getType() > Integer.MIN_VALUE
+                                && slrReq.getLcsClientID().getLCSClientType().getType() < Integer.MAX_VALUE))
+                    slrParamList.add("LCSClientIDType=" + Integer.toString(slrReq.getLcsClientID().getLCSClientType().getType()) + ", ");
+                if (slrReq.getLcsClientID().getLCSClientExternalID() != null)
+                    slrParamList.add("LCSClientIDExternalID=" + slrReq.getLcsClientID().getLCSClientExternalID().getExternalAddress().getAddress() + ", ");
+                if (slrReq.getLcsClientID().getLCSClientInternalID() != null
+                                && (slrReq.getLcsClientID().getLCSClientInternalID().getId() > Integer.MIN_VALUE
+                                && slrReq.getLcsClientID().getLCSClientInternalID().getId() < Integer.MAX_VALUE))
+                    slrParamList.add("LCSClientIDInternalID=" + Integer.toString(slrReq.getLcsClientID().getLCSClientInternalID().getId()) + ", ");
+                if (slrReq.getLcsClientID().getLCSClientName() != null) {
+                    slrParamList.add("LCSClientIDNameString=" + new String(slrReq.getLcsClientID().getLCSClientName().getNameString().getEncodedString()) + ", ");
+                    slrParamList.add("LCSClientIDNameDCS=" + Integer.toString(slrReq.getLcsClientID().getLCSClientName().getDataCodingScheme().getCode()) + ", ");
+                    slrParamList.add("LCSClientIDNameFormatIndicator=" + Integer.toString(slrReq.getLcsClientID().getLCSClientName().getLCSFormatIndicator().getIndicator()) + ", ");
+                }
+                if (slrReq.getLcsClientID().getLCSAPN() != null)
+                    slrParamList.add("LCSClientIDAPN=" + new String(slrReq.getLcsClientID().getLCSAPN().getApn().getBytes()) + ", ");
+                if (slrReq.getLcsClientID().getLCSRequestorID() != null) {
+                    slrParamList.add("LCSClientIDRequestorIDEncodedString=" + new String(slrReq.getLcsClientID().getLCSRequestorID().getRequestorIDString().getEncodedString()) + ", ");
+                    slrParamList.add("LCSClientIDRequestorIDFormatIndicator=" + Integer.toString(slrReq.getLcsClientID().getLCSRequestorID().getLCSFormatIndicator().getIndicator()) + ", ");
+                    slrParamList.add("LCSClientIDRequestorIDDCS=" + Integer.toString(slrReq.getLcsClientID().getLCSRequestorID().getDataCodingScheme().getCode()) + ", ");
+                }
+                if (slrReq.getLcsClientID().getLCSClientDialedByMS() != null)
+                    slrParamList.add("LCSClientIDLCSClientDialedByMS=" + slrReq.getLcsClientID().getLCSClientDialedByMS().getAddress() + ", ");
+            }
+
+            /*** LCSC Event ***/
+            if (slrReq.getLcsEvent() != null) {
+                slrParamList.add("LCSEvent=" + Integer.toString(slrReq.getLcsEvent().getEvent()) + ", ");
+            }
+
+            /*** LCS Reference Number ***/
+            if (slrReq.getLcsReferenceNumber() > Integer.MIN_VALUE && slrReq.getLcsReferenceNumber() < Integer.MAX_VALUE) {
+                slrParamList.add("LCSReferenceNumber=" + Integer.toString(slrReq.getLcsReferenceNumber()) + ", ");
+            }
+
+            /*** LCS Service Type ID ***/
+            if (slrReq.getLcsServiceTypeID() > Integer.MIN_VALUE && slrReq.getLcsServiceTypeID() < Integer.MAX_VALUE) {
+                slrParamList.add("LCSServiceTypeID=" + Integer.toString(slrReq.getLcsServiceTypeID()) + ", ");
+            }
+
+            /*** Location Estimate ***/
+            if (slrReq.getLocationEstimate() != null) {
+                slrParamList.add("Location Estimate: ");
+                slrParamList.add("Latitude=" + Double.toString(slrReq.getLocationEstimate().getLatitude()) + ", ");
+                slrParamList.add("Longitude=" + Double.toString(slrReq.getLocationEstimate().getLongitude()) + ", ");
+                slrParamList.add("Altitude=" + Double.toString(slrReq.getLocationEstimate().getAltitude()) + ", ");
+                slrParamList.add("Confidence=" + Double.toString(slrReq.getLocationEstimate().getInnerRadius()) + ", ");
+                slrParamList.add("Uncertainty=" + Double.toString(slrReq.getLocationEstimate().getUncertainty()) + ", ");
+                slrParamList.add("UncertaintyAltitude=" + Double.toString(slrReq.getLocationEstimate().getUncertaintyAltitude()) + ", ");
+                slrParamList.add("UncertaintyInnerRadius=" + Double.toString(slrReq.getLocationEstimate().getUncertaintyRadius()) + ", ");
+                slrParamList.add("UncertaintySemiMajorAxis=" + Double.toString(slrReq.getLocationEstimate().getUncertaintySemiMajorAxis()) + ", ");
+                slrParamList.add("UncertaintySemiMinorAxis=" + Double.toString(slrReq.getLocationEstimate().getUncertaintySemiMinorAxis()) + ", ");
+                slrParamList.add("OffsetAngle=" + Double.toString(slrReq.getLocationEstimate().getOffsetAngle()) + ", ");
+                slrParamList.add("IncludeAngle=" + Double.toString(slrReq.getLocationEstimate().getIncludedAngle()) + ", ");
+                slrParamList.add("TypeOfShape=" + slrReq.getLocationEstimate().getTypeOfShape() + ", ");
+            }
+
+            /*** Age of Location Estimate ***/
+            if (slrReq.getAgeOfLocationEstimate() > Integer.MIN_VALUE && slrReq.getAgeOfLocationEstimate() < Integer.MAX_VALUE) {
+                slrParamList.add("AgeOfLocationEstimate=" + Integer.toString(slrReq.getAgeOfLocationEstimate()) + ", ");
+            }
+
+            /*** Additional Location Estimate ***/
+            if (slrReq.getAdditionalLocationEstimate() != null) {
+                slrParamList.add("Additional Location Estimate: ");
+                slrParamList.add("addLatitude=" + Double.toString(slrReq.getAdditionalLocationEstimate().getLatitude()) + ", ");
+                slrParamList.add("addLongitude=" + Double.toString(slrReq.getAdditionalLocationEstimate().getLongitude()) + ", ");
+                slrParamList.add("addAltitude=" + Double.toString(slrReq.getAdditionalLocationEstimate().getAltitude()) + ", ");
+                slrParamList.add("addConfidence=" + Double.toString(slrReq.getAdditionalLocationEstimate().getInnerRadius()) + ", ");
+                slrParamList.add("addUncertainty=" + Double.toString(slrReq.getAdditionalLocationEstimate().getUncertainty()) + ", ");
+                slrParamList.add("addUncertaintyAltitude=" + Double.toString(slrReq.getAdditionalLocationEstimate().getUncertaintyAltitude()) + ", ");
+                slrParamList.add("addUncertaintyInnerRadius=" + Double.toString(slrReq.getAdditionalLocationEstimate().getUncertaintyRadius()) + ", ");
+                slrParamList.add("UncertaintySemiMajorAxis=" + Double.toString(slrReq.getAdditionalLocationEstimate().getUncertaintySemiMajorAxis()) + ", ");
+                slrParamList.add("UncertaintySemiMinorAxis=" + Double.toString(slrReq.getAdditionalLocationEstimate().getUncertaintySemiMinorAxis()) + ", ");
+                slrParamList.add("addOffset=" + Double.toString(slrReq.getAdditionalLocationEstimate().getOffsetAngle()) + ", ");
+                slrParamList.add("addInclude=" + Double.toString(slrReq.getAdditionalLocationEstimate().getIncludedAngle()) + ", ");
+                slrParamList.add("addTypeOfShape=" + slrReq.getAdditionalLocationEstimate().getTypeOfShape() + ", ");
+            }
+
+            /*** Accuracy Fulfillment Indicator ***/
+            if (slrReq.getAccuracyFulfilmentIndicator() != null) {
+                slrParamList.add("AccuracyFulfillmentIndicator=" + Integer.toString(slrReq.getAccuracyFulfilmentIndicator().getIndicator()) + ", ");
+            }
+
+            /*** CGI or SAI or LAI ***/
+            if (slrReq.getCellGlobalIdOrServiceAreaIdOrLAI() != null) {
+                /*** LAI fixed length ***/
+                if (slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getLAIFixedLength() != null) {
+                    slrParamList.add("LAI fixed length: ");
+                    slrParamList.add("MCC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getLAIFixedLength().getMCC()) + ", ");
+                    slrParamList.add("MNC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getLAIFixedLength().getMNC()) + ", ");
+                    slrParamList.add("LAC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getLAIFixedLength().getLac()) + ", ");
+                }
+                /*** CGI or SAI fixed length ***/
+                if (slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getCellGlobalIdOrServiceAreaIdFixedLength() != null) {
+                    slrParamList.add("CGI or SAI fixed length: ");
+                    slrParamList.add("MCC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getCellGlobalIdOrServiceAreaIdFixedLength().getMCC()) + ", ");
+                    slrParamList.add("MNC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getCellGlobalIdOrServiceAreaIdFixedLength().getMNC()) + ", ");
+                    slrParamList.add("LAC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getCellGlobalIdOrServiceAreaIdFixedLength().getLac()) + ", ");
+                    slrParamList.add("CGI=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getCellGlobalIdOrServiceAreaIdFixedLength().getCellIdOrServiceAreaCode()) + ", ");
+                }
+            }
+
+            /*** Pseudonym Indicator ***/
+            if (slrReq.getPseudonymIndicator() != false && slrReq.getPseudonymIndicator() != true) {
+                slrParamList.add("PseudonymIndicator=" + Boolean.toString(slrReq.getPseudonymIndicator()) + ", ");
+            }
+
+            /*** MO LR Short Circuit Indicator ***/
+            if (slrReq.isMoLrShortCircuitIndicator() != false && slrReq.isMoLrShortCircuitIndicator() != true) {
+                slrParamList.add("MOLRShortCircuitIndicator=" + Boolean.toString(slrReq.isMoLrShortCircuitIndicator()) + ", ");
+            }
+
+            /*** Periodic LDR Info ***/
+            if (slrReq.getPeriodicLDRInfo() != null) {
+                slrParamList.add("ReportingAmount=" + Integer.toString(slrReq.getPeriodicLDRInfo().getReportingAmount()) + ", ");
+                slrParamList.add("ReportingInterval=" + Integer.toString(slrReq.getPeriodicLDRInfo().getReportingInterval()) + ", ");
+            }
+
+            /*** Sequence Number ***/
+            if (slrReq.getSequenceNumber() > Integer.MIN_VALUE && slrReq.getSequenceNumber() < Integer.MAX_VALUE) {
+                slrParamList.add("Sequence Number=" + Integer.toString(slrReq.getSequenceNumber()) + ", ");
+            }
+
+            /*** Deferred MT LR Data ***/
+            if (slrReq.getDeferredmtlrData() != null) {
+                slrParamList.add("Deferred MT LR Data: ");
+                if (slrReq.getDeferredmtlrData().getDeferredLocationEventType() != null) {
+                    slrParamList.add("EnteringArea=" + Boolean.toString(slrReq.getDeferredmtlrData().getDeferredLocationEventType().getEnteringIntoArea()) + ", ");
+                    slrParamList.add("InsideArea=" + Boolean.toString(slrReq.getDeferredmtlrData().getDeferredLocationEventType().getBeingInsideArea()) + ", ");
+                    slrParamList.add("LeavingArea=" + Boolean.toString(slrReq.getDeferredmtlrData().getDeferredLocationEventType().getLeavingFromArea()) + ", ");
+                    slrParamList.add("MSAvailable=" + Boolean.toString(slrReq.getDeferredmtlrData().getDeferredLocationEventType().getMsAvailable()) + ", ");
+                }
+                if (slrReq.getDeferredmtlrData().getTerminationCause() != null) {
+                    slrParamList.add("TerminationCause=" + Integer.toString(slrReq.getDeferredmtlrData().getTerminationCause().getCause()) + ", ");
+                }
+                if (slrReq.getDeferredmtlrData().getLCSLocationInfo() != null) {
+                    slrParamList.add("GPRSNodeIndicator=" + Boolean.toString(slrReq.getDeferredmtlrData().getLCSLocationInfo().getGprsNodeIndicator()) + ", ");
+                    if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getNetworkNodeNumber() != null)
+                        slrParamList.add("NetworkNodeNumber=" + slrReq.getDeferredmtlrData().getLCSLocationInfo().getNetworkNodeNumber().getAddress() + ", ");
+                    if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getLMSI() != null)
+                        slrParamList.add("LMSI=" + new String(slrReq.getDeferredmtlrData().getLCSLocationInfo().getLMSI().getData()) + ", ");
+                    if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getMmeName() != null)
+                        slrParamList.add("MMEName=" + new String(slrReq.getDeferredmtlrData().getLCSLocationInfo().getMmeName().getData()) + ", ");
+                    if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getAaaServerName() != null)
+                        slrParamList.add("AAAServerName=" + new String(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAaaServerName().getData()));
+                    if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalNumber() != null) {
+                        if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalNumber().getMSCNumber() != null)
+                            slrParamList.add("MSCNumber=" + slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalNumber().getMSCNumber().getAddress() + ", ");
+                        if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalNumber().getSGSNNumber() != null)
+                            slrParamList.add("SGSNNumber=" + slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalNumber().getSGSNNumber().getAddress() + ", ");
+                    }
+                    if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets() != null) {
+                        slrParamList.add("SupportedLCSCapabilitySetRelease98_99=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets().getCapabilitySetRelease98_99()) + ", ");
+                        slrParamList.add("SupportedLCSCapabilitySetRelease4=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets().getCapabilitySetRelease4()) + ", ");
+                        slrParamList.add("SupportedLCSCapabilitySetRelease4=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets().getCapabilitySetRelease5()) + ", ");
+                        slrParamList.add("SupportedLCSCapabilitySetRelease4=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets().getCapabilitySetRelease6()) + ", ");
+                        slrParamList.add("SupportedLCSCapabilitySetRelease4=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets().getCapabilitySetRelease7()));
+                    }
+                    if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets() != null) {
+                        slrParamList.add(", AdditionalLCSCapabilitySetRelease98_99=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets().getCapabilitySetRelease98_99()) + ", ");
+                        slrParamList.add("AdditionalLCSCapabilitySetRelease4=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets().getCapabilitySetRelease4()) + ", ");
+                        slrParamList.add("AdditionalLCSCapabilitySetRelease5=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets().getCapabilitySetRelease5()) + ", ");
+                        slrParamList.add("AdditionalLCSCapabilitySetRelease6=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets().getCapabilitySetRelease6()) + ", ");
+                        slrParamList.add("AdditionalLCSCapabilitySetRelease7=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets().getCapabilitySetRelease7()));
+                    }
+                }
+            }
+
+            return slrParamList;
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.benchmarks;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HttpServletRequest answering getParameter, getParameterValues and getHeader from fixed values,
+ * the only methods the location request parsers call
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class ParameterRequest implements InvocationHandler {
+
+    private final Map<String, String[]> parameters = new HashMap<String, String[]>();
+    private final Map<String, String> headers = new HashMap<String, String>();
+
+    /**
+     * @param nameValues parameter names each followed by its value
+     */
+    public static HttpServletRequest of(String... nameValues) {
+        ParameterRequest request = new ParameterRequest();
+        for (int i = 0; i < nameValues.length; i += 2)
+            request.parameters.put(nameValues[i], new String[]{nameValues[i + 1]});
+        return (HttpServletRequest) Proxy.newProxyInstance(ParameterRequest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, request);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("getParameter")) {
+            String[] values = parameters.get(args[0]);
+            return values != null ? values[0] : null;
+        }
+        if (name.equals("getParameterValues"))
+            return parameters.get(args[0]);
+        if (name.equals("getHeader"))
+            return headers.get(args[0]);
+        throw new UnsupportedOperationException(name);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.benchmarks;
+
+import org.mobicents.gmlc.slee.http.LocationRequest;
+import org.mobicents.gmlc.slee.http.RestLocationRequestParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST location request parsing: {@link RestLocationRequestParser} against the string handling it replaced,
+ * {@link LegacyLocationRequestParser}, for an ATI request carrying only the MSISDN and for a PSL request
+ * carrying every location parameter.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestLocationRequestParserBenchmark {
+
+    @Param({"ati", "psl"})
+    private String operation;
+
+    private final RestLocationRequestParser parser = new RestLocationRequestParser();
+    private HttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        if (operation.equals("ati")) {
+            request = ParameterRequest.of("msisdn", "59899077937");
+        } else {
+            request = ParameterRequest.of("msisdn", "59899077937", "coreNetwork", "umts", "clientId", "lcs-client-1",
+                    "priority", "highestPriority", "horizontalAccuracy", "100", "verticalAccuracy", "50",
+                    "vertCoordinateRequest", "true", "responseTimeCategory", "lowdelay",
+                    "locationEstimateType", "activateDeferredLocation", "deferredLocationEventType", "entering",
+                    "areaType", "cellGlobalId", "areaId", "748010001000A", "occurrenceInfo", "multipleTimeEvent",
+                    "lcsReferenceNumber", "42", "lcsServiceTypeID", "3", "intervalTime", "60", "reportingAmount", "10",
+                    "reportingInterval", "600", "slrCallbackUrl", "http://lcs-client.example.org:8080/slr");
+        }
+    }
+
+    @Benchmark
+    public LocationRequest typedParser() {
+        return parser.parse(request);
+    }
+
+    @Benchmark
+    public LegacyLocationRequestParser legacyParser() {
+        LegacyLocationRequestParser legacy = new LegacyLocationRequestParser().parse(request);
+        if (operation.equals("psl"))
+            legacy.pslValues();
+        return legacy;
+    }
+}
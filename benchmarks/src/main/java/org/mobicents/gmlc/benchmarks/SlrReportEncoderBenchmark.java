@@ -0,0 +1,119 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.benchmarks;
+
+import org.mobicents.gmlc.slee.http.report.ReportFormat;
+import org.mobicents.gmlc.slee.map.SlrReportEncoder;
+import org.mobicents.gmlc.slee.map.SlrRequestValues;
+import org.mobicents.protocols.ss7.map.api.MAPException;
+import org.mobicents.protocols.ss7.map.api.primitives.AddressNature;
+import org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSClientType;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSEvent;
+import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberInformation.TypeOfShape;
+import org.mobicents.protocols.ss7.map.primitives.IMSIImpl;
+import org.mobicents.protocols.ss7.map.primitives.ISDNAddressStringImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.DeferredLocationEventTypeImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.DeferredmtlrDataImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.ExtGeographicalInformationImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.LCSClientExternalIDImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.LCSClientIDImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.LCSLocationInfoImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.PeriodicLDRInfoImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subscriber Location Report encoding: {@link SlrReportEncoder} writing JSON or an MLP tlrep in one pass
+ * against the per value fragments the location SBB used to build, {@link LegacySlrReportBuilder}, for a
+ * periodic deferred MT-LR report carrying a location estimate.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlrReportEncoderBenchmark {
+
+    private SlrRequestValues slr;
+    private Map<String, String> reportParameters;
+
+    @Setup
+    public void setUp() throws MAPException {
+        ISDNAddressStringImpl msisdn = new ISDNAddressStringImpl(AddressNature.international_number, NumberingPlan.ISDN, "59899077937");
+        ISDNAddressStringImpl mscNumber = new ISDNAddressStringImpl(AddressNature.international_number, NumberingPlan.ISDN, "5982123007");
+        ISDNAddressStringImpl lcsClient = new ISDNAddressStringImpl(AddressNature.international_number, NumberingPlan.ISDN, "5982123456");
+
+        slr = new SlrRequestValues();
+        slr.setLcsEvent(LCSEvent.deferredmtlrResponse);
+        slr.setLcsClientID(new LCSClientIDImpl(LCSClientType.valueAddedServices, new LCSClientExternalIDImpl(lcsClient, null),
+                null, null, null, null, null));
+        slr.setMsisdn(msisdn);
+        slr.setImsi(new IMSIImpl("748026871012345"));
+        slr.setNetworkNodeNumber(mscNumber);
+        slr.setLocationEstimate(new ExtGeographicalInformationImpl(TypeOfShape.EllipsoidPointWithUncertaintyCircle,
+                -34.910156, -56.163601, 150.0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0));
+        slr.setAgeOfLocationEstimate(1);
+        slr.setDeferredmtlrData(new DeferredmtlrDataImpl(new DeferredLocationEventTypeImpl(false, false, false, true), null,
+                new LCSLocationInfoImpl(mscNumber, null, null, false, null, null, null, null, null)));
+        slr.setPeriodicLDRInfo(new PeriodicLDRInfoImpl(10, 600));
+        slr.setLcsReferenceNumber(42);
+        slr.setLcsServiceTypeID(3);
+        slr.setSequenceNumber(7);
+
+        reportParameters = new HashMap<String, String>();
+        reportParameters.put("msisdn", "59899077937");
+        reportParameters.put("clientId", "lcs-client-1");
+        reportParameters.put("referenceNumber", "42");
+    }
+
+    @Benchmark
+    public byte[] singlePassJson() throws IOException {
+        return SlrReportEncoder.encode(slr, ReportFormat.JSON, reportParameters);
+    }
+
+    @Benchmark
+    public byte[] singlePassTlrep() throws IOException {
+        return SlrReportEncoder.encode(slr, ReportFormat.MLP, reportParameters);
+    }
+
+    @Benchmark
+    public byte[] legacyMultiPass() {
+        return LegacySlrReportBuilder.encode(slr, reportParameters);
+    }
+}
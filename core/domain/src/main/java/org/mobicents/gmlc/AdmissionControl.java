@@ -0,0 +1,118 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.mobicents.gmlc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control of location requests at the HTTP ingress. Keeps track of the requests pending
+ * per MAP operation and sheds those exceeding the limit configured for it in {@link GmlcPropertiesManagement}
+ * (0 means no limit), as well as those rejected because the MAP dialogs in progress reached maxActivityCount.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class AdmissionControl {
+
+  private static final AdmissionControl instance = new AdmissionControl();
+
+  private final AtomicInteger[] pendingRequests;
+  private final AtomicLong[] shedRequests;
+  private final AtomicLong overloadShedRequests = new AtomicLong();
+
+  private AdmissionControl() {
+    int operations = LocationResultCache.Operation.values().length;
+    this.pendingRequests = new AtomicInteger[operations];
+    this.shedRequests = new AtomicLong[operations];
+    for (int i = 0; i < operations; i++) {
+      this.pendingRequests[i] = new AtomicInteger();
+      this.shedRequests[i] = new AtomicLong();
+    }
+  }
+
+  public static AdmissionControl getInstance() {
+    return instance;
+  }
+
+  /**
+   * Admit a new location request. An admitted request must be released with
+   * {@link #release(LocationResultCache.Operation)} once answered.
+   *
+   * @param operation MAP operation the request will be served with
+   * @return false if the request is to be rejected because too many requests are pending for the operation
+   */
+  public boolean admit(LocationResultCache.Operation operation) {
+    int limit = getLimit(operation);
+    AtomicInteger pending = this.pendingRequests[operation.ordinal()];
+    if (pending.incrementAndGet() > limit && limit > 0) {
+      pending.decrementAndGet();
+      this.shedRequests[operation.ordinal()].incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  public void release(LocationResultCache.Operation operation) {
+    this.pendingRequests[operation.ordinal()].decrementAndGet();
+  }
+
+  /**
+   * Count a request rejected because the MAP dialogs in progress reached maxActivityCount
+   */
+  public void shedOnOverload() {
+    this.overloadShedRequests.incrementAndGet();
+  }
+
+  public int getPendingRequests(LocationResultCache.Operation operation) {
+    return this.pendingRequests[operation.ordinal()].get();
+  }
+
+  public long getShedRequests(LocationResultCache.Operation operation) {
+    return this.shedRequests[operation.ordinal()].get();
+  }
+
+  public long getOverloadShedRequests() {
+    return this.overloadShedRequests.get();
+  }
+
+  public void resetCounters() {
+    for (AtomicLong shed : this.shedRequests) {
+      shed.set(0);
+    }
+    this.overloadShedRequests.set(0);
+  }
+
+  private int getLimit(LocationResultCache.Operation operation) {
+    GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+    switch (operation) {
+      case ATI:
+        return gmlcPropertiesManagement.getMaxAtiRequests();
+      case PSL:
+        return gmlcPropertiesManagement.getMaxLsmRequests();
+      case PSI:
+        return gmlcPropertiesManagement.getMaxPsiRequests();
+    }
+    return 0;
+  }
+
+}
@@ -0,0 +1,263 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.mobicents.gmlc;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per client rate limits and concurrency quotas of location requests. Clients are identified by the MLP
+ * serviceid or the REST API key; clients without a configured limit are not limited.
+ * Each rate limit is a lock-free token bucket refilled at the configured rate per second and holding at most
+ * the configured burst of tokens, implemented as a theoretical arrival time advanced by compare and set.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class ClientRateLimiter {
+
+  public enum Result {
+    ADMITTED, RATE_EXCEEDED, CONCURRENCY_EXCEEDED
+  }
+
+  /**
+   * Outcome of {@link #acquire(String)}, to be handed back to {@link #release(Admission)} once the request is answered
+   * when it was counted against the concurrency quota of its client
+   */
+  public static class Admission implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Result result;
+    private final String clientId;
+    // limits the request was counted against, 0 when it was not counted
+    private final long limitId;
+
+    private Admission(Result result, String clientId, long limitId) {
+      this.result = result;
+      this.clientId = clientId;
+      this.limitId = limitId;
+    }
+
+    public Result getResult() {
+      return result;
+    }
+
+    /**
+     * @return true if the request holds a slot of its client concurrency quota
+     */
+    public boolean isCounted() {
+      return limitId != 0;
+    }
+  }
+
+  private static final long NANOS_PER_SECOND = 1000000000L;
+
+  private static final Admission NOT_LIMITED = new Admission(Result.ADMITTED, null, 0);
+
+  private static final AtomicLong limitIds = new AtomicLong();
+
+  private static final ClientRateLimiter instance = new ClientRateLimiter();
+
+  private final Map<String, ClientLimit> limits = new ConcurrentHashMap<String, ClientLimit>();
+
+  private ClientRateLimiter() {
+  }
+
+  public static ClientRateLimiter getInstance() {
+    return instance;
+  }
+
+  /**
+   * Admit a request from a client. The concurrency quota is checked first, so that a request rejected for it
+   * does not use up a token of the rate limit. A counted admission must be released with
+   * {@link #release(Admission)} once the request is answered.
+   *
+   * @param clientId MLP serviceid or REST API key, may be null
+   * @return admission whose result is ADMITTED, or the reason for rejecting the request
+   */
+  public Admission acquire(String clientId) {
+    if (clientId == null) {
+      return NOT_LIMITED;
+    }
+    ClientLimit limit = this.limits.get(clientId);
+    if (limit == null) {
+      return NOT_LIMITED;
+    }
+
+    boolean counted = limit.maxConcurrent > 0;
+    if (counted && limit.concurrent.incrementAndGet() > limit.maxConcurrent) {
+      limit.concurrent.decrementAndGet();
+      limit.concurrencyRejected.incrementAndGet();
+      return new Admission(Result.CONCURRENCY_EXCEEDED, clientId, 0);
+    }
+    if (!limit.takeToken(System.nanoTime())) {
+      if (counted) {
+        limit.concurrent.decrementAndGet();
+      }
+      limit.rateRejected.incrementAndGet();
+      return new Admission(Result.RATE_EXCEEDED, clientId, 0);
+    }
+    limit.admitted.incrementAndGet();
+    return counted ? new Admission(Result.ADMITTED, clientId, limit.id) : NOT_LIMITED;
+  }
+
+  /**
+   * Give back the concurrency quota slot of a counted admission, to the limits it was counted against:
+   * nothing is given back if those limits have since been replaced or removed, as their counters went with them
+   */
+  public void release(Admission admission) {
+    if (admission == null || !admission.isCounted()) {
+      return;
+    }
+    ClientLimit limit = this.limits.get(admission.clientId);
+    if (limit != null && limit.id == admission.limitId) {
+      limit.concurrent.decrementAndGet();
+    }
+  }
+
+  /**
+   * Configure the limits of a client, resetting its counters
+   *
+   * @param clientId      MLP serviceid or REST API key, neither ':' nor ';' allowed as they separate the persisted limits
+   * @param rate          requests per second, 0 means no rate limit
+   * @param burst         requests admitted back to back once the bucket is full
+   * @param maxConcurrent requests pending at the same time, 0 means no limit
+   */
+  public void setLimit(String clientId, int rate, int burst, int maxConcurrent) {
+    if (clientId == null || clientId.isEmpty() || clientId.indexOf(':') >= 0 || clientId.indexOf(';') >= 0) {
+      throw new IllegalArgumentException("Client id must be non empty and contain neither ':' nor ';': " + clientId);
+    }
+    this.limits.put(clientId, new ClientLimit(rate, burst, maxConcurrent));
+  }
+
+  public void removeLimit(String clientId) {
+    this.limits.remove(clientId);
+  }
+
+  public void clear() {
+    this.limits.clear();
+  }
+
+  /**
+   * @return configured limits as clientId:rate:burst:maxConcurrent entries separated by ';'
+   */
+  public String encodeLimits() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, ClientLimit> entry : new TreeMap<String, ClientLimit>(this.limits).entrySet()) {
+      ClientLimit limit = entry.getValue();
+      if (sb.length() > 0) {
+        sb.append(';');
+      }
+      sb.append(entry.getKey()).append(':').append(limit.rate).append(':').append(limit.burst).append(':').append(limit.maxConcurrent);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Replace the configured limits with those encoded by {@link #encodeLimits()}
+   */
+  public void decodeLimits(String encoded) {
+    this.limits.clear();
+    if (encoded == null || encoded.isEmpty()) {
+      return;
+    }
+    for (String client : encoded.split(";")) {
+      String[] values = client.split(":");
+      if (values.length == 4) {
+        this.setLimit(values[0], Integer.parseInt(values[1]), Integer.parseInt(values[2]), Integer.parseInt(values[3]));
+      }
+    }
+  }
+
+  /**
+   * @return one line per configured client with its limits and counters
+   */
+  public String showLimits() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, ClientLimit> entry : new TreeMap<String, ClientLimit>(this.limits).entrySet()) {
+      ClientLimit limit = entry.getValue();
+      sb.append(entry.getKey());
+      sb.append(" rate=").append(limit.rate);
+      sb.append(" burst=").append(limit.burst);
+      sb.append(" maxconcurrent=").append(limit.maxConcurrent);
+      sb.append(" pending=").append(limit.concurrent.get());
+      sb.append(" admitted=").append(limit.admitted.get());
+      sb.append(" raterejected=").append(limit.rateRejected.get());
+      sb.append(" concurrencyrejected=").append(limit.concurrencyRejected.get());
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+
+  public long getRejectedRequests() {
+    long rejected = 0;
+    for (ClientLimit limit : this.limits.values()) {
+      rejected += limit.rateRejected.get() + limit.concurrencyRejected.get();
+    }
+    return rejected;
+  }
+
+  private static class ClientLimit {
+    private final long id = limitIds.incrementAndGet();
+    private final int rate;
+    private final int burst;
+    private final int maxConcurrent;
+    // nanoseconds between two tokens, and tolerance allowing a burst on top of the steady rate
+    private final long interval;
+    private final long tolerance;
+    private final AtomicLong theoreticalArrivalTime = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rateRejected = new AtomicLong();
+    private final AtomicLong concurrencyRejected = new AtomicLong();
+
+    private ClientLimit(int rate, int burst, int maxConcurrent) {
+      this.rate = rate;
+      this.burst = Math.max(burst, 1);
+      this.maxConcurrent = maxConcurrent;
+      this.interval = rate > 0 ? NANOS_PER_SECOND / rate : 0;
+      this.tolerance = this.interval * (this.burst - 1);
+    }
+
+    private boolean takeToken(long now) {
+      if (this.rate <= 0) {
+        return true;
+      }
+      while (true) {
+        long tat = this.theoreticalArrivalTime.get();
+        long start = tat == Long.MIN_VALUE || tat - now < 0 ? now : tat;
+        if (start - now > this.tolerance) {
+          return false;
+        }
+        if (this.theoreticalArrivalTime.compareAndSet(tat, start + this.interval)) {
+          return true;
+        }
+      }
+    }
+  }
+
+}
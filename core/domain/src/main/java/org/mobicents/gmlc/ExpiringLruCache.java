@@ -0,0 +1,214 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Bounded in-memory cache of values keyed by MSISDN and by the MAP operation that produced them, each entry
+ * with its own expiry time. Values are copied on the way in and on the way out, callers never share them.
+ * Time to live and capacity are given on every put, so they follow the current configuration.
+ * <p>
+ * Keys are spread over {@link #STRIPES} stripes, each one a map in access order behind a lock of its own, so
+ * lookups for different subscribers seldom wait on each other. Every stripe holds its share of the capacity and
+ * evicts its own least recently used entry when full, which makes eviction LRU per stripe and approximately LRU
+ * for the whole cache; rounding the shares up lets the cache hold up to STRIPES - 1 entries over its capacity.
+ *
+ * @param <O> MAP operations the values are obtained with
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+class ExpiringLruCache<O extends Enum<O>> {
+
+  // a power of two
+  static final int STRIPES = 32;
+  private static final int STRIPE_SHIFT = 32 - Integer.numberOfTrailingZeros(STRIPES);
+
+  private final O[] operations;
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  ExpiringLruCache(Class<O> operationType) {
+    this.operations = operationType.getEnumConstants();
+    for (int i = 0; i < STRIPES; i++) {
+      this.stripes[i] = new Stripe();
+    }
+  }
+
+  /**
+   * @return a copy of the cached value or null when there is none or it has expired
+   */
+  CachedValue get(O operation, String msisdn) {
+    if (msisdn == null) {
+      return null;
+    }
+
+    Key key = new Key(operation, msisdn);
+    Stripe stripe = this.stripe(key);
+    Entry entry;
+    synchronized (stripe) {
+      entry = stripe.entries.get(key);
+      if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+        stripe.entries.remove(key);
+        entry = null;
+      }
+      if (entry != null) {
+        stripe.hits++;
+      } else {
+        stripe.misses++;
+      }
+    }
+    // entries are never modified once stored, the copy needs no lock
+    return entry != null ? entry.value.copy() : null;
+  }
+
+  /**
+   * Store a copy of a value, replacing any previous one for the same MSISDN and operation,
+   * and evict the least recently used entries of its stripe beyond its share of maxEntries
+   */
+  void put(O operation, String msisdn, CachedValue value, long timeToLive, int maxEntries) {
+    if (msisdn == null || value == null || timeToLive <= 0) {
+      return;
+    }
+
+    Key key = new Key(operation, msisdn);
+    Entry entry = new Entry(value.copy(), System.currentTimeMillis() + timeToLive);
+    int maxStripeEntries = Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+    Stripe stripe = this.stripe(key);
+    synchronized (stripe) {
+      stripe.entries.put(key, entry);
+      Iterator<Entry> eldest = stripe.entries.values().iterator();
+      while (stripe.entries.size() > maxStripeEntries && eldest.hasNext()) {
+        eldest.next();
+        eldest.remove();
+      }
+    }
+  }
+
+  /**
+   * Drop every value held for a subscriber
+   */
+  void invalidate(String msisdn) {
+    if (msisdn == null) {
+      return;
+    }
+    for (O operation : this.operations) {
+      Key key = new Key(operation, msisdn);
+      Stripe stripe = this.stripe(key);
+      synchronized (stripe) {
+        stripe.entries.remove(key);
+      }
+    }
+  }
+
+  void clear() {
+    for (Stripe stripe : this.stripes) {
+      synchronized (stripe) {
+        stripe.entries.clear();
+      }
+    }
+  }
+
+  long getHits() {
+    long hits = 0;
+    for (Stripe stripe : this.stripes) {
+      synchronized (stripe) {
+        hits += stripe.hits;
+      }
+    }
+    return hits;
+  }
+
+  long getMisses() {
+    long misses = 0;
+    for (Stripe stripe : this.stripes) {
+      synchronized (stripe) {
+        misses += stripe.misses;
+      }
+    }
+    return misses;
+  }
+
+  int getEntryCount() {
+    int count = 0;
+    for (Stripe stripe : this.stripes) {
+      synchronized (stripe) {
+        count += stripe.entries.size();
+      }
+    }
+    return count;
+  }
+
+  void resetCounters() {
+    for (Stripe stripe : this.stripes) {
+      synchronized (stripe) {
+        stripe.hits = 0;
+        stripe.misses = 0;
+      }
+    }
+  }
+
+  private Stripe stripe(Key key) {
+    // Fibonacci hashing, MSISDNs of a range differ in their last digits and their String hashes only in the low bits
+    return this.stripes[(key.hashCode() * 0x9E3779B9) >>> STRIPE_SHIFT];
+  }
+
+  private static class Stripe {
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(64, 0.75f, true);
+    private long hits;
+    private long misses;
+  }
+
+  private static class Key {
+    private final Enum<?> operation;
+    private final String msisdn;
+
+    private Key(Enum<?> operation, String msisdn) {
+      this.operation = operation;
+      this.msisdn = msisdn;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return this.operation == other.operation && this.msisdn.equals(other.msisdn);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * this.operation.hashCode() + this.msisdn.hashCode();
+    }
+  }
+
+  private static class Entry {
+    private final CachedValue value;
+    private final long expiresAt;
+
+    private Entry(CachedValue value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+}
@@ -31,6 +31,7 @@ import org.jboss.mx.util.MBeanServerLocator;
 
 import java.lang.management.ManagementFactory;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  *
@@ -55,6 +56,9 @@ public class GmlcManagement implements GmlcManagementMBean {
 
   protected boolean isStarted;
 
+  // run when GMLC management stops, to let go of threads and resources created by the services
+  private final List<Runnable> stopHooks = new CopyOnWriteArrayList<Runnable>();
+
   protected static GmlcManagement instance = null;
 
   public GmlcManagement(String name) {
@@ -84,6 +88,19 @@ public class GmlcManagement implements GmlcManagementMBean {
     this.persistDir = persistDir;
   }
 
+  /**
+   * Register a task to run when GMLC management stops
+   *
+   * @param stopHook task releasing threads or resources held outside of the SLEE
+   */
+  public void addStopHook(Runnable stopHook) {
+    this.stopHooks.add(stopHook);
+  }
+
+  public void removeStopHook(Runnable stopHook) {
+    this.stopHooks.remove(stopHook);
+  }
+
   public void start() throws Exception {
     this.gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance(this.name);
     this.gmlcPropertiesManagement.setPersistDir(this.persistDir);
@@ -116,18 +133,34 @@ public class GmlcManagement implements GmlcManagementMBean {
         GmlcPropertiesManagementMBean.class, true);
     this.mbeanServer.registerMBean(gmlcPropMxBean, gmlcPropObjNname);
 
+    ObjectName gmlcStatObjNname = new ObjectName(GmlcManagement.JMX_DOMAIN + ":name=GmlcStatistics");
+    StandardMBean gmlcStatMxBean = new StandardMBean(GmlcStatAggregator.getInstance(), GmlcStatisticsMBean.class, true);
+    this.mbeanServer.registerMBean(gmlcStatMxBean, gmlcStatObjNname);
+
     this.isStarted = true;
 
     logger.info("Started GMLC Management");
   }
 
   public void stop() throws Exception {
+    for (Runnable stopHook : this.stopHooks) {
+      try {
+        stopHook.run();
+      } catch (Exception e) {
+        logger.error("Error while running a GMLC Management stop hook", e);
+      }
+    }
+    this.stopHooks.clear();
+
     this.gmlcPropertiesManagement.stop();
 
     if (this.mbeanServer != null) {
 
       ObjectName gmlcPropObjNname = new ObjectName(GmlcManagement.JMX_DOMAIN + ":name=GmlcPropertiesManagement");
       this.mbeanServer.unregisterMBean(gmlcPropObjNname);
+
+      ObjectName gmlcStatObjNname = new ObjectName(GmlcManagement.JMX_DOMAIN + ":name=GmlcStatistics");
+      this.mbeanServer.unregisterMBean(gmlcStatObjNname);
     }
 
     this.isStarted = false;
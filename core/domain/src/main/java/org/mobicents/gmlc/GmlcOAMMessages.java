@@ -43,5 +43,11 @@ public interface GmlcOAMMessages {
 
   String PARAMETER_SUCCESSFULLY_SET = "Parameter has been successfully set";
 
+  String PARAMETER_SUCCESSFULLY_REMOVED = "Parameter has been successfully removed";
+
+  String NO_SUCH_ROUTE = "No such route";
+
+  String NO_SUCH_POLICY = "No such policy";
+
 
 }
@@ -25,6 +25,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javolution.text.TextBuilder;
 import javolution.xml.XMLBinding;
@@ -54,6 +55,48 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
   private static final XMLBinding binding = new XMLBinding();
   protected static final String CDR_LOGGING_TO = "cdrloggingto";
   protected static final String MAX_ACTIVITY_COUNT = "maxactivitycount";
+  protected static final String ATI_CACHE_TTL = "aticachettl";
+  protected static final String PSL_CACHE_TTL = "pslcachettl";
+  protected static final String PSI_CACHE_TTL = "psicachettl";
+  protected static final String MAX_LOCATION_CACHE_ENTRIES = "maxlocationcacheentries";
+  protected static final String ROUTING_INFO_CACHE_TTL = "routinginfocachettl";
+  protected static final String UNKNOWN_SUBSCRIBER_CACHE_TTL = "unknownsubscribercachettl";
+  protected static final String MAX_ROUTING_INFO_CACHE_ENTRIES = "maxroutinginfocacheentries";
+  protected static final String MAX_ATI_REQUESTS = "maxatirequests";
+  protected static final String MAX_LSM_REQUESTS = "maxlsmrequests";
+  protected static final String MAX_PSI_REQUESTS = "maxpsirequests";
+  protected static final String CLIENT_RATE_LIMIT = "clientratelimit";
+  protected static final String CLIENT_RATE_LIMITS = "clientratelimits";
+  protected static final String HLR_ROUTE = "hlrroute";
+  protected static final String HLR_DEFAULT_ROUTE = "hlrdefaultroute";
+  protected static final String HLR_ROUTES = "hlrroutes";
+  protected static final String TIMEOUT_POLICY = "timeoutpolicy";
+  protected static final String TIMEOUT_POLICIES = "timeoutpolicies";
+  protected static final String MLP_INDENT = "mlpindent";
+  protected static final String MAX_BATCH_SIZE = "maxbatchsize";
+  protected static final String BATCH_CONCURRENCY = "batchconcurrency";
+  protected static final String CALLBACK_CONNECT_TIMEOUT = "callbackconnecttimeout";
+  protected static final String CALLBACK_READ_TIMEOUT = "callbackreadtimeout";
+  protected static final String CALLBACK_QUEUE_SIZE = "callbackqueuesize";
+  protected static final String CALLBACK_CONNECTIONS = "callbackconnections";
+  protected static final String CALLBACK_MAX_RETRIES = "callbackmaxretries";
+  protected static final String CALLBACK_RETRY_INTERVAL = "callbackretryinterval";
+  protected static final String SLR_REGISTRATION_TTL = "slrregistrationttl";
+  protected static final String SLR_REGISTRATION_JOURNAL = "slrregistrationjournal";
+  protected static final String CALLBACK_BATCH_WINDOW = "callbackbatchwindow";
+  protected static final String CALLBACK_BATCH_SIZE = "callbackbatchsize";
+  protected static final String CDR_DIRECTORY = "cdrdirectory";
+  protected static final String CDR_FILE_SIZE = "cdrfilesize";
+  protected static final String CDR_ROTATION_INTERVAL = "cdrrotationinterval";
+  protected static final String CDR_SYNC_INTERVAL = "cdrsyncinterval";
+  protected static final String CDR_BUFFER_SIZE = "cdrbuffersize";
+  protected static final String CDR_BLOCK_WHEN_FULL = "cdrblockwhenfull";
+  protected static final String CDR_DATA_SOURCE = "cdrdatasource";
+  protected static final String CDR_BATCH_SIZE = "cdrbatchsize";
+  protected static final String CDR_FLUSH_INTERVAL = "cdrflushinterval";
+  protected static final String CDR_SEGMENT_SIZE = "cdrsegmentsize";
+  protected static final String MAP_VERSION_CACHE_TTL = "mapversioncachettl";
+  protected static final String MAP_VERSION_PREFIX_LENGTH = "mapversionprefixlength";
   private static final String PERSIST_FILE_NAME = "gmlcproperties.xml";
 
   protected static final String SERVER_OVERLOADED_MESSAGE = "serveroverloadedmsg";
@@ -77,6 +120,9 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
   private int gmlcSsn = 145;
   private int hlrSsn = 6;
   private int mscSsn = 8;
+
+  // incremented whenever a property the SCCP and MAP addresses are built from changes
+  private final AtomicInteger addressGeneration = new AtomicInteger();
   private int maxMapVersion = 3;
 
   private CdrLoggedType cdrLoggingTo = CdrLoggedType.Textfile;
@@ -84,6 +130,93 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
   // max count of TCAP Dialogs that are possible at the same time
   private int maxActivityCount = 1000;
 
+  // time to live in milliseconds of cached location results per MAP operation, 0 disables the cache
+  private long atiCacheTtl = 0;
+  private long pslCacheTtl = 0;
+  private long psiCacheTtl = 0;
+  private int maxLocationCacheEntries = 100000;
+
+  // time to live in milliseconds of cached SRIforLCS/SRIforSM routing info and of unknown subscriber results, 0 disables
+  private long routingInfoCacheTtl = 0;
+  private long unknownSubscriberCacheTtl = 0;
+  private int maxRoutingInfoCacheEntries = 100000;
+
+  // max count of location requests pending at the same time per operation, 0 means no limit
+  private int maxAtiRequests = 0;
+  private int maxLsmRequests = 0;
+  private int maxPsiRequests = 0;
+
+  // indentation of MLP XML responses in spaces, 0 disables pretty printing
+  private int mlpIndent = 4;
+
+  // maximum number of MSISDNs in a batch location request
+  private int maxBatchSize = 1000;
+
+  // number of subscribers of a batch location request located in parallel
+  private int batchConcurrency = 16;
+
+  // SLR callback HTTP connect and read timeouts in milliseconds
+  private int callbackConnectTimeout = 2000;
+  private int callbackReadTimeout = 5000;
+
+  // maximum number of SLR callbacks waiting for delivery per destination
+  private int callbackQueueSize = 1000;
+
+  // maximum number of concurrent (kept alive) SLR callback connections per destination
+  private int callbackConnections = 4;
+
+  // SLR callback delivery retries, the interval between them doubles after every attempt
+  private int callbackMaxRetries = 3;
+  private int callbackRetryInterval = 1000;
+
+  // seconds a deferred location registration outlives its last expected SubscriberLocationReport
+  private int slrRegistrationTtl = 3600;
+
+  // keep deferred location registrations in a memory mapped journal so they survive restarts
+  private boolean slrRegistrationJournal = false;
+
+  // SLR callbacks of registrations that asked for batching (slrBatch) to the same URL collected during up to
+  // callbackBatchWindow milliseconds or until callbackBatchSize reports are sent together as one JSON array,
+  // 0 disables batching for all registrations
+  private int callbackBatchWindow = 0;
+  private int callbackBatchSize = 100;
+
+  // directory the CDR files are written to, empty for the server log directory
+  private String cdrDirectory = "";
+
+  // size in bytes after which the current CDR file is rotated, 0 disables size based rotation
+  private long cdrFileSize = 104857600L;
+
+  // seconds after which the current CDR file is rotated, 0 disables time based rotation
+  private int cdrRotationInterval = 3600;
+
+  // milliseconds between forced syncs of the CDR file to disk, 0 syncs after every batch and -1 leaves it to the operating system
+  private int cdrSyncInterval = 1000;
+
+  // capacity of the CDR ring buffer, rounded up to a power of two and applied when the CDR writer starts
+  private int cdrBufferSize = 65536;
+
+  // block the event thread when the CDR ring buffer is full instead of dropping the record
+  private boolean cdrBlockWhenFull = false;
+
+  // JNDI name of the pooled DataSource CDRs are inserted through when they are logged to the database
+  private String cdrDataSource = "java:/DefaultDS";
+
+  // maximum count of CDRs inserted in a single JDBC batch
+  private int cdrBatchSize = 100;
+
+  // milliseconds a partial JDBC batch of CDRs waits before it is inserted
+  private int cdrFlushInterval = 1000;
+
+  // size in bytes of the memory mapped segment files binary CDRs are written to
+  private int cdrSegmentSize = 67108864;
+
+  // time to live in milliseconds of the MAP application context versions learned per destination, 0 disables learning
+  private long mapVersionCacheTtl = 86400000;
+
+  // number of leading GT digits identifying a destination for MAP version learning, 0 for the whole GT
+  private int mapVersionPrefixLength = 5;
+
   private GmlcPropertiesManagement(String name) {
     this.name = name;
     binding.setClassAttribute(CLASS_ATTRIBUTE);
@@ -120,6 +253,7 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
   @Override
   public void setGmlcGt(String gmlcGt) {
     this.gmlcGt = gmlcGt;
+    this.addressGeneration.incrementAndGet();
     this.store();
   }
 
@@ -131,6 +265,7 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
   @Override
   public void setGmlcSsn(int gmlcSsn) {
     this.gmlcSsn = gmlcSsn;
+    this.addressGeneration.incrementAndGet();
     this.store();
   }
 
@@ -142,9 +277,18 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
   @Override
   public void setHlrSsn(int hlrSsn) {
     this.hlrSsn = hlrSsn;
+    this.addressGeneration.incrementAndGet();
     this.store();
   }
 
+  /**
+   * Get the generation of the GMLC GT and SSN, and the HLR and MSC SSN, which changes every time one of them is set,
+   * so that addresses built from them can tell when they need to be rebuilt
+   */
+  public int getAddressGeneration() {
+    return this.addressGeneration.get();
+  }
+
   @Override
   public int getMscSsn() {
     return mscSsn;
@@ -153,6 +297,7 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
   @Override
   public void setMscSsn(int mscSsn) {
     this.mscSsn = mscSsn;
+    this.addressGeneration.incrementAndGet();
     this.store();
   }
 
@@ -178,10 +323,12 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
     this.store();
   }
 
+  @Override
   public CdrLoggedType getCdrLoggingTo() {
     return cdrLoggingTo;
   }
 
+  @Override
   public void setCdrLoggingTo(CdrLoggedType cdrLoggingTo) {
     this.cdrLoggingTo = cdrLoggingTo;
     this.store();
@@ -196,6 +343,545 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
     this.store();
   }
 
+  @Override
+  public long getAtiCacheTtl() {
+    return atiCacheTtl;
+  }
+
+  @Override
+  public void setAtiCacheTtl(long atiCacheTtl) {
+    this.atiCacheTtl = atiCacheTtl;
+    this.store();
+  }
+
+  @Override
+  public long getPslCacheTtl() {
+    return pslCacheTtl;
+  }
+
+  @Override
+  public void setPslCacheTtl(long pslCacheTtl) {
+    this.pslCacheTtl = pslCacheTtl;
+    this.store();
+  }
+
+  @Override
+  public long getPsiCacheTtl() {
+    return psiCacheTtl;
+  }
+
+  @Override
+  public void setPsiCacheTtl(long psiCacheTtl) {
+    this.psiCacheTtl = psiCacheTtl;
+    this.store();
+  }
+
+  @Override
+  public int getMaxLocationCacheEntries() {
+    return maxLocationCacheEntries;
+  }
+
+  @Override
+  public void setMaxLocationCacheEntries(int maxLocationCacheEntries) {
+    this.maxLocationCacheEntries = maxLocationCacheEntries;
+    this.store();
+  }
+
+  @Override
+  public long getLocationCacheHits() {
+    return LocationResultCache.getInstance().getHits();
+  }
+
+  @Override
+  public long getLocationCacheMisses() {
+    return LocationResultCache.getInstance().getMisses();
+  }
+
+  @Override
+  public int getLocationCacheEntries() {
+    return LocationResultCache.getInstance().getEntryCount();
+  }
+
+  @Override
+  public void clearLocationCache() {
+    LocationResultCache.getInstance().clear();
+    LocationResultCache.getInstance().resetCounters();
+  }
+
+  @Override
+  public long getRoutingInfoCacheTtl() {
+    return routingInfoCacheTtl;
+  }
+
+  @Override
+  public void setRoutingInfoCacheTtl(long routingInfoCacheTtl) {
+    this.routingInfoCacheTtl = routingInfoCacheTtl;
+    this.store();
+  }
+
+  @Override
+  public long getUnknownSubscriberCacheTtl() {
+    return unknownSubscriberCacheTtl;
+  }
+
+  @Override
+  public void setUnknownSubscriberCacheTtl(long unknownSubscriberCacheTtl) {
+    this.unknownSubscriberCacheTtl = unknownSubscriberCacheTtl;
+    this.store();
+  }
+
+  @Override
+  public int getMaxRoutingInfoCacheEntries() {
+    return maxRoutingInfoCacheEntries;
+  }
+
+  @Override
+  public void setMaxRoutingInfoCacheEntries(int maxRoutingInfoCacheEntries) {
+    this.maxRoutingInfoCacheEntries = maxRoutingInfoCacheEntries;
+    this.store();
+  }
+
+  @Override
+  public long getRoutingInfoCacheHits() {
+    return RoutingInfoCache.getInstance().getHits();
+  }
+
+  @Override
+  public long getRoutingInfoCacheMisses() {
+    return RoutingInfoCache.getInstance().getMisses();
+  }
+
+  @Override
+  public int getRoutingInfoCacheEntries() {
+    return RoutingInfoCache.getInstance().getEntryCount();
+  }
+
+  @Override
+  public void clearRoutingInfoCache() {
+    RoutingInfoCache.getInstance().clear();
+    RoutingInfoCache.getInstance().resetCounters();
+  }
+
+  @Override
+  public int getMaxAtiRequests() {
+    return maxAtiRequests;
+  }
+
+  @Override
+  public void setMaxAtiRequests(int maxAtiRequests) {
+    this.maxAtiRequests = maxAtiRequests;
+    this.store();
+  }
+
+  @Override
+  public int getMaxLsmRequests() {
+    return maxLsmRequests;
+  }
+
+  @Override
+  public void setMaxLsmRequests(int maxLsmRequests) {
+    this.maxLsmRequests = maxLsmRequests;
+    this.store();
+  }
+
+  @Override
+  public int getMaxPsiRequests() {
+    return maxPsiRequests;
+  }
+
+  @Override
+  public void setMaxPsiRequests(int maxPsiRequests) {
+    this.maxPsiRequests = maxPsiRequests;
+    this.store();
+  }
+
+  @Override
+  public int getPendingAtiRequests() {
+    return AdmissionControl.getInstance().getPendingRequests(LocationResultCache.Operation.ATI);
+  }
+
+  @Override
+  public int getPendingLsmRequests() {
+    return AdmissionControl.getInstance().getPendingRequests(LocationResultCache.Operation.PSL);
+  }
+
+  @Override
+  public int getPendingPsiRequests() {
+    return AdmissionControl.getInstance().getPendingRequests(LocationResultCache.Operation.PSI);
+  }
+
+  @Override
+  public long getShedAtiRequests() {
+    return AdmissionControl.getInstance().getShedRequests(LocationResultCache.Operation.ATI);
+  }
+
+  @Override
+  public long getShedLsmRequests() {
+    return AdmissionControl.getInstance().getShedRequests(LocationResultCache.Operation.PSL);
+  }
+
+  @Override
+  public long getShedPsiRequests() {
+    return AdmissionControl.getInstance().getShedRequests(LocationResultCache.Operation.PSI);
+  }
+
+  @Override
+  public long getOverloadShedRequests() {
+    return AdmissionControl.getInstance().getOverloadShedRequests();
+  }
+
+  @Override
+  public void resetShedCounters() {
+    AdmissionControl.getInstance().resetCounters();
+  }
+
+  @Override
+  public String getClientRateLimits() {
+    return ClientRateLimiter.getInstance().showLimits();
+  }
+
+  @Override
+  public void setClientRateLimit(String clientId, int rate, int burst, int maxConcurrent) {
+    ClientRateLimiter.getInstance().setLimit(clientId, rate, burst, maxConcurrent);
+    this.store();
+  }
+
+  @Override
+  public void removeClientRateLimit(String clientId) {
+    ClientRateLimiter.getInstance().removeLimit(clientId);
+    this.store();
+  }
+
+  @Override
+  public String getHlrRoutes() {
+    return HlrRoutingTable.getInstance().showRoutes();
+  }
+
+  @Override
+  public void setHlrRoute(String prefix, String gt, int ssn, int spc, int weight) {
+    HlrRoutingTable.getInstance().setRoute(prefix, gt, ssn, spc, weight);
+    this.store();
+  }
+
+  @Override
+  public boolean removeHlrRoute(String prefix, String gt) {
+    boolean removed = HlrRoutingTable.getInstance().removeRoute(prefix, gt);
+    if (removed) {
+      this.store();
+    }
+    return removed;
+  }
+
+  @Override
+  public String getTimeoutPolicies() {
+    return TimeoutPolicy.getInstance().showPolicies();
+  }
+
+  @Override
+  public void setTimeoutPolicy(String operation, String priority, String responseTime, long timeout) {
+    TimeoutPolicy.getInstance().setTimeout(operation, priority, responseTime, timeout);
+    this.store();
+  }
+
+  @Override
+  public boolean removeTimeoutPolicy(String operation, String priority, String responseTime) {
+    boolean removed = TimeoutPolicy.getInstance().removeTimeout(operation, priority, responseTime);
+    if (removed) {
+      this.store();
+    }
+    return removed;
+  }
+
+  @Override
+  public long getRateLimitedRequests() {
+    return ClientRateLimiter.getInstance().getRejectedRequests();
+  }
+
+  @Override
+  public long getLeadingLocationRequests() {
+    return LocationRequestCoalescer.getInstance().getLeadingRequests();
+  }
+
+  @Override
+  public long getCoalescedLocationRequests() {
+    return LocationRequestCoalescer.getInstance().getCoalescedRequests();
+  }
+
+  @Override
+  public int getMlpIndent() {
+    return mlpIndent;
+  }
+
+  @Override
+  public void setMlpIndent(int mlpIndent) {
+    this.mlpIndent = mlpIndent;
+    this.store();
+  }
+
+  @Override
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  @Override
+  public void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+    this.store();
+  }
+
+  @Override
+  public int getBatchConcurrency() {
+    return batchConcurrency;
+  }
+
+  @Override
+  public void setBatchConcurrency(int batchConcurrency) {
+    this.batchConcurrency = batchConcurrency;
+    this.store();
+  }
+
+  @Override
+  public int getCallbackConnectTimeout() {
+    return callbackConnectTimeout;
+  }
+
+  @Override
+  public void setCallbackConnectTimeout(int callbackConnectTimeout) {
+    this.callbackConnectTimeout = callbackConnectTimeout;
+    this.store();
+  }
+
+  @Override
+  public int getCallbackReadTimeout() {
+    return callbackReadTimeout;
+  }
+
+  @Override
+  public void setCallbackReadTimeout(int callbackReadTimeout) {
+    this.callbackReadTimeout = callbackReadTimeout;
+    this.store();
+  }
+
+  @Override
+  public int getCallbackQueueSize() {
+    return callbackQueueSize;
+  }
+
+  @Override
+  public void setCallbackQueueSize(int callbackQueueSize) {
+    this.callbackQueueSize = callbackQueueSize;
+    this.store();
+  }
+
+  @Override
+  public int getCallbackConnections() {
+    return callbackConnections;
+  }
+
+  @Override
+  public void setCallbackConnections(int callbackConnections) {
+    this.callbackConnections = callbackConnections;
+    this.store();
+  }
+
+  @Override
+  public int getCallbackMaxRetries() {
+    return callbackMaxRetries;
+  }
+
+  @Override
+  public void setCallbackMaxRetries(int callbackMaxRetries) {
+    this.callbackMaxRetries = callbackMaxRetries;
+    this.store();
+  }
+
+  @Override
+  public int getCallbackRetryInterval() {
+    return callbackRetryInterval;
+  }
+
+  @Override
+  public void setCallbackRetryInterval(int callbackRetryInterval) {
+    this.callbackRetryInterval = callbackRetryInterval;
+    this.store();
+  }
+
+  @Override
+  public int getSlrRegistrationTtl() {
+    return slrRegistrationTtl;
+  }
+
+  @Override
+  public void setSlrRegistrationTtl(int slrRegistrationTtl) {
+    this.slrRegistrationTtl = slrRegistrationTtl;
+    this.store();
+  }
+
+  @Override
+  public boolean isSlrRegistrationJournal() {
+    return slrRegistrationJournal;
+  }
+
+  @Override
+  public void setSlrRegistrationJournal(boolean slrRegistrationJournal) {
+    this.slrRegistrationJournal = slrRegistrationJournal;
+    this.store();
+  }
+
+  @Override
+  public int getCallbackBatchWindow() {
+    return callbackBatchWindow;
+  }
+
+  @Override
+  public void setCallbackBatchWindow(int callbackBatchWindow) {
+    this.callbackBatchWindow = callbackBatchWindow;
+    this.store();
+  }
+
+  @Override
+  public int getCallbackBatchSize() {
+    return callbackBatchSize;
+  }
+
+  @Override
+  public void setCallbackBatchSize(int callbackBatchSize) {
+    this.callbackBatchSize = callbackBatchSize;
+    this.store();
+  }
+
+  @Override
+  public String getCdrDirectory() {
+    return cdrDirectory;
+  }
+
+  @Override
+  public void setCdrDirectory(String cdrDirectory) {
+    this.cdrDirectory = cdrDirectory;
+    this.store();
+  }
+
+  @Override
+  public long getCdrFileSize() {
+    return cdrFileSize;
+  }
+
+  @Override
+  public void setCdrFileSize(long cdrFileSize) {
+    this.cdrFileSize = cdrFileSize;
+    this.store();
+  }
+
+  @Override
+  public int getCdrRotationInterval() {
+    return cdrRotationInterval;
+  }
+
+  @Override
+  public void setCdrRotationInterval(int cdrRotationInterval) {
+    this.cdrRotationInterval = cdrRotationInterval;
+    this.store();
+  }
+
+  @Override
+  public int getCdrSyncInterval() {
+    return cdrSyncInterval;
+  }
+
+  @Override
+  public void setCdrSyncInterval(int cdrSyncInterval) {
+    this.cdrSyncInterval = cdrSyncInterval;
+    this.store();
+  }
+
+  @Override
+  public int getCdrBufferSize() {
+    return cdrBufferSize;
+  }
+
+  @Override
+  public void setCdrBufferSize(int cdrBufferSize) {
+    this.cdrBufferSize = cdrBufferSize;
+    this.store();
+  }
+
+  @Override
+  public boolean isCdrBlockWhenFull() {
+    return cdrBlockWhenFull;
+  }
+
+  @Override
+  public void setCdrBlockWhenFull(boolean cdrBlockWhenFull) {
+    this.cdrBlockWhenFull = cdrBlockWhenFull;
+    this.store();
+  }
+
+  @Override
+  public String getCdrDataSource() {
+    return cdrDataSource;
+  }
+
+  @Override
+  public void setCdrDataSource(String cdrDataSource) {
+    this.cdrDataSource = cdrDataSource;
+    this.store();
+  }
+
+  @Override
+  public int getCdrBatchSize() {
+    return cdrBatchSize;
+  }
+
+  @Override
+  public void setCdrBatchSize(int cdrBatchSize) {
+    this.cdrBatchSize = cdrBatchSize;
+    this.store();
+  }
+
+  @Override
+  public int getCdrFlushInterval() {
+    return cdrFlushInterval;
+  }
+
+  @Override
+  public void setCdrFlushInterval(int cdrFlushInterval) {
+    this.cdrFlushInterval = cdrFlushInterval;
+    this.store();
+  }
+
+  @Override
+  public int getCdrSegmentSize() {
+    return cdrSegmentSize;
+  }
+
+  @Override
+  public void setCdrSegmentSize(int cdrSegmentSize) {
+    this.cdrSegmentSize = cdrSegmentSize;
+    this.store();
+  }
+
+  @Override
+  public long getMapVersionCacheTtl() {
+    return mapVersionCacheTtl;
+  }
+
+  @Override
+  public void setMapVersionCacheTtl(long mapVersionCacheTtl) {
+    this.mapVersionCacheTtl = mapVersionCacheTtl;
+    this.store();
+  }
+
+  @Override
+  public int getMapVersionPrefixLength() {
+    return mapVersionPrefixLength;
+  }
+
+  @Override
+  public void setMapVersionPrefixLength(int mapVersionPrefixLength) {
+    this.mapVersionPrefixLength = mapVersionPrefixLength;
+    this.store();
+  }
+
   public String getServerOverloadedMessage() {
     return this.serverOverloadedMessage;
   }
@@ -271,6 +957,44 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
       writer.write(this.maxMapVersion, MAX_MAP_VERSION, Integer.class);
       writer.write(this.cdrLoggingTo.toString(), CDR_LOGGING_TO, String.class);
       writer.write(this.maxActivityCount, MAX_ACTIVITY_COUNT, Integer.class);
+      writer.write(this.atiCacheTtl, ATI_CACHE_TTL, Long.class);
+      writer.write(this.pslCacheTtl, PSL_CACHE_TTL, Long.class);
+      writer.write(this.psiCacheTtl, PSI_CACHE_TTL, Long.class);
+      writer.write(this.maxLocationCacheEntries, MAX_LOCATION_CACHE_ENTRIES, Integer.class);
+      writer.write(this.routingInfoCacheTtl, ROUTING_INFO_CACHE_TTL, Long.class);
+      writer.write(this.unknownSubscriberCacheTtl, UNKNOWN_SUBSCRIBER_CACHE_TTL, Long.class);
+      writer.write(this.maxRoutingInfoCacheEntries, MAX_ROUTING_INFO_CACHE_ENTRIES, Integer.class);
+      writer.write(this.maxAtiRequests, MAX_ATI_REQUESTS, Integer.class);
+      writer.write(this.maxLsmRequests, MAX_LSM_REQUESTS, Integer.class);
+      writer.write(this.maxPsiRequests, MAX_PSI_REQUESTS, Integer.class);
+      writer.write(ClientRateLimiter.getInstance().encodeLimits(), CLIENT_RATE_LIMITS, String.class);
+      writer.write(HlrRoutingTable.getInstance().encodeRoutes(), HLR_ROUTES, String.class);
+      writer.write(TimeoutPolicy.getInstance().encodePolicies(), TIMEOUT_POLICIES, String.class);
+      writer.write(this.mlpIndent, MLP_INDENT, Integer.class);
+      writer.write(this.maxBatchSize, MAX_BATCH_SIZE, Integer.class);
+      writer.write(this.batchConcurrency, BATCH_CONCURRENCY, Integer.class);
+      writer.write(this.callbackConnectTimeout, CALLBACK_CONNECT_TIMEOUT, Integer.class);
+      writer.write(this.callbackReadTimeout, CALLBACK_READ_TIMEOUT, Integer.class);
+      writer.write(this.callbackQueueSize, CALLBACK_QUEUE_SIZE, Integer.class);
+      writer.write(this.callbackConnections, CALLBACK_CONNECTIONS, Integer.class);
+      writer.write(this.callbackMaxRetries, CALLBACK_MAX_RETRIES, Integer.class);
+      writer.write(this.callbackRetryInterval, CALLBACK_RETRY_INTERVAL, Integer.class);
+      writer.write(this.slrRegistrationTtl, SLR_REGISTRATION_TTL, Integer.class);
+      writer.write(this.slrRegistrationJournal, SLR_REGISTRATION_JOURNAL, Boolean.class);
+      writer.write(this.callbackBatchWindow, CALLBACK_BATCH_WINDOW, Integer.class);
+      writer.write(this.callbackBatchSize, CALLBACK_BATCH_SIZE, Integer.class);
+      writer.write(this.cdrDirectory, CDR_DIRECTORY, String.class);
+      writer.write(this.cdrFileSize, CDR_FILE_SIZE, Long.class);
+      writer.write(this.cdrRotationInterval, CDR_ROTATION_INTERVAL, Integer.class);
+      writer.write(this.cdrSyncInterval, CDR_SYNC_INTERVAL, Integer.class);
+      writer.write(this.cdrBufferSize, CDR_BUFFER_SIZE, Integer.class);
+      writer.write(this.cdrBlockWhenFull, CDR_BLOCK_WHEN_FULL, Boolean.class);
+      writer.write(this.cdrDataSource, CDR_DATA_SOURCE, String.class);
+      writer.write(this.cdrBatchSize, CDR_BATCH_SIZE, Integer.class);
+      writer.write(this.cdrFlushInterval, CDR_FLUSH_INTERVAL, Integer.class);
+      writer.write(this.cdrSegmentSize, CDR_SEGMENT_SIZE, Integer.class);
+      writer.write(this.mapVersionCacheTtl, MAP_VERSION_CACHE_TTL, Long.class);
+      writer.write(this.mapVersionPrefixLength, MAP_VERSION_PREFIX_LENGTH, Integer.class);
       writer.close();
     } catch (Exception e) {
       logger.error("Error while persisting the Rule state in file", e);
@@ -295,7 +1019,170 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
       this.mscSsn = reader.read(MSC_SSN, Integer.class);
       this.maxMapVersion = reader.read(MAX_MAP_VERSION, Integer.class);
 
+      // elements below may be missing from files persisted by older releases
+      String cdrLoggingToStr = reader.read(CDR_LOGGING_TO, String.class);
+      if (cdrLoggingToStr != null) {
+        this.cdrLoggingTo = CdrLoggedType.valueOf(cdrLoggingToStr);
+      }
+      Integer intVal = reader.read(MAX_ACTIVITY_COUNT, Integer.class);
+      if (intVal != null) {
+        this.maxActivityCount = intVal;
+      }
+      Long longVal = reader.read(ATI_CACHE_TTL, Long.class);
+      if (longVal != null) {
+        this.atiCacheTtl = longVal;
+      }
+      longVal = reader.read(PSL_CACHE_TTL, Long.class);
+      if (longVal != null) {
+        this.pslCacheTtl = longVal;
+      }
+      longVal = reader.read(PSI_CACHE_TTL, Long.class);
+      if (longVal != null) {
+        this.psiCacheTtl = longVal;
+      }
+      intVal = reader.read(MAX_LOCATION_CACHE_ENTRIES, Integer.class);
+      if (intVal != null) {
+        this.maxLocationCacheEntries = intVal;
+      }
+      longVal = reader.read(ROUTING_INFO_CACHE_TTL, Long.class);
+      if (longVal != null) {
+        this.routingInfoCacheTtl = longVal;
+      }
+      longVal = reader.read(UNKNOWN_SUBSCRIBER_CACHE_TTL, Long.class);
+      if (longVal != null) {
+        this.unknownSubscriberCacheTtl = longVal;
+      }
+      intVal = reader.read(MAX_ROUTING_INFO_CACHE_ENTRIES, Integer.class);
+      if (intVal != null) {
+        this.maxRoutingInfoCacheEntries = intVal;
+      }
+      intVal = reader.read(MAX_ATI_REQUESTS, Integer.class);
+      if (intVal != null) {
+        this.maxAtiRequests = intVal;
+      }
+      intVal = reader.read(MAX_LSM_REQUESTS, Integer.class);
+      if (intVal != null) {
+        this.maxLsmRequests = intVal;
+      }
+      intVal = reader.read(MAX_PSI_REQUESTS, Integer.class);
+      if (intVal != null) {
+        this.maxPsiRequests = intVal;
+      }
+      String clientRateLimits = reader.read(CLIENT_RATE_LIMITS, String.class);
+      if (clientRateLimits != null) {
+        ClientRateLimiter.getInstance().decodeLimits(clientRateLimits);
+      }
+      String hlrRoutes = reader.read(HLR_ROUTES, String.class);
+      if (hlrRoutes != null) {
+        HlrRoutingTable.getInstance().decodeRoutes(hlrRoutes);
+      }
+      String timeoutPolicies = reader.read(TIMEOUT_POLICIES, String.class);
+      if (timeoutPolicies != null) {
+        TimeoutPolicy.getInstance().decodePolicies(timeoutPolicies);
+      }
+      intVal = reader.read(MLP_INDENT, Integer.class);
+      if (intVal != null) {
+        this.mlpIndent = intVal;
+      }
+      intVal = reader.read(MAX_BATCH_SIZE, Integer.class);
+      if (intVal != null) {
+        this.maxBatchSize = intVal;
+      }
+      intVal = reader.read(BATCH_CONCURRENCY, Integer.class);
+      if (intVal != null) {
+        this.batchConcurrency = intVal;
+      }
+      intVal = reader.read(CALLBACK_CONNECT_TIMEOUT, Integer.class);
+      if (intVal != null) {
+        this.callbackConnectTimeout = intVal;
+      }
+      intVal = reader.read(CALLBACK_READ_TIMEOUT, Integer.class);
+      if (intVal != null) {
+        this.callbackReadTimeout = intVal;
+      }
+      intVal = reader.read(CALLBACK_QUEUE_SIZE, Integer.class);
+      if (intVal != null) {
+        this.callbackQueueSize = intVal;
+      }
+      intVal = reader.read(CALLBACK_CONNECTIONS, Integer.class);
+      if (intVal != null) {
+        this.callbackConnections = intVal;
+      }
+      intVal = reader.read(CALLBACK_MAX_RETRIES, Integer.class);
+      if (intVal != null) {
+        this.callbackMaxRetries = intVal;
+      }
+      intVal = reader.read(CALLBACK_RETRY_INTERVAL, Integer.class);
+      if (intVal != null) {
+        this.callbackRetryInterval = intVal;
+      }
+      intVal = reader.read(SLR_REGISTRATION_TTL, Integer.class);
+      if (intVal != null) {
+        this.slrRegistrationTtl = intVal;
+      }
+      Boolean boolVal = reader.read(SLR_REGISTRATION_JOURNAL, Boolean.class);
+      if (boolVal != null) {
+        this.slrRegistrationJournal = boolVal;
+      }
+      intVal = reader.read(CALLBACK_BATCH_WINDOW, Integer.class);
+      if (intVal != null) {
+        this.callbackBatchWindow = intVal;
+      }
+      intVal = reader.read(CALLBACK_BATCH_SIZE, Integer.class);
+      if (intVal != null) {
+        this.callbackBatchSize = intVal;
+      }
+      String strVal = reader.read(CDR_DIRECTORY, String.class);
+      if (strVal != null) {
+        this.cdrDirectory = strVal;
+      }
+      longVal = reader.read(CDR_FILE_SIZE, Long.class);
+      if (longVal != null) {
+        this.cdrFileSize = longVal;
+      }
+      intVal = reader.read(CDR_ROTATION_INTERVAL, Integer.class);
+      if (intVal != null) {
+        this.cdrRotationInterval = intVal;
+      }
+      intVal = reader.read(CDR_SYNC_INTERVAL, Integer.class);
+      if (intVal != null) {
+        this.cdrSyncInterval = intVal;
+      }
+      intVal = reader.read(CDR_BUFFER_SIZE, Integer.class);
+      if (intVal != null) {
+        this.cdrBufferSize = intVal;
+      }
+      boolVal = reader.read(CDR_BLOCK_WHEN_FULL, Boolean.class);
+      if (boolVal != null) {
+        this.cdrBlockWhenFull = boolVal;
+      }
+      strVal = reader.read(CDR_DATA_SOURCE, String.class);
+      if (strVal != null) {
+        this.cdrDataSource = strVal;
+      }
+      intVal = reader.read(CDR_BATCH_SIZE, Integer.class);
+      if (intVal != null) {
+        this.cdrBatchSize = intVal;
+      }
+      intVal = reader.read(CDR_FLUSH_INTERVAL, Integer.class);
+      if (intVal != null) {
+        this.cdrFlushInterval = intVal;
+      }
+      intVal = reader.read(CDR_SEGMENT_SIZE, Integer.class);
+      if (intVal != null) {
+        this.cdrSegmentSize = intVal;
+      }
+      longVal = reader.read(MAP_VERSION_CACHE_TTL, Long.class);
+      if (longVal != null) {
+        this.mapVersionCacheTtl = longVal;
+      }
+      intVal = reader.read(MAP_VERSION_PREFIX_LENGTH, Integer.class);
+      if (intVal != null) {
+        this.mapVersionPrefixLength = intVal;
+      }
+
       reader.close();
+      this.addressGeneration.incrementAndGet();
     } catch (XMLStreamException ex) {
       // this.logger.info(
       // "Error while re-creating Linksets from persisted file", ex);
@@ -303,7 +1190,7 @@ public class GmlcPropertiesManagement implements GmlcPropertiesManagementMBean {
   }
 
   public enum CdrLoggedType {
-    Database, Textfile,
+    Database, Textfile, Binary,
   }
 
 }
@@ -51,10 +51,210 @@ public interface GmlcPropertiesManagementMBean {
 
   void setDialogTimeout(long dialogTimeout);
 
+  GmlcPropertiesManagement.CdrLoggedType getCdrLoggingTo();
+
+  void setCdrLoggingTo(GmlcPropertiesManagement.CdrLoggedType cdrLoggingTo);
+
   int getMaxActivityCount();
 
   void setMaxActivityCount(int maxActivityCount);
 
+  long getAtiCacheTtl();
+
+  void setAtiCacheTtl(long atiCacheTtl);
+
+  long getPslCacheTtl();
+
+  void setPslCacheTtl(long pslCacheTtl);
+
+  long getPsiCacheTtl();
+
+  void setPsiCacheTtl(long psiCacheTtl);
+
+  int getMaxLocationCacheEntries();
+
+  void setMaxLocationCacheEntries(int maxLocationCacheEntries);
+
+  long getLocationCacheHits();
+
+  long getLocationCacheMisses();
+
+  int getLocationCacheEntries();
+
+  void clearLocationCache();
+
+  long getRoutingInfoCacheTtl();
+
+  void setRoutingInfoCacheTtl(long routingInfoCacheTtl);
+
+  long getUnknownSubscriberCacheTtl();
+
+  void setUnknownSubscriberCacheTtl(long unknownSubscriberCacheTtl);
+
+  int getMaxRoutingInfoCacheEntries();
+
+  void setMaxRoutingInfoCacheEntries(int maxRoutingInfoCacheEntries);
+
+  long getRoutingInfoCacheHits();
+
+  long getRoutingInfoCacheMisses();
+
+  int getRoutingInfoCacheEntries();
+
+  void clearRoutingInfoCache();
+
+  int getMaxAtiRequests();
+
+  void setMaxAtiRequests(int maxAtiRequests);
+
+  int getMaxLsmRequests();
+
+  void setMaxLsmRequests(int maxLsmRequests);
+
+  int getMaxPsiRequests();
+
+  void setMaxPsiRequests(int maxPsiRequests);
+
+  int getPendingAtiRequests();
+
+  int getPendingLsmRequests();
+
+  int getPendingPsiRequests();
+
+  long getShedAtiRequests();
+
+  long getShedLsmRequests();
+
+  long getShedPsiRequests();
+
+  long getOverloadShedRequests();
+
+  void resetShedCounters();
+
+  String getClientRateLimits();
+
+  void setClientRateLimit(String clientId, int rate, int burst, int maxConcurrent);
+
+  void removeClientRateLimit(String clientId);
+
+  String getHlrRoutes();
+
+  void setHlrRoute(String prefix, String gt, int ssn, int spc, int weight);
+
+  boolean removeHlrRoute(String prefix, String gt);
+
+  String getTimeoutPolicies();
+
+  void setTimeoutPolicy(String operation, String priority, String responseTime, long timeout);
+
+  boolean removeTimeoutPolicy(String operation, String priority, String responseTime);
+
+  long getRateLimitedRequests();
+
+  long getLeadingLocationRequests();
+
+  long getCoalescedLocationRequests();
+
+  int getMlpIndent();
+
+  void setMlpIndent(int mlpIndent);
+
+  int getMaxBatchSize();
+
+  void setMaxBatchSize(int maxBatchSize);
+
+  int getBatchConcurrency();
+
+  void setBatchConcurrency(int batchConcurrency);
+
+  int getCallbackConnectTimeout();
+
+  void setCallbackConnectTimeout(int callbackConnectTimeout);
+
+  int getCallbackReadTimeout();
+
+  void setCallbackReadTimeout(int callbackReadTimeout);
+
+  int getCallbackQueueSize();
+
+  void setCallbackQueueSize(int callbackQueueSize);
+
+  int getCallbackConnections();
+
+  void setCallbackConnections(int callbackConnections);
+
+  int getCallbackMaxRetries();
+
+  void setCallbackMaxRetries(int callbackMaxRetries);
+
+  int getCallbackRetryInterval();
+
+  void setCallbackRetryInterval(int callbackRetryInterval);
+
+  int getSlrRegistrationTtl();
+
+  void setSlrRegistrationTtl(int slrRegistrationTtl);
+
+  boolean isSlrRegistrationJournal();
+
+  void setSlrRegistrationJournal(boolean slrRegistrationJournal);
+
+  int getCallbackBatchWindow();
+
+  void setCallbackBatchWindow(int callbackBatchWindow);
+
+  int getCallbackBatchSize();
+
+  void setCallbackBatchSize(int callbackBatchSize);
+
+  String getCdrDirectory();
+
+  void setCdrDirectory(String cdrDirectory);
+
+  long getCdrFileSize();
+
+  void setCdrFileSize(long cdrFileSize);
+
+  int getCdrRotationInterval();
+
+  void setCdrRotationInterval(int cdrRotationInterval);
+
+  int getCdrSyncInterval();
+
+  void setCdrSyncInterval(int cdrSyncInterval);
+
+  int getCdrBufferSize();
+
+  void setCdrBufferSize(int cdrBufferSize);
+
+  boolean isCdrBlockWhenFull();
+
+  void setCdrBlockWhenFull(boolean cdrBlockWhenFull);
+
+  String getCdrDataSource();
+
+  void setCdrDataSource(String cdrDataSource);
+
+  int getCdrBatchSize();
+
+  void setCdrBatchSize(int cdrBatchSize);
+
+  int getCdrFlushInterval();
+
+  void setCdrFlushInterval(int cdrFlushInterval);
+
+  int getCdrSegmentSize();
+
+  void setCdrSegmentSize(int cdrSegmentSize);
+
+  long getMapVersionCacheTtl();
+
+  void setMapVersionCacheTtl(long mapVersionCacheTtl);
+
+  int getMapVersionPrefixLength();
+
+  void setMapVersionPrefixLength(int mapVersionPrefixLength);
+
   String getServerOverloadedMessage() ;
 
   void setServerOverloadedMessage(String serverOverloadedMessage);
@@ -35,6 +35,8 @@ public class GmlcShellExecutor implements ShellExecutor {
 
   private static final Logger logger = Logger.getLogger(GmlcShellExecutor.class);
 
+  protected static final String STATS = "stats";
+
   private GmlcManagement gmlcManagement;
   private GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
 
@@ -72,6 +74,8 @@ public class GmlcShellExecutor implements ShellExecutor {
         return this.manageSet(commands);
       } else if (command.equals("get")) {
         return this.manageGet(commands);
+      } else if (command.equals("remove")) {
+        return this.manageRemove(commands);
       }
       return GmlcOAMMessages.INVALID_COMMAND;
     } catch (Exception e) {
@@ -97,7 +101,36 @@ public class GmlcShellExecutor implements ShellExecutor {
     }
 
     String parName = options[2].toLowerCase();
-    if (parName.equals(GmlcPropertiesManagement.GMLC_GT)) {
+    if (parName.equals(GmlcPropertiesManagement.CLIENT_RATE_LIMIT)) {
+      // gmlc set clientratelimit <clientid> <rate> <burst> <maxconcurrent>
+      if (options.length < 7) {
+        return GmlcOAMMessages.INVALID_COMMAND;
+      }
+      gmlcPropertiesManagement.setClientRateLimit(options[3], Integer.parseInt(options[4]), Integer.parseInt(options[5]),
+          Integer.parseInt(options[6]));
+    } else if (parName.equals(GmlcPropertiesManagement.HLR_ROUTE)) {
+      // gmlc set hlrroute <prefix> <gt> <ssn> [<spc> [<weight>]]
+      if (options.length < 6) {
+        return GmlcOAMMessages.INVALID_COMMAND;
+      }
+      int spc = options.length > 6 ? Integer.parseInt(options[6]) : 0;
+      int weight = options.length > 7 ? Integer.parseInt(options[7]) : 1;
+      gmlcPropertiesManagement.setHlrRoute(options[3], options[4], Integer.parseInt(options[5]), spc, weight);
+    } else if (parName.equals(GmlcPropertiesManagement.HLR_DEFAULT_ROUTE)) {
+      // gmlc set hlrdefaultroute <gt> <ssn> [<spc> [<weight>]]
+      if (options.length < 5) {
+        return GmlcOAMMessages.INVALID_COMMAND;
+      }
+      int spc = options.length > 5 ? Integer.parseInt(options[5]) : 0;
+      int weight = options.length > 6 ? Integer.parseInt(options[6]) : 1;
+      gmlcPropertiesManagement.setHlrRoute("", options[3], Integer.parseInt(options[4]), spc, weight);
+    } else if (parName.equals(GmlcPropertiesManagement.TIMEOUT_POLICY)) {
+      // gmlc set timeoutpolicy <operation> <priority|*> <responsetime|*> <timeout>
+      if (options.length < 7) {
+        return GmlcOAMMessages.INVALID_COMMAND;
+      }
+      gmlcPropertiesManagement.setTimeoutPolicy(options[3], options[4], options[5], Long.parseLong(options[6]));
+    } else if (parName.equals(GmlcPropertiesManagement.GMLC_GT)) {
       gmlcPropertiesManagement.setGmlcGt(options[3]);
     } else if (parName.equals(GmlcPropertiesManagement.GMLC_SSN)) {
       int val = Integer.parseInt(options[3]);
@@ -111,6 +144,117 @@ public class GmlcShellExecutor implements ShellExecutor {
     } else if (parName.equals(GmlcPropertiesManagement.MAX_MAP_VERSION)) {
       int val = Integer.parseInt(options[3]);
       gmlcPropertiesManagement.setMaxMapVersion(val);
+    } else if (parName.equals(GmlcPropertiesManagement.ATI_CACHE_TTL)) {
+      long val = Long.parseLong(options[3]);
+      gmlcPropertiesManagement.setAtiCacheTtl(val);
+    } else if (parName.equals(GmlcPropertiesManagement.PSL_CACHE_TTL)) {
+      long val = Long.parseLong(options[3]);
+      gmlcPropertiesManagement.setPslCacheTtl(val);
+    } else if (parName.equals(GmlcPropertiesManagement.PSI_CACHE_TTL)) {
+      long val = Long.parseLong(options[3]);
+      gmlcPropertiesManagement.setPsiCacheTtl(val);
+    } else if (parName.equals(GmlcPropertiesManagement.MAX_LOCATION_CACHE_ENTRIES)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setMaxLocationCacheEntries(val);
+    } else if (parName.equals(GmlcPropertiesManagement.ROUTING_INFO_CACHE_TTL)) {
+      long val = Long.parseLong(options[3]);
+      gmlcPropertiesManagement.setRoutingInfoCacheTtl(val);
+    } else if (parName.equals(GmlcPropertiesManagement.UNKNOWN_SUBSCRIBER_CACHE_TTL)) {
+      long val = Long.parseLong(options[3]);
+      gmlcPropertiesManagement.setUnknownSubscriberCacheTtl(val);
+    } else if (parName.equals(GmlcPropertiesManagement.MAX_ROUTING_INFO_CACHE_ENTRIES)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setMaxRoutingInfoCacheEntries(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CDR_LOGGING_TO)) {
+      GmlcPropertiesManagement.CdrLoggedType val = GmlcPropertiesManagement.CdrLoggedType.valueOf(options[3]);
+      gmlcPropertiesManagement.setCdrLoggingTo(val);
+    } else if (parName.equals(GmlcPropertiesManagement.MAX_ACTIVITY_COUNT)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setMaxActivityCount(val);
+    } else if (parName.equals(GmlcPropertiesManagement.MAX_ATI_REQUESTS)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setMaxAtiRequests(val);
+    } else if (parName.equals(GmlcPropertiesManagement.MAX_LSM_REQUESTS)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setMaxLsmRequests(val);
+    } else if (parName.equals(GmlcPropertiesManagement.MAX_PSI_REQUESTS)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setMaxPsiRequests(val);
+    } else if (parName.equals(GmlcPropertiesManagement.MLP_INDENT)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setMlpIndent(val);
+    } else if (parName.equals(GmlcPropertiesManagement.MAX_BATCH_SIZE)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setMaxBatchSize(val);
+    } else if (parName.equals(GmlcPropertiesManagement.BATCH_CONCURRENCY)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setBatchConcurrency(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_CONNECT_TIMEOUT)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCallbackConnectTimeout(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_READ_TIMEOUT)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCallbackReadTimeout(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_QUEUE_SIZE)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCallbackQueueSize(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_CONNECTIONS)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCallbackConnections(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_MAX_RETRIES)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCallbackMaxRetries(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_RETRY_INTERVAL)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCallbackRetryInterval(val);
+    } else if (parName.equals(GmlcPropertiesManagement.SLR_REGISTRATION_TTL)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setSlrRegistrationTtl(val);
+    } else if (parName.equals(GmlcPropertiesManagement.SLR_REGISTRATION_JOURNAL)) {
+      boolean val = Boolean.parseBoolean(options[3]);
+      gmlcPropertiesManagement.setSlrRegistrationJournal(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_BATCH_WINDOW)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCallbackBatchWindow(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_BATCH_SIZE)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCallbackBatchSize(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CDR_DIRECTORY)) {
+      String val = options[3];
+      gmlcPropertiesManagement.setCdrDirectory(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CDR_FILE_SIZE)) {
+      long val = Long.parseLong(options[3]);
+      gmlcPropertiesManagement.setCdrFileSize(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CDR_ROTATION_INTERVAL)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCdrRotationInterval(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CDR_SYNC_INTERVAL)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCdrSyncInterval(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CDR_BUFFER_SIZE)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCdrBufferSize(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CDR_BLOCK_WHEN_FULL)) {
+      boolean val = Boolean.parseBoolean(options[3]);
+      gmlcPropertiesManagement.setCdrBlockWhenFull(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CDR_DATA_SOURCE)) {
+      String val = options[3];
+      gmlcPropertiesManagement.setCdrDataSource(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CDR_BATCH_SIZE)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCdrBatchSize(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CDR_FLUSH_INTERVAL)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCdrFlushInterval(val);
+    } else if (parName.equals(GmlcPropertiesManagement.CDR_SEGMENT_SIZE)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setCdrSegmentSize(val);
+    } else if (parName.equals(GmlcPropertiesManagement.MAP_VERSION_CACHE_TTL)) {
+      long val = Long.parseLong(options[3]);
+      gmlcPropertiesManagement.setMapVersionCacheTtl(val);
+    } else if (parName.equals(GmlcPropertiesManagement.MAP_VERSION_PREFIX_LENGTH)) {
+      int val = Integer.parseInt(options[3]);
+      gmlcPropertiesManagement.setMapVersionPrefixLength(val);
     } else {
       return GmlcOAMMessages.INVALID_COMMAND;
     }
@@ -121,6 +265,9 @@ public class GmlcShellExecutor implements ShellExecutor {
   private String manageGet(String[] options) throws Exception {
     if (options.length == 3) {
       String parName = options[2].toLowerCase();
+      if (parName.equals(STATS)) {
+        return GmlcStatAggregator.getInstance().getStatistics();
+      }
 
       StringBuilder sb = new StringBuilder();
       sb.append(options[2]);
@@ -135,6 +282,86 @@ public class GmlcShellExecutor implements ShellExecutor {
         sb.append(gmlcPropertiesManagement.getMscSsn());
       } else if (parName.equals(GmlcPropertiesManagement.MAX_MAP_VERSION)) {
         sb.append(gmlcPropertiesManagement.getMaxMapVersion());
+      } else if (parName.equals(GmlcPropertiesManagement.ATI_CACHE_TTL)) {
+        sb.append(gmlcPropertiesManagement.getAtiCacheTtl());
+      } else if (parName.equals(GmlcPropertiesManagement.PSL_CACHE_TTL)) {
+        sb.append(gmlcPropertiesManagement.getPslCacheTtl());
+      } else if (parName.equals(GmlcPropertiesManagement.PSI_CACHE_TTL)) {
+        sb.append(gmlcPropertiesManagement.getPsiCacheTtl());
+      } else if (parName.equals(GmlcPropertiesManagement.MAX_LOCATION_CACHE_ENTRIES)) {
+        sb.append(gmlcPropertiesManagement.getMaxLocationCacheEntries());
+      } else if (parName.equals(GmlcPropertiesManagement.ROUTING_INFO_CACHE_TTL)) {
+        sb.append(gmlcPropertiesManagement.getRoutingInfoCacheTtl());
+      } else if (parName.equals(GmlcPropertiesManagement.UNKNOWN_SUBSCRIBER_CACHE_TTL)) {
+        sb.append(gmlcPropertiesManagement.getUnknownSubscriberCacheTtl());
+      } else if (parName.equals(GmlcPropertiesManagement.MAX_ROUTING_INFO_CACHE_ENTRIES)) {
+        sb.append(gmlcPropertiesManagement.getMaxRoutingInfoCacheEntries());
+      } else if (parName.equals(GmlcPropertiesManagement.CDR_LOGGING_TO)) {
+        sb.append(gmlcPropertiesManagement.getCdrLoggingTo());
+      } else if (parName.equals(GmlcPropertiesManagement.MAX_ACTIVITY_COUNT)) {
+        sb.append(gmlcPropertiesManagement.getMaxActivityCount());
+      } else if (parName.equals(GmlcPropertiesManagement.MAX_ATI_REQUESTS)) {
+        sb.append(gmlcPropertiesManagement.getMaxAtiRequests());
+      } else if (parName.equals(GmlcPropertiesManagement.MAX_LSM_REQUESTS)) {
+        sb.append(gmlcPropertiesManagement.getMaxLsmRequests());
+      } else if (parName.equals(GmlcPropertiesManagement.MAX_PSI_REQUESTS)) {
+        sb.append(gmlcPropertiesManagement.getMaxPsiRequests());
+      } else if (parName.equals(GmlcPropertiesManagement.CLIENT_RATE_LIMIT)) {
+        sb.append(gmlcPropertiesManagement.getClientRateLimits());
+      } else if (parName.equals(GmlcPropertiesManagement.HLR_ROUTE)) {
+        sb.append(gmlcPropertiesManagement.getHlrRoutes());
+      } else if (parName.equals(GmlcPropertiesManagement.TIMEOUT_POLICY)) {
+        sb.append(gmlcPropertiesManagement.getTimeoutPolicies());
+      } else if (parName.equals(GmlcPropertiesManagement.MLP_INDENT)) {
+        sb.append(gmlcPropertiesManagement.getMlpIndent());
+      } else if (parName.equals(GmlcPropertiesManagement.MAX_BATCH_SIZE)) {
+        sb.append(gmlcPropertiesManagement.getMaxBatchSize());
+      } else if (parName.equals(GmlcPropertiesManagement.BATCH_CONCURRENCY)) {
+        sb.append(gmlcPropertiesManagement.getBatchConcurrency());
+      } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_CONNECT_TIMEOUT)) {
+        sb.append(gmlcPropertiesManagement.getCallbackConnectTimeout());
+      } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_READ_TIMEOUT)) {
+        sb.append(gmlcPropertiesManagement.getCallbackReadTimeout());
+      } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_QUEUE_SIZE)) {
+        sb.append(gmlcPropertiesManagement.getCallbackQueueSize());
+      } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_CONNECTIONS)) {
+        sb.append(gmlcPropertiesManagement.getCallbackConnections());
+      } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_MAX_RETRIES)) {
+        sb.append(gmlcPropertiesManagement.getCallbackMaxRetries());
+      } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_RETRY_INTERVAL)) {
+        sb.append(gmlcPropertiesManagement.getCallbackRetryInterval());
+      } else if (parName.equals(GmlcPropertiesManagement.SLR_REGISTRATION_TTL)) {
+        sb.append(gmlcPropertiesManagement.getSlrRegistrationTtl());
+      } else if (parName.equals(GmlcPropertiesManagement.SLR_REGISTRATION_JOURNAL)) {
+        sb.append(gmlcPropertiesManagement.isSlrRegistrationJournal());
+      } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_BATCH_WINDOW)) {
+        sb.append(gmlcPropertiesManagement.getCallbackBatchWindow());
+      } else if (parName.equals(GmlcPropertiesManagement.CALLBACK_BATCH_SIZE)) {
+        sb.append(gmlcPropertiesManagement.getCallbackBatchSize());
+      } else if (parName.equals(GmlcPropertiesManagement.CDR_DIRECTORY)) {
+        sb.append(gmlcPropertiesManagement.getCdrDirectory());
+      } else if (parName.equals(GmlcPropertiesManagement.CDR_FILE_SIZE)) {
+        sb.append(gmlcPropertiesManagement.getCdrFileSize());
+      } else if (parName.equals(GmlcPropertiesManagement.CDR_ROTATION_INTERVAL)) {
+        sb.append(gmlcPropertiesManagement.getCdrRotationInterval());
+      } else if (parName.equals(GmlcPropertiesManagement.CDR_SYNC_INTERVAL)) {
+        sb.append(gmlcPropertiesManagement.getCdrSyncInterval());
+      } else if (parName.equals(GmlcPropertiesManagement.CDR_BUFFER_SIZE)) {
+        sb.append(gmlcPropertiesManagement.getCdrBufferSize());
+      } else if (parName.equals(GmlcPropertiesManagement.CDR_BLOCK_WHEN_FULL)) {
+        sb.append(gmlcPropertiesManagement.isCdrBlockWhenFull());
+      } else if (parName.equals(GmlcPropertiesManagement.CDR_DATA_SOURCE)) {
+        sb.append(gmlcPropertiesManagement.getCdrDataSource());
+      } else if (parName.equals(GmlcPropertiesManagement.CDR_BATCH_SIZE)) {
+        sb.append(gmlcPropertiesManagement.getCdrBatchSize());
+      } else if (parName.equals(GmlcPropertiesManagement.CDR_FLUSH_INTERVAL)) {
+        sb.append(gmlcPropertiesManagement.getCdrFlushInterval());
+      } else if (parName.equals(GmlcPropertiesManagement.CDR_SEGMENT_SIZE)) {
+        sb.append(gmlcPropertiesManagement.getCdrSegmentSize());
+      } else if (parName.equals(GmlcPropertiesManagement.MAP_VERSION_CACHE_TTL)) {
+        sb.append(gmlcPropertiesManagement.getMapVersionCacheTtl());
+      } else if (parName.equals(GmlcPropertiesManagement.MAP_VERSION_PREFIX_LENGTH)) {
+        sb.append(gmlcPropertiesManagement.getMapVersionPrefixLength());
       } else {
         return GmlcOAMMessages.INVALID_COMMAND;
       }
@@ -162,7 +389,194 @@ public class GmlcShellExecutor implements ShellExecutor {
       sb.append(gmlcPropertiesManagement.getMaxMapVersion());
       sb.append("\n");
 
+      sb.append(GmlcPropertiesManagement.ATI_CACHE_TTL + " = ");
+      sb.append(gmlcPropertiesManagement.getAtiCacheTtl());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.PSL_CACHE_TTL + " = ");
+      sb.append(gmlcPropertiesManagement.getPslCacheTtl());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.PSI_CACHE_TTL + " = ");
+      sb.append(gmlcPropertiesManagement.getPsiCacheTtl());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.MAX_LOCATION_CACHE_ENTRIES + " = ");
+      sb.append(gmlcPropertiesManagement.getMaxLocationCacheEntries());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.ROUTING_INFO_CACHE_TTL + " = ");
+      sb.append(gmlcPropertiesManagement.getRoutingInfoCacheTtl());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.UNKNOWN_SUBSCRIBER_CACHE_TTL + " = ");
+      sb.append(gmlcPropertiesManagement.getUnknownSubscriberCacheTtl());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.MAX_ROUTING_INFO_CACHE_ENTRIES + " = ");
+      sb.append(gmlcPropertiesManagement.getMaxRoutingInfoCacheEntries());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CDR_LOGGING_TO + " = ");
+      sb.append(gmlcPropertiesManagement.getCdrLoggingTo());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.MAX_ACTIVITY_COUNT + " = ");
+      sb.append(gmlcPropertiesManagement.getMaxActivityCount());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.MAX_ATI_REQUESTS + " = ");
+      sb.append(gmlcPropertiesManagement.getMaxAtiRequests());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.MAX_LSM_REQUESTS + " = ");
+      sb.append(gmlcPropertiesManagement.getMaxLsmRequests());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.MAX_PSI_REQUESTS + " = ");
+      sb.append(gmlcPropertiesManagement.getMaxPsiRequests());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.MLP_INDENT + " = ");
+      sb.append(gmlcPropertiesManagement.getMlpIndent());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.MAX_BATCH_SIZE + " = ");
+      sb.append(gmlcPropertiesManagement.getMaxBatchSize());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.BATCH_CONCURRENCY + " = ");
+      sb.append(gmlcPropertiesManagement.getBatchConcurrency());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CALLBACK_CONNECT_TIMEOUT + " = ");
+      sb.append(gmlcPropertiesManagement.getCallbackConnectTimeout());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CALLBACK_READ_TIMEOUT + " = ");
+      sb.append(gmlcPropertiesManagement.getCallbackReadTimeout());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CALLBACK_QUEUE_SIZE + " = ");
+      sb.append(gmlcPropertiesManagement.getCallbackQueueSize());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CALLBACK_CONNECTIONS + " = ");
+      sb.append(gmlcPropertiesManagement.getCallbackConnections());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CALLBACK_MAX_RETRIES + " = ");
+      sb.append(gmlcPropertiesManagement.getCallbackMaxRetries());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CALLBACK_RETRY_INTERVAL + " = ");
+      sb.append(gmlcPropertiesManagement.getCallbackRetryInterval());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.SLR_REGISTRATION_TTL + " = ");
+      sb.append(gmlcPropertiesManagement.getSlrRegistrationTtl());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.SLR_REGISTRATION_JOURNAL + " = ");
+      sb.append(gmlcPropertiesManagement.isSlrRegistrationJournal());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CALLBACK_BATCH_WINDOW + " = ");
+      sb.append(gmlcPropertiesManagement.getCallbackBatchWindow());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CALLBACK_BATCH_SIZE + " = ");
+      sb.append(gmlcPropertiesManagement.getCallbackBatchSize());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CDR_DIRECTORY + " = ");
+      sb.append(gmlcPropertiesManagement.getCdrDirectory());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CDR_FILE_SIZE + " = ");
+      sb.append(gmlcPropertiesManagement.getCdrFileSize());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CDR_ROTATION_INTERVAL + " = ");
+      sb.append(gmlcPropertiesManagement.getCdrRotationInterval());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CDR_SYNC_INTERVAL + " = ");
+      sb.append(gmlcPropertiesManagement.getCdrSyncInterval());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CDR_BUFFER_SIZE + " = ");
+      sb.append(gmlcPropertiesManagement.getCdrBufferSize());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CDR_BLOCK_WHEN_FULL + " = ");
+      sb.append(gmlcPropertiesManagement.isCdrBlockWhenFull());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CDR_DATA_SOURCE + " = ");
+      sb.append(gmlcPropertiesManagement.getCdrDataSource());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CDR_BATCH_SIZE + " = ");
+      sb.append(gmlcPropertiesManagement.getCdrBatchSize());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CDR_FLUSH_INTERVAL + " = ");
+      sb.append(gmlcPropertiesManagement.getCdrFlushInterval());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.CDR_SEGMENT_SIZE + " = ");
+      sb.append(gmlcPropertiesManagement.getCdrSegmentSize());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.MAP_VERSION_CACHE_TTL + " = ");
+      sb.append(gmlcPropertiesManagement.getMapVersionCacheTtl());
+      sb.append("\n");
+
+      sb.append(GmlcPropertiesManagement.MAP_VERSION_PREFIX_LENGTH + " = ");
+      sb.append(gmlcPropertiesManagement.getMapVersionPrefixLength());
+      sb.append("\n");
+
       return sb.toString();
     }
   }
+
+  private String manageRemove(String[] options) throws Exception {
+    // gmlc remove hlrdefaultroute [<gt>]
+    if (options.length == 3 && options[2].toLowerCase().equals(GmlcPropertiesManagement.HLR_DEFAULT_ROUTE)) {
+      if (!gmlcPropertiesManagement.removeHlrRoute("", null)) {
+        return GmlcOAMMessages.NO_SUCH_ROUTE;
+      }
+      return GmlcOAMMessages.PARAMETER_SUCCESSFULLY_REMOVED;
+    }
+
+    // gmlc remove clientratelimit <clientid>
+    if (options.length < 4) {
+      return GmlcOAMMessages.INVALID_COMMAND;
+    }
+
+    String parName = options[2].toLowerCase();
+    if (parName.equals(GmlcPropertiesManagement.CLIENT_RATE_LIMIT)) {
+      gmlcPropertiesManagement.removeClientRateLimit(options[3]);
+    } else if (parName.equals(GmlcPropertiesManagement.HLR_ROUTE)) {
+      // gmlc remove hlrroute <prefix> [<gt>]
+      if (!gmlcPropertiesManagement.removeHlrRoute(options[3], options.length > 4 ? options[4] : null)) {
+        return GmlcOAMMessages.NO_SUCH_ROUTE;
+      }
+    } else if (parName.equals(GmlcPropertiesManagement.HLR_DEFAULT_ROUTE)) {
+      if (!gmlcPropertiesManagement.removeHlrRoute("", options[3])) {
+        return GmlcOAMMessages.NO_SUCH_ROUTE;
+      }
+    } else if (parName.equals(GmlcPropertiesManagement.TIMEOUT_POLICY)) {
+      // gmlc remove timeoutpolicy <operation> [<priority|*> [<responsetime|*>]]
+      if (!gmlcPropertiesManagement.removeTimeoutPolicy(options[3], options.length > 4 ? options[4] : null,
+          options.length > 5 ? options[5] : null)) {
+        return GmlcOAMMessages.NO_SUCH_POLICY;
+      }
+    } else {
+      return GmlcOAMMessages.INVALID_COMMAND;
+    }
+
+    return GmlcOAMMessages.PARAMETER_SUCCESSFULLY_REMOVED;
+  }
 }
@@ -0,0 +1,297 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Aggregates the GMLC statistics updated on the hot path by the SBBs: per MAP operation the requests sent,
+ * successful responses, MAP errors (in total and per error code), dialog and invoke timeouts, aborts
+ * and rejects, plus the end-to-end latency of the HTTP requests answered. Every update is a single
+ * atomic increment on a counter kept in its own cache line, so that SBBs updating different counters
+ * do not contend with each other. The latency of the successful MAP responses is also kept per operation.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class GmlcStatAggregator implements GmlcStatisticsMBean {
+
+  public enum MapOperation {
+    ATI, SRI_FOR_LCS, PSL, SRI_FOR_SM, PSI, SLR
+  }
+
+  private enum Counter {
+    REQUESTS, SUCCESSES, ERRORS, TIMEOUTS, ABORTS, REJECTS
+  }
+
+  /**
+   * MAP error codes are local operation error codes, below 256
+   */
+  private static final int MAP_ERROR_CODES = 256;
+
+  private static final int COUNTERS = Counter.values().length;
+
+  // counters are 8 longs (64 bytes) apart, one per cache line
+  private static final int STRIDE = 8;
+
+  private static final GmlcStatAggregator instance = new GmlcStatAggregator();
+
+  private final AtomicLongArray counters = new AtomicLongArray(MapOperation.values().length * COUNTERS * STRIDE);
+  private final AtomicLongArray mapErrors = new AtomicLongArray(MapOperation.values().length * MAP_ERROR_CODES);
+  private final AtomicLong appTimeouts = new AtomicLong();
+  private final LatencyHistogram[] mapLatency = new LatencyHistogram[MapOperation.values().length];
+  private final LatencyHistogram httpLatency = new LatencyHistogram();
+
+  private GmlcStatAggregator() {
+    for (int i = 0; i < this.mapLatency.length; i++) {
+      this.mapLatency[i] = new LatencyHistogram();
+    }
+  }
+
+  public static GmlcStatAggregator getInstance() {
+    return instance;
+  }
+
+  public void updateRequests(MapOperation operation) {
+    this.increment(operation, Counter.REQUESTS);
+  }
+
+  public void updateSuccesses(MapOperation operation) {
+    this.increment(operation, Counter.SUCCESSES);
+  }
+
+  /**
+   * Count a MAP error component received for an operation
+   *
+   * @param operation MAP operation the error was returned for
+   * @param errorCode MAP error code
+   */
+  public void updateErrors(MapOperation operation, long errorCode) {
+    this.increment(operation, Counter.ERRORS);
+    if (errorCode >= 0 && errorCode < MAP_ERROR_CODES) {
+      this.mapErrors.incrementAndGet(operation.ordinal() * MAP_ERROR_CODES + (int) errorCode);
+    }
+  }
+
+  public void updateTimeouts(MapOperation operation) {
+    this.increment(operation, Counter.TIMEOUTS);
+  }
+
+  public void updateAborts(MapOperation operation) {
+    this.increment(operation, Counter.ABORTS);
+  }
+
+  public void updateRejects(MapOperation operation) {
+    this.increment(operation, Counter.REJECTS);
+  }
+
+  /**
+   * Record the time a MAP operation took to be answered
+   *
+   * @param operation MAP operation
+   * @param millis    milliseconds elapsed from the sending of the request to the reception of its response
+   */
+  public void updateLatency(MapOperation operation, long millis) {
+    this.mapLatency[operation.ordinal()].record(millis);
+  }
+
+  public void updateAppTimeouts() {
+    this.appTimeouts.incrementAndGet();
+  }
+
+  /**
+   * Record the time taken to answer an HTTP request
+   *
+   * @param millis milliseconds elapsed from the reception of the request to the sending of its response
+   */
+  public void updateHttpLatency(long millis) {
+    this.httpLatency.record(millis);
+  }
+
+  public long getRequests(MapOperation operation) {
+    return this.get(operation, Counter.REQUESTS);
+  }
+
+  public long getSuccesses(MapOperation operation) {
+    return this.get(operation, Counter.SUCCESSES);
+  }
+
+  public long getErrors(MapOperation operation) {
+    return this.get(operation, Counter.ERRORS);
+  }
+
+  public long getMapErrors(MapOperation operation, int errorCode) {
+    if (errorCode < 0 || errorCode >= MAP_ERROR_CODES) {
+      return 0;
+    }
+    return this.mapErrors.get(operation.ordinal() * MAP_ERROR_CODES + errorCode);
+  }
+
+  public long getTimeouts(MapOperation operation) {
+    return this.get(operation, Counter.TIMEOUTS);
+  }
+
+  public long getAborts(MapOperation operation) {
+    return this.get(operation, Counter.ABORTS);
+  }
+
+  public long getRejects(MapOperation operation) {
+    return this.get(operation, Counter.REJECTS);
+  }
+
+  public LatencyHistogram getLatency(MapOperation operation) {
+    return this.mapLatency[operation.ordinal()];
+  }
+
+  public LatencyHistogram getHttpLatency() {
+    return this.httpLatency;
+  }
+
+  @Override
+  public long getRequests(String operation) {
+    return this.getRequests(MapOperation.valueOf(operation.toUpperCase()));
+  }
+
+  @Override
+  public long getSuccesses(String operation) {
+    return this.getSuccesses(MapOperation.valueOf(operation.toUpperCase()));
+  }
+
+  @Override
+  public long getErrors(String operation) {
+    return this.getErrors(MapOperation.valueOf(operation.toUpperCase()));
+  }
+
+  @Override
+  public long getMapErrors(String operation, int errorCode) {
+    return this.getMapErrors(MapOperation.valueOf(operation.toUpperCase()), errorCode);
+  }
+
+  @Override
+  public long getTimeouts(String operation) {
+    return this.getTimeouts(MapOperation.valueOf(operation.toUpperCase()));
+  }
+
+  @Override
+  public long getAborts(String operation) {
+    return this.getAborts(MapOperation.valueOf(operation.toUpperCase()));
+  }
+
+  @Override
+  public long getRejects(String operation) {
+    return this.getRejects(MapOperation.valueOf(operation.toUpperCase()));
+  }
+
+  @Override
+  public long getLatencyPercentile(String operation, double percentile) {
+    return this.getLatency(MapOperation.valueOf(operation.toUpperCase())).getPercentile(percentile);
+  }
+
+  @Override
+  public long getAppTimeouts() {
+    return this.appTimeouts.get();
+  }
+
+  @Override
+  public long getHttpRequests() {
+    return this.httpLatency.getCount();
+  }
+
+  @Override
+  public double getHttpLatencyMean() {
+    return this.httpLatency.getMean();
+  }
+
+  @Override
+  public long getHttpLatencyMax() {
+    return this.httpLatency.getMax();
+  }
+
+  @Override
+  public long getHttpLatencyPercentile(double percentile) {
+    return this.httpLatency.getPercentile(percentile);
+  }
+
+  /**
+   * Get every statistic as text, one line per MAP operation followed by the HTTP latencies
+   */
+  @Override
+  public String getStatistics() {
+    StringBuilder sb = new StringBuilder();
+    for (MapOperation operation : MapOperation.values()) {
+      sb.append(operation.name());
+      for (Counter counter : Counter.values()) {
+        sb.append(GmlcOAMMessages.SPACE).append(counter.name().toLowerCase()).append('=').append(this.get(operation, counter));
+      }
+      boolean first = true;
+      for (int errorCode = 0; errorCode < MAP_ERROR_CODES; errorCode++) {
+        long errors = this.mapErrors.get(operation.ordinal() * MAP_ERROR_CODES + errorCode);
+        if (errors != 0) {
+          sb.append(first ? " maperrors=" : GmlcOAMMessages.COMMA).append(errorCode).append(':').append(errors);
+          first = false;
+        }
+      }
+      LatencyHistogram latency = this.mapLatency[operation.ordinal()];
+      if (latency.getCount() != 0) {
+        sb.append(" latency(ms) p50=").append(latency.getPercentile(50));
+        sb.append(" p99=").append(latency.getPercentile(99));
+      }
+      sb.append(GmlcOAMMessages.NEW_LINE);
+    }
+    sb.append("APP apptimeouts=").append(this.appTimeouts.get()).append(GmlcOAMMessages.NEW_LINE);
+    sb.append("HTTP requests=").append(this.httpLatency.getCount());
+    sb.append(String.format(" latency(ms) mean=%.1f", this.httpLatency.getMean()));
+    sb.append(" p50=").append(this.httpLatency.getPercentile(50));
+    sb.append(" p90=").append(this.httpLatency.getPercentile(90));
+    sb.append(" p99=").append(this.httpLatency.getPercentile(99));
+    sb.append(" max=").append(this.httpLatency.getMax());
+    return sb.toString();
+  }
+
+  @Override
+  public void resetStatistics() {
+    for (int i = 0; i < this.counters.length(); i++) {
+      this.counters.set(i, 0);
+    }
+    for (int i = 0; i < this.mapErrors.length(); i++) {
+      this.mapErrors.set(i, 0);
+    }
+    this.appTimeouts.set(0);
+    for (LatencyHistogram latency : this.mapLatency) {
+      latency.reset();
+    }
+    this.httpLatency.reset();
+  }
+
+  private void increment(MapOperation operation, Counter counter) {
+    this.counters.incrementAndGet(index(operation, counter));
+  }
+
+  private long get(MapOperation operation, Counter counter) {
+    return this.counters.get(index(operation, counter));
+  }
+
+  private static int index(MapOperation operation, Counter counter) {
+    return (operation.ordinal() * COUNTERS + counter.ordinal()) * STRIDE;
+  }
+
+}
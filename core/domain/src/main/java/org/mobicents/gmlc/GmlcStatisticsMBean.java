@@ -0,0 +1,62 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc;
+
+/**
+ * Counters of the MAP operations and HTTP requests handled by the GMLC.
+ * MAP operations are named as in {@link GmlcStatAggregator.MapOperation}.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public interface GmlcStatisticsMBean {
+
+  long getRequests(String operation);
+
+  long getSuccesses(String operation);
+
+  long getErrors(String operation);
+
+  long getMapErrors(String operation, int errorCode);
+
+  long getTimeouts(String operation);
+
+  long getAborts(String operation);
+
+  long getRejects(String operation);
+
+  long getLatencyPercentile(String operation, double percentile);
+
+  long getAppTimeouts();
+
+  long getHttpRequests();
+
+  double getHttpLatencyMean();
+
+  long getHttpLatencyMax();
+
+  long getHttpLatencyPercentile(double percentile);
+
+  String getStatistics();
+
+  void resetStatistics();
+
+}
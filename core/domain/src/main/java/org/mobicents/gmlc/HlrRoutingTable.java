@@ -0,0 +1,331 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * HLR routing table: MSISDN prefixes mapped to the HLRs serving them, each given by its GT, SSN and optionally
+ * its signalling point code, so that MAP requests to the HLR are addressed directly instead of relying on
+ * the GTT of an STP. When several HLR replicas serve a prefix, requests are shared among them in proportion
+ * to their weights. The routes are compiled into an immutable digit trie, replaced as a whole on every change,
+ * so that a lookup takes no lock and finds the longest matching prefix in one step per digit.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class HlrRoutingTable {
+
+  private static final Logger logger = Logger.getLogger(HlrRoutingTable.class);
+
+  // largest 24 bit ANSI point code, ITU point codes are 14 bit
+  private static final int MAX_SPC = 0xFFFFFF;
+
+  private static final HlrRoutingTable instance = new HlrRoutingTable();
+
+  // configured routes by prefix, guarded by this; the trie is compiled from them
+  private final Map<String, List<HlrReplica>> routes = new TreeMap<String, List<HlrReplica>>();
+  private volatile Node root = new Node();
+
+  private HlrRoutingTable() {
+  }
+
+  public static HlrRoutingTable getInstance() {
+    return instance;
+  }
+
+  /**
+   * Select the HLR of a subscriber
+   *
+   * @param msisdn subscriber MSISDN, international format digits
+   * @return one of the HLR replicas of the longest prefix matching the MSISDN, chosen according to their weights,
+   * or null when no prefix matches
+   */
+  public HlrReplica route(String msisdn) {
+    if (msisdn == null) {
+      return null;
+    }
+    Node node = this.root;
+    Route route = node.route;
+    for (int i = 0; i < msisdn.length(); i++) {
+      int digit = msisdn.charAt(i) - '0';
+      if (digit < 0 || digit > 9 || node.children == null || (node = node.children[digit]) == null) {
+        break;
+      }
+      if (node.route != null) {
+        route = node.route;
+      }
+    }
+    return route == null ? null : route.select();
+  }
+
+  /**
+   * Add an HLR replica to a prefix, replacing the replica with the same GT if there is one
+   *
+   * @param prefix MSISDN prefix, digits only, empty for the default route
+   * @param gt     HLR global title
+   * @param ssn    HLR subsystem number
+   * @param spc    HLR signalling point code, 0 to route on the global title
+   * @param weight share of the requests relative to the other replicas of the prefix, at least 1
+   * @throws IllegalArgumentException if any of the values is invalid, the routes are then left unchanged
+   */
+  public synchronized void setRoute(String prefix, String gt, int ssn, int spc, int weight) {
+    this.addRoute(prefix, gt, ssn, spc, weight);
+    this.compile();
+  }
+
+  /**
+   * Remove an HLR replica from a prefix, or the whole prefix
+   *
+   * @param prefix MSISDN prefix
+   * @param gt     HLR global title, null to remove every replica of the prefix
+   * @return false if there was no such route
+   */
+  public synchronized boolean removeRoute(String prefix, String gt) {
+    List<HlrReplica> replicas = this.routes.get(prefix);
+    if (replicas == null) {
+      return false;
+    }
+    if (gt == null) {
+      this.routes.remove(prefix);
+    } else {
+      int index = indexOf(replicas, gt);
+      if (index < 0) {
+        return false;
+      }
+      replicas.remove(index);
+      if (replicas.isEmpty()) {
+        this.routes.remove(prefix);
+      }
+    }
+    this.compile();
+    return true;
+  }
+
+  public synchronized void clear() {
+    this.routes.clear();
+    this.compile();
+  }
+
+  /**
+   * @return configured routes as prefix:gt:ssn:spc:weight entries separated by ';'
+   */
+  public synchronized String encodeRoutes() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, List<HlrReplica>> entry : this.routes.entrySet()) {
+      for (HlrReplica replica : entry.getValue()) {
+        if (sb.length() > 0) {
+          sb.append(';');
+        }
+        sb.append(entry.getKey()).append(':').append(replica.gt).append(':').append(replica.ssn).append(':').append(replica.spc)
+            .append(':').append(replica.weight);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Replace the configured routes with those encoded by {@link #encodeRoutes()}, skipping invalid entries
+   */
+  public synchronized void decodeRoutes(String encoded) {
+    this.routes.clear();
+    if (encoded != null && !encoded.isEmpty()) {
+      for (String route : encoded.split(";")) {
+        String[] values = route.split(":", -1);
+        try {
+          if (values.length != 5) {
+            throw new IllegalArgumentException("Expected prefix:gt:ssn:spc:weight");
+          }
+          this.addRoute(values[0], values[1], Integer.parseInt(values[2]), Integer.parseInt(values[3]), Integer.parseInt(values[4]));
+        } catch (IllegalArgumentException e) {
+          // a bad entry must not stop the rest of the configuration from loading
+          logger.warn(String.format("Skipping invalid HLR route '%s': %s", route, e.getMessage()));
+        }
+      }
+    }
+    this.compile();
+  }
+
+  /**
+   * @return one line per prefix with its HLR replicas
+   */
+  public synchronized String showRoutes() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, List<HlrReplica>> entry : this.routes.entrySet()) {
+      sb.append(entry.getKey().isEmpty() ? "default" : entry.getKey());
+      for (HlrReplica replica : entry.getValue()) {
+        sb.append(" gt=").append(replica.gt);
+        sb.append(" ssn=").append(replica.ssn);
+        sb.append(" spc=").append(replica.spc);
+        sb.append(" weight=").append(replica.weight);
+        sb.append(';');
+      }
+      sb.setLength(sb.length() - 1);
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Validate an HLR replica and add it to the configured routes, without compiling them
+   */
+  private void addRoute(String prefix, String gt, int ssn, int spc, int weight) {
+    if (!isDigits(prefix) || !isDigits(gt) || gt.isEmpty()) {
+      throw new IllegalArgumentException("Prefix and HLR GT must be digits, prefix=" + prefix + ", gt=" + gt);
+    }
+    if (ssn < 1 || ssn > 255 || spc < 0 || spc > MAX_SPC || weight < 1) {
+      throw new IllegalArgumentException("Invalid SSN, SPC or weight: ssn=" + ssn + ", spc=" + spc + ", weight=" + weight);
+    }
+    List<HlrReplica> replicas = this.routes.get(prefix);
+    if (replicas == null) {
+      replicas = new ArrayList<HlrReplica>();
+      this.routes.put(prefix, replicas);
+    }
+    HlrReplica replica = new HlrReplica(gt, ssn, spc, weight);
+    int index = indexOf(replicas, gt);
+    if (index < 0) {
+      replicas.add(replica);
+    } else {
+      replicas.set(index, replica);
+    }
+  }
+
+  /**
+   * Build a new trie from the configured routes and publish it
+   */
+  private void compile() {
+    Node compiled = new Node();
+    for (Map.Entry<String, List<HlrReplica>> entry : this.routes.entrySet()) {
+      Node node = compiled;
+      String prefix = entry.getKey();
+      for (int i = 0; i < prefix.length(); i++) {
+        int digit = prefix.charAt(i) - '0';
+        if (node.children == null) {
+          node.children = new Node[10];
+        }
+        if (node.children[digit] == null) {
+          node.children[digit] = new Node();
+        }
+        node = node.children[digit];
+      }
+      node.route = new Route(entry.getValue().toArray(new HlrReplica[entry.getValue().size()]));
+    }
+    this.root = compiled;
+  }
+
+  private static int indexOf(List<HlrReplica> replicas, String gt) {
+    for (int i = 0; i < replicas.size(); i++) {
+      if (replicas.get(i).gt.equals(gt)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isDigits(String value) {
+    if (value == null) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * HLR serving a prefix
+   */
+  public static class HlrReplica {
+    private final String gt;
+    private final int ssn;
+    private final int spc;
+    private final int weight;
+
+    private HlrReplica(String gt, int ssn, int spc, int weight) {
+      this.gt = gt;
+      this.ssn = ssn;
+      this.spc = spc;
+      this.weight = weight;
+    }
+
+    public String getGt() {
+      return gt;
+    }
+
+    public int getSsn() {
+      return ssn;
+    }
+
+    /**
+     * @return signalling point code, 0 when the HLR is to be reached on its global title
+     */
+    public int getSpc() {
+      return spc;
+    }
+
+    public int getWeight() {
+      return weight;
+    }
+  }
+
+  private static class Node {
+    // written only while compiling, before the trie is published
+    private Node[] children;
+    private Route route;
+  }
+
+  private static class Route {
+    private final HlrReplica[] replicas;
+    // running total of the weights, the last one being the total weight
+    private final int[] cumulativeWeights;
+
+    private Route(HlrReplica[] replicas) {
+      this.replicas = replicas;
+      this.cumulativeWeights = new int[replicas.length];
+      int total = 0;
+      for (int i = 0; i < replicas.length; i++) {
+        total += replicas[i].weight;
+        this.cumulativeWeights[i] = total;
+      }
+    }
+
+    private HlrReplica select() {
+      if (this.replicas.length == 1) {
+        return this.replicas[0];
+      }
+      int point = ThreadLocalRandom.current().nextInt(this.cumulativeWeights[this.cumulativeWeights.length - 1]);
+      int i = 0;
+      while (this.cumulativeWeights[i] <= point) {
+        i++;
+      }
+      return this.replicas[i];
+    }
+  }
+
+}
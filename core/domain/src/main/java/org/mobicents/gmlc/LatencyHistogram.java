@@ -0,0 +1,186 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram in milliseconds with log-linear buckets, as in HdrHistogram:
+ * values below 16 have a bucket each, above that every power of two is split into 16 buckets,
+ * so any recorded value is known within 1/16 (about 6%). Values beyond {@link #MAX_VALUE} are
+ * counted in the last bucket. Recording is a few atomic increments and never allocates.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 24;
+
+  /**
+   * Highest value told apart from the others, a little over 4 hours
+   */
+  public static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+  private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Record a latency
+   *
+   * @param millis latency in milliseconds, negative values are recorded as 0
+   */
+  public void record(long millis) {
+    if (millis < 0) {
+      millis = 0;
+    }
+    this.counts.incrementAndGet(bucketIndex(millis));
+    this.count.incrementAndGet();
+    this.sum.addAndGet(millis);
+    long currentMax = this.max.get();
+    while (millis > currentMax && !this.max.compareAndSet(currentMax, millis)) {
+      currentMax = this.max.get();
+    }
+  }
+
+  public long getCount() {
+    return this.count.get();
+  }
+
+  public long getSum() {
+    return this.sum.get();
+  }
+
+  public long getMax() {
+    return this.max.get();
+  }
+
+  public double getMean() {
+    long n = this.count.get();
+    return n == 0 ? 0 : (double) this.sum.get() / n;
+  }
+
+  /**
+   * Get the value below which the given percentage of the recorded latencies fall,
+   * reported as the highest value of the bucket it falls in
+   *
+   * @param percentile percentage between 0 and 100
+   * @return latency in milliseconds, 0 when nothing was recorded
+   */
+  public long getPercentile(double percentile) {
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += this.counts.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * total);
+    if (rank == 0) {
+      rank = 1;
+    }
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += this.counts.get(i);
+      if (seen >= rank) {
+        return Math.min(bucketUpperBound(i), this.max.get());
+      }
+    }
+    return this.max.get();
+  }
+
+  /**
+   * Get the number of recorded latencies not greater than a value. The count is exact when
+   * the value is one less than a power of two, or lower than 16.
+   *
+   * @param millis latency in milliseconds
+   */
+  public long getCountAtOrBelow(long millis) {
+    if (millis < 0) {
+      return 0;
+    }
+    int last = millis >= MAX_VALUE ? BUCKETS - 1 : bucketIndex(millis);
+    long n = 0;
+    for (int i = 0; i <= last; i++) {
+      n += this.counts.get(i);
+    }
+    return n;
+  }
+
+  /**
+   * Get in a single pass the number of recorded latencies not greater than each of a list of values,
+   * as the cumulative buckets of a Prometheus histogram
+   *
+   * @param bounds latencies in milliseconds, in ascending order
+   * @return count of recorded latencies at or below each bound
+   */
+  public long[] getCountsAtOrBelow(long[] bounds) {
+    long[] counts = new long[bounds.length];
+    long n = 0;
+    int next = 0;
+    for (int i = 0; i < bounds.length; i++) {
+      int last = bounds[i] < 0 ? -1 : bounds[i] >= MAX_VALUE ? BUCKETS - 1 : bucketIndex(bounds[i]);
+      while (next <= last) {
+        n += this.counts.get(next++);
+      }
+      counts[i] = n;
+    }
+    return counts;
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      this.counts.set(i, 0);
+    }
+    this.count.set(0);
+    this.sum.set(0);
+    this.max.set(0);
+  }
+
+  private static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    if (value > MAX_VALUE) {
+      return BUCKETS - 1;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKETS;
+    return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+
+}
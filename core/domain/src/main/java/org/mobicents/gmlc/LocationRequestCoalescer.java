@@ -0,0 +1,190 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.mobicents.gmlc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-flight registry of location lookups in progress. The first request for an MSISDN and MAP operation
+ * leads the lookup towards the network; requests for the same MSISDN and operation arriving while it is
+ * in flight are queued here and handed to the leader once it is released. Only a reference to each waiting
+ * SBB entity and its request deadline is kept, every waiter answers its own request from its own state.
+ * A lookup is bounded by the deadline of its leading request, past it the lookup is assumed lost and
+ * taken over by the next request.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class LocationRequestCoalescer {
+
+  private static final LocationRequestCoalescer instance = new LocationRequestCoalescer();
+
+  private final ConcurrentMap<String, Lookup>[] lookups;
+  private final AtomicLong leadingRequests = new AtomicLong();
+  private final AtomicLong coalescedRequests = new AtomicLong();
+
+  @SuppressWarnings("unchecked")
+  private LocationRequestCoalescer() {
+    LocationResultCache.Operation[] operations = LocationResultCache.Operation.values();
+    this.lookups = new ConcurrentMap[operations.length];
+    for (int i = 0; i < operations.length; i++) {
+      this.lookups[i] = new ConcurrentHashMap<String, Lookup>();
+    }
+  }
+
+  public static LocationRequestCoalescer getInstance() {
+    return instance;
+  }
+
+  /**
+   * Join the lookup in progress for a subscriber, or start a new one
+   *
+   * @param operation MAP operation used for the lookup
+   * @param msisdn    target subscriber MSISDN
+   * @param waiter    reference to the SBB entity waiting for the result of the lookup in progress
+   * @param deadline  time in milliseconds at which the caller's request times out, bounds the lookup
+   *                  if the caller leads it
+   * @return true if the waiter was queued on a lookup in progress, false if the caller leads a new lookup
+   * and must call {@link #release(LocationResultCache.Operation, String)} once it is answered
+   */
+  public boolean join(LocationResultCache.Operation operation, String msisdn, Object waiter, long deadline) {
+    ConcurrentMap<String, Lookup> map = this.lookups[operation.ordinal()];
+    while (true) {
+      Lookup lookup = new Lookup(deadline);
+      Lookup current = map.putIfAbsent(msisdn, lookup);
+      if (current == null) {
+        this.leadingRequests.incrementAndGet();
+        return false;
+      }
+      synchronized (current) {
+        if (map.get(msisdn) == current) {
+          long now = System.currentTimeMillis();
+          if (now > current.deadline) {
+            // the leader never released it, take over along with the waiters still in time
+            for (Waiter w : current.waiters) {
+              if (w.deadline > now) {
+                lookup.waiters.add(w);
+              }
+            }
+            if (map.replace(msisdn, current, lookup)) {
+              this.leadingRequests.incrementAndGet();
+              return false;
+            }
+          } else {
+            current.waiters.add(new Waiter(waiter, deadline));
+            this.coalescedRequests.incrementAndGet();
+            return true;
+          }
+        }
+      }
+      // released concurrently, try again
+    }
+  }
+
+  /**
+   * End a lookup led by the caller
+   *
+   * @param operation MAP operation used for the lookup
+   * @param msisdn    target subscriber MSISDN
+   * @return waiters queued on the lookup whose deadline has not passed yet, to be notified by the caller;
+   * the others time out on their own
+   */
+  public List<Object> release(LocationResultCache.Operation operation, String msisdn) {
+    Lookup lookup = this.lookups[operation.ordinal()].remove(msisdn);
+    if (lookup == null) {
+      return Collections.emptyList();
+    }
+    long now = System.currentTimeMillis();
+    List<Object> waiters = new ArrayList<Object>();
+    synchronized (lookup) {
+      for (Waiter w : lookup.waiters) {
+        if (w.deadline > now) {
+          waiters.add(w.reference);
+        }
+      }
+    }
+    return waiters;
+  }
+
+  /**
+   * Stop waiting on a lookup in progress, e.g. once the waiter gave up on it
+   *
+   * @param operation MAP operation used for the lookup
+   * @param msisdn    target subscriber MSISDN
+   * @param waiter    reference to the waiting SBB entity, as given to {@link #join}
+   * @return true if the waiter was still queued on the lookup
+   */
+  public boolean leave(LocationResultCache.Operation operation, String msisdn, Object waiter) {
+    Lookup lookup = this.lookups[operation.ordinal()].get(msisdn);
+    if (lookup == null) {
+      return false;
+    }
+    synchronized (lookup) {
+      for (Iterator<Waiter> i = lookup.waiters.iterator(); i.hasNext(); ) {
+        if (i.next().reference.equals(waiter)) {
+          i.remove();
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  public long getLeadingRequests() {
+    return this.leadingRequests.get();
+  }
+
+  public long getCoalescedRequests() {
+    return this.coalescedRequests.get();
+  }
+
+  public void resetCounters() {
+    this.leadingRequests.set(0);
+    this.coalescedRequests.set(0);
+  }
+
+  private static class Lookup {
+    private final long deadline;
+    private final List<Waiter> waiters = new ArrayList<Waiter>();
+
+    private Lookup(long deadline) {
+      this.deadline = deadline;
+    }
+  }
+
+  private static class Waiter {
+    private final Object reference;
+    private final long deadline;
+
+    private Waiter(Object reference, long deadline) {
+      this.reference = reference;
+      this.deadline = deadline;
+    }
+  }
+
+}
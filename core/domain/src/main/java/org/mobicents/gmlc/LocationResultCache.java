@@ -0,0 +1,117 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc;
+
+/**
+ * Bounded in-memory cache of successful location results, keyed by MSISDN and by the MAP operation
+ * that produced them (ATI cell id, SRIforLCS+PSL geodetic location, SRIforSM+PSI).
+ * Every operation has its own time to live, configured through {@link GmlcPropertiesManagement};
+ * a time to live of 0 disables caching for that operation.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class LocationResultCache {
+
+  public enum Operation {
+    ATI, PSL, PSI
+  }
+
+  private static final LocationResultCache instance = new LocationResultCache();
+
+  private final ExpiringLruCache<Operation> cache = new ExpiringLruCache<Operation>(Operation.class);
+
+  private LocationResultCache() {
+  }
+
+  public static LocationResultCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * Get a cached location result
+   *
+   * @param operation MAP operation the result was obtained with
+   * @param msisdn    target subscriber MSISDN
+   * @return a copy of the cached result or null when there is none or it has expired
+   */
+  public CachedValue get(Operation operation, String msisdn) {
+    if (getTimeToLive(operation) <= 0) {
+      return null;
+    }
+    return this.cache.get(operation, msisdn);
+  }
+
+  /**
+   * Store a copy of a location result, replacing any previous one for the same MSISDN and operation
+   *
+   * @param operation MAP operation the result was obtained with
+   * @param msisdn    target subscriber MSISDN
+   * @param value     location result
+   */
+  public void put(Operation operation, String msisdn, CachedValue value) {
+    this.cache.put(operation, msisdn, value, getTimeToLive(operation),
+            GmlcPropertiesManagement.getInstance().getMaxLocationCacheEntries());
+  }
+
+  /**
+   * Drop every cached result held for a subscriber
+   *
+   * @param msisdn target subscriber MSISDN
+   */
+  public void invalidate(String msisdn) {
+    this.cache.invalidate(msisdn);
+  }
+
+  public void clear() {
+    this.cache.clear();
+  }
+
+  public long getHits() {
+    return this.cache.getHits();
+  }
+
+  public long getMisses() {
+    return this.cache.getMisses();
+  }
+
+  public int getEntryCount() {
+    return this.cache.getEntryCount();
+  }
+
+  public void resetCounters() {
+    this.cache.resetCounters();
+  }
+
+  private long getTimeToLive(Operation operation) {
+    GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+    switch (operation) {
+      case ATI:
+        return gmlcPropertiesManagement.getAtiCacheTtl();
+      case PSL:
+        return gmlcPropertiesManagement.getPslCacheTtl();
+      case PSI:
+        return gmlcPropertiesManagement.getPsiCacheTtl();
+    }
+    return 0;
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MAP application context versions learned per destination. When a peer refuses a dialog because it does not
+ * support the proposed application context version, the version it was retried with is remembered for the
+ * destination, identified by the leading digits of its global title, so that later dialogs go out at that version
+ * straight away instead of paying for a rejected dialog every time.
+ * Learned versions expire after the time to live configured through {@link GmlcPropertiesManagement}, so
+ * a peer upgraded in the meantime is eventually addressed at the highest version again.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class MapVersionCache {
+
+  public static final int MAX_ENTRIES = 8192;
+
+  /**
+   * Version learned for a destination that supports no version of the application context
+   */
+  public static final int NOT_SUPPORTED = 0;
+
+  // MAP application context names are numbered below this
+  private static final int APPLICATION_CONTEXTS = 64;
+
+  private static final MapVersionCache instance = new MapVersionCache();
+
+  private final Map<String, Entry>[] entries;
+  private final AtomicInteger entryCount = new AtomicInteger();
+
+  @SuppressWarnings("unchecked")
+  private MapVersionCache() {
+    this.entries = new Map[APPLICATION_CONTEXTS];
+    for (int i = 0; i < APPLICATION_CONTEXTS; i++) {
+      this.entries[i] = new ConcurrentHashMap<String, Entry>();
+    }
+  }
+
+  public static MapVersionCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * Get the version to propose to a destination
+   *
+   * @param applicationContext MAP application context name
+   * @param destination        global title digits of the destination
+   * @param maxVersion         highest version the GMLC may propose
+   * @return the version learned for the destination if it is lower than maxVersion, otherwise maxVersion
+   */
+  public int getVersion(int applicationContext, String destination, int maxVersion) {
+    String key = this.key(destination);
+    if (key == null || applicationContext < 0 || applicationContext >= APPLICATION_CONTEXTS) {
+      return maxVersion;
+    }
+
+    Map<String, Entry> map = this.entries[applicationContext];
+    Entry entry = map.get(key);
+    if (entry != null) {
+      if (entry.expiresAt > System.currentTimeMillis()) {
+        return Math.min(entry.version, maxVersion);
+      }
+      if (map.remove(key, entry)) {
+        this.entryCount.decrementAndGet();
+      }
+    }
+    return maxVersion;
+  }
+
+  /**
+   * Remember the highest version a destination supports
+   *
+   * @param applicationContext MAP application context name
+   * @param destination        global title digits of the destination
+   * @param version            supported version, {@link #NOT_SUPPORTED} if none is
+   */
+  public void setVersion(int applicationContext, String destination, int version) {
+    long timeToLive = GmlcPropertiesManagement.getInstance().getMapVersionCacheTtl();
+    String key = this.key(destination);
+    if (key == null || timeToLive <= 0 || applicationContext < 0 || applicationContext >= APPLICATION_CONTEXTS) {
+      return;
+    }
+
+    if (this.entryCount.get() >= MAX_ENTRIES) {
+      this.clear();
+    }
+    Entry previous = this.entries[applicationContext].put(key, new Entry(version, System.currentTimeMillis() + timeToLive));
+    if (previous == null) {
+      this.entryCount.incrementAndGet();
+    }
+  }
+
+  public void clear() {
+    for (Map<String, Entry> map : this.entries) {
+      map.clear();
+    }
+    this.entryCount.set(0);
+  }
+
+  public int getEntryCount() {
+    return this.entryCount.get();
+  }
+
+  private String key(String destination) {
+    if (destination == null) {
+      return null;
+    }
+    int prefixLength = GmlcPropertiesManagement.getInstance().getMapVersionPrefixLength();
+    return prefixLength > 0 && destination.length() > prefixLength ? destination.substring(0, prefixLength) : destination;
+  }
+
+  private static class Entry {
+    private final int version;
+    private final long expiresAt;
+
+    private Entry(int version, long expiresAt) {
+      this.version = version;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+}
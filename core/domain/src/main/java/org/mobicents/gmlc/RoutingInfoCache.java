@@ -0,0 +1,127 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc;
+
+/**
+ * Bounded in-memory cache of HLR routing information (IMSI, LMSI, network node number, GPRS node indicator)
+ * obtained through MAP SRIforLCS and SRIforSM, keyed by MSISDN. Subscribers reported unknown by the HLR
+ * are cached as {@link #UNKNOWN_SUBSCRIBER} for a separate, usually shorter, time to live.
+ * A time to live of 0 disables the corresponding kind of entry.
+ * Entries are held in an {@link ExpiringLruCache}, so a lookup only locks the stripe of its MSISDN and
+ * routing lookups of different subscribers do not wait on each other.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class RoutingInfoCache {
+
+  public enum Operation {
+    SRI_FOR_LCS, SRI_FOR_SM
+  }
+
+  /**
+   * Value returned by {@link #get(Operation, String)} for subscribers the HLR reported as unknown
+   */
+  public static final CachedValue UNKNOWN_SUBSCRIBER = new CachedValue() {
+    @Override
+    public CachedValue copy() {
+      return this;
+    }
+  };
+
+  private static final RoutingInfoCache instance = new RoutingInfoCache();
+
+  private final ExpiringLruCache<Operation> cache = new ExpiringLruCache<Operation>(Operation.class);
+
+  private RoutingInfoCache() {
+  }
+
+  public static RoutingInfoCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * Get cached routing information
+   *
+   * @param operation MAP operation the routing information was obtained with
+   * @param msisdn    target subscriber MSISDN
+   * @return a copy of the cached routing information, {@link #UNKNOWN_SUBSCRIBER}, or null when there is none or it has expired
+   */
+  public CachedValue get(Operation operation, String msisdn) {
+    return this.cache.get(operation, msisdn);
+  }
+
+  /**
+   * Store a copy of the routing information returned by the HLR
+   *
+   * @param operation MAP operation the routing information was obtained with
+   * @param msisdn    target subscriber MSISDN
+   * @param value     routing information
+   */
+  public void put(Operation operation, String msisdn, CachedValue value) {
+    this.put(operation, msisdn, value, GmlcPropertiesManagement.getInstance().getRoutingInfoCacheTtl());
+  }
+
+  /**
+   * Remember that the HLR reported a subscriber as unknown
+   *
+   * @param operation MAP operation that got the unknown subscriber error
+   * @param msisdn    target subscriber MSISDN
+   */
+  public void putUnknownSubscriber(Operation operation, String msisdn) {
+    this.put(operation, msisdn, UNKNOWN_SUBSCRIBER, GmlcPropertiesManagement.getInstance().getUnknownSubscriberCacheTtl());
+  }
+
+  /**
+   * Drop every cached routing information held for a subscriber,
+   * e.g. after the serving node reported it as unknown or absent
+   *
+   * @param msisdn target subscriber MSISDN
+   */
+  public void invalidate(String msisdn) {
+    this.cache.invalidate(msisdn);
+  }
+
+  public void clear() {
+    this.cache.clear();
+  }
+
+  public long getHits() {
+    return this.cache.getHits();
+  }
+
+  public long getMisses() {
+    return this.cache.getMisses();
+  }
+
+  public int getEntryCount() {
+    return this.cache.getEntryCount();
+  }
+
+  public void resetCounters() {
+    this.cache.resetCounters();
+  }
+
+  private void put(Operation operation, String msisdn, CachedValue value, long timeToLive) {
+    this.cache.put(operation, msisdn, value, timeToLive, GmlcPropertiesManagement.getInstance().getMaxRoutingInfoCacheEntries());
+  }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timeouts of location requests and of the MAP dialogs serving them, per MAP operation, LCS priority and
+ * response time category, so that latency sensitive requests fail fast instead of holding their HTTP request
+ * and MAP dialog for as long as delay tolerant ones.
+ * A location request must be answered within the timeout of its location operation (ATI, PSL or PSI),
+ * counted from its arrival, and each of its MAP dialogs within the timeout of the dialog operation,
+ * or the time left to the request, whichever is shorter.
+ * Without a policy for a combination, the dialog timeout of {@link GmlcPropertiesManagement} applies.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class TimeoutPolicy {
+
+  public enum Priority {
+    HIGHEST, NORMAL
+  }
+
+  public enum ResponseTime {
+    LOWDELAY, DELAYTOLERANT
+  }
+
+  private static final String ANY = "*";
+
+  private static final GmlcStatAggregator.MapOperation[] OPERATIONS = GmlcStatAggregator.MapOperation.values();
+  private static final Priority[] PRIORITIES = Priority.values();
+  private static final ResponseTime[] RESPONSE_TIMES = ResponseTime.values();
+
+  private static final TimeoutPolicy instance = new TimeoutPolicy();
+
+  // timeout in milliseconds per operation, priority and response time, 0 where no policy is set
+  private final AtomicLongArray timeouts = new AtomicLongArray(OPERATIONS.length * PRIORITIES.length * RESPONSE_TIMES.length);
+
+  private TimeoutPolicy() {
+  }
+
+  public static TimeoutPolicy getInstance() {
+    return instance;
+  }
+
+  /**
+   * @return timeout in milliseconds for the operation, priority and response time category
+   */
+  public long getTimeout(GmlcStatAggregator.MapOperation operation, Priority priority, ResponseTime responseTime) {
+    long timeout = this.timeouts.get(index(operation, priority, responseTime));
+    return timeout > 0 ? timeout : GmlcPropertiesManagement.getInstance().getDialogTimeout();
+  }
+
+  /**
+   * Set the timeout of an operation, priority and response time category, "*" standing for any priority
+   * or response time category
+   *
+   * @param operation    MAP operation: ati, sriforlcs, psl, sriforsm or psi
+   * @param priority     highest, normal or *
+   * @param responseTime lowdelay, delaytolerant or *
+   * @param timeout      timeout in milliseconds, greater than 0
+   */
+  public void setTimeout(String operation, String priority, String responseTime, long timeout) {
+    if (timeout <= 0) {
+      throw new IllegalArgumentException("Timeout must be greater than 0: " + timeout);
+    }
+    this.update(operation, priority, responseTime, timeout);
+  }
+
+  /**
+   * Remove the timeouts of an operation, priority and response time category, null or "*" standing for any
+   * priority or response time category
+   *
+   * @return false if there was no such timeout
+   */
+  public boolean removeTimeout(String operation, String priority, String responseTime) {
+    return this.update(operation, priority, responseTime, 0);
+  }
+
+  public void clear() {
+    for (int i = 0; i < this.timeouts.length(); i++) {
+      this.timeouts.set(i, 0);
+    }
+  }
+
+  /**
+   * @return policies as operation:priority:responsetime:timeout entries separated by ';'
+   */
+  public String encodePolicies() {
+    StringBuilder sb = new StringBuilder();
+    for (GmlcStatAggregator.MapOperation operation : OPERATIONS) {
+      for (Priority priority : PRIORITIES) {
+        for (ResponseTime responseTime : RESPONSE_TIMES) {
+          long timeout = this.timeouts.get(index(operation, priority, responseTime));
+          if (timeout > 0) {
+            if (sb.length() > 0) {
+              sb.append(';');
+            }
+            sb.append(name(operation)).append(':').append(name(priority)).append(':').append(name(responseTime)).append(':')
+                .append(timeout);
+          }
+        }
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Replace the policies with those encoded by {@link #encodePolicies()}
+   */
+  public synchronized void decodePolicies(String encoded) {
+    this.clear();
+    if (encoded != null && !encoded.isEmpty()) {
+      for (String policy : encoded.split(";")) {
+        String[] values = policy.split(":");
+        if (values.length == 4) {
+          this.setTimeout(values[0], values[1], values[2], Long.parseLong(values[3]));
+        }
+      }
+    }
+  }
+
+  /**
+   * @return one line per policy set
+   */
+  public String showPolicies() {
+    StringBuilder sb = new StringBuilder();
+    for (GmlcStatAggregator.MapOperation operation : OPERATIONS) {
+      for (Priority priority : PRIORITIES) {
+        for (ResponseTime responseTime : RESPONSE_TIMES) {
+          long timeout = this.timeouts.get(index(operation, priority, responseTime));
+          if (timeout > 0) {
+            sb.append(name(operation));
+            sb.append(" priority=").append(name(priority));
+            sb.append(" responsetime=").append(name(responseTime));
+            sb.append(" timeout=").append(timeout);
+            sb.append("\n");
+          }
+        }
+      }
+    }
+    return sb.toString();
+  }
+
+  private synchronized boolean update(String operationName, String priorityName, String responseTimeName, long timeout) {
+    GmlcStatAggregator.MapOperation operation = parseOperation(operationName);
+    Priority priority = isAny(priorityName) ? null : parse(PRIORITIES, priorityName, "priority");
+    ResponseTime responseTime = isAny(responseTimeName) ? null : parse(RESPONSE_TIMES, responseTimeName, "response time");
+    boolean updated = false;
+    for (Priority p : PRIORITIES) {
+      for (ResponseTime r : RESPONSE_TIMES) {
+        if ((priority == null || priority == p) && (responseTime == null || responseTime == r)) {
+          updated |= this.timeouts.getAndSet(index(operation, p, r), timeout) != timeout;
+        }
+      }
+    }
+    return updated;
+  }
+
+  private static int index(GmlcStatAggregator.MapOperation operation, Priority priority, ResponseTime responseTime) {
+    return (operation.ordinal() * PRIORITIES.length + priority.ordinal()) * RESPONSE_TIMES.length + responseTime.ordinal();
+  }
+
+  private static GmlcStatAggregator.MapOperation parseOperation(String name) {
+    GmlcStatAggregator.MapOperation operation = parse(OPERATIONS, name, "operation");
+    if (operation == GmlcStatAggregator.MapOperation.SLR) {
+      throw new IllegalArgumentException("SLR is not sent by the GMLC, it has no timeout");
+    }
+    return operation;
+  }
+
+  private static <E extends Enum<E>> E parse(E[] values, String name, String description) {
+    for (E value : values) {
+      if (name != null && name(value).equalsIgnoreCase(name.replace("_", ""))) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Unknown " + description + ": " + name);
+  }
+
+  private static boolean isAny(String name) {
+    return name == null || ANY.equals(name);
+  }
+
+  private static String name(Enum<?> value) {
+    return value.name().replace("_", "").toLowerCase();
+  }
+
+}
@@ -43,12 +43,100 @@ public class GmlcCommandHandler extends CommandHandlerWithHelp {
     set.addChild("gmlcssn");
     set.addChild("hlrssn");
     set.addChild("mscssn");
+    set.addChild("aticachettl");
+    set.addChild("pslcachettl");
+    set.addChild("psicachettl");
+    set.addChild("maxlocationcacheentries");
+    set.addChild("routinginfocachettl");
+    set.addChild("unknownsubscribercachettl");
+    set.addChild("maxroutinginfocacheentries");
+    set.addChild("cdrloggingto");
+    set.addChild("maxactivitycount");
+    set.addChild("maxatirequests");
+    set.addChild("maxlsmrequests");
+    set.addChild("maxpsirequests");
+    set.addChild("clientratelimit");
+    set.addChild("hlrroute");
+    set.addChild("hlrdefaultroute");
+    set.addChild("timeoutpolicy");
+    set.addChild("mlpindent");
+    set.addChild("maxbatchsize");
+    set.addChild("batchconcurrency");
+    set.addChild("callbackconnecttimeout");
+    set.addChild("callbackreadtimeout");
+    set.addChild("callbackqueuesize");
+    set.addChild("callbackconnections");
+    set.addChild("callbackmaxretries");
+    set.addChild("callbackretryinterval");
+    set.addChild("slrregistrationttl");
+    set.addChild("slrregistrationjournal");
+    set.addChild("callbackbatchwindow");
+    set.addChild("callbackbatchsize");
+    set.addChild("cdrdirectory");
+    set.addChild("cdrfilesize");
+    set.addChild("cdrrotationinterval");
+    set.addChild("cdrsyncinterval");
+    set.addChild("cdrbuffersize");
+    set.addChild("cdrblockwhenfull");
+    set.addChild("cdrdatasource");
+    set.addChild("cdrbatchsize");
+    set.addChild("cdrflushinterval");
+    set.addChild("cdrsegmentsize");
+    set.addChild("mapversioncachettl");
+    set.addChild("mapversionprefixlength");
 
     Node get = parent.addChild("get");
     get.addChild("gmlcgt");
     get.addChild("gmlcssn");
-    set.addChild("hlrssn");
-    set.addChild("mscssn");
+    get.addChild("hlrssn");
+    get.addChild("mscssn");
+    get.addChild("aticachettl");
+    get.addChild("pslcachettl");
+    get.addChild("psicachettl");
+    get.addChild("maxlocationcacheentries");
+    get.addChild("routinginfocachettl");
+    get.addChild("unknownsubscribercachettl");
+    get.addChild("maxroutinginfocacheentries");
+    get.addChild("cdrloggingto");
+    get.addChild("maxactivitycount");
+    get.addChild("maxatirequests");
+    get.addChild("maxlsmrequests");
+    get.addChild("maxpsirequests");
+    get.addChild("clientratelimit");
+    get.addChild("hlrroute");
+    get.addChild("timeoutpolicy");
+    get.addChild("mlpindent");
+    get.addChild("maxbatchsize");
+    get.addChild("batchconcurrency");
+    get.addChild("callbackconnecttimeout");
+    get.addChild("callbackreadtimeout");
+    get.addChild("callbackqueuesize");
+    get.addChild("callbackconnections");
+    get.addChild("callbackmaxretries");
+    get.addChild("callbackretryinterval");
+    get.addChild("slrregistrationttl");
+    get.addChild("slrregistrationjournal");
+    get.addChild("callbackbatchwindow");
+    get.addChild("callbackbatchsize");
+    get.addChild("cdrdirectory");
+    get.addChild("cdrfilesize");
+    get.addChild("cdrrotationinterval");
+    get.addChild("cdrsyncinterval");
+    get.addChild("cdrbuffersize");
+    get.addChild("cdrblockwhenfull");
+    get.addChild("cdrdatasource");
+    get.addChild("cdrbatchsize");
+    get.addChild("cdrflushinterval");
+    get.addChild("cdrsegmentsize");
+    get.addChild("stats");
+    get.addChild("mapversioncachettl");
+    get.addChild("mapversionprefixlength");
+
+    Node remove = parent.addChild("remove");
+    remove.addChild("clientratelimit");
+    remove.addChild("hlrroute");
+    remove.addChild("hlrdefaultroute");
+    remove.addChild("timeoutpolicy");
 
   }
 
@@ -0,0 +1,63 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.events;
+
+import java.io.Serializable;
+
+/**
+ * Event fired on the activity of a MAP dialog left without a response within its dialog timeout,
+ * for the SBB entity which sent the dialog to abort it
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public final class DialogExpired implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long localDialogId;
+  private final long timeout;
+
+  public DialogExpired(long localDialogId, long timeout) {
+    this.localDialogId = localDialogId;
+    this.timeout = timeout;
+  }
+
+  /**
+   * @return local id of the expired MAP dialog
+   */
+  public long getLocalDialogId() {
+    return localDialogId;
+  }
+
+  /**
+   * @return dialog timeout in milliseconds the dialog was supervised with
+   */
+  public long getTimeout() {
+    return timeout;
+  }
+
+  @Override
+  public String toString() {
+    return "DialogExpired [localDialogId=" + localDialogId + ", timeout=" + timeout + "]";
+  }
+
+}
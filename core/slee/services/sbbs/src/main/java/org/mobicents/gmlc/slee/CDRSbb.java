@@ -76,8 +76,7 @@ public abstract class CDRSbb extends GMLCBaseSbb implements CDRInterfaceParent{
 
     this.terminateProtocolConnection();
 
-    /// TODO Stat upate
-    //this.gmlcStatAggregator.updateAppTimeouts();
+    gmlcStatAggregator.updateAppTimeouts();
     //this.updateDialogFailureStat();
 
     this.createCDRRecord(RecordStatus.FAILED_APP_TIMEOUT);
@@ -32,6 +32,7 @@ import javax.slee.resource.ResourceAdaptorTypeID;
 import net.java.slee.resource.http.HttpServletRaActivityContextInterfaceFactory;
 import net.java.slee.resource.http.HttpServletRaSbbInterface;
 
+import org.mobicents.gmlc.GmlcStatAggregator;
 import org.mobicents.protocols.ss7.map.api.MAPParameterFactory;
 import org.mobicents.protocols.ss7.map.api.MAPProvider;
 import org.mobicents.slee.resource.map.MAPContextInterfaceFactory;
@@ -93,7 +94,6 @@ public class GMLCBaseSbb implements Sbb {
     this.mapAcif = null;
     this.mapProvider = null;
     this.mapParameterFactory = null;
-    //this.gmlcStatAggregator = null;
 
     //this.jdbcRA = null;
     //this.jdbcACIF = null;
@@ -133,11 +133,11 @@ public class GMLCBaseSbb implements Sbb {
   public void sbbRolledBack(RolledBackContext rolledBackContext) {
   }
 
-  /*protected boolean checkMaxActivityCount(int maxActivityCount) {
+  protected boolean checkMaxActivityCount(int maxActivityCount) {
     if (maxActivityCount <= 0)
       return true;
     return mapProvider.getCurrentDialogsCount() < maxActivityCount;
-  }*/
+  }
 
   // -------------------------------------------------------------
   // JDBC RA stuff
@@ -151,7 +151,6 @@ public class GMLCBaseSbb implements Sbb {
   // -------------------------------------------------------------
   // Statistics stuff
   // -------------------------------------------------------------
-  //*** Will be implemented on a later stage ***//
-  //protected GmlcStatAggregator gmlcStatAggregator;
+  protected static final GmlcStatAggregator gmlcStatAggregator = GmlcStatAggregator.getInstance();
 
 }
@@ -0,0 +1,191 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.gmlc.slee.cdr;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.mobicents.gmlc.GmlcManagement;
+import org.mobicents.gmlc.GmlcPropertiesManagement;
+
+/**
+ * Common part of the CDR writers working off the SLEE event threads: the {@link CDRRingBuffer} records are
+ * queued in, the backpressure applied when it is full, the report of dropped records and the single writer
+ * thread draining the buffer. The writer thread is started by the first record and stopped together with
+ * {@link GmlcManagement}; a record queued after that starts it again.
+ *
+ * @param <E> queued record
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public abstract class CDRBufferedWriter<E> {
+
+  protected static final long IDLE_WAIT = 100L;
+  protected static final long MAX_BLOCK_TIME = 5000L;
+  private static final long DROP_REPORT_INTERVAL = 10000L;
+
+  private final String name;
+  private final Logger logger;
+
+  private volatile CDRRingBuffer<E> buffer;
+  private Thread writerThread;
+
+  private final AtomicLong dropped = new AtomicLong();
+
+  private final Runnable stopHook = new Runnable() {
+    @Override
+    public void run() {
+      CDRBufferedWriter.this.stop();
+    }
+  };
+
+  // writer thread state
+  private long lastDropReport;
+  private long droppedReported;
+
+  protected CDRBufferedWriter(String name, Logger logger) {
+    this.name = name;
+    this.logger = logger;
+  }
+
+  /**
+   * Queue a record for the writer thread, starting it if it is not running.
+   * When the buffer is full the record is dropped, or the caller waits for room if
+   * {@link GmlcPropertiesManagement#isCdrBlockWhenFull()} is set.
+   *
+   * @param record record to queue
+   * @return false if the record was dropped
+   */
+  protected boolean queue(E record) {
+    CDRRingBuffer<E> ringBuffer = this.buffer;
+    if (ringBuffer == null) {
+      ringBuffer = this.start();
+    }
+
+    boolean queued = ringBuffer.offer(record);
+    if (!queued && GmlcPropertiesManagement.getInstance().isCdrBlockWhenFull()) {
+      queued = ringBuffer.offer(record, MAX_BLOCK_TIME);
+    }
+    if (!queued) {
+      this.dropped.incrementAndGet();
+    }
+    return queued;
+  }
+
+  private synchronized CDRRingBuffer<E> start() {
+    if (this.buffer == null) {
+      // the writer state belongs to one thread at a time, a stopped writer thread has to be done with it first
+      Thread previous = this.writerThread;
+      if (previous != null) {
+        try {
+          previous.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      final CDRRingBuffer<E> ringBuffer = new CDRRingBuffer<E>(GmlcPropertiesManagement.getInstance().getCdrBufferSize());
+      this.writerThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          drain(ringBuffer);
+        }
+      }, this.name);
+      this.writerThread.setDaemon(true);
+      this.buffer = ringBuffer;
+      this.writerThread.start();
+
+      GmlcManagement gmlcManagement = GmlcManagement.getInstance();
+      if (gmlcManagement != null) {
+        gmlcManagement.addStopHook(this.stopHook);
+      } else {
+        this.logger.warn("GMLC Management is not available, " + this.name + " will not be stopped with it");
+      }
+    }
+    return this.buffer;
+  }
+
+  /**
+   * Stop the writer thread once every queued record has been written, waiting for it at most MAX_BLOCK_TIME
+   */
+  public void stop() {
+    Thread thread;
+    synchronized (this) {
+      thread = this.writerThread;
+      this.halt(this.buffer);
+    }
+    if (thread != null) {
+      try {
+        thread.join(MAX_BLOCK_TIME);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Let the writer thread of ringBuffer finish once the records still queued are written
+   */
+  protected synchronized void halt(CDRRingBuffer<E> ringBuffer) {
+    if (ringBuffer != null && this.buffer == ringBuffer) {
+      this.buffer = null;
+      GmlcManagement gmlcManagement = GmlcManagement.getInstance();
+      if (gmlcManagement != null) {
+        gmlcManagement.removeStopHook(this.stopHook);
+      }
+    }
+  }
+
+  /**
+   * @return false once the writer thread of ringBuffer has been told to stop
+   */
+  protected boolean isRunning(CDRRingBuffer<E> ringBuffer) {
+    return this.buffer == ringBuffer;
+  }
+
+  /**
+   * Writer thread body, drains ringBuffer until it is empty and {@link #isRunning} is false
+   */
+  protected abstract void drain(CDRRingBuffer<E> ringBuffer);
+
+  /**
+   * Log the records dropped since the last report, at most every DROP_REPORT_INTERVAL; called by the writer thread
+   */
+  protected void reportDropped(long now) {
+    if (now - this.lastDropReport >= DROP_REPORT_INTERVAL) {
+      long total = this.dropped.get();
+      if (total > this.droppedReported) {
+        this.logger.warn((total - this.droppedReported) + " CDRs dropped in the last " + (now - this.lastDropReport) / 1000
+            + " seconds, the CDR buffer is full");
+        this.droppedReported = total;
+      }
+      this.lastDropReport = now;
+    }
+  }
+
+  public long getDropped() {
+    return this.dropped.get();
+  }
+
+  public int getQueued() {
+    CDRRingBuffer<E> ringBuffer = this.buffer;
+    return ringBuffer == null ? 0 : ringBuffer.size();
+  }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.gmlc.slee.cdr;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free ring buffer handing CDRs from the SLEE event threads (many producers)
+ * over to a single writer thread (one consumer).
+ * Producers claim a slot by advancing the tail and then publish the element into it, the
+ * consumer takes published elements in order and frees their slots by advancing the head.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class CDRRingBuffer<E> {
+
+  private static final long BLOCK_PARK_NANOS = 50000L;
+
+  private final AtomicReferenceArray<E> slots;
+  private final int capacity;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+
+  private volatile Thread consumer;
+
+  public CDRRingBuffer(int capacity) {
+    int size = 1;
+    while (size < capacity && size < (1 << 30)) {
+      size <<= 1;
+    }
+    this.capacity = size;
+    this.mask = size - 1;
+    this.slots = new AtomicReferenceArray<E>(size);
+  }
+
+  /**
+   * Append an element without waiting
+   *
+   * @param element element to append
+   * @return false if the buffer is full
+   */
+  public boolean offer(E element) {
+    long claimed;
+    do {
+      claimed = this.tail.get();
+      if (claimed - this.head.get() >= this.capacity) {
+        return false;
+      }
+    } while (!this.tail.compareAndSet(claimed, claimed + 1));
+
+    this.slots.lazySet((int) claimed & this.mask, element);
+    Thread waiting = this.consumer;
+    if (waiting != null) {
+      LockSupport.unpark(waiting);
+    }
+    return true;
+  }
+
+  /**
+   * Append an element, waiting for the consumer to free a slot while the buffer is full
+   *
+   * @param element element to append
+   * @param timeout maximum time to wait in milliseconds
+   * @return false if no slot was freed in time
+   */
+  public boolean offer(E element, long timeout) {
+    long deadline = System.nanoTime() + timeout * 1000000L;
+    while (!this.offer(element)) {
+      if (System.nanoTime() - deadline >= 0) {
+        return false;
+      }
+      LockSupport.parkNanos(BLOCK_PARK_NANOS);
+    }
+    return true;
+  }
+
+  /**
+   * Move published elements to a list, only to be called from the consumer thread
+   *
+   * @param target list receiving the elements
+   * @param max    maximum count of elements to move
+   * @return count of elements moved
+   */
+  public int drainTo(List<E> target, int max) {
+    long position = this.head.get();
+    int count = 0;
+    while (count < max) {
+      int index = (int) position & this.mask;
+      E element = this.slots.get(index);
+      if (element == null) {
+        // empty, or claimed by a producer that did not publish yet
+        break;
+      }
+      this.slots.lazySet(index, null);
+      target.add(element);
+      position++;
+      count++;
+    }
+    if (count > 0) {
+      this.head.lazySet(position);
+    }
+    return count;
+  }
+
+  /**
+   * Park the consumer thread until an element is published or the timeout elapses
+   *
+   * @param timeout maximum time to wait in milliseconds
+   */
+  public void await(long timeout) {
+    this.consumer = Thread.currentThread();
+    if (this.isEmpty()) {
+      LockSupport.parkNanos(this, timeout * 1000000L);
+    }
+    this.consumer = null;
+  }
+
+  public boolean isEmpty() {
+    return this.slots.get((int) this.head.get() & this.mask) == null;
+  }
+
+  public int size() {
+    return (int) (this.tail.get() - this.head.get());
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+}
@@ -19,12 +19,22 @@
 
 package org.mobicents.gmlc.slee.cdr;
 
-import java.io.Serializable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
 
+import org.mobicents.protocols.asn.AsnInputStream;
+import org.mobicents.protocols.asn.AsnOutputStream;
 import org.mobicents.protocols.ss7.map.api.MAPException;
+import org.mobicents.protocols.ss7.map.api.MAPParsingComponentException;
 import org.mobicents.protocols.ss7.map.api.primitives.AddressString;
 import org.mobicents.protocols.ss7.map.api.primitives.IMSI;
 import org.mobicents.protocols.ss7.map.api.primitives.ISDNAddressString;
@@ -62,17 +72,67 @@ import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberInformatio
 import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberInformation.LocationNumberMap;
 
 import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberManagement.LSAIdentity;
+import org.mobicents.protocols.ss7.map.primitives.AddressStringImpl;
+import org.mobicents.protocols.ss7.map.primitives.CellGlobalIdOrServiceAreaIdOrLAIImpl;
+import org.mobicents.protocols.ss7.map.primitives.DiameterIdentityImpl;
+import org.mobicents.protocols.ss7.map.primitives.GSNAddressImpl;
+import org.mobicents.protocols.ss7.map.primitives.IMEIImpl;
+import org.mobicents.protocols.ss7.map.primitives.IMSIImpl;
+import org.mobicents.protocols.ss7.map.primitives.ISDNAddressStringImpl;
+import org.mobicents.protocols.ss7.map.primitives.LMSIImpl;
+import org.mobicents.protocols.ss7.map.primitives.MAPAsnPrimitive;
+import org.mobicents.protocols.ss7.map.service.lsm.AddGeographicalInformationImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.AdditionalNumberImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.DeferredmtlrDataImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.ExtGeographicalInformationImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.GeranGANSSpositioningDataImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.LCSClientIDImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.LCSQoSImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.PeriodicLDRInfoImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.PositioningDataInformationImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.ReportingPLMNListImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.ServingNodeAddressImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.UtranGANSSpositioningDataImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.UtranPositioningDataInfoImpl;
+import org.mobicents.protocols.ss7.map.service.lsm.VelocityEstimateImpl;
+import org.mobicents.protocols.ss7.map.service.mobility.subscriberInformation.EUtranCgiImpl;
+import org.mobicents.protocols.ss7.map.service.mobility.subscriberInformation.LocationInformationGPRSImpl;
+import org.mobicents.protocols.ss7.map.service.mobility.subscriberInformation.LocationInformationImpl;
+import org.mobicents.protocols.ss7.map.service.mobility.subscriberInformation.LocationNumberMapImpl;
+import org.mobicents.protocols.ss7.map.service.mobility.subscriberInformation.MNPInfoResImpl;
+import org.mobicents.protocols.ss7.map.service.mobility.subscriberInformation.RAIdentityImpl;
+import org.mobicents.protocols.ss7.map.service.mobility.subscriberInformation.SubscriberInfoImpl;
+import org.mobicents.protocols.ss7.map.service.mobility.subscriberInformation.TAIdImpl;
+import org.mobicents.protocols.ss7.map.service.mobility.subscriberManagement.LSAIdentityImpl;
+import org.mobicents.protocols.ss7.sccp.SccpProtocolVersion;
+import org.mobicents.protocols.ss7.sccp.impl.parameter.ParameterFactoryImpl;
+import org.mobicents.protocols.ss7.sccp.impl.parameter.SccpAddressImpl;
+import org.mobicents.protocols.ss7.sccp.message.ParseException;
+import org.mobicents.protocols.ss7.sccp.parameter.ParameterFactory;
 import org.mobicents.protocols.ss7.sccp.parameter.SccpAddress;
 
 /**
  * Represents state associated with ongoing dialog required for proper CDR
  * generation. Data which should be used for CDR is spread across many objects.
  * So we need object which can be used to store them in one convenient place.
+ * As a CMP field it is serialized on every set, so it externalizes every field in a compact form:
+ * primitives and strings are written directly, MAP parameters in their ASN.1 encoding
+ * and SCCP addresses in their SCCP encoding.
  *
  * @author <a href="mailto:bbaranow@redhat.com"> Bartosz Baranowski </a>
  * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
  */
-public class GMLCCDRState implements Serializable {
+public class GMLCCDRState implements Externalizable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final byte EXTERNAL_VERSION = 3;
+
+  private static final byte PARAMETER_ABSENT = 0;
+  private static final byte PARAMETER_ENCODED = 1;
+  private static final byte PARAMETER_SERIALIZED = 2;
+
+  private static final ParameterFactory SCCP_PARAMETER_FACTORY = new ParameterFactoryImpl();
 
   public static final String GMLC_STRING_SEPARATOR = ",";
 
@@ -1646,6 +1706,375 @@ public class GMLCCDRState implements Serializable {
   }
 
 
+  /**
+   * Copy this state through its externalized form, e.g. for another SBB entity to record an outcome of its own from it
+   *
+   * @return a copy sharing no mutable state with this one
+   */
+  public GMLCCDRState copy() {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream out = new ObjectOutputStream(bytes);
+      this.writeExternal(out);
+      out.close();
+      GMLCCDRState copy = new GMLCCDRState();
+      copy.readExternal(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+      return copy;
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not copy CDR state", e);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Could not copy CDR state", e);
+    }
+  }
+
+  /****************************/
+  /*** EXTERNALIZATION ***/
+  /**************************/
+
+  @Override
+  public void writeExternal(ObjectOutput out) throws IOException {
+    out.writeByte(EXTERNAL_VERSION);
+
+    int flags = 0;
+    flags |= initiated ? 1 : 0;
+    flags |= generated ? 1 << 1 : 0;
+    flags |= gprsNodeIndicator ? 1 << 2 : 0;
+    flags |= moLrShortCircuitIndicator ? 1 << 3 : 0;
+    flags |= deferredMTLRResponseIndicator ? 1 << 4 : 0;
+    flags |= pseudonymIndicator ? 1 << 5 : 0;
+    flags |= psiSaiPresent ? 1 << 6 : 0;
+    flags |= psiCurrentLocationRetrieved ? 1 << 7 : 0;
+    flags |= plmnSignificantLSA ? 1 << 8 : 0;
+    out.writeShort(flags);
+
+    writeString(out, id);
+    out.writeByte(recordStatus != null ? recordStatus.ordinal() : -1);
+    writeLong(out, localDialogId);
+    writeLong(out, remoteDialogId);
+    writeLong(out, dialogStartTime != null ? dialogStartTime.getMillis() : null);
+    writeLong(out, dialogEndTime != null ? dialogEndTime.getMillis() : null);
+    writeLong(out, dialogDuration);
+
+    out.writeInt(ci);
+    out.writeInt(lac);
+    out.writeInt(mcc);
+    out.writeInt(mnc);
+    out.writeInt(aol);
+    out.writeInt(ageOfLocationEstimate);
+    out.writeInt(lcsReferenceNumber);
+    out.writeInt(lcsServiceTypeID);
+    out.writeInt(sequenceNumber);
+    out.writeInt(psiGeodeticConfidence);
+    out.writeInt(psiScreeningAndPresentationIndicators);
+    out.writeInt(psiAol);
+    out.writeInt(mnpStatus);
+    out.writeInt(mnpRouteingNumber);
+    out.writeByte(typeOfShape != null ? typeOfShape.ordinal() : -1);
+    writeDouble(out, psiGeographicLatitude);
+    writeDouble(out, psiGeographicLongitude);
+    writeDouble(out, psiGeographicUncertainty);
+    writeDouble(out, psiGeodeticLatitude);
+    writeDouble(out, psiGeodeticLongitude);
+    writeDouble(out, psiGeodeticUncertainty);
+    writeString(out, subscriberState);
+    writeString(out, barometricPressureMeasurement);
+    writeString(out, civicAddress);
+    writeString(out, mnpIMSIData);
+    writeString(out, mnpMSISDAddress);
+
+    writeSccpAddress(out, localAddress);
+    writeSccpAddress(out, remoteAddress);
+    writeParameter(out, origReference);
+    writeParameter(out, destReference);
+    writeParameter(out, vlrAddress);
+    writeParameter(out, isdnAddressString);
+    writeParameter(out, atiVlrGt);
+    writeParameter(out, imsi);
+    writeParameter(out, lmsi);
+    writeParameter(out, networkNodeNumber);
+    writeParameter(out, additionalNumber);
+    writeParameter(out, mscNumber);
+    writeParameter(out, sgsnNumber);
+    writeParameter(out, mmeName);
+    writeParameter(out, sgsnName);
+    writeParameter(out, sgsnRealm);
+    writeParameter(out, aaaServerName);
+    writeParameter(out, hGmlcAddress);
+    writeParameter(out, pprAddress);
+    writeParameter(out, vGmlcAddress);
+    writeParameter(out, locationEstimate);
+    writeParameter(out, geranPositioningDataInformation);
+    writeParameter(out, utranPositioningDataInfo);
+    writeParameter(out, geranGANSSpositioningData);
+    writeParameter(out, utranGANSSpositioningData);
+    writeParameter(out, additionalLocationEstimate);
+    writeParameter(out, cellGlobalIdOrServiceAreaIdOrLAI);
+    out.writeByte(accuracyFulfilmentIndicator != null ? accuracyFulfilmentIndicator.ordinal() : -1);
+    writeParameter(out, velocityEstimate);
+    writeParameter(out, servingNodeAddress);
+    writeParameter(out, lcsClientID);
+    writeParameter(out, lcsQoS);
+    out.writeByte(lcsEvent != null ? lcsEvent.ordinal() : -1);
+    writeParameter(out, msisdn);
+    writeParameter(out, imei);
+    writeParameter(out, deferredmtlrData);
+    writeParameter(out, periodicLDRInfo);
+    writeParameter(out, reportingPLMNList);
+    writeParameter(out, subscriberInfo);
+    writeParameter(out, locationInformation);
+    writeParameter(out, locationInformationGPRS);
+    writeParameter(out, psiVlrNumber);
+    writeParameter(out, psiMscNumber);
+    writeParameter(out, lsaIdentity);
+    writeParameter(out, raIdentity);
+    writeParameter(out, taId);
+    writeParameter(out, eUtranCgi);
+    writeParameter(out, locationNumberMap);
+    writeParameter(out, mnpInfoRes);
+    writeParameter(out, mnpIMSI);
+    writeParameter(out, mnpMSISDN);
+  }
+
+  @Override
+  public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+    byte version = in.readByte();
+    if (version != EXTERNAL_VERSION) {
+      throw new IOException("Unsupported CDR state version " + version);
+    }
+
+    int flags = in.readUnsignedShort();
+    initiated = (flags & 1) != 0;
+    generated = (flags & 1 << 1) != 0;
+    gprsNodeIndicator = (flags & 1 << 2) != 0;
+    moLrShortCircuitIndicator = (flags & 1 << 3) != 0;
+    deferredMTLRResponseIndicator = (flags & 1 << 4) != 0;
+    pseudonymIndicator = (flags & 1 << 5) != 0;
+    psiSaiPresent = (flags & 1 << 6) != 0;
+    psiCurrentLocationRetrieved = (flags & 1 << 7) != 0;
+    plmnSignificantLSA = (flags & 1 << 8) != 0;
+
+    id = readString(in, false);
+    byte status = in.readByte();
+    recordStatus = status >= 0 ? RecordStatus.values()[status] : null;
+    localDialogId = readLong(in);
+    remoteDialogId = readLong(in);
+    Long startTime = readLong(in);
+    dialogStartTime = startTime != null ? new DateTime(startTime.longValue()) : null;
+    Long endTime = readLong(in);
+    dialogEndTime = endTime != null ? new DateTime(endTime.longValue()) : null;
+    dialogDuration = readLong(in);
+
+    ci = in.readInt();
+    lac = in.readInt();
+    mcc = in.readInt();
+    mnc = in.readInt();
+    aol = in.readInt();
+    ageOfLocationEstimate = in.readInt();
+    lcsReferenceNumber = in.readInt();
+    lcsServiceTypeID = in.readInt();
+    sequenceNumber = in.readInt();
+    psiGeodeticConfidence = in.readInt();
+    psiScreeningAndPresentationIndicators = in.readInt();
+    psiAol = in.readInt();
+    mnpStatus = in.readInt();
+    mnpRouteingNumber = in.readInt();
+    byte shape = in.readByte();
+    typeOfShape = shape >= 0 ? TypeOfShape.values()[shape] : null;
+    psiGeographicLatitude = readDouble(in);
+    psiGeographicLongitude = readDouble(in);
+    psiGeographicUncertainty = readDouble(in);
+    psiGeodeticLatitude = readDouble(in);
+    psiGeodeticLongitude = readDouble(in);
+    psiGeodeticUncertainty = readDouble(in);
+    subscriberState = readString(in, true);
+    barometricPressureMeasurement = readString(in, false);
+    civicAddress = readString(in, false);
+    mnpIMSIData = readString(in, false);
+    mnpMSISDAddress = readString(in, false);
+
+    localAddress = readSccpAddress(in);
+    remoteAddress = readSccpAddress(in);
+    origReference = readParameter(in, new AddressStringImpl(), AddressString.class);
+    destReference = readParameter(in, new AddressStringImpl(), AddressString.class);
+    vlrAddress = readParameter(in, new AddressStringImpl(), AddressString.class);
+    isdnAddressString = readParameter(in, new ISDNAddressStringImpl(), ISDNAddressString.class);
+    atiVlrGt = readParameter(in, new ISDNAddressStringImpl(), ISDNAddressString.class);
+    imsi = readParameter(in, new IMSIImpl(), IMSI.class);
+    lmsi = readParameter(in, new LMSIImpl(), LMSI.class);
+    networkNodeNumber = readParameter(in, new ISDNAddressStringImpl(), ISDNAddressString.class);
+    additionalNumber = readParameter(in, new AdditionalNumberImpl(), AdditionalNumber.class);
+    mscNumber = readParameter(in, new ISDNAddressStringImpl(), ISDNAddressString.class);
+    sgsnNumber = readParameter(in, new ISDNAddressStringImpl(), ISDNAddressString.class);
+    mmeName = readParameter(in, new DiameterIdentityImpl(), DiameterIdentity.class);
+    sgsnName = readParameter(in, new DiameterIdentityImpl(), DiameterIdentity.class);
+    sgsnRealm = readParameter(in, new DiameterIdentityImpl(), DiameterIdentity.class);
+    aaaServerName = readParameter(in, new DiameterIdentityImpl(), DiameterIdentity.class);
+    hGmlcAddress = readParameter(in, new GSNAddressImpl(), GSNAddress.class);
+    pprAddress = readParameter(in, new GSNAddressImpl(), GSNAddress.class);
+    vGmlcAddress = readParameter(in, new GSNAddressImpl(), GSNAddress.class);
+    locationEstimate = readParameter(in, new ExtGeographicalInformationImpl(), ExtGeographicalInformation.class);
+    geranPositioningDataInformation = readParameter(in, new PositioningDataInformationImpl(), PositioningDataInformation.class);
+    utranPositioningDataInfo = readParameter(in, new UtranPositioningDataInfoImpl(), UtranPositioningDataInfo.class);
+    geranGANSSpositioningData = readParameter(in, new GeranGANSSpositioningDataImpl(), GeranGANSSpositioningData.class);
+    utranGANSSpositioningData = readParameter(in, new UtranGANSSpositioningDataImpl(), UtranGANSSpositioningData.class);
+    additionalLocationEstimate = readParameter(in, new AddGeographicalInformationImpl(), AddGeographicalInformation.class);
+    cellGlobalIdOrServiceAreaIdOrLAI = readParameter(in, new CellGlobalIdOrServiceAreaIdOrLAIImpl(), CellGlobalIdOrServiceAreaIdOrLAI.class);
+    byte fulfilment = in.readByte();
+    accuracyFulfilmentIndicator = fulfilment >= 0 ? AccuracyFulfilmentIndicator.values()[fulfilment] : null;
+    velocityEstimate = readParameter(in, new VelocityEstimateImpl(), VelocityEstimate.class);
+    servingNodeAddress = readParameter(in, new ServingNodeAddressImpl(), ServingNodeAddress.class);
+    lcsClientID = readParameter(in, new LCSClientIDImpl(), LCSClientID.class);
+    lcsQoS = readParameter(in, new LCSQoSImpl(), LCSQoS.class);
+    byte event = in.readByte();
+    lcsEvent = event >= 0 ? LCSEvent.values()[event] : null;
+    msisdn = readParameter(in, new ISDNAddressStringImpl(), ISDNAddressString.class);
+    imei = readParameter(in, new IMEIImpl(), IMEI.class);
+    deferredmtlrData = readParameter(in, new DeferredmtlrDataImpl(), DeferredmtlrData.class);
+    periodicLDRInfo = readParameter(in, new PeriodicLDRInfoImpl(), PeriodicLDRInfo.class);
+    reportingPLMNList = readParameter(in, new ReportingPLMNListImpl(), ReportingPLMNList.class);
+    subscriberInfo = readParameter(in, new SubscriberInfoImpl(), SubscriberInfo.class);
+    locationInformation = readParameter(in, new LocationInformationImpl(), LocationInformation.class);
+    locationInformationGPRS = readParameter(in, new LocationInformationGPRSImpl(), LocationInformationGPRS.class);
+    psiVlrNumber = readParameter(in, new ISDNAddressStringImpl(), ISDNAddressString.class);
+    psiMscNumber = readParameter(in, new ISDNAddressStringImpl(), ISDNAddressString.class);
+    lsaIdentity = readParameter(in, new LSAIdentityImpl(), LSAIdentity.class);
+    raIdentity = readParameter(in, new RAIdentityImpl(), RAIdentity.class);
+    taId = readParameter(in, new TAIdImpl(), TAId.class);
+    eUtranCgi = readParameter(in, new EUtranCgiImpl(), EUtranCgi.class);
+    locationNumberMap = readParameter(in, new LocationNumberMapImpl(), LocationNumberMap.class);
+    mnpInfoRes = readParameter(in, new MNPInfoResImpl(), MNPInfoRes.class);
+    mnpIMSI = readParameter(in, new IMSIImpl(), IMSI.class);
+    mnpMSISDN = readParameter(in, new ISDNAddressStringImpl(), ISDNAddressString.class);
+  }
+
+  private static void writeSccpAddress(ObjectOutput out, SccpAddress value) throws IOException {
+    if (value instanceof SccpAddressImpl) {
+      try {
+        byte[] encoded = ((SccpAddressImpl) value).encode(false, SccpProtocolVersion.ITU);
+        out.writeByte(PARAMETER_ENCODED);
+        out.writeShort(encoded.length);
+        out.write(encoded);
+        return;
+      } catch (ParseException e) {
+        // not encodable on the wire, keep the serialized form
+      }
+    }
+    writeSerialized(out, value);
+  }
+
+  private static SccpAddress readSccpAddress(ObjectInput in) throws IOException, ClassNotFoundException {
+    byte form = in.readByte();
+    if (form != PARAMETER_ENCODED) {
+      return readSerialized(in, form, SccpAddress.class);
+    }
+    byte[] encoded = new byte[in.readUnsignedShort()];
+    in.readFully(encoded);
+    SccpAddressImpl value = new SccpAddressImpl();
+    try {
+      value.decode(encoded, SCCP_PARAMETER_FACTORY, SccpProtocolVersion.ITU);
+    } catch (ParseException e) {
+      throw new IOException("Could not decode SCCP address", e);
+    }
+    return value;
+  }
+
+  /**
+   * MAP parameters are written in their ASN.1 wire form: a few bytes each instead of the
+   * class descriptors Java serialization writes for every jSS7 implementation class.
+   */
+  private static void writeParameter(ObjectOutput out, Object value) throws IOException {
+    if (value instanceof MAPAsnPrimitive) {
+      try {
+        AsnOutputStream encoded = new AsnOutputStream();
+        ((MAPAsnPrimitive) value).encodeAll(encoded);
+        out.writeByte(PARAMETER_ENCODED);
+        out.writeShort(encoded.size());
+        out.write(encoded.toByteArray());
+        return;
+      } catch (MAPException e) {
+        // incomplete parameter, keep the serialized form
+      }
+    }
+    writeSerialized(out, value);
+  }
+
+  private static <T> T readParameter(ObjectInput in, MAPAsnPrimitive empty, Class<T> type)
+      throws IOException, ClassNotFoundException {
+    byte form = in.readByte();
+    if (form != PARAMETER_ENCODED) {
+      return readSerialized(in, form, type);
+    }
+    byte[] encoded = new byte[in.readUnsignedShort()];
+    in.readFully(encoded);
+    try {
+      AsnInputStream asn = new AsnInputStream(encoded);
+      asn.readTag();
+      empty.decodeAll(asn);
+    } catch (MAPParsingComponentException e) {
+      throw new IOException("Could not decode " + type.getSimpleName(), e);
+    }
+    return type.cast(empty);
+  }
+
+  private static void writeSerialized(ObjectOutput out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(PARAMETER_ABSENT);
+    } else {
+      out.writeByte(PARAMETER_SERIALIZED);
+      out.writeObject(value);
+    }
+  }
+
+  private static <T> T readSerialized(ObjectInput in, byte form, Class<T> type)
+      throws IOException, ClassNotFoundException {
+    switch (form) {
+      case PARAMETER_ABSENT:
+        return null;
+      case PARAMETER_SERIALIZED:
+        return type.cast(in.readObject());
+      default:
+        throw new IOException("Unknown " + type.getSimpleName() + " form " + form);
+    }
+  }
+
+  private static void writeLong(ObjectOutput out, Long value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value);
+    }
+  }
+
+  private static Long readLong(ObjectInput in) throws IOException {
+    return in.readBoolean() ? in.readLong() : null;
+  }
+
+  private static void writeDouble(ObjectOutput out, Double value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeDouble(value);
+    }
+  }
+
+  private static Double readDouble(ObjectInput in) throws IOException {
+    return in.readBoolean() ? in.readDouble() : null;
+  }
+
+  private static void writeString(ObjectOutput out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readString(ObjectInput in, boolean intern) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    String value = in.readUTF();
+    // low cardinality values are shared between the states of all dialogs
+    return intern ? value.intern() : value;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -0,0 +1,416 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.gmlc.slee.cdr.binary;
+
+import java.nio.charset.StandardCharsets;
+
+import org.mobicents.gmlc.slee.cdr.GMLCCDRState;
+import org.mobicents.protocols.ss7.map.api.primitives.DiameterIdentity;
+import org.mobicents.protocols.ss7.map.api.primitives.IMEI;
+import org.mobicents.protocols.ss7.map.api.primitives.IMSI;
+import org.mobicents.protocols.ss7.map.api.primitives.ISDNAddressString;
+import org.mobicents.protocols.ss7.map.api.service.lsm.AdditionalNumber;
+import org.mobicents.protocols.ss7.map.api.service.lsm.ExtGeographicalInformation;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSQoS;
+import org.mobicents.protocols.ss7.map.api.service.lsm.VelocityEstimate;
+import org.mobicents.protocols.ss7.sccp.parameter.SccpAddress;
+
+/**
+ * Columns of a binary CDR, in record order. Each column takes its value from the CDR state when the
+ * record is queued, so that the writer thread only deals with immutable values.
+ * Unset values (null, or -1 for the int fields of {@link GMLCCDRState}) are left out of the record.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public enum CDRColumn {
+
+  RECORD_TIME(Type.TIMESTAMP) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return System.currentTimeMillis();
+    }
+  },
+  ID(Type.STRING) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return state.getId();
+    }
+  },
+  RECORD_STATUS(Type.DICTIONARY) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return state.getRecordStatus() != null ? state.getRecordStatus().toString() : null;
+    }
+  },
+  LOCAL_DIALOG_ID(Type.LONG) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return state.getLocalDialogId();
+    }
+  },
+  REMOTE_DIALOG_ID(Type.LONG) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return state.getRemoteDialogId();
+    }
+  },
+  DIALOG_DURATION(Type.LONG) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return state.getDialogDuration();
+    }
+  },
+  LOCAL_SPC(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return pointCode(state.getLocalAddress());
+    }
+  },
+  LOCAL_SSN(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return subsystemNumber(state.getLocalAddress());
+    }
+  },
+  LOCAL_GT(Type.DICTIONARY) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return globalTitle(state.getLocalAddress());
+    }
+  },
+  REMOTE_SPC(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return pointCode(state.getRemoteAddress());
+    }
+  },
+  REMOTE_SSN(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return subsystemNumber(state.getRemoteAddress());
+    }
+  },
+  REMOTE_GT(Type.DICTIONARY) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return globalTitle(state.getRemoteAddress());
+    }
+  },
+  ISDN_ADDRESS(Type.DICTIONARY) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return address(state.getISDNAddressString());
+    }
+  },
+  MCC(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return set(state.getMcc());
+    }
+  },
+  MNC(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return set(state.getMnc());
+    }
+  },
+  LAC(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return set(state.getLac());
+    }
+  },
+  CI(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return set(state.getCi());
+    }
+  },
+  AOL(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return set(state.getAol());
+    }
+  },
+  VLR_GT(Type.DICTIONARY) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return address(state.getAtiVlrGt());
+    }
+  },
+  SUBSCRIBER_STATE(Type.DICTIONARY) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return state.getSubscriberState();
+    }
+  },
+  IMSI(Type.STRING) {
+    @Override
+    Object value(GMLCCDRState state) {
+      IMSI imsi = state.getImsi();
+      return imsi != null ? imsi.getData() : null;
+    }
+  },
+  NETWORK_NODE_NUMBER(Type.DICTIONARY) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return address(state.getNetworkNodeNumber());
+    }
+  },
+  GPRS_NODE_INDICATOR(Type.BOOLEAN) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return state.isGprsNodeIndicator();
+    }
+  },
+  MSC_NUMBER(Type.DICTIONARY) {
+    @Override
+    Object value(GMLCCDRState state) {
+      AdditionalNumber additionalNumber = state.getAdditionalNumber();
+      return additionalNumber != null ? address(additionalNumber.getMSCNumber()) : null;
+    }
+  },
+  SGSN_NUMBER(Type.DICTIONARY) {
+    @Override
+    Object value(GMLCCDRState state) {
+      AdditionalNumber additionalNumber = state.getAdditionalNumber();
+      return additionalNumber != null ? address(additionalNumber.getSGSNNumber()) : null;
+    }
+  },
+  MME_NAME(Type.DICTIONARY) {
+    @Override
+    Object value(GMLCCDRState state) {
+      DiameterIdentity mmeName = state.getMmeName();
+      return mmeName != null ? new String(mmeName.getData(), StandardCharsets.ISO_8859_1) : null;
+    }
+  },
+  LATITUDE(Type.DOUBLE) {
+    @Override
+    Object value(GMLCCDRState state) {
+      ExtGeographicalInformation locationEstimate = state.getLocationEstimate();
+      return locationEstimate != null ? (Object) locationEstimate.getLatitude() : null;
+    }
+  },
+  LONGITUDE(Type.DOUBLE) {
+    @Override
+    Object value(GMLCCDRState state) {
+      ExtGeographicalInformation locationEstimate = state.getLocationEstimate();
+      return locationEstimate != null ? (Object) locationEstimate.getLongitude() : null;
+    }
+  },
+  TYPE_OF_SHAPE(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      ExtGeographicalInformation locationEstimate = state.getLocationEstimate();
+      return locationEstimate != null && locationEstimate.getTypeOfShape() != null
+          ? (Object) locationEstimate.getTypeOfShape().getCode() : null;
+    }
+  },
+  INNER_RADIUS(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      ExtGeographicalInformation locationEstimate = state.getLocationEstimate();
+      return locationEstimate != null ? (Object) locationEstimate.getInnerRadius() : null;
+    }
+  },
+  UNCERTAINTY(Type.DOUBLE) {
+    @Override
+    Object value(GMLCCDRState state) {
+      ExtGeographicalInformation locationEstimate = state.getLocationEstimate();
+      return locationEstimate != null ? (Object) locationEstimate.getUncertainty() : null;
+    }
+  },
+  CONFIDENCE(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      ExtGeographicalInformation locationEstimate = state.getLocationEstimate();
+      return locationEstimate != null ? (Object) locationEstimate.getConfidence() : null;
+    }
+  },
+  ALTITUDE(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      ExtGeographicalInformation locationEstimate = state.getLocationEstimate();
+      return locationEstimate != null ? (Object) locationEstimate.getAltitude() : null;
+    }
+  },
+  AGE_OF_LOCATION_ESTIMATE(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return set(state.getAgeOfLocationEstimate());
+    }
+  },
+  ACCURACY_FULFILMENT_INDICATOR(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return state.getAccuracyFulfilmentIndicator() != null
+          ? (Object) state.getAccuracyFulfilmentIndicator().getIndicator() : null;
+    }
+  },
+  SEQUENCE_NUMBER(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return set(state.getSequenceNumber());
+    }
+  },
+  HORIZONTAL_SPEED(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      VelocityEstimate velocityEstimate = state.getVelocityEstimate();
+      return velocityEstimate != null ? (Object) velocityEstimate.getHorizontalSpeed() : null;
+    }
+  },
+  VERTICAL_SPEED(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      VelocityEstimate velocityEstimate = state.getVelocityEstimate();
+      return velocityEstimate != null ? (Object) velocityEstimate.getVerticalSpeed() : null;
+    }
+  },
+  BEARING(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      VelocityEstimate velocityEstimate = state.getVelocityEstimate();
+      return velocityEstimate != null ? (Object) velocityEstimate.getBearing() : null;
+    }
+  },
+  HORIZONTAL_ACCURACY(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      LCSQoS lcsQoS = state.getLcsQoS();
+      return lcsQoS != null ? lcsQoS.getHorizontalAccuracy() : null;
+    }
+  },
+  VERTICAL_ACCURACY(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      LCSQoS lcsQoS = state.getLcsQoS();
+      return lcsQoS != null ? lcsQoS.getVerticalAccuracy() : null;
+    }
+  },
+  RESPONSE_TIME(Type.DICTIONARY) {
+    @Override
+    Object value(GMLCCDRState state) {
+      LCSQoS lcsQoS = state.getLcsQoS();
+      return lcsQoS != null && lcsQoS.getResponseTime() != null
+          ? String.valueOf(lcsQoS.getResponseTime().getResponseTimeCategory()) : null;
+    }
+  },
+  LCS_REFERENCE_NUMBER(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return set(state.getLcsReferenceNumber());
+    }
+  },
+  LCS_SERVICE_TYPE_ID(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return set(state.getLcsServiceTypeID());
+    }
+  },
+  LCS_EVENT(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return state.getLcsEvent() != null ? (Object) state.getLcsEvent().getEvent() : null;
+    }
+  },
+  MSISDN(Type.STRING) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return address(state.getMsisdn());
+    }
+  },
+  IMEI(Type.STRING) {
+    @Override
+    Object value(GMLCCDRState state) {
+      IMEI imei = state.getImei();
+      return imei != null ? imei.getIMEI() : null;
+    }
+  },
+  REPORTING_AMOUNT(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return state.getPeriodicLDRInfo() != null ? (Object) state.getPeriodicLDRInfo().getReportingAmount() : null;
+    }
+  },
+  REPORTING_INTERVAL(Type.INT) {
+    @Override
+    Object value(GMLCCDRState state) {
+      return state.getPeriodicLDRInfo() != null ? (Object) state.getPeriodicLDRInfo().getReportingInterval() : null;
+    }
+  };
+
+  /**
+   * Encoding of a column value: fixed width primitives, length prefixed UTF-8 strings, and
+   * dictionary references for low cardinality strings such as global titles and statuses
+   */
+  public enum Type {
+    LONG, INT, DOUBLE, BOOLEAN, STRING, DICTIONARY, TIMESTAMP
+  }
+
+  private static final CDRColumn[] COLUMNS = values();
+
+  private final Type type;
+
+  CDRColumn(Type type) {
+    this.type = type;
+  }
+
+  public Type getType() {
+    return this.type;
+  }
+
+  abstract Object value(GMLCCDRState state);
+
+  /**
+   * Take the value of every column from a CDR state
+   *
+   * @param state CDR state
+   * @return column values in record order, null where unset
+   */
+  public static Object[] snapshot(GMLCCDRState state) {
+    Object[] values = new Object[COLUMNS.length];
+    for (int i = 0; i < COLUMNS.length; i++) {
+      values[i] = COLUMNS[i].value(state);
+    }
+    return values;
+  }
+
+  private static Integer set(int value) {
+    return value != -1 ? value : null;
+  }
+
+  private static String address(ISDNAddressString address) {
+    return address != null ? address.getAddress() : null;
+  }
+
+  private static Integer pointCode(SccpAddress address) {
+    return address != null && address.getAddressIndicator().isPCPresent() ? address.getSignalingPointCode() : null;
+  }
+
+  private static Integer subsystemNumber(SccpAddress address) {
+    return address != null && address.getAddressIndicator().isSSNPresent() ? address.getSubsystemNumber() : null;
+  }
+
+  private static String globalTitle(SccpAddress address) {
+    return address != null && address.getGlobalTitle() != null ? address.getGlobalTitle().getDigits() : null;
+  }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.gmlc.slee.cdr.binary;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Offline exporter turning binary CDR segments written by {@link CDRSegmentWriter} into CSV,
+ * one row per CDR with a header row naming the columns. Segments describe their own columns,
+ * so segments written by older releases can be exported as well.
+ * <p>
+ * Usage: <code>CDRSegmentExporter [-o output.csv] segment-file-or-directory...</code>, writing to
+ * the standard output when no output file is given.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class CDRSegmentExporter {
+
+  private static final CDRColumn.Type[] TYPES = CDRColumn.Type.values();
+
+  private final Writer out;
+  private final SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+  private String[] header;
+  private long records;
+
+  public CDRSegmentExporter(Writer out) {
+    this.out = out;
+  }
+
+  public static void main(String[] args) throws IOException {
+    String output = null;
+    List<File> segments = new ArrayList<File>();
+    for (int i = 0; i < args.length; i++) {
+      if ("-o".equals(args[i]) && i + 1 < args.length) {
+        output = args[++i];
+      } else {
+        File file = new File(args[i]);
+        if (file.isDirectory()) {
+          File[] files = file.listFiles();
+          if (files != null) {
+            Arrays.sort(files);
+            for (File segment : files) {
+              if (segment.getName().endsWith(CDRSegmentWriter.SEGMENT_FILE_SUFFIX)) {
+                segments.add(segment);
+              }
+            }
+          }
+        } else {
+          segments.add(file);
+        }
+      }
+    }
+    if (segments.isEmpty()) {
+      System.err.println("Usage: CDRSegmentExporter [-o output.csv] segment-file-or-directory...");
+      System.exit(1);
+    }
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(output != null ? new FileOutputStream(output) : System.out,
+        StandardCharsets.UTF_8), 65536);
+    CDRSegmentExporter exporter = new CDRSegmentExporter(writer);
+    try {
+      for (File segment : segments) {
+        exporter.export(segment);
+      }
+    } finally {
+      writer.flush();
+      if (output != null) {
+        writer.close();
+      }
+    }
+    System.err.println(exporter.getRecords() + " CDRs exported from " + segments.size() + " segments");
+  }
+
+  /**
+   * Append the CDRs of a segment to the CSV output, writing the header row first if not written yet
+   *
+   * @param file segment file
+   * @throws IOException if the segment can not be read or is not a CDR segment
+   */
+  public void export(File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = randomAccessFile.getChannel();
+      MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      this.export(file.getName(), in);
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  private void export(String name, ByteBuffer in) throws IOException {
+    if (in.remaining() < 8 || in.getInt() != CDRSegmentWriter.MAGIC) {
+      throw new IOException(name + " is not a CDR segment");
+    }
+    short version = in.getShort();
+    if (version != CDRSegmentWriter.VERSION) {
+      throw new IOException(name + " has unsupported CDR segment version " + version);
+    }
+
+    int columnCount = in.getShort();
+    CDRColumn.Type[] types = new CDRColumn.Type[columnCount];
+    String[] names = new String[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      types[i] = TYPES[in.get()];
+      names[i] = getString(in);
+    }
+    if (this.header == null) {
+      this.header = names;
+      this.writeRow(names);
+    } else if (!Arrays.equals(this.header, names)) {
+      throw new IOException(name + " has different columns than the segments exported before it");
+    }
+
+    int bitmapLength = (columnCount + 7) / 8;
+    byte[] bitmap = new byte[bitmapLength];
+    List<String> dictionary = new ArrayList<String>();
+    String[] row = new String[columnCount];
+    while (in.remaining() >= 4) {
+      int length = in.getInt();
+      if (length <= 0 || length > in.remaining()) {
+        // end of the entries, or an entry cut short by a crash
+        break;
+      }
+      int end = in.position() + length;
+      byte kind = in.get();
+      if (kind == CDRSegmentWriter.DICTIONARY_ENTRY) {
+        int id = in.getInt();
+        String value = getString(in);
+        while (dictionary.size() <= id) {
+          dictionary.add(null);
+        }
+        dictionary.set(id, value);
+      } else if (kind == CDRSegmentWriter.RECORD_ENTRY) {
+        in.get(bitmap);
+        for (int i = 0; i < columnCount; i++) {
+          row[i] = (bitmap[i >> 3] & (1 << (i & 7))) != 0 ? this.getValue(in, types[i], dictionary) : null;
+        }
+        this.writeRow(row);
+        this.records++;
+      }
+      in.position(end);
+    }
+  }
+
+  private String getValue(ByteBuffer in, CDRColumn.Type type, List<String> dictionary) {
+    switch (type) {
+      case LONG:
+        return Long.toString(in.getLong());
+      case TIMESTAMP:
+        return this.timestampFormat.format(new Date(in.getLong()));
+      case INT:
+        return Integer.toString(in.getInt());
+      case DOUBLE:
+        return Double.toString(in.getDouble());
+      case BOOLEAN:
+        return Boolean.toString(in.get() != 0);
+      case STRING:
+        return getString(in);
+      case DICTIONARY:
+        int id = in.getInt();
+        return id < dictionary.size() ? dictionary.get(id) : null;
+    }
+    return null;
+  }
+
+  private static String getString(ByteBuffer in) {
+    byte[] bytes = new byte[in.getShort()];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private void writeRow(String[] values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        this.out.write(',');
+      }
+      String value = values[i];
+      if (value == null) {
+        continue;
+      }
+      if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+        this.out.write('"');
+        this.out.write(value.replace("\"", "\"\""));
+        this.out.write('"');
+      } else {
+        this.out.write(value);
+      }
+    }
+    this.out.write('\n');
+  }
+
+  public long getRecords() {
+    return this.records;
+  }
+
+}
@@ -0,0 +1,352 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.gmlc.slee.cdr.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.mobicents.gmlc.GmlcPropertiesManagement;
+import org.mobicents.gmlc.slee.cdr.CDRBufferedWriter;
+import org.mobicents.gmlc.slee.cdr.CDRRingBuffer;
+import org.mobicents.gmlc.slee.cdr.GMLCCDRState;
+
+/**
+ * Writes binary CDRs to memory mapped segment files off the SLEE event threads.
+ * <p>
+ * A segment starts with a header describing its columns (magic, version, column count, then the
+ * type and name of every column) followed by length prefixed entries, each one an int length,
+ * a kind byte and the entry payload:
+ * <ul>
+ * <li>{@link #DICTIONARY_ENTRY}: int id and string, defining a dictionary value of the segment</li>
+ * <li>{@link #RECORD_ENTRY}: a bitmap of the columns present, then the value of every present column</li>
+ * </ul>
+ * Strings are a short length and UTF-8 bytes. The dictionary starts empty in every segment, so each
+ * segment can be read on its own; a zero length marks the end of the entries.
+ * Segments are rotated by size and age, and synced to disk as configured for the text CDR file.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class CDRSegmentWriter extends CDRBufferedWriter<Object[]> {
+
+  private static final Logger logger = Logger.getLogger(CDRSegmentWriter.class);
+
+  public static final int MAGIC = 0x47434452; // "GCDR"
+  public static final short VERSION = 1;
+  public static final byte RECORD_ENTRY = 1;
+  public static final byte DICTIONARY_ENTRY = 2;
+  public static final String SEGMENT_FILE_PREFIX = "gmlc-cdr-";
+  public static final String SEGMENT_FILE_SUFFIX = ".seg";
+
+  private static final CDRColumn[] COLUMNS = CDRColumn.values();
+  private static final int BITMAP_LENGTH = (COLUMNS.length + 7) / 8;
+  private static final int MIN_SEGMENT_SIZE = 65536;
+  private static final int MAX_DICTIONARY_SIZE = 65536;
+  private static final int MAX_BATCH = 512;
+
+  private static final CDRSegmentWriter instance = new CDRSegmentWriter();
+
+  private final AtomicLong written = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong segments = new AtomicLong();
+
+  // writer thread state
+  private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+  private final SimpleDateFormat segmentFileDate = new SimpleDateFormat("yyyyMMdd-HHmmss");
+  private File segmentFile;
+  private FileChannel channel;
+  private MappedByteBuffer segment;
+  private int dataStart;
+  private int committed;
+  private long openedAt;
+  private long lastSync;
+  private boolean unsynced;
+
+  private CDRSegmentWriter() {
+    super("CDRSegmentWriter", logger);
+  }
+
+  public static CDRSegmentWriter getInstance() {
+    return instance;
+  }
+
+  /**
+   * Queue a CDR for writing, starting the writer thread on first use.
+   * When the buffer is full the record is dropped, or the caller waits for room if
+   * {@link GmlcPropertiesManagement#isCdrBlockWhenFull()} is set.
+   *
+   * @param state CDR state the column values are taken from
+   * @return false if the record was dropped
+   */
+  public boolean write(GMLCCDRState state) {
+    return this.queue(CDRColumn.snapshot(state));
+  }
+
+  @Override
+  protected void drain(CDRRingBuffer<Object[]> ringBuffer) {
+    List<Object[]> batch = new ArrayList<Object[]>(MAX_BATCH);
+    while (this.isRunning(ringBuffer) || !ringBuffer.isEmpty()) {
+      int count = ringBuffer.drainTo(batch, MAX_BATCH);
+      long now = System.currentTimeMillis();
+      int appended = 0;
+      try {
+        for (Object[] values : batch) {
+          this.append(values, now);
+          appended++;
+        }
+        this.maintain(now);
+      } catch (Exception e) {
+        this.failed.addAndGet(count - appended);
+        logger.error("Error while writing " + (count - appended) + " CDRs to segment " + this.segmentFile
+            + ", the records are lost", e);
+        this.closeQuietly();
+      }
+      this.written.addAndGet(appended);
+      batch.clear();
+      this.reportDropped(now);
+      if (count == 0) {
+        ringBuffer.await(IDLE_WAIT);
+      }
+    }
+    try {
+      this.close();
+    } catch (IOException e) {
+      logger.error("Error while closing the CDR segment", e);
+    }
+  }
+
+  private void append(Object[] values, long now) throws IOException {
+    if (this.segment == null) {
+      this.open(now);
+    }
+    try {
+      this.encode(values);
+    } catch (BufferOverflowException e) {
+      // the segment is full: what was written past the committed position is cut off on close,
+      // and the record goes to a new segment with a new dictionary
+      this.rotate(now);
+      try {
+        this.encode(values);
+      } catch (BufferOverflowException e2) {
+        throw new IOException("CDR does not fit in an empty segment of " + this.segment.capacity() + " bytes");
+      }
+    }
+    this.committed = this.segment.position();
+    this.unsynced = true;
+  }
+
+  private void encode(Object[] values) {
+    MappedByteBuffer out = this.segment;
+
+    // dictionary entries go ahead of the record referencing them
+    for (int i = 0; i < COLUMNS.length; i++) {
+      if (values[i] != null && COLUMNS[i].getType() == CDRColumn.Type.DICTIONARY
+          && !this.dictionary.containsKey(values[i])) {
+        int start = out.position();
+        out.putInt(0);
+        out.put(DICTIONARY_ENTRY);
+        out.putInt(this.dictionary.size());
+        putString(out, (String) values[i]);
+        out.putInt(start, out.position() - start - 4);
+        this.dictionary.put((String) values[i], this.dictionary.size());
+      }
+    }
+
+    int start = out.position();
+    out.putInt(0);
+    out.put(RECORD_ENTRY);
+    byte[] bitmap = new byte[BITMAP_LENGTH];
+    for (int i = 0; i < COLUMNS.length; i++) {
+      if (values[i] != null) {
+        bitmap[i >> 3] |= 1 << (i & 7);
+      }
+    }
+    out.put(bitmap);
+    for (int i = 0; i < COLUMNS.length; i++) {
+      Object value = values[i];
+      if (value == null) {
+        continue;
+      }
+      switch (COLUMNS[i].getType()) {
+        case LONG:
+        case TIMESTAMP:
+          out.putLong(((Number) value).longValue());
+          break;
+        case INT:
+          out.putInt(((Number) value).intValue());
+          break;
+        case DOUBLE:
+          out.putDouble(((Number) value).doubleValue());
+          break;
+        case BOOLEAN:
+          out.put((byte) (((Boolean) value) ? 1 : 0));
+          break;
+        case STRING:
+          putString(out, value.toString());
+          break;
+        case DICTIONARY:
+          out.putInt(this.dictionary.get(value));
+          break;
+      }
+    }
+    out.putInt(start, out.position() - start - 4);
+  }
+
+  private static void putString(MappedByteBuffer out, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    int length = Math.min(bytes.length, Short.MAX_VALUE);
+    out.putShort((short) length);
+    out.put(bytes, 0, length);
+  }
+
+  /**
+   * Apply the sync policy and rotate the current segment when it is due
+   */
+  private void maintain(long now) throws IOException {
+    if (this.segment == null) {
+      return;
+    }
+
+    GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+    int syncInterval = gmlcPropertiesManagement.getCdrSyncInterval();
+    if (this.unsynced && syncInterval >= 0 && now - this.lastSync >= syncInterval) {
+      this.segment.force();
+      this.lastSync = now;
+      this.unsynced = false;
+    }
+
+    long rotationInterval = gmlcPropertiesManagement.getCdrRotationInterval() * 1000L;
+    if (this.committed == this.dataStart) {
+      // an empty segment ages from its first record
+      this.openedAt = now;
+    } else if (this.dictionary.size() >= MAX_DICTIONARY_SIZE
+        || (rotationInterval > 0 && now - this.openedAt >= rotationInterval)) {
+      // the next segment is opened by the next record
+      this.close();
+    }
+  }
+
+  private void open(long now) throws IOException {
+    GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+    String configured = gmlcPropertiesManagement.getCdrDirectory();
+    if (configured == null || configured.isEmpty()) {
+      configured = System.getProperty("jboss.server.log.dir", System.getProperty("user.dir"));
+    }
+    File dir = new File(configured);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Can not create CDR directory " + dir);
+    }
+
+    String stamp = this.segmentFileDate.format(new Date(now));
+    File file = new File(dir, SEGMENT_FILE_PREFIX + stamp + SEGMENT_FILE_SUFFIX);
+    for (int i = 1; file.exists(); i++) {
+      file = new File(dir, SEGMENT_FILE_PREFIX + stamp + "-" + i + SEGMENT_FILE_SUFFIX);
+    }
+
+    int size = Math.max(MIN_SEGMENT_SIZE, gmlcPropertiesManagement.getCdrSegmentSize());
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      this.channel = randomAccessFile.getChannel();
+      this.segment = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } catch (IOException e) {
+      randomAccessFile.close();
+      this.channel = null;
+      throw e;
+    }
+    this.segmentFile = file;
+    this.dictionary.clear();
+
+    this.segment.putInt(MAGIC);
+    this.segment.putShort(VERSION);
+    this.segment.putShort((short) COLUMNS.length);
+    for (CDRColumn column : COLUMNS) {
+      this.segment.put((byte) column.getType().ordinal());
+      putString(this.segment, column.name());
+    }
+    this.dataStart = this.segment.position();
+    this.committed = this.dataStart;
+    this.openedAt = now;
+    this.lastSync = now;
+    this.unsynced = true;
+    this.segments.incrementAndGet();
+  }
+
+  private void rotate(long now) throws IOException {
+    this.close();
+    this.open(now);
+  }
+
+  /**
+   * Close the current segment, cutting it down to the entries written in full
+   */
+  private void close() throws IOException {
+    if (this.segment != null) {
+      try {
+        if (this.committed < this.segment.capacity()) {
+          // an entry with zero length marks the end for readers of a segment that could not be truncated
+          this.segment.putInt(this.committed, 0);
+        }
+        if (this.unsynced && GmlcPropertiesManagement.getInstance().getCdrSyncInterval() >= 0) {
+          this.segment.force();
+        }
+        this.channel.truncate(this.committed);
+      } finally {
+        this.channel.close();
+        this.channel = null;
+        this.segment = null;
+        this.unsynced = false;
+      }
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      this.close();
+    } catch (IOException e) {
+      this.channel = null;
+      this.segment = null;
+    }
+  }
+
+  public long getWritten() {
+    return this.written.get();
+  }
+
+  public long getFailed() {
+    return this.failed.get();
+  }
+
+  public long getSegments() {
+    return this.segments.get();
+  }
+
+}
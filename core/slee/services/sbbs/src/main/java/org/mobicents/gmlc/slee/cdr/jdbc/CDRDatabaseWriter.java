@@ -0,0 +1,415 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.gmlc.slee.cdr.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+import org.mobicents.gmlc.GmlcPropertiesManagement;
+import org.mobicents.gmlc.slee.cdr.CDRBufferedWriter;
+import org.mobicents.gmlc.slee.cdr.CDRRingBuffer;
+import org.mobicents.gmlc.slee.cdr.GMLCCDRState;
+import org.mobicents.protocols.ss7.map.api.primitives.IMSI;
+import org.mobicents.protocols.ss7.map.api.primitives.ISDNAddressString;
+
+/**
+ * Inserts CDRs into the GMLC_CDR table off the SLEE event threads. Records are queued by
+ * {@link CDRBufferedWriter} and a single writer thread inserts them with batched prepared statements
+ * through the pooled DataSource bound at {@link GmlcPropertiesManagement#getCdrDataSource()}.
+ * A batch is inserted once it is full or once its oldest record has waited for the flush interval.
+ * While the database is unavailable the pending batch is retried, and the ring buffer applies
+ * backpressure by dropping or blocking as configured for the text file writer. A record the database
+ * refuses, a value too long for its column or a constraint violation, would fail every retry:
+ * it is logged and dropped, and the rest of its batch is inserted.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class CDRDatabaseWriter extends CDRBufferedWriter<CDRDatabaseWriter.Row> {
+
+  private static final Logger logger = Logger.getLogger(CDRDatabaseWriter.class);
+
+  private static final String TABLE_NAME = "GMLC_CDR";
+  private static final String CHECK_TABLE = "SELECT COUNT(*) FROM " + TABLE_NAME + " WHERE 1 = 0";
+  private static final String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
+      + "RECORD_TIME TIMESTAMP NOT NULL, "
+      + "ID VARCHAR(64), "
+      + "RECORD_STATUS VARCHAR(64), "
+      + "LOCAL_DIALOG_ID BIGINT, "
+      + "REMOTE_DIALOG_ID BIGINT, "
+      + "DIALOG_DURATION BIGINT, "
+      + "MSISDN VARCHAR(32), "
+      + "IMSI VARCHAR(32), "
+      + "RECORD VARCHAR(8192))";
+  private static final String INSERT = "INSERT INTO " + TABLE_NAME + " (RECORD_TIME, ID, RECORD_STATUS, "
+      + "LOCAL_DIALOG_ID, REMOTE_DIALOG_ID, DIALOG_DURATION, MSISDN, IMSI, RECORD) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+  // SQLState classes of the errors caused by the record itself
+  private static final String DATA_EXCEPTION = "22";
+  private static final String CONSTRAINT_VIOLATION = "23";
+
+  private static final CDRDatabaseWriter instance = new CDRDatabaseWriter();
+
+  private final AtomicLong inserted = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+
+  private final boolean fixedDataSource;
+
+  // writer thread state
+  private DataSource dataSource;
+  private String dataSourceName;
+  private boolean tableChecked;
+  private boolean failing;
+
+  private CDRDatabaseWriter() {
+    super("CDRDatabaseWriter", logger);
+    this.fixedDataSource = false;
+  }
+
+  /**
+   * Writer inserting into dataSource instead of the DataSource bound in JNDI
+   */
+  CDRDatabaseWriter(DataSource dataSource, String dataSourceName) {
+    super("CDRDatabaseWriter", logger);
+    this.dataSource = dataSource;
+    this.dataSourceName = dataSourceName;
+    this.fixedDataSource = true;
+  }
+
+  public static CDRDatabaseWriter getInstance() {
+    return instance;
+  }
+
+  /**
+   * Queue a CDR for insertion, starting the writer thread on first use.
+   * When the buffer is full the record is dropped, or the caller waits for room if
+   * {@link GmlcPropertiesManagement#isCdrBlockWhenFull()} is set.
+   *
+   * @param state  CDR state the indexed columns are taken from
+   * @param record formatted CDR
+   * @return false if the record was dropped
+   */
+  public boolean write(GMLCCDRState state, String record) {
+    return this.queue(new Row(state, record));
+  }
+
+  @Override
+  protected void drain(CDRRingBuffer<Row> ringBuffer) {
+    GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+    List<Row> pending = new ArrayList<Row>();
+    long firstPendingAt = 0;
+
+    boolean running;
+    while ((running = this.isRunning(ringBuffer)) || !ringBuffer.isEmpty() || !pending.isEmpty()) {
+      int batchSize = Math.max(1, gmlcPropertiesManagement.getCdrBatchSize());
+      long flushInterval = Math.max(0, gmlcPropertiesManagement.getCdrFlushInterval());
+      if (pending.size() < batchSize) {
+        ringBuffer.drainTo(pending, batchSize - pending.size());
+      }
+
+      long now = System.currentTimeMillis();
+      this.reportDropped(now);
+      if (pending.isEmpty()) {
+        ringBuffer.await(IDLE_WAIT);
+        continue;
+      }
+      if (firstPendingAt == 0) {
+        firstPendingAt = now;
+      }
+
+      long due = firstPendingAt + flushInterval - now;
+      if (pending.size() >= batchSize || due <= 0 || !running) {
+        if (this.insert(pending)) {
+          pending.clear();
+          firstPendingAt = 0;
+        } else if (!running) {
+          this.failed.addAndGet(pending.size());
+          logger.error(pending.size() + " CDRs could not be inserted before stopping, the records are lost");
+          pending.clear();
+        } else {
+          // keep the batch and let the ring buffer absorb, then push back on, the incoming records
+          this.pause(ringBuffer, Math.max(IDLE_WAIT, flushInterval));
+        }
+      } else {
+        ringBuffer.await(due);
+      }
+    }
+  }
+
+  /**
+   * Insert a batch of records in a single transaction. When the database refuses one of the records, see
+   * {@link #isRejected(SQLException)}, the records are inserted one by one and the refused ones are dropped.
+   * Inserted and dropped records are removed from rows.
+   *
+   * @return false if records are left in rows and have to be retried
+   */
+  boolean insert(List<Row> rows) {
+    Connection connection = null;
+    try {
+      connection = this.getDataSource().getConnection();
+      if (!this.tableChecked) {
+        this.checkTable(connection);
+      }
+
+      try {
+        this.insertBatch(connection, rows);
+        this.inserted.addAndGet(rows.size());
+        this.batches.incrementAndGet();
+        rows.clear();
+      } catch (SQLException e) {
+        if (!isRejected(e)) {
+          throw e;
+        }
+        // a single record failing its constraints fails the whole batch, isolate it
+        this.insertEach(connection, rows);
+      }
+
+      if (this.failing) {
+        logger.info("CDR database is available again");
+        this.failing = false;
+      }
+      return true;
+    } catch (Exception e) {
+      if (!this.failing) {
+        logger.error("Error while inserting " + rows.size() + " CDRs into " + this.dataSourceName
+            + ", retrying while the CDR buffer has room", e);
+        this.failing = true;
+      }
+      if (e instanceof NamingException) {
+        this.dataSource = null;
+      }
+      return false;
+    } finally {
+      if (connection != null) {
+        try {
+          // hands the connection back to the pool
+          connection.close();
+        } catch (SQLException e) {
+          logger.warn("Error while closing CDR database connection", e);
+        }
+      }
+    }
+  }
+
+  private void insertBatch(Connection connection, List<Row> rows) throws SQLException {
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try {
+      PreparedStatement statement = connection.prepareStatement(INSERT);
+      try {
+        for (Row row : rows) {
+          row.bind(statement);
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      } finally {
+        statement.close();
+      }
+      connection.commit();
+    } catch (SQLException e) {
+      connection.rollback();
+      throw e;
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  private void insertEach(Connection connection, List<Row> rows) throws SQLException {
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(true);
+    try {
+      PreparedStatement statement = connection.prepareStatement(INSERT);
+      try {
+        Iterator<Row> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+          Row row = iterator.next();
+          row.bind(statement);
+          try {
+            statement.executeUpdate();
+            this.inserted.incrementAndGet();
+          } catch (SQLException e) {
+            if (!isRejected(e)) {
+              // the records not inserted yet are retried
+              throw e;
+            }
+            this.rejected.incrementAndGet();
+            logger.error("CDR " + row.id + " rejected by " + this.dataSourceName + " with SQLState " + e.getSQLState()
+                + " and dropped: " + e.getMessage() + ", record: " + row.record);
+          }
+          iterator.remove();
+        }
+      } finally {
+        statement.close();
+      }
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  /**
+   * A record is rejected when the database refuses its values (SQLState class 22) or its constraints
+   * (SQLState class 23); retrying it would fail the same way. Anything else, a lost connection,
+   * a {@link SQLTransientException} or an unavailable table, is retried.
+   */
+  static boolean isRejected(SQLException e) {
+    for (SQLException cause = e; cause != null; cause = cause.getNextException()) {
+      if (cause instanceof SQLTransientException || cause instanceof SQLRecoverableException
+          || cause instanceof SQLNonTransientConnectionException) {
+        return false;
+      }
+      if (cause instanceof SQLDataException || cause instanceof SQLIntegrityConstraintViolationException) {
+        return true;
+      }
+      String sqlState = cause.getSQLState();
+      if (sqlState != null && (sqlState.startsWith(DATA_EXCEPTION) || sqlState.startsWith(CONSTRAINT_VIOLATION))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private DataSource getDataSource() throws NamingException {
+    if (this.fixedDataSource) {
+      return this.dataSource;
+    }
+    String name = GmlcPropertiesManagement.getInstance().getCdrDataSource();
+    if (this.dataSource == null || !name.equals(this.dataSourceName)) {
+      InitialContext context = new InitialContext();
+      try {
+        this.dataSource = (DataSource) context.lookup(name);
+      } finally {
+        context.close();
+      }
+      this.dataSourceName = name;
+      this.tableChecked = false;
+    }
+    return this.dataSource;
+  }
+
+  private void checkTable(Connection connection) throws SQLException {
+    Statement statement = connection.createStatement();
+    try {
+      statement.executeQuery(CHECK_TABLE).close();
+    } catch (SQLException e) {
+      logger.info("Creating table " + TABLE_NAME + " in " + this.dataSourceName);
+      statement.executeUpdate(CREATE_TABLE);
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    } finally {
+      statement.close();
+    }
+    this.tableChecked = true;
+  }
+
+  private void pause(CDRRingBuffer<Row> ringBuffer, long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      this.halt(ringBuffer);
+    }
+  }
+
+  public long getInserted() {
+    return this.inserted.get();
+  }
+
+  public long getBatches() {
+    return this.batches.get();
+  }
+
+  public long getFailed() {
+    return this.failed.get();
+  }
+
+  public long getRejected() {
+    return this.rejected.get();
+  }
+
+  /**
+   * Column values of a queued CDR, taken on the event thread
+   */
+  static class Row {
+    private final long recordTime;
+    private final String id;
+    private final String recordStatus;
+    private final Long localDialogId;
+    private final Long remoteDialogId;
+    private final Long dialogDuration;
+    private final String msisdn;
+    private final String imsi;
+    private final String record;
+
+    Row(GMLCCDRState state, String record) {
+      this.recordTime = System.currentTimeMillis();
+      this.id = state.getId();
+      this.recordStatus = state.getRecordStatus() != null ? state.getRecordStatus().toString() : null;
+      this.localDialogId = state.getLocalDialogId();
+      this.remoteDialogId = state.getRemoteDialogId();
+      this.dialogDuration = state.getDialogDuration();
+      ISDNAddressString msisdn = state.getMsisdn();
+      this.msisdn = msisdn != null ? msisdn.getAddress() : null;
+      IMSI imsi = state.getImsi();
+      this.imsi = imsi != null ? imsi.getData() : null;
+      this.record = record;
+    }
+
+    private void bind(PreparedStatement statement) throws SQLException {
+      statement.setTimestamp(1, new Timestamp(this.recordTime));
+      statement.setString(2, this.id);
+      statement.setString(3, this.recordStatus);
+      setLong(statement, 4, this.localDialogId);
+      setLong(statement, 5, this.remoteDialogId);
+      setLong(statement, 6, this.dialogDuration);
+      statement.setString(7, this.msisdn);
+      statement.setString(8, this.imsi);
+      statement.setString(9, this.record);
+    }
+
+    private static void setLong(PreparedStatement statement, int index, Long value) throws SQLException {
+      if (value != null) {
+        statement.setLong(index, value);
+      } else {
+        statement.setNull(index, Types.BIGINT);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.gmlc.slee.cdr.plain;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.mobicents.gmlc.GmlcPropertiesManagement;
+import org.mobicents.gmlc.slee.cdr.CDRBufferedWriter;
+import org.mobicents.gmlc.slee.cdr.CDRRingBuffer;
+
+/**
+ * Writes plain text CDRs off the SLEE event threads. Records are queued by {@link CDRBufferedWriter}
+ * and a single writer thread appends them in batches to the current CDR file with gathering writes.
+ * The current file is rotated by size and by age, and synced to disk as configured in
+ * {@link GmlcPropertiesManagement}.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class CDRFileWriter extends CDRBufferedWriter<String> {
+
+  private static final Logger logger = Logger.getLogger(CDRFileWriter.class);
+
+  private static final String CURRENT_FILE_NAME = "gmlc-cdr.log";
+  private static final String ROTATED_FILE_PREFIX = "gmlc-cdr-";
+  private static final String ROTATED_FILE_SUFFIX = ".log";
+  private static final byte[] NEWLINE = {'\n'};
+  private static final int MAX_BATCH = 512;
+
+  private static final CDRFileWriter instance = new CDRFileWriter();
+
+  private final AtomicLong written = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong rotations = new AtomicLong();
+
+  // writer thread state
+  private final ByteBuffer[] gather = new ByteBuffer[MAX_BATCH * 2];
+  private final SimpleDateFormat rotatedFileDate = new SimpleDateFormat("yyyyMMdd-HHmmss");
+  private File directory;
+  private FileChannel channel;
+  private long openedAt;
+  private long lastSync;
+  private boolean unsynced;
+
+  private CDRFileWriter() {
+    super("CDRFileWriter", logger);
+  }
+
+  public static CDRFileWriter getInstance() {
+    return instance;
+  }
+
+  /**
+   * Queue a CDR for writing, starting the writer thread on first use.
+   * When the buffer is full the record is dropped, or the caller waits for room if
+   * {@link GmlcPropertiesManagement#isCdrBlockWhenFull()} is set.
+   *
+   * @param record formatted CDR, without line terminator
+   * @return false if the record was dropped
+   */
+  public boolean write(String record) {
+    return this.queue(record);
+  }
+
+  @Override
+  protected void drain(CDRRingBuffer<String> ringBuffer) {
+    List<String> batch = new ArrayList<String>(MAX_BATCH);
+    while (this.isRunning(ringBuffer) || !ringBuffer.isEmpty()) {
+      int count = ringBuffer.drainTo(batch, MAX_BATCH);
+      long now = System.currentTimeMillis();
+      try {
+        if (count > 0) {
+          this.append(batch, now);
+        }
+        this.maintain(now);
+      } catch (Exception e) {
+        this.failed.addAndGet(count);
+        logger.error("Error while writing " + count + " CDRs to " + this.directory + File.separator
+            + CURRENT_FILE_NAME + ", the records are lost", e);
+        this.closeQuietly();
+      }
+      batch.clear();
+      this.reportDropped(now);
+      if (count == 0) {
+        ringBuffer.await(IDLE_WAIT);
+      }
+    }
+    try {
+      this.close();
+    } catch (IOException e) {
+      logger.error("Error while closing the CDR file", e);
+    }
+  }
+
+  private void append(List<String> batch, long now) throws IOException {
+    if (this.channel == null) {
+      this.open(now);
+    }
+
+    int count = batch.size();
+    long length = 0;
+    for (int i = 0; i < count; i++) {
+      byte[] record = batch.get(i).getBytes(StandardCharsets.UTF_8);
+      this.gather[i * 2] = ByteBuffer.wrap(record);
+      this.gather[i * 2 + 1] = ByteBuffer.wrap(NEWLINE);
+      length += record.length + NEWLINE.length;
+    }
+    while (length > 0) {
+      length -= this.channel.write(this.gather, 0, count * 2);
+    }
+    for (int i = 0; i < count * 2; i++) {
+      this.gather[i] = null;
+    }
+    this.written.addAndGet(count);
+    this.unsynced = true;
+  }
+
+  /**
+   * Apply the sync policy and rotate the current file when it is due
+   */
+  private void maintain(long now) throws IOException {
+    if (this.channel == null) {
+      return;
+    }
+
+    GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+    int syncInterval = gmlcPropertiesManagement.getCdrSyncInterval();
+    if (this.unsynced && syncInterval >= 0 && now - this.lastSync >= syncInterval) {
+      this.sync(now);
+    }
+
+    long fileSize = gmlcPropertiesManagement.getCdrFileSize();
+    long rotationInterval = gmlcPropertiesManagement.getCdrRotationInterval() * 1000L;
+    long position = this.channel.position();
+    if (position == 0) {
+      // an empty file ages from its first record
+      this.openedAt = now;
+    } else if ((fileSize > 0 && position >= fileSize)
+        || (rotationInterval > 0 && now - this.openedAt >= rotationInterval)) {
+      this.rotate(now);
+    }
+  }
+
+  private void open(long now) throws IOException {
+    String configured = GmlcPropertiesManagement.getInstance().getCdrDirectory();
+    if (configured == null || configured.isEmpty()) {
+      configured = System.getProperty("jboss.server.log.dir", System.getProperty("user.dir"));
+    }
+    File dir = new File(configured);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Can not create CDR directory " + dir);
+    }
+
+    this.directory = dir;
+    this.channel = FileChannel.open(new File(dir, CURRENT_FILE_NAME).toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    this.openedAt = now;
+    this.lastSync = now;
+  }
+
+  private void sync(long now) throws IOException {
+    this.channel.force(false);
+    this.lastSync = now;
+    this.unsynced = false;
+  }
+
+  private void rotate(long now) throws IOException {
+    File dir = this.directory;
+    this.close();
+
+    String stamp = this.rotatedFileDate.format(new Date(this.openedAt));
+    File rotated = new File(dir, ROTATED_FILE_PREFIX + stamp + ROTATED_FILE_SUFFIX);
+    for (int i = 1; rotated.exists(); i++) {
+      rotated = new File(dir, ROTATED_FILE_PREFIX + stamp + "-" + i + ROTATED_FILE_SUFFIX);
+    }
+    if (!new File(dir, CURRENT_FILE_NAME).renameTo(rotated)) {
+      logger.error("Can not rotate the CDR file to " + rotated + ", appending to the current file");
+    } else {
+      this.rotations.incrementAndGet();
+    }
+    this.open(now);
+  }
+
+  private void close() throws IOException {
+    if (this.channel != null) {
+      try {
+        if (this.unsynced && GmlcPropertiesManagement.getInstance().getCdrSyncInterval() >= 0) {
+          this.sync(System.currentTimeMillis());
+        }
+      } finally {
+        this.channel.close();
+        this.channel = null;
+      }
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      this.close();
+    } catch (IOException e) {
+      this.channel = null;
+    }
+  }
+
+  public long getWritten() {
+    return this.written.get();
+  }
+
+  public long getFailed() {
+    return this.failed.get();
+  }
+
+  public long getRotations() {
+    return this.rotations.get();
+  }
+
+}
@@ -27,10 +27,12 @@ import javax.slee.CreateException;
 import javax.slee.SbbContext;
 import javax.slee.serviceactivity.ServiceStartedEvent;
 
-import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
+import org.mobicents.gmlc.GmlcPropertiesManagement;
 import org.mobicents.gmlc.slee.cdr.GMLCCDRState;
 import org.mobicents.gmlc.slee.cdr.RecordStatus;
+import org.mobicents.gmlc.slee.cdr.binary.CDRSegmentWriter;
+import org.mobicents.gmlc.slee.cdr.jdbc.CDRDatabaseWriter;
 import org.mobicents.gmlc.slee.map.MobileCoreNetworkInterfaceSbb;
 import org.mobicents.protocols.ss7.indicator.AddressIndicator;
 
@@ -76,9 +78,9 @@ import org.mobicents.gmlc.slee.cdr.CDRInterface;
  */
 public abstract class CDRGeneratorSbb extends MobileCoreNetworkInterfaceSbb implements CDRInterface {
 
-  private static final Logger cdrTracer = Logger.getLogger(CDRGeneratorSbb.class);
-
-  private static final String CDR_GENERATED_TO = "Textfile";
+  private static final CDRFileWriter cdrFileWriter = CDRFileWriter.getInstance();
+  private static final CDRDatabaseWriter cdrDatabaseWriter = CDRDatabaseWriter.getInstance();
+  private static final CDRSegmentWriter cdrSegmentWriter = CDRSegmentWriter.getInstance();
 
   public CDRGeneratorSbb() {
     //super("CDRGeneratorSbb");
@@ -95,7 +97,7 @@ public abstract class CDRGeneratorSbb extends MobileCoreNetworkInterfaceSbb impl
    */
   @Override
   public void init(final boolean reset) {
-    super.logger.info("Setting CDR_GENERATED_TO to "+ CDR_GENERATED_TO);
+    super.logger.info("Setting CDR_GENERATED_TO to " + GmlcPropertiesManagement.getInstance().getCdrLoggingTo());
   }
 
   /* (non-Javadoc)
@@ -122,11 +124,23 @@ public abstract class CDRGeneratorSbb extends MobileCoreNetworkInterfaceSbb impl
       state.setRecordStatus(outcome);
       state.setGenerated(true);
       this.setState(state);
-      String data = this.toString(state);
-      if (this.logger.isFineEnabled()) {
-        this.logger.fine(data);
+      GmlcPropertiesManagement.CdrLoggedType cdrLoggingTo = GmlcPropertiesManagement.getInstance().getCdrLoggingTo();
+      if (cdrLoggingTo == GmlcPropertiesManagement.CdrLoggedType.Binary) {
+        // binary CDRs are encoded from the state, the text record is only built for tracing
+        if (this.logger.isFineEnabled()) {
+          this.logger.fine(this.toString(state));
+        }
+        cdrSegmentWriter.write(state);
       } else {
-        this.cdrTracer.debug(data);
+        String data = this.toString(state);
+        if (this.logger.isFineEnabled()) {
+          this.logger.fine(data);
+        }
+        if (cdrLoggingTo == GmlcPropertiesManagement.CdrLoggedType.Database) {
+          cdrDatabaseWriter.write(state, data);
+        } else {
+          cdrFileWriter.write(data);
+        }
       }
     }
   }
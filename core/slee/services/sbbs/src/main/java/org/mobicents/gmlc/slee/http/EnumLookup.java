@@ -0,0 +1,70 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.http;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Case insensitive lookup of enum constants by name, precomputed once per enum type
+ * instead of chaining equalsIgnoreCase calls for every incoming request.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class EnumLookup<E extends Enum<E>> {
+
+    private final Map<String, E> exactConstants = new HashMap<String, E>();
+    private final Map<String, E> constants = new HashMap<String, E>();
+    private final String names;
+
+    public EnumLookup(Class<E> enumType) {
+        StringBuilder sb = new StringBuilder();
+        for (E constant : enumType.getEnumConstants()) {
+            exactConstants.put(constant.name(), constant);
+            constants.put(constant.name().toLowerCase(Locale.ENGLISH), constant);
+            if (sb.length() > 0)
+                sb.append(", ");
+            sb.append(constant.name());
+        }
+        names = sb.toString();
+    }
+
+    /**
+     * @param name constant name in any case
+     * @return the matching constant, or null if name is null or unknown
+     */
+    public E get(String name) {
+        if (name == null)
+            return null;
+        // clients mostly send the constant name as is, only other spellings pay for the lower casing
+        E constant = exactConstants.get(name);
+        return constant != null ? constant : constants.get(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @return comma separated names of the constants, for error messages
+     */
+    public String getNames() {
+        return names;
+    }
+}
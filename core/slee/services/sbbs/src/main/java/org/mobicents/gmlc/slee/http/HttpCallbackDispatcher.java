@@ -0,0 +1,458 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.http;
+
+import org.apache.log4j.Logger;
+import org.mobicents.gmlc.GmlcManagement;
+import org.mobicents.gmlc.GmlcPropertiesManagement;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous delivery of HTTP callbacks (SubscriberLocationReport notifications) to LCS clients.
+ * Callbacks are queued per destination (protocol, host and port of the callback URL) and sent by a
+ * small pool of threads dedicated to it, so a slow or unreachable LCS client only delays its own
+ * callbacks and never the SLEE event delivery threads. Every response is read to the end so that
+ * its connection goes back to the JDK keep-alive cache for the next callback to the same destination.
+ * Failed deliveries are retried with an exponential backoff; callbacks that exhaust their retries or
+ * find the destination queue full end up in the dead letter log.
+ * <p>
+ * JSON reports of LCS clients that asked for batching can also be batched: reports for the same HTTP method and
+ * callback URL are collected for up to callbackBatchWindow milliseconds or callbackBatchSize reports and then sent
+ * as a single JSON array.
+ * <p>
+ * The dispatcher threads are stopped together with GMLC management; callbacks still queued or waiting
+ * to be retried at that time are dropped, and a new dispatcher is created on the next callback.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class HttpCallbackDispatcher {
+
+    private static final Logger logger = Logger.getLogger(HttpCallbackDispatcher.class);
+    private static final Logger deadLetterLogger = Logger.getLogger(HttpCallbackDispatcher.class.getName() + ".DeadLetter");
+
+    // idle destination threads are let go after this time
+    private static final long IDLE_THREAD_TIMEOUT = 60000;
+
+    private static volatile HttpCallbackDispatcher instance;
+
+    private final ConcurrentMap<String, ThreadPoolExecutor> destinations = new ConcurrentHashMap<String, ThreadPoolExecutor>();
+    private final ConcurrentMap<String, CallbackBatch> batches = new ConcurrentHashMap<String, CallbackBatch>();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong batched = new AtomicLong();
+    private volatile boolean stopped;
+
+    private HttpCallbackDispatcher() {
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("gmlc-callback-scheduler"));
+    }
+
+    public static HttpCallbackDispatcher getInstance() {
+        HttpCallbackDispatcher dispatcher = instance;
+        if (dispatcher == null) {
+            synchronized (HttpCallbackDispatcher.class) {
+                dispatcher = instance;
+                if (dispatcher == null) {
+                    dispatcher = new HttpCallbackDispatcher();
+                    dispatcher.registerStopHook();
+                    instance = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
+
+    private void registerStopHook() {
+        GmlcManagement gmlcManagement = GmlcManagement.getInstance();
+        if (gmlcManagement == null) {
+            logger.warn("GMLC Management is not available, callback dispatcher threads will not be stopped with it");
+            return;
+        }
+        gmlcManagement.addStopHook(new Runnable() {
+            @Override
+            public void run() {
+                stop();
+            }
+        });
+    }
+
+    /**
+     * Stop the scheduler and the destination threads, dropping the callbacks that were not sent yet
+     */
+    public void stop() {
+        synchronized (HttpCallbackDispatcher.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
+
+        this.stopped = true;
+        this.scheduler.shutdownNow();
+        int dropped = 0;
+        for (ThreadPoolExecutor executor : this.destinations.values()) {
+            dropped += executor.shutdownNow().size();
+        }
+        this.destinations.clear();
+        this.batches.clear();
+        logger.info(String.format("Stopped HTTP callback dispatcher, %d queued callback(s) dropped", dropped));
+    }
+
+    /**
+     * Queue a callback for delivery, returning without waiting for it to be sent
+     *
+     * @param httpMethod  HTTP method of the callback
+     * @param callbackUrl LCS client callback URL
+     * @param contentType content type of the body
+     * @param body        callback body
+     * @return false if the callback could not be queued and went straight to the dead letter log
+     */
+    public boolean dispatch(HttpReport.HttpMethod httpMethod, String callbackUrl, String contentType, byte[] body) {
+        return this.dispatch(new Callback(httpMethod, callbackUrl, contentType, body));
+    }
+
+    /**
+     * Queue a JSON report of a registration that asked for batching. When batching is enabled the report is added to
+     * the batch being collected for its HTTP method and callback URL, which is sent as a JSON array once full or once
+     * the batch window elapses; otherwise the report is sent on its own right away.
+     *
+     * @param httpMethod  HTTP method of the callback
+     * @param callbackUrl LCS client callback URL
+     * @param report      UTF-8 encoded JSON value
+     */
+    public void dispatchJson(HttpReport.HttpMethod httpMethod, String callbackUrl, byte[] report) {
+        GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+        int batchWindow = gmlcPropertiesManagement.getCallbackBatchWindow();
+        if (batchWindow <= 0 || callbackUrl == null) {
+            this.dispatch(httpMethod, callbackUrl, HttpResponseWriter.APPLICATION_JSON, report);
+            return;
+        }
+
+        int batchSize = Math.max(1, gmlcPropertiesManagement.getCallbackBatchSize());
+        String batchKey = httpMethod + " " + callbackUrl;
+        while (true) {
+            CallbackBatch batch = this.batches.get(batchKey);
+            if (batch == null) {
+                batch = new CallbackBatch(batchKey, httpMethod, callbackUrl);
+                CallbackBatch previous = this.batches.putIfAbsent(batchKey, batch);
+                if (previous != null) {
+                    batch = previous;
+                } else {
+                    this.scheduleFlush(batch, batchWindow);
+                }
+            }
+
+            Callback callback;
+            synchronized (batch) {
+                if (batch.closed) {
+                    // sent in the meantime, start over with a new batch
+                    continue;
+                }
+                batch.add(report);
+                this.batched.incrementAndGet();
+                callback = batch.size >= batchSize ? this.close(batch) : null;
+            }
+            if (callback != null) {
+                this.dispatch(callback);
+            }
+            return;
+        }
+    }
+
+    public long getDelivered() {
+        return this.delivered.get();
+    }
+
+    public long getRetried() {
+        return this.retried.get();
+    }
+
+    public long getDeadLettered() {
+        return this.deadLettered.get();
+    }
+
+    public long getBatched() {
+        return this.batched.get();
+    }
+
+    /**
+     * Number of callbacks waiting for delivery, not counting those waiting to be retried
+     */
+    public int getQueued() {
+        int queued = 0;
+        for (ThreadPoolExecutor executor : this.destinations.values()) {
+            queued += executor.getQueue().size();
+        }
+        return queued;
+    }
+
+    private boolean dispatch(Callback callback) {
+        try {
+            callback.url = new URL(callback.callbackUrl);
+        } catch (MalformedURLException e) {
+            this.deadLetter(callback, "malformed callback URL");
+            return false;
+        }
+        return this.submit(callback);
+    }
+
+    private void scheduleFlush(final CallbackBatch batch, int batchWindow) {
+        try {
+            this.scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    Callback callback;
+                    synchronized (batch) {
+                        callback = batch.closed ? null : close(batch);
+                    }
+                    if (callback != null) {
+                        dispatch(callback);
+                    }
+                }
+            }, batchWindow, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            Callback callback;
+            synchronized (batch) {
+                callback = batch.closed ? null : close(batch);
+            }
+            if (callback != null) {
+                this.deadLetter(callback, "callback dispatcher stopped");
+            }
+        }
+    }
+
+    // must be called holding the batch lock
+    private Callback close(CallbackBatch batch) {
+        batch.closed = true;
+        this.batches.remove(batch.key, batch);
+        batch.body.write(']');
+        return new Callback(batch.httpMethod, batch.callbackUrl, HttpResponseWriter.APPLICATION_JSON, batch.body.toByteArray());
+    }
+
+    private boolean submit(Callback callback) {
+        if (this.stopped) {
+            this.deadLetter(callback, "callback dispatcher stopped");
+            return false;
+        }
+        try {
+            this.getDestination(callback.url).execute(callback);
+            return true;
+        } catch (RejectedExecutionException e) {
+            this.deadLetter(callback, "destination queue full");
+            return false;
+        }
+    }
+
+    private ThreadPoolExecutor getDestination(URL url) {
+        int connections = Math.max(1, GmlcPropertiesManagement.getInstance().getCallbackConnections());
+        String key = url.getProtocol() + "://" + url.getAuthority();
+        ThreadPoolExecutor executor = this.destinations.get(key);
+        if (executor == null) {
+            int queueSize = Math.max(1, GmlcPropertiesManagement.getInstance().getCallbackQueueSize());
+            executor = new ThreadPoolExecutor(connections, connections, IDLE_THREAD_TIMEOUT, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(queueSize), new DaemonThreadFactory("gmlc-callback-" + url.getAuthority()));
+            executor.allowCoreThreadTimeOut(true);
+            ThreadPoolExecutor previous = this.destinations.putIfAbsent(key, executor);
+            if (previous != null) {
+                executor.shutdown();
+                executor = previous;
+            }
+        }
+
+        // follow changes of the configured number of connections per destination
+        if (executor.getMaximumPoolSize() != connections) {
+            synchronized (executor) {
+                if (connections > executor.getMaximumPoolSize()) {
+                    executor.setMaximumPoolSize(connections);
+                    executor.setCorePoolSize(connections);
+                } else if (connections < executor.getMaximumPoolSize()) {
+                    executor.setCorePoolSize(connections);
+                    executor.setMaximumPoolSize(connections);
+                }
+            }
+        }
+        return executor;
+    }
+
+    private void deliver(final Callback callback) {
+        String failure;
+        boolean retryable = true;
+        try {
+            int statusCode = this.send(callback);
+            if (statusCode >= 200 && statusCode < 300) {
+                this.delivered.incrementAndGet();
+                if (logger.isDebugEnabled()) {
+                    logger.debug(String.format("%s %s answered with HTTP %d", callback.httpMethod, callback.callbackUrl, statusCode));
+                }
+                return;
+            }
+            failure = "HTTP " + statusCode;
+            // other client errors will not get any better by sending the same callback again
+            retryable = statusCode >= 500 || statusCode == HttpURLConnection.HTTP_CLIENT_TIMEOUT || statusCode == 429;
+        } catch (IOException e) {
+            failure = e.toString();
+        }
+
+        GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+        if (retryable && callback.attempts <= gmlcPropertiesManagement.getCallbackMaxRetries()) {
+            long delay = (long) gmlcPropertiesManagement.getCallbackRetryInterval() << Math.min(callback.attempts - 1, 16);
+            this.retried.incrementAndGet();
+            logger.warn(String.format("%s %s failed (%s) on attempt %d, retrying in %d ms",
+                    callback.httpMethod, callback.callbackUrl, failure, callback.attempts, delay));
+            try {
+                this.scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        submit(callback);
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                this.deadLetter(callback, "callback dispatcher stopped");
+            }
+        } else {
+            this.deadLetter(callback, failure);
+        }
+    }
+
+    private int send(Callback callback) throws IOException {
+        GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+        callback.attempts++;
+
+        HttpURLConnection connection = (HttpURLConnection) callback.url.openConnection();
+        connection.setConnectTimeout(gmlcPropertiesManagement.getCallbackConnectTimeout());
+        connection.setReadTimeout(gmlcPropertiesManagement.getCallbackReadTimeout());
+        connection.setRequestMethod(callback.httpMethod.toString());
+        connection.setRequestProperty("Content-Type", callback.contentType);
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(callback.body.length);
+
+        OutputStream outputStream = connection.getOutputStream();
+        try {
+            outputStream.write(callback.body);
+        } finally {
+            outputStream.close();
+        }
+
+        int statusCode = connection.getResponseCode();
+        // consume whatever the client answered, otherwise the connection can not be kept alive
+        drain(statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream());
+        return statusCode;
+    }
+
+    private static void drain(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[512];
+            while (inputStream.read(buffer) != -1) {
+                // discard
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private void deadLetter(Callback callback, String reason) {
+        this.deadLettered.incrementAndGet();
+        deadLetterLogger.error(String.format("%s %s dropped after %d attempt(s), %s: %s", callback.httpMethod, callback.callbackUrl,
+                callback.attempts, reason, new String(callback.body, StandardCharsets.UTF_8)));
+    }
+
+    private class Callback implements Runnable {
+        private final HttpReport.HttpMethod httpMethod;
+        private final String callbackUrl;
+        private final String contentType;
+        private final byte[] body;
+        private URL url;
+        private int attempts;
+
+        private Callback(HttpReport.HttpMethod httpMethod, String callbackUrl, String contentType, byte[] body) {
+            this.httpMethod = httpMethod;
+            this.callbackUrl = callbackUrl;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            deliver(this);
+        }
+    }
+
+    private static class CallbackBatch {
+        private final String key;
+        private final HttpReport.HttpMethod httpMethod;
+        private final String callbackUrl;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+        private int size;
+        private boolean closed;
+
+        private CallbackBatch(String key, HttpReport.HttpMethod httpMethod, String callbackUrl) {
+            this.key = key;
+            this.httpMethod = httpMethod;
+            this.callbackUrl = callbackUrl;
+            this.body.write('[');
+        }
+
+        private void add(byte[] report) {
+            if (this.size++ > 0) {
+                this.body.write(',');
+            }
+            this.body.write(report, 0, report.length);
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, this.name + "-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
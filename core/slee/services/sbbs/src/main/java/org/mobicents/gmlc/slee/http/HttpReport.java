@@ -22,17 +22,10 @@
 package org.mobicents.gmlc.slee.http;
 
 import org.mobicents.gmlc.slee.http.report.ReportElement;
+import org.mobicents.gmlc.slee.http.report.ReportFormat;
 import org.mobicents.gmlc.slee.http.report.ReportParameters;
 import org.mobicents.gmlc.slee.http.report.ReportRegister;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-
 /**
  * @author <a href="mailto:aferreiraguido@gmail.com"> Alejandro Ferreira Guido </a>
  */
@@ -40,65 +33,49 @@ public class HttpReport {
 
     public enum HttpMethod {POST, GET}
 
-    // URL's are stored on a separate list by referenceNumber
-    HashMap<Integer, String> callbackUrlHashMap;
-    // Registration is made on internal id storing referenceNumber for callbackUrl and reportParameters passed
-    ReportRegister reportRegister;
+    // Registration is made on a register shared by all SBB entities, storing referenceNumber, callbackUrl and reportParameters passed
+    private final ReportRegister reportRegister;
 
     public HttpReport() {
-        callbackUrlHashMap = new HashMap<Integer, String>();
-        reportRegister = new ReportRegister();
+        reportRegister = ReportRegister.getInstance();
     }
 
-    public Integer Register(Integer referenceNumber, String callbackUrl, ReportParameters reportParameters) {
-        // register if not there the callback url by referenceNumber passed from client
-        if (!callbackUrlHashMap.containsKey(referenceNumber)) {
-            callbackUrlHashMap.put(referenceNumber, callbackUrl);
-        }
-
+    public Integer Register(Integer referenceNumber, String callbackUrl, ReportFormat reportFormat, boolean batched,
+                            ReportParameters reportParameters, int reports, long timeToLive) {
         // return registered id for later retrieval and perform http method callback
-        return reportRegister.add(referenceNumber, reportParameters);
+        return reportRegister.add(referenceNumber, callbackUrl, reportFormat, batched, reportParameters, reports, timeToLive);
     }
 
-    public void Cancel(Integer referenceNumber) {
+    public void Cancel(Integer reportRegisterId) {
         // remove previous registration
-        if (callbackUrlHashMap.containsKey(referenceNumber)) {
-            callbackUrlHashMap.remove(referenceNumber);
-            reportRegister.remove(referenceNumber);
-        }
+        reportRegister.remove(reportRegisterId);
     }
 
-    public void Perform(HttpMethod httpMethod, Integer reportRegisterId, List<String> slrReportParameters) throws IOException {
-        // get the report element register by previous registered id
-        ReportElement reportElement = reportRegister.get(reportRegisterId);
-        if (reportElement != null) {
-            // get the callback from report element saved by referenceNumber identifying callback url
-            String callbackUrl = callbackUrlHashMap.get(reportElement.referenceNumber);
-
-            // perform the http method
-            URL urlCallback = new URL(callbackUrl);
-            HttpURLConnection httpUrlConnection = (HttpURLConnection) urlCallback.openConnection();
-            httpUrlConnection.setRequestMethod(httpMethod.toString());
-            httpUrlConnection.setDoOutput(true);
-            OutputStream httpOutputStream = httpUrlConnection.getOutputStream();
-
-            if (reportElement.reportParameters == null && slrReportParameters == null)
-                httpOutputStream.write("{}".getBytes());
-
-            if (reportElement.reportParameters != null)
-                httpOutputStream.write(reportElement.reportParameters.toString().getBytes());
-
-            if (slrReportParameters != null) {
-                Iterator<String> slrReportParametersIterator = slrReportParameters.iterator();
-                while (slrReportParametersIterator.hasNext())
-                    httpOutputStream.write(slrReportParametersIterator.next().getBytes());
-            }
-
-            httpOutputStream.flush();
-            httpOutputStream.close();
+    /**
+     * Get the registration a location report has arrived for, counting the report against those expected
+     *
+     * @return the registration, or null if there is no live registration for reportRegisterId
+     */
+    public ReportElement Lookup(Integer reportRegisterId) {
+        return reportRegister.report(reportRegisterId);
+    }
 
-            // obtain http response for log
-            Integer httpResponseCode = httpUrlConnection.getResponseCode();
+    /**
+     * Queue a report callback on the {@link HttpCallbackDispatcher} and return right away,
+     * delivery and its retries happen outside the SLEE event delivery thread.
+     * JSON reports of registrations that asked for batching are batched with other reports to the same callback URL
+     * when callbackBatchWindow is set, all other reports are sent on their own.
+     *
+     * @param reportElement registration the report is sent for
+     * @param report        report encoded in the format of the registration
+     */
+    public void Perform(HttpMethod httpMethod, ReportElement reportElement, byte[] report) {
+        if (reportElement.reportFormat == ReportFormat.MLP) {
+            HttpCallbackDispatcher.getInstance().dispatch(httpMethod, reportElement.callbackUrl, HttpResponseWriter.APPLICATION_XML, report);
+        } else if (reportElement.batched) {
+            HttpCallbackDispatcher.getInstance().dispatchJson(httpMethod, reportElement.callbackUrl, report);
+        } else {
+            HttpCallbackDispatcher.getInstance().dispatch(httpMethod, reportElement.callbackUrl, HttpResponseWriter.APPLICATION_JSON, report);
         }
     }
 }
@@ -0,0 +1,247 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.http;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes HTTP responses as UTF-8 bytes straight into the servlet output stream.
+ * The response is first encoded into a buffer kept per thread and reused across requests,
+ * so that Content-Length is known up front and no intermediate String or byte array is created.
+ * The buffer of the thread is handed out again only once the response written to it has been sent or the writer closed,
+ * a response encoded while another one is still being written on the same thread gets a buffer of its own.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class HttpResponseWriter extends OutputStream implements Appendable {
+
+    public static final String TEXT_PLAIN = "text/plain; charset=UTF-8";
+    public static final String APPLICATION_XML = "application/xml; charset=UTF-8";
+    public static final String APPLICATION_JSON = "application/json; charset=UTF-8";
+
+    private static final int INITIAL_CAPACITY = 4096;
+    // buffers grown beyond this size by an unusually large response are not kept for the next one
+    private static final int MAX_RETAINED_CAPACITY = 65536;
+
+    private static final ThreadLocal<HttpResponseWriter> writers = new ThreadLocal<HttpResponseWriter>();
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int count;
+    // set while the writer of the thread is handed out
+    private boolean inUse;
+
+    private HttpResponseWriter() {
+    }
+
+    /**
+     * @return the empty response writer of the current thread, or a new one if that one is still in use,
+     *         to be sent or closed once done with
+     */
+    public static HttpResponseWriter getInstance() {
+        HttpResponseWriter writer = writers.get();
+        if (writer == null) {
+            writer = new HttpResponseWriter();
+            writers.set(writer);
+        } else if (writer.inUse) {
+            return new HttpResponseWriter();
+        } else {
+            writer.reset();
+        }
+        writer.inUse = true;
+        return writer;
+    }
+
+    /**
+     * Send a text response
+     *
+     * @param response    servlet response of the pending HTTP request
+     * @param statusCode  HTTP status code
+     * @param contentType content type, including the charset
+     * @param data        response body
+     * @throws IOException error while writing to the client
+     */
+    public static void send(HttpServletResponse response, int statusCode, String contentType, CharSequence data) throws IOException {
+        HttpResponseWriter writer = getInstance();
+        writer.append(data);
+        writer.send(response, statusCode, contentType);
+    }
+
+    /**
+     * Send what has been written so far as the body of the response
+     *
+     * @param response    servlet response of the pending HTTP request
+     * @param statusCode  HTTP status code
+     * @param contentType content type, including the charset
+     * @throws IOException error while writing to the client
+     */
+    public void send(HttpServletResponse response, int statusCode, String contentType) throws IOException {
+        try {
+            response.setStatus(statusCode);
+            response.setContentType(contentType);
+            response.setContentLength(count);
+            OutputStream out = response.getOutputStream();
+            out.write(buffer, 0, count);
+            out.flush();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Append characters encoded as UTF-8
+     *
+     * @param data characters to append, null is written as "null" like StringBuilder does
+     * @return this writer
+     */
+    @Override
+    public HttpResponseWriter append(CharSequence data) {
+        if (data == null)
+            data = "null";
+        return append(data, 0, data.length());
+    }
+
+    /**
+     * Append a range of characters encoded as UTF-8
+     *
+     * @param data  characters to append, null is written as "null" like StringBuilder does
+     * @param start index of the first character to append
+     * @param end   index after the last character to append
+     * @return this writer
+     */
+    @Override
+    public HttpResponseWriter append(CharSequence data, int start, int end) {
+        if (data == null)
+            data = "null";
+        ensureCapacity(count + end - start);
+        for (int i = start; i < end; i++) {
+            char c = data.charAt(i);
+            if (c < 0x80) {
+                if (count == buffer.length)
+                    ensureCapacity(count + 1);
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                ensureCapacity(count + 2);
+                buffer[count++] = (byte) (0xc0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(data.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, data.charAt(++i));
+                ensureCapacity(count + 4);
+                buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, replaced as the JDK encoder does
+                ensureCapacity(count + 1);
+                buffer[count++] = '?';
+            } else {
+                ensureCapacity(count + 3);
+                buffer[count++] = (byte) (0xe0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public HttpResponseWriter append(char c) {
+        if (c < 0x80) {
+            write(c);
+            return this;
+        }
+        return append(String.valueOf(c));
+    }
+
+    @Override
+    public void write(int b) {
+        if (count == buffer.length)
+            ensureCapacity(count + 1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * @return copy of the bytes written so far, for a response assembled later from several parts
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[count];
+        System.arraycopy(buffer, 0, bytes, 0, count);
+        return bytes;
+    }
+
+    /**
+     * @return number of bytes written so far
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return position to go back to with {@link #reset(int)}, when a response being encoded has to be replaced
+     */
+    public int mark() {
+        return count;
+    }
+
+    /**
+     * Drop what has been written since the mark, e.g. a response only partially encoded before failing
+     *
+     * @param mark position returned by {@link #mark()}
+     */
+    public void reset(int mark) {
+        if (mark >= 0 && mark < count)
+            count = mark;
+    }
+
+    /**
+     * Give the writer back once done with it without sending, e.g. after {@link #toByteArray()}
+     */
+    @Override
+    public void close() {
+        reset();
+        inUse = false;
+    }
+
+    private void reset() {
+        count = 0;
+        if (buffer.length > MAX_RETAINED_CAPACITY)
+            buffer = new byte[INITIAL_CAPACITY];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            byte[] grown = new byte[Math.max(capacity, buffer.length << 1)];
+            System.arraycopy(buffer, 0, grown, 0, count);
+            buffer = grown;
+        }
+    }
+}
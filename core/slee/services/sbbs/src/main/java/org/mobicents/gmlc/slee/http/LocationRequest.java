@@ -0,0 +1,328 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.http;
+
+import org.mobicents.gmlc.slee.http.report.ReportFormat;
+import org.mobicents.protocols.ss7.map.api.service.lsm.AreaType;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSPriority;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LocationEstimateType;
+import org.mobicents.protocols.ss7.map.api.service.lsm.OccurrenceInfo;
+import org.mobicents.protocols.ss7.map.api.service.lsm.ResponseTimeCategory;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Typed location request as received on the REST or MLP interface, with the defaults
+ * applied to the parameters the client left out
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class LocationRequest implements Serializable, Cloneable {
+
+    public enum DeferredLocationEventType {available, inside, entering, leaving}
+
+    private String msisdn;
+    private String clientId;
+    private String coreNetwork = "GSM";
+    private LCSPriority lcsPriority = LCSPriority.normalPriority;
+    private int horizontalAccuracy = 999999;
+    private int verticalAccuracy = 999999;
+    private boolean verticalCoordinateRequest = false;
+    private ResponseTimeCategory responseTimeCategory = ResponseTimeCategory.delaytolerant;
+    private LocationEstimateType locationEstimateType = LocationEstimateType.currentOrLastKnownLocation;
+    private DeferredLocationEventType deferredLocationEventType = DeferredLocationEventType.available;
+    private AreaType areaType = AreaType.cellGlobalId;
+    private String areaId = "9999999";
+    private OccurrenceInfo occurrenceInfo = OccurrenceInfo.oneTimeEvent;
+    private int lcsReferenceNumber = 0;
+    private int lcsServiceTypeID = 1;
+    private int intervalTime = 999999;
+    private int reportingAmount = 0;
+    private int reportingInterval = 999999;
+    private String slrCallbackUrl = "http://localhost:8080";
+    private ReportFormat slrReportFormat = ReportFormat.JSON;
+    private boolean slrBatch = false;
+    private boolean psiService = false;
+    private boolean psiFirst = false;
+    private String psiImsi;
+    private String psiNnn;
+    private boolean jsonResponse = false;
+    private List<String> msisdns;
+
+    public String getMsisdn() {
+        return msisdn;
+    }
+
+    public void setMsisdn(String msisdn) {
+        this.msisdn = msisdn;
+    }
+
+    /**
+     * @return every MSISDN to locate, in request order, or null for a single MSISDN request
+     */
+    public List<String> getMsisdns() {
+        return msisdns;
+    }
+
+    /**
+     * Set the MSISDNs to locate; the first one also becomes the MSISDN of the request
+     *
+     * @param msisdns MSISDNs to locate, in request order
+     */
+    public void setMsisdns(List<String> msisdns) {
+        this.msisdns = msisdns;
+        this.msisdn = msisdns == null || msisdns.isEmpty() ? null : msisdns.get(0);
+    }
+
+    /**
+     * @return true if the request carries more than one MSISDN, each to be located on its own
+     */
+    public boolean isBatch() {
+        return msisdns != null && msisdns.size() > 1;
+    }
+
+    /**
+     * @param msisdn MSISDN of one subscriber of a batch request
+     * @return a single MSISDN request for that subscriber, with every other parameter of this request
+     */
+    public LocationRequest forMsisdn(String msisdn) {
+        try {
+            LocationRequest locationRequest = (LocationRequest) clone();
+            locationRequest.msisdns = null;
+            locationRequest.msisdn = msisdn;
+            return locationRequest;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    /**
+     * @return GSM or UMTS
+     */
+    public String getCoreNetwork() {
+        return coreNetwork;
+    }
+
+    public void setCoreNetwork(String coreNetwork) {
+        this.coreNetwork = coreNetwork;
+    }
+
+    public LCSPriority getLcsPriority() {
+        return lcsPriority;
+    }
+
+    public void setLcsPriority(LCSPriority lcsPriority) {
+        this.lcsPriority = lcsPriority;
+    }
+
+    public int getHorizontalAccuracy() {
+        return horizontalAccuracy;
+    }
+
+    public void setHorizontalAccuracy(int horizontalAccuracy) {
+        this.horizontalAccuracy = horizontalAccuracy;
+    }
+
+    public int getVerticalAccuracy() {
+        return verticalAccuracy;
+    }
+
+    public void setVerticalAccuracy(int verticalAccuracy) {
+        this.verticalAccuracy = verticalAccuracy;
+    }
+
+    public boolean isVerticalCoordinateRequest() {
+        return verticalCoordinateRequest;
+    }
+
+    public void setVerticalCoordinateRequest(boolean verticalCoordinateRequest) {
+        this.verticalCoordinateRequest = verticalCoordinateRequest;
+    }
+
+    public ResponseTimeCategory getResponseTimeCategory() {
+        return responseTimeCategory;
+    }
+
+    public void setResponseTimeCategory(ResponseTimeCategory responseTimeCategory) {
+        this.responseTimeCategory = responseTimeCategory;
+    }
+
+    public LocationEstimateType getLocationEstimateType() {
+        return locationEstimateType;
+    }
+
+    public void setLocationEstimateType(LocationEstimateType locationEstimateType) {
+        this.locationEstimateType = locationEstimateType;
+    }
+
+    public DeferredLocationEventType getDeferredLocationEventType() {
+        return deferredLocationEventType;
+    }
+
+    public void setDeferredLocationEventType(DeferredLocationEventType deferredLocationEventType) {
+        this.deferredLocationEventType = deferredLocationEventType;
+    }
+
+    public AreaType getAreaType() {
+        return areaType;
+    }
+
+    public void setAreaType(AreaType areaType) {
+        this.areaType = areaType;
+    }
+
+    public String getAreaId() {
+        return areaId;
+    }
+
+    public void setAreaId(String areaId) {
+        this.areaId = areaId;
+    }
+
+    public OccurrenceInfo getOccurrenceInfo() {
+        return occurrenceInfo;
+    }
+
+    public void setOccurrenceInfo(OccurrenceInfo occurrenceInfo) {
+        this.occurrenceInfo = occurrenceInfo;
+    }
+
+    public int getLcsReferenceNumber() {
+        return lcsReferenceNumber;
+    }
+
+    public void setLcsReferenceNumber(int lcsReferenceNumber) {
+        this.lcsReferenceNumber = lcsReferenceNumber;
+    }
+
+    public int getLcsServiceTypeID() {
+        return lcsServiceTypeID;
+    }
+
+    public void setLcsServiceTypeID(int lcsServiceTypeID) {
+        this.lcsServiceTypeID = lcsServiceTypeID;
+    }
+
+    public int getIntervalTime() {
+        return intervalTime;
+    }
+
+    public void setIntervalTime(int intervalTime) {
+        this.intervalTime = intervalTime;
+    }
+
+    public int getReportingAmount() {
+        return reportingAmount;
+    }
+
+    public void setReportingAmount(int reportingAmount) {
+        this.reportingAmount = reportingAmount;
+    }
+
+    public int getReportingInterval() {
+        return reportingInterval;
+    }
+
+    public void setReportingInterval(int reportingInterval) {
+        this.reportingInterval = reportingInterval;
+    }
+
+    public String getSlrCallbackUrl() {
+        return slrCallbackUrl;
+    }
+
+    public void setSlrCallbackUrl(String slrCallbackUrl) {
+        this.slrCallbackUrl = slrCallbackUrl;
+    }
+
+    public ReportFormat getSlrReportFormat() {
+        return slrReportFormat;
+    }
+
+    public void setSlrReportFormat(ReportFormat slrReportFormat) {
+        this.slrReportFormat = slrReportFormat;
+    }
+
+    public boolean isSlrBatch() {
+        return slrBatch;
+    }
+
+    public void setSlrBatch(boolean slrBatch) {
+        this.slrBatch = slrBatch;
+    }
+
+    public boolean isPsiService() {
+        return psiService;
+    }
+
+    public void setPsiService(boolean psiService) {
+        this.psiService = psiService;
+    }
+
+    public boolean isPsiFirst() {
+        return psiFirst;
+    }
+
+    public void setPsiFirst(boolean psiFirst) {
+        this.psiFirst = psiFirst;
+    }
+
+    public String getPsiImsi() {
+        return psiImsi;
+    }
+
+    public void setPsiImsi(String psiImsi) {
+        this.psiImsi = psiImsi;
+    }
+
+    public String getPsiNnn() {
+        return psiNnn;
+    }
+
+    public void setPsiNnn(String psiNnn) {
+        this.psiNnn = psiNnn;
+    }
+
+    public boolean isJsonResponse() {
+        return jsonResponse;
+    }
+
+    public void setJsonResponse(boolean jsonResponse) {
+        this.jsonResponse = jsonResponse;
+    }
+
+    /**
+     * @return true if PSI is to be sent straight to the given network node for the given IMSI, skipping SRIforSM
+     */
+    public boolean isPsiOnly() {
+        return psiFirst && psiImsi != null && psiNnn != null;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.http;
+
+import org.mobicents.gmlc.AdmissionControl;
+import org.mobicents.gmlc.GmlcStatAggregator;
+import org.mobicents.gmlc.LatencyHistogram;
+import org.mobicents.gmlc.LocationResultCache;
+import org.mobicents.gmlc.RoutingInfoCache;
+import org.mobicents.gmlc.slee.cdr.binary.CDRSegmentWriter;
+import org.mobicents.gmlc.slee.cdr.jdbc.CDRDatabaseWriter;
+import org.mobicents.gmlc.slee.cdr.plain.CDRFileWriter;
+import org.mobicents.gmlc.slee.map.DialogSupervisor;
+
+import java.io.IOException;
+
+/**
+ * Renders the GMLC statistics in the Prometheus text exposition format, served on the /gmlc/metrics path.
+ * Every value is read from counters the location traffic already keeps up to date with atomic operations,
+ * so a scrape takes no lock and never makes an SBB wait.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class PrometheusMetricsWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=UTF-8";
+
+    // histogram bucket bounds in milliseconds, one less than a power of two so that bucket counts are exact
+    private static final long[] LATENCY_BOUNDS = {1, 3, 7, 15, 31, 63, 127, 255, 511, 1023, 2047, 4095, 8191, 16383, 32767,
+            65535, Long.MAX_VALUE};
+
+    private static final int MAP_ERROR_CODES = 256;
+
+    private PrometheusMetricsWriter() {
+    }
+
+    /**
+     * Write every metric
+     *
+     * @param out        where to write the metrics
+     * @param mapDialogs MAP dialogs currently in progress
+     * @throws IOException error while writing
+     */
+    public static void write(Appendable out, int mapDialogs) throws IOException {
+        GmlcStatAggregator stats = GmlcStatAggregator.getInstance();
+        GmlcStatAggregator.MapOperation[] operations = GmlcStatAggregator.MapOperation.values();
+
+        header(out, "gmlc_map_requests_total", "counter", "MAP requests sent, or received for SLR");
+        for (GmlcStatAggregator.MapOperation operation : operations) {
+            sample(out, "gmlc_map_requests_total", "operation", operation.name(), stats.getRequests(operation));
+        }
+        header(out, "gmlc_map_successes_total", "counter", "MAP operations answered successfully");
+        for (GmlcStatAggregator.MapOperation operation : operations) {
+            sample(out, "gmlc_map_successes_total", "operation", operation.name(), stats.getSuccesses(operation));
+        }
+        header(out, "gmlc_map_errors_total", "counter", "MAP error components received, by error code");
+        for (GmlcStatAggregator.MapOperation operation : operations) {
+            for (int errorCode = 0; errorCode < MAP_ERROR_CODES; errorCode++) {
+                long errors = stats.getMapErrors(operation, errorCode);
+                if (errors != 0) {
+                    out.append("gmlc_map_errors_total{operation=\"").append(operation.name()).append("\",code=\"")
+                            .append(String.valueOf(errorCode)).append("\"} ").append(String.valueOf(errors)).append('\n');
+                }
+            }
+        }
+        header(out, "gmlc_map_timeouts_total", "counter", "MAP dialog and invoke timeouts");
+        for (GmlcStatAggregator.MapOperation operation : operations) {
+            sample(out, "gmlc_map_timeouts_total", "operation", operation.name(), stats.getTimeouts(operation));
+        }
+        header(out, "gmlc_map_aborts_total", "counter", "MAP dialogs aborted by the user or the provider");
+        for (GmlcStatAggregator.MapOperation operation : operations) {
+            sample(out, "gmlc_map_aborts_total", "operation", operation.name(), stats.getAborts(operation));
+        }
+        header(out, "gmlc_map_rejects_total", "counter", "MAP dialogs and components rejected");
+        for (GmlcStatAggregator.MapOperation operation : operations) {
+            sample(out, "gmlc_map_rejects_total", "operation", operation.name(), stats.getRejects(operation));
+        }
+        header(out, "gmlc_map_latency_seconds", "histogram", "Time from a MAP request to its successful response");
+        for (GmlcStatAggregator.MapOperation operation : operations) {
+            histogram(out, "gmlc_map_latency_seconds", "operation=\"" + operation.name() + "\"", stats.getLatency(operation));
+        }
+
+        header(out, "gmlc_map_dialogs_in_flight", "gauge", "MAP dialogs in progress");
+        sample(out, "gmlc_map_dialogs_in_flight", null, null, mapDialogs);
+
+        DialogSupervisor dialogSupervisor = DialogSupervisor.getInstance();
+        header(out, "gmlc_map_dialogs_supervised", "gauge", "MAP dialogs waiting for their response under supervision");
+        sample(out, "gmlc_map_dialogs_supervised", null, null, dialogSupervisor.getSupervisedDialogs());
+        header(out, "gmlc_map_dialogs_expired_total", "counter", "MAP dialogs aborted for lack of a response within their timeout");
+        sample(out, "gmlc_map_dialogs_expired_total", null, null, dialogSupervisor.getExpiredDialogs());
+
+        AdmissionControl admissionControl = AdmissionControl.getInstance();
+        header(out, "gmlc_http_requests_in_flight", "gauge", "Location requests admitted and waiting for their MAP result");
+        for (LocationResultCache.Operation operation : LocationResultCache.Operation.values()) {
+            sample(out, "gmlc_http_requests_in_flight", "operation", operation.name(), admissionControl.getPendingRequests(operation));
+        }
+        header(out, "gmlc_http_requests_shed_total", "counter", "Location requests shed by admission control");
+        for (LocationResultCache.Operation operation : LocationResultCache.Operation.values()) {
+            sample(out, "gmlc_http_requests_shed_total", "operation", operation.name(), admissionControl.getShedRequests(operation));
+        }
+        sample(out, "gmlc_http_requests_shed_total", "operation", "OVERLOAD", admissionControl.getOverloadShedRequests());
+        header(out, "gmlc_http_latency_seconds", "histogram", "Time from the reception of an HTTP request to its response");
+        histogram(out, "gmlc_http_latency_seconds", null, stats.getHttpLatency());
+        header(out, "gmlc_app_timeouts_total", "counter", "Requests the application did not answer in time");
+        sample(out, "gmlc_app_timeouts_total", null, null, stats.getAppTimeouts());
+
+        LocationResultCache locationResultCache = LocationResultCache.getInstance();
+        RoutingInfoCache routingInfoCache = RoutingInfoCache.getInstance();
+        header(out, "gmlc_cache_hits_total", "counter", "Cache lookups answered from the cache");
+        sample(out, "gmlc_cache_hits_total", "cache", "location", locationResultCache.getHits());
+        sample(out, "gmlc_cache_hits_total", "cache", "routing", routingInfoCache.getHits());
+        header(out, "gmlc_cache_misses_total", "counter", "Cache lookups not found in the cache");
+        sample(out, "gmlc_cache_misses_total", "cache", "location", locationResultCache.getMisses());
+        sample(out, "gmlc_cache_misses_total", "cache", "routing", routingInfoCache.getMisses());
+        header(out, "gmlc_cache_hit_ratio", "gauge", "Share of the cache lookups answered from the cache");
+        ratio(out, "location", locationResultCache.getHits(), locationResultCache.getMisses());
+        ratio(out, "routing", routingInfoCache.getHits(), routingInfoCache.getMisses());
+        header(out, "gmlc_cache_entries", "gauge", "Entries held in the cache");
+        sample(out, "gmlc_cache_entries", "cache", "location", locationResultCache.getEntryCount());
+        sample(out, "gmlc_cache_entries", "cache", "routing", routingInfoCache.getEntryCount());
+
+        CDRFileWriter cdrFileWriter = CDRFileWriter.getInstance();
+        CDRDatabaseWriter cdrDatabaseWriter = CDRDatabaseWriter.getInstance();
+        CDRSegmentWriter cdrSegmentWriter = CDRSegmentWriter.getInstance();
+        header(out, "gmlc_cdr_queue_depth", "gauge", "CDRs waiting to be written");
+        sample(out, "gmlc_cdr_queue_depth", "sink", "textfile", cdrFileWriter.getQueued());
+        sample(out, "gmlc_cdr_queue_depth", "sink", "database", cdrDatabaseWriter.getQueued());
+        sample(out, "gmlc_cdr_queue_depth", "sink", "binary", cdrSegmentWriter.getQueued());
+        header(out, "gmlc_cdr_dropped_total", "counter", "CDRs dropped because the queue was full");
+        sample(out, "gmlc_cdr_dropped_total", "sink", "textfile", cdrFileWriter.getDropped());
+        sample(out, "gmlc_cdr_dropped_total", "sink", "database", cdrDatabaseWriter.getDropped());
+        sample(out, "gmlc_cdr_dropped_total", "sink", "binary", cdrSegmentWriter.getDropped());
+    }
+
+    private static void header(Appendable out, String name, String type, String help) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(Appendable out, String name, String label, String labelValue, long value) throws IOException {
+        out.append(name);
+        if (label != null) {
+            out.append('{').append(label).append("=\"").append(labelValue).append("\"}");
+        }
+        out.append(' ').append(String.valueOf(value)).append('\n');
+    }
+
+    private static void ratio(Appendable out, String cache, long hits, long misses) throws IOException {
+        long lookups = hits + misses;
+        out.append("gmlc_cache_hit_ratio{cache=\"").append(cache).append("\"} ")
+                .append(lookups == 0 ? "0" : String.valueOf((double) hits / lookups)).append('\n');
+    }
+
+    private static void histogram(Appendable out, String name, String labels, LatencyHistogram histogram) throws IOException {
+        long[] counts = histogram.getCountsAtOrBelow(LATENCY_BOUNDS);
+        String prefix = labels == null ? "{" : "{" + labels + ",";
+        for (int i = 0; i < LATENCY_BOUNDS.length; i++) {
+            out.append(name).append("_bucket").append(prefix).append("le=\"")
+                    .append(LATENCY_BOUNDS[i] == Long.MAX_VALUE ? "+Inf" : seconds(LATENCY_BOUNDS[i])).append("\"} ")
+                    .append(String.valueOf(counts[i])).append('\n');
+        }
+        String suffix = labels == null ? " " : "{" + labels + "} ";
+        out.append(name).append("_sum").append(suffix).append(seconds(histogram.getSum())).append('\n');
+        // the count is taken from the buckets so that it matches the +Inf bucket
+        out.append(name).append("_count").append(suffix).append(String.valueOf(counts[counts.length - 1])).append('\n');
+    }
+
+    private static String seconds(long millis) {
+        long fraction = millis % 1000;
+        return millis / 1000 + (fraction < 10 ? ".00" : fraction < 100 ? ".0" : ".") + fraction;
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.http;
+
+import org.mobicents.gmlc.slee.http.report.ReportFormat;
+import org.mobicents.protocols.ss7.map.api.service.lsm.AreaType;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSPriority;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LocationEstimateType;
+import org.mobicents.protocols.ss7.map.api.service.lsm.OccurrenceInfo;
+import org.mobicents.protocols.ss7.map.api.service.lsm.ResponseTimeCategory;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validating parser of REST location requests, reading every query parameter once
+ * straight into a typed {@link LocationRequest}
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class RestLocationRequestParser {
+
+    private static final EnumLookup<LCSPriority> LCS_PRIORITIES = new EnumLookup<LCSPriority>(LCSPriority.class);
+    private static final EnumLookup<ResponseTimeCategory> RESPONSE_TIME_CATEGORIES = new EnumLookup<ResponseTimeCategory>(ResponseTimeCategory.class);
+    private static final EnumLookup<LocationEstimateType> LOCATION_ESTIMATE_TYPES = new EnumLookup<LocationEstimateType>(LocationEstimateType.class);
+    private static final EnumLookup<LocationRequest.DeferredLocationEventType> DEFERRED_LOCATION_EVENT_TYPES =
+            new EnumLookup<LocationRequest.DeferredLocationEventType>(LocationRequest.DeferredLocationEventType.class);
+    private static final EnumLookup<AreaType> AREA_TYPES = new EnumLookup<AreaType>(AreaType.class);
+    private static final EnumLookup<OccurrenceInfo> OCCURRENCE_INFOS = new EnumLookup<OccurrenceInfo>(OccurrenceInfo.class);
+    private static final EnumLookup<ReportFormat> REPORT_FORMATS = new EnumLookup<ReportFormat>(ReportFormat.class);
+
+    /**
+     * @param request HTTP request carrying the location request as query parameters
+     * @return the location request, with defaults for the parameters left out
+     * @throws IllegalArgumentException with a message for the client when a parameter is invalid
+     */
+    public LocationRequest parse(HttpServletRequest request) throws IllegalArgumentException {
+        LocationRequest locationRequest = new LocationRequest();
+        String value;
+
+        locationRequest.setMsisdns(parseMsisdns(request.getParameterValues("msisdn")));
+
+        value = request.getHeader("X-API-Key");
+        locationRequest.setClientId(value != null ? value : request.getParameter("clientId"));
+
+        value = request.getParameter("coreNetwork");
+        if (value != null && value.equalsIgnoreCase("umts"))
+            locationRequest.setCoreNetwork("UMTS");
+
+        value = request.getParameter("priority");
+        if (value != null)
+            locationRequest.setLcsPriority(lookup(LCS_PRIORITIES, value, "priority"));
+
+        value = request.getParameter("horizontalAccuracy");
+        if (value != null)
+            locationRequest.setHorizontalAccuracy(parseInt(value, "horizontalAccuracy"));
+
+        value = request.getParameter("verticalAccuracy");
+        if (value != null)
+            locationRequest.setVerticalAccuracy(parseInt(value, "verticalAccuracy"));
+
+        value = request.getParameter("vertCoordinateRequest");
+        if (value != null) {
+            if (value.equalsIgnoreCase("true"))
+                locationRequest.setVerticalCoordinateRequest(true);
+            else if (!value.equalsIgnoreCase("false"))
+                throw new IllegalArgumentException("vertCoordinateRequest argument must be true or false");
+        }
+
+        value = request.getParameter("responseTimeCategory");
+        if (value != null)
+            locationRequest.setResponseTimeCategory(lookup(RESPONSE_TIME_CATEGORIES, value, "responseTimeCategory"));
+
+        value = request.getParameter("locationEstimateType");
+        if (value != null)
+            locationRequest.setLocationEstimateType(lookup(LOCATION_ESTIMATE_TYPES, value, "locationEstimateType"));
+
+        value = request.getParameter("deferredLocationEventType");
+        if (value != null)
+            locationRequest.setDeferredLocationEventType(lookup(DEFERRED_LOCATION_EVENT_TYPES, value, "deferredLocationEventType"));
+
+        value = request.getParameter("areaType");
+        if (value != null)
+            locationRequest.setAreaType(lookup(AREA_TYPES, value, "areaType"));
+
+        value = request.getParameter("areaId");
+        if (value != null)
+            locationRequest.setAreaId(value);
+
+        value = request.getParameter("occurrenceInfo");
+        if (value != null)
+            locationRequest.setOccurrenceInfo(lookup(OCCURRENCE_INFOS, value, "occurrenceInfo"));
+
+        value = request.getParameter("lcsReferenceNumber");
+        if (value != null) {
+            try {
+                locationRequest.setLcsReferenceNumber(Integer.parseInt(value));
+            } catch (NumberFormatException nfe) {
+                // an unusable reference number is replaced by the default, as it always has been
+            }
+        }
+
+        value = request.getParameter("lcsServiceTypeID");
+        if (value != null)
+            locationRequest.setLcsServiceTypeID(parseInt(value, "lcsServiceTypeID"));
+
+        value = request.getParameter("intervalTime");
+        if (value != null)
+            locationRequest.setIntervalTime(parseInt(value, "intervalTime"));
+
+        value = request.getParameter("reportingAmount");
+        if (value != null)
+            locationRequest.setReportingAmount(parseInt(value, "reportingAmount"));
+
+        value = request.getParameter("reportingInterval");
+        if (value != null)
+            locationRequest.setReportingInterval(parseInt(value, "reportingInterval"));
+
+        value = request.getParameter("slrCallbackUrl");
+        if (value != null)
+            locationRequest.setSlrCallbackUrl(value);
+
+        value = request.getParameter("slrReportFormat");
+        if (value != null)
+            locationRequest.setSlrReportFormat(lookup(REPORT_FORMATS, value, "slrReportFormat"));
+
+        locationRequest.setSlrBatch(Boolean.parseBoolean(request.getParameter("slrBatch")));
+
+        locationRequest.setPsiService(Boolean.parseBoolean(request.getParameter("psiService")));
+        locationRequest.setPsiFirst("psiFirst".equalsIgnoreCase(request.getParameter("psiServiceType")));
+        locationRequest.setPsiImsi(request.getParameter("psiImsi"));
+        locationRequest.setPsiNnn(request.getParameter("psiNnn"));
+        locationRequest.setJsonResponse(acceptsJson(request));
+
+        return locationRequest;
+    }
+
+    /**
+     * @param request HTTP request
+     * @return true if the client asked for a JSON response, either with format=json or with an Accept header naming application/json
+     */
+    public static boolean acceptsJson(HttpServletRequest request) {
+        String format = request.getParameter("format");
+        if (format != null)
+            return "json".equalsIgnoreCase(format);
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.toLowerCase().contains("application/json");
+    }
+
+    /**
+     * MSISDNs given either as repeated msisdn parameters or as a comma separated list, or both
+     */
+    private static List<String> parseMsisdns(String[] values) {
+        if (values == null)
+            return null;
+        List<String> msisdns = new ArrayList<String>(values.length);
+        for (String value : values) {
+            int start = 0;
+            int length = value.length();
+            while (start <= length) {
+                int end = value.indexOf(',', start);
+                if (end < 0)
+                    end = length;
+                String msisdn = value.substring(start, end).trim();
+                if (!msisdn.isEmpty())
+                    msisdns.add(msisdn);
+                start = end + 1;
+            }
+        }
+        return msisdns.isEmpty() ? null : msisdns;
+    }
+
+    private static <E extends Enum<E>> E lookup(EnumLookup<E> enumLookup, String value, String parameter) {
+        E constant = enumLookup.get(value);
+        if (constant == null)
+            throw new IllegalArgumentException(parameter + " argument must be one of " + enumLookup.getNames());
+        return constant;
+    }
+
+    private static int parseInt(String value, String parameter) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException(parameter + " argument must be an integer");
+        }
+    }
+}
@@ -28,9 +28,28 @@ public class ReportElement {
 
     public Integer referenceNumber;                 // this is the reference to look for callback string
     public ReportParameters reportParameters;       // this are the extra parameters for registration http sending
+    public String callbackUrl;                      // this is where reports for the registration are sent to
+    public long expiresAt;                          // this is when the registration is dropped if not cancelled before
+    public int reportsLeft;                         // this is how many reports are still expected, 0 if not known
+    public ReportFormat reportFormat = ReportFormat.JSON; // this is how reports are encoded for the callback
+    public boolean batched;                         // this is whether JSON reports may be sent together with others
 
     public ReportElement(Integer referenceNumber, ReportParameters reportParameters) {
         this.referenceNumber = referenceNumber;
         this.reportParameters = reportParameters;
     }
+
+    public ReportElement(Integer referenceNumber, String callbackUrl, ReportFormat reportFormat, boolean batched,
+                         ReportParameters reportParameters, int reportsLeft, long expiresAt) {
+        this(referenceNumber, reportParameters);
+        this.callbackUrl = callbackUrl;
+        this.reportFormat = reportFormat != null ? reportFormat : ReportFormat.JSON;
+        this.batched = batched;
+        this.reportsLeft = reportsLeft;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return expiresAt <= now;
+    }
 }
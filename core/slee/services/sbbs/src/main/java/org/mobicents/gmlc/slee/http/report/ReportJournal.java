@@ -0,0 +1,195 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.http.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Memory mapped journal of the {@link ReportRegister}. The file holds one fixed size slot per register id,
+ * so registering or removing a registration rewrites just its slot and the file never grows. A slot holds
+ * the expiry time, the LCS client reference number, the number of reports left, the report format (with the batching flag in its
+ * high bit), the callback URL and the report parameters; an expiry time of 0 marks it free. Registrations that do not fit in a slot are kept in memory only.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class ReportJournal {
+
+    private static final int SLOT_SIZE = 2048;
+    private static final int BATCHED = 0x80;
+
+    private final MappedByteBuffer mappedByteBuffer;
+    private final int slots;
+
+    public ReportJournal(File file, int slots) throws IOException {
+        this.slots = slots;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel fileChannel = randomAccessFile.getChannel();
+            // the mapping stays valid after the channel is closed
+            this.mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) SLOT_SIZE * slots);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Load the live registrations of the journal into the slots of the register that are empty,
+     * and journal those that are not
+     *
+     * @return number of registrations restored
+     */
+    public int load(AtomicReferenceArray<ReportElement> reportElements, long now) {
+        int restored = 0;
+        for (int slot = 1; slot < slots && slot < reportElements.length(); slot++) {
+            ReportElement current = reportElements.get(slot);
+            if (current != null) {
+                write(slot, current);
+                continue;
+            }
+
+            ReportElement reportElement = read(slot);
+            if (reportElement != null && !reportElement.isExpired(now) && reportElements.compareAndSet(slot, null, reportElement)) {
+                restored++;
+            } else if (reportElement != null) {
+                write(slot, null);
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Journal a registration, or free its slot when reportElement is null
+     */
+    public synchronized void write(int slot, ReportElement reportElement) {
+        ByteBuffer buffer = slot(slot);
+        if (reportElement == null) {
+            buffer.putLong(0L);
+            return;
+        }
+
+        byte[] encoded = encode(reportElement);
+        if (encoded == null || encoded.length > SLOT_SIZE - 8) {
+            buffer.putLong(0L);
+            throw new IllegalArgumentException("registration does not fit in a journal slot");
+        }
+
+        // the expiry time goes last so a slot is never seen live with a half written registration
+        buffer.position(8);
+        buffer.put(encoded);
+        buffer.putLong(0, reportElement.expiresAt);
+    }
+
+    private ReportElement read(int slot) {
+        ByteBuffer buffer = slot(slot);
+        long expiresAt = buffer.getLong();
+        if (expiresAt == 0) {
+            return null;
+        }
+
+        try {
+            int referenceNumber = buffer.getInt();
+            int reportsLeft = buffer.getInt();
+            int format = buffer.get() & 0xFF;
+            ReportFormat reportFormat = ReportFormat.values()[format & ~BATCHED];
+            String callbackUrl = readString(buffer);
+            ReportParameters reportParameters = null;
+            int parameters = buffer.getShort();
+            if (parameters >= 0) {
+                reportParameters = new ReportParameters();
+                for (int i = 0; i < parameters; i++) {
+                    reportParameters.put(readString(buffer), readString(buffer));
+                }
+            }
+            return new ReportElement(referenceNumber, callbackUrl, reportFormat, (format & BATCHED) != 0, reportParameters,
+                    reportsLeft, expiresAt);
+        } catch (BufferUnderflowException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private ByteBuffer slot(int slot) {
+        ByteBuffer buffer = mappedByteBuffer.duplicate();
+        buffer.position(slot * SLOT_SIZE);
+        buffer.limit(slot * SLOT_SIZE + SLOT_SIZE);
+        return buffer.slice();
+    }
+
+    private static byte[] encode(ReportElement reportElement) {
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE - 8);
+        try {
+            buffer.putInt(reportElement.referenceNumber != null ? reportElement.referenceNumber : 0);
+            buffer.putInt(reportElement.reportsLeft);
+            buffer.put((byte) (reportElement.reportFormat.ordinal() | (reportElement.batched ? BATCHED : 0)));
+            writeString(buffer, reportElement.callbackUrl);
+            if (reportElement.reportParameters == null) {
+                buffer.putShort((short) -1);
+            } else {
+                buffer.putShort((short) reportElement.reportParameters.size());
+                for (Map.Entry<String, String> parameter : reportElement.reportParameters.entrySet()) {
+                    writeString(buffer, parameter.getKey());
+                    writeString(buffer, parameter.getValue());
+                }
+            }
+        } catch (BufferOverflowException e) {
+            return null;
+        }
+
+        byte[] encoded = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(encoded);
+        return encoded;
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -21,44 +21,195 @@
 
 package org.mobicents.gmlc.slee.http.report;
 
-import java.util.concurrent.ConcurrentHashMap;
+import org.apache.log4j.Logger;
+import org.mobicents.gmlc.GmlcPropertiesManagement;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
+ * Registrations of deferred and periodic MT-LR, shared by all the SBB entities: the one that sends the PSL
+ * registers the LCS client callback and the one that later receives the SubscriberLocationReport looks it up
+ * by the LCS reference number it carries.
+ * <p>
+ * The LCS-ReferenceNumber is a single octet in MAP (3GPP TS 29.002), so register ids are handed out round robin
+ * from 1 to 255, skipping those still held by a live registration. Registrations are dropped once the last expected
+ * report arrives, or otherwise expire on their own once their time to live elapses; when enabled, they are also written to a {@link ReportJournal} and reloaded from it on restart.
+ * <p>
+ * The register lives in the JVM of a single GMLC node and is neither replicated nor kept in SLEE activity context
+ * data: in a cluster, the SubscriberLocationReport must reach the node that sent the PSL, e.g. by giving each node
+ * its own GMLC global title, otherwise the report is dropped as having no registration.
+ *
  * @author <a href="mailto:aferreiraguido@gmail.com"> Alejandro Ferreira Guido </a>
  */
 public class ReportRegister {
 
-    ConcurrentHashMap<Integer, ReportElement> reportRegisteredElements;
-    static Integer reportRegisterIdSerial = 0;
+    private static final Logger logger = Logger.getLogger(ReportRegister.class);
+
+    public static final int MAX_REGISTRATIONS = 255;
+
+    private static final String JOURNAL_FILE_NAME = "slrregistrations.journal";
+
+    private static final ReportRegister instance = new ReportRegister();
+
+    private final AtomicReferenceArray<ReportElement> reportRegisteredElements;
+    private final AtomicInteger reportRegisterIdSerial = new AtomicInteger();
+    private volatile ReportJournal reportJournal;
+    private volatile boolean reportJournalFailed;
+
+    private ReportRegister() {
+        reportRegisteredElements = new AtomicReferenceArray<ReportElement>(MAX_REGISTRATIONS + 1);
+        if (GmlcPropertiesManagement.getInstance().isSlrRegistrationJournal()) {
+            openJournal();
+        }
+    }
 
-    public ReportRegister(){
-        reportRegisteredElements = new ConcurrentHashMap<Integer, ReportElement>();
+    public static ReportRegister getInstance() {
+        return instance;
     }
 
-    public Integer add(Integer referenceNumber, ReportParameters reportParameters) {
-        Integer reportRegisterId = 0;
+    /**
+     * Register a deferred location request
+     *
+     * @param referenceNumber  LCS client reference number
+     * @param callbackUrl      URL the location reports are sent to
+     * @param reportFormat     format the location reports are sent in
+     * @param batched          whether JSON location reports may be batched with others to the same callback URL
+     * @param reportParameters extra parameters sent along with every report, may be null
+     * @param reports          number of reports expected, 0 if not known
+     * @param timeToLive       milliseconds after which the registration expires
+     * @return register id to be sent as LCS reference number in the PSL, null if all ids are in use
+     */
+    public Integer add(Integer referenceNumber, String callbackUrl, ReportFormat reportFormat, boolean batched,
+                       ReportParameters reportParameters, int reports, long timeToLive) {
+        long now = System.currentTimeMillis();
+        ReportElement reportElement = new ReportElement(referenceNumber, callbackUrl, reportFormat, batched, reportParameters,
+                reports, now + timeToLive);
 
-        synchronized (reportRegisterIdSerial) {
-            reportRegisterId = ++reportRegisterIdSerial;
+        for (int i = 0; i < MAX_REGISTRATIONS; i++) {
+            int reportRegisterId = (reportRegisterIdSerial.incrementAndGet() & Integer.MAX_VALUE) % MAX_REGISTRATIONS + 1;
+            ReportElement current = reportRegisteredElements.get(reportRegisterId);
+            if ((current == null || current.isExpired(now))
+                    && reportRegisteredElements.compareAndSet(reportRegisterId, current, reportElement)) {
+                journal(reportRegisterId, reportElement);
+                return reportRegisterId;
+            }
         }
 
-        reportRegisteredElements.put(reportRegisterId, new ReportElement(referenceNumber, reportParameters));
+        logger.warn(String.format("No register id left for LCS reference number %d, all %d are in use", referenceNumber, MAX_REGISTRATIONS));
+        return null;
+    }
+
+    public ReportElement get(Integer reportRegisterId) {
+        int index = toIndex(reportRegisterId);
+        if (index < 0) {
+            return null;
+        }
 
-        return reportRegisterId;
+        ReportElement reportElement = reportRegisteredElements.get(index);
+        if (reportElement != null && reportElement.isExpired(System.currentTimeMillis())) {
+            if (reportRegisteredElements.compareAndSet(index, reportElement, null)) {
+                journal(index, null);
+            }
+            return null;
+        }
+
+        return reportElement;
     }
 
-    public ReportElement get(Integer reportRegisterId){
+    /**
+     * Get the registration a report is to be sent for, counting the report against those expected
+     * and dropping the registration when it was the last one
+     */
+    public ReportElement report(Integer reportRegisterId) {
+        ReportElement reportElement = get(reportRegisterId);
+        if (reportElement != null && reportElement.reportsLeft > 0) {
+            int index = toIndex(reportRegisterId);
+            synchronized (reportElement) {
+                if (--reportElement.reportsLeft == 0) {
+                    if (reportRegisteredElements.compareAndSet(index, reportElement, null)) {
+                        journal(index, null);
+                    }
+                } else {
+                    journal(index, reportElement);
+                }
+            }
+        }
+        return reportElement;
+    }
 
-        if (reportRegisteredElements.containsKey(reportRegisterId)) {
-            return reportRegisteredElements.get(reportRegisterId);
+    public void remove(Integer reportRegisterId) {
+        int index = toIndex(reportRegisterId);
+        if (index >= 0 && reportRegisteredElements.getAndSet(index, null) != null) {
+            journal(index, null);
         }
+    }
 
-        return null;
+    /**
+     * Number of live registrations
+     */
+    public int size() {
+        long now = System.currentTimeMillis();
+        int size = 0;
+        for (int i = 1; i <= MAX_REGISTRATIONS; i++) {
+            ReportElement reportElement = reportRegisteredElements.get(i);
+            if (reportElement != null && !reportElement.isExpired(now)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    // register ids travel as a single octet, which some stacks decode as a signed byte
+    private static int toIndex(Integer reportRegisterId) {
+        if (reportRegisterId == null) {
+            return -1;
+        }
+        int index = reportRegisterId & 0xFF;
+        return index == 0 ? -1 : index;
+    }
+
+    private void journal(int reportRegisterId, ReportElement reportElement) {
+        GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+        if (!gmlcPropertiesManagement.isSlrRegistrationJournal()) {
+            return;
+        }
+        if (reportJournal == null && !reportJournalFailed) {
+            openJournal();
+        }
+
+        ReportJournal journal = reportJournal;
+        if (journal != null) {
+            try {
+                journal.write(reportRegisterId, reportElement);
+            } catch (RuntimeException e) {
+                logger.warn(String.format("Could not journal SLR registration %d: %s", reportRegisterId, e.getMessage()));
+            }
+        }
     }
 
-    public void remove(Integer reportRegisterId){
-        if (reportRegisteredElements.containsKey(reportRegisterId)) {
-            reportRegisteredElements.remove(reportRegisterId);
+    private synchronized void openJournal() {
+        if (reportJournal != null) {
+            return;
+        }
+
+        GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+        String persistDir = gmlcPropertiesManagement.getPersistDir();
+        if (persistDir == null) {
+            persistDir = System.getProperty("gmlc.persist.dir", System.getProperty("user.dir"));
+        }
+        File file = new File(persistDir, gmlcPropertiesManagement.getName() + "_" + JOURNAL_FILE_NAME);
+
+        try {
+            ReportJournal journal = new ReportJournal(file, MAX_REGISTRATIONS + 1);
+            int restored = journal.load(reportRegisteredElements, System.currentTimeMillis());
+            reportJournal = journal;
+            logger.info(String.format("Restored %d SLR registrations from %s", restored, file));
+        } catch (IOException e) {
+            reportJournalFailed = true;
+            logger.error(String.format("Could not open the SLR registration journal %s, registrations will not survive restarts", file), e);
         }
     }
 }
@@ -21,6 +21,7 @@
 
 package org.mobicents.gmlc.slee.map;
 
+import org.mobicents.gmlc.CachedValue;
 import org.mobicents.protocols.ss7.map.api.MAPException;
 import org.mobicents.protocols.ss7.map.api.primitives.CellGlobalIdOrServiceAreaIdFixedLength;
 import org.mobicents.protocols.ss7.map.api.primitives.CellGlobalIdOrServiceAreaIdOrLAI;
@@ -40,7 +41,7 @@ import java.io.Serializable;
 /**
  * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
  */
-public class AtiResponseValues implements Serializable {
+public class AtiResponseValues implements Serializable, Cloneable, CachedValue {
 
   private static final long serialVersionUID = -5012512208618460289L;
 
@@ -291,6 +292,18 @@ public class AtiResponseValues implements Serializable {
     this.mnpInfoRes = mnpInfoRes;
   }
 
+  /**
+   * @return a shallow copy, MAP parameters are read only so only the values object itself is duplicated
+   */
+  @Override
+  public AtiResponseValues copy() {
+    try {
+      return (AtiResponseValues) super.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new AssertionError(e);
+    }
+  }
+
   @Override
   public String toString() {
 
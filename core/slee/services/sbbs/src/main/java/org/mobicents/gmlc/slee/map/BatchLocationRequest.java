@@ -0,0 +1,248 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.map;
+
+import org.mobicents.gmlc.slee.http.HttpResponseWriter;
+import org.mobicents.gmlc.slee.http.JsonWriter;
+import org.mobicents.gmlc.slee.http.LocationRequest;
+import org.mobicents.gmlc.slee.mlp.MLPResponse;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Location request carrying several MSISDNs, each located by a child SBB entity of its own.
+ * At most the configured number of subscribers are located in parallel; every completed lookup lets
+ * the next one start, and the request is answered once all of them have a result, failed ones included.
+ * It is only ever read and updated by the SBB entity answering the request, which keeps it in its CMP request.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class BatchLocationRequest implements Serializable {
+
+  /**
+   * Result of one subscriber, as handed back by the child SBB entity that located it
+   */
+  public static class MemberResult implements Serializable {
+
+    // JSON document (UTF-8 bytes) or MLP position
+    private final Object result;
+
+    private MemberResult(Object result) {
+      this.result = result;
+    }
+
+    /**
+     * @param json UTF-8 encoded JSON document of the subscriber result
+     */
+    public static MemberResult json(byte[] json) {
+      return new MemberResult(json);
+    }
+
+    /**
+     * @param position position or position error of the subscriber
+     */
+    public static MemberResult position(MLPResponse.Position position) {
+      return new MemberResult(position);
+    }
+
+    /**
+     * Failure of a lookup that could not produce a result of its own
+     *
+     * @param msisdn     MSISDN of the subscriber
+     * @param mlp        true for an MLP batch, false for REST
+     * @param resultType error type
+     * @param message    error message
+     */
+    public static MemberResult failure(String msisdn, boolean mlp, MLPResponse.MLPResultType resultType, String message) {
+      if (mlp) {
+        return position(new MLPResponse.Position(msisdn, resultType, null, null, null, message));
+      }
+      HttpResponseWriter responseWriter = HttpResponseWriter.getInstance();
+      try {
+        LocationResponseJsonEncoder.encodeError(new JsonWriter(responseWriter), null, msisdn, resultType, message);
+        return json(responseWriter.toByteArray());
+      } catch (IOException e) {
+        // not thrown when writing to memory
+        return json(new byte[0]);
+      } finally {
+        responseWriter.close();
+      }
+    }
+  }
+
+  private final LocationRequest locationRequest;
+  private final List<String> msisdns;
+  private final boolean mlp;
+  private final int concurrency;
+  private final MemberResult[] results;
+  // child SBB entities still to be removed, per subscriber
+  private final BatchMemberSbbLocalObject[] members;
+
+  private int nextMember;
+  private int membersInProgress;
+  private int completedMembers;
+  private boolean wakeUpScheduled;
+  private boolean answered;
+
+  /**
+   * @param locationRequest request carrying the MSISDNs, its other parameters apply to every subscriber
+   * @param mlp             true if the request came in on the MLP interface, false for REST
+   * @param concurrency     maximum number of subscribers located in parallel
+   */
+  public BatchLocationRequest(LocationRequest locationRequest, boolean mlp, int concurrency) {
+    this.locationRequest = locationRequest;
+    this.msisdns = locationRequest.getMsisdns();
+    this.mlp = mlp;
+    this.concurrency = Math.max(1, concurrency);
+    this.results = new MemberResult[msisdns.size()];
+    this.members = new BatchMemberSbbLocalObject[msisdns.size()];
+  }
+
+  public boolean isMlp() {
+    return mlp;
+  }
+
+  public int size() {
+    return msisdns.size();
+  }
+
+  public String getMsisdn(int index) {
+    return msisdns.get(index);
+  }
+
+  /**
+   * @param index index of a subscriber
+   * @return single MSISDN location request of that subscriber
+   */
+  public LocationRequest getMemberRequest(int index) {
+    return locationRequest.forMsisdn(msisdns.get(index));
+  }
+
+  /**
+   * @return index of the next subscriber to locate, or -1 if every subscriber has been started
+   * or the concurrency limit is reached
+   */
+  public int nextMember() {
+    if (nextMember >= results.length || membersInProgress >= concurrency) {
+      return -1;
+    }
+    membersInProgress++;
+    return nextMember++;
+  }
+
+  /**
+   * Remember the child SBB entity locating a subscriber, to be removed once it has answered
+   */
+  public void started(int index, BatchMemberSbbLocalObject member) {
+    if (results[index] == null) {
+      members[index] = member;
+    }
+  }
+
+  /**
+   * Record a member result
+   *
+   * @param index  index of the subscriber
+   * @param result result of the subscriber
+   * @return false if the subscriber already had a result
+   */
+  public boolean complete(int index, MemberResult result) {
+    if (results[index] != null) {
+      return false;
+    }
+    results[index] = result;
+    membersInProgress--;
+    completedMembers++;
+    return true;
+  }
+
+  /**
+   * @return the child SBB entities that have answered and are still to be removed
+   */
+  public List<BatchMemberSbbLocalObject> takeAnsweredMembers() {
+    List<BatchMemberSbbLocalObject> answeredMembers = new ArrayList<BatchMemberSbbLocalObject>();
+    for (int i = 0; i < members.length; i++) {
+      if (members[i] != null && results[i] != null) {
+        answeredMembers.add(members[i]);
+        members[i] = null;
+      }
+    }
+    return answeredMembers;
+  }
+
+  /**
+   * @return true if the SBB answering the batch is to be woken up to carry on with it, false if it already is to be
+   */
+  public boolean scheduleWakeUp() {
+    if (wakeUpScheduled) {
+      return false;
+    }
+    wakeUpScheduled = true;
+    return true;
+  }
+
+  public void wokenUp() {
+    wakeUpScheduled = false;
+  }
+
+  /**
+   * @return true, once only, when every subscriber has a result and the request is to be answered
+   */
+  public boolean markAnswered() {
+    if (answered || completedMembers < results.length) {
+      return false;
+    }
+    answered = true;
+    return true;
+  }
+
+  /**
+   * Write the member results as a JSON array, in request order
+   *
+   * @param responseWriter response writer of this thread
+   */
+  public void writeJson(HttpResponseWriter responseWriter) {
+    responseWriter.write('[');
+    for (int i = 0; i < results.length; i++) {
+      if (i > 0) {
+        responseWriter.write(',');
+      }
+      byte[] json = (byte[]) results[i].result;
+      responseWriter.write(json, 0, json.length);
+    }
+    responseWriter.write(']');
+  }
+
+  /**
+   * @return the member results as MLP positions, in request order
+   */
+  public List<MLPResponse.Position> getPositions() {
+    List<MLPResponse.Position> positions = new ArrayList<MLPResponse.Position>(results.length);
+    for (MemberResult result : results) {
+      positions.add((MLPResponse.Position) result.result);
+    }
+    return positions;
+  }
+}
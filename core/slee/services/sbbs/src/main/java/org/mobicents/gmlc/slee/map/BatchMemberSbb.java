@@ -0,0 +1,38 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.map;
+
+/**
+ * Child SBB locating one subscriber of a batch location request on behalf of the SBB answering the batch.
+ * It runs the same lookups as {@link MobileCoreNetworkInterfaceParentSbb}, but is a component of its own so that
+ * neither of them is reentrant: the result is handed back to the parent through its local interface.
+ * Batch members locate a single subscriber and never start a batch of their own.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public abstract class BatchMemberSbb extends MobileCoreNetworkInterfaceSbb {
+
+  public BatchMemberSbb() {
+    super("BatchMemberSbb");
+  }
+
+}
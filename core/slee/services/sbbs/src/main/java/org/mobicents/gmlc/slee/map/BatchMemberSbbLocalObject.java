@@ -0,0 +1,45 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.map;
+
+import org.mobicents.gmlc.slee.http.LocationRequest;
+
+/**
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ *
+ */
+public interface BatchMemberSbbLocalObject extends MobileCoreNetworkInterfaceSbbLocalObject {
+
+  /**
+   * Locate one subscriber of a batch location request
+   *
+   * @param locationRequest single MSISDN location request of the subscriber
+   * @param index           index of the subscriber in the batch
+   * @param mlp             true for an MLP batch, false for REST
+   * @param parent          SBB answering the batch, handed the result if it is not available straight away
+   * @return the result of the subscriber if available straight away, e.g. from the location cache, null otherwise
+   */
+  BatchLocationRequest.MemberResult locateBatchMember(LocationRequest locationRequest, int index, boolean mlp,
+                                                      MobileCoreNetworkInterfaceSbbLocalObject parent);
+
+}
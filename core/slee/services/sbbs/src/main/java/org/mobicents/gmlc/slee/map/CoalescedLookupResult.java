@@ -0,0 +1,129 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.map;
+
+import org.mobicents.gmlc.slee.cdr.GMLCCDRState;
+import org.mobicents.gmlc.slee.mlp.MLPResponse;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of a location lookup handed by the SBB entity that led it to every entity waiting on the same lookup,
+ * see {@link MobileCoreNetworkInterfaceSbbLocalObject#coalescedLookupCompleted}. Each waiter answers its own
+ * HTTP request with it, the same way the leader answered its own.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class CoalescedLookupResult implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  public enum Kind {
+    ATI, LSM, PSI, DIALOG_ERROR
+  }
+
+  private final Kind kind;
+  private final MLPResponse.MLPResultType mlpResultType;
+  private final String errorMessage;
+  private AtiResponseValues atiResponseValues;
+  private SriForLcsResponseValues sriForLcsResponseValues;
+  private PslResponseValues pslResponseValues;
+  private SlrRequestValues slrRequestValues;
+  private PsiResponseValues psiResponseValues;
+  private GMLCCDRState cdrState;
+
+  private CoalescedLookupResult(Kind kind, MLPResponse.MLPResultType mlpResultType, String errorMessage) {
+    this.kind = kind;
+    this.mlpResultType = mlpResultType;
+    this.errorMessage = errorMessage;
+  }
+
+  public static CoalescedLookupResult ati(MLPResponse.MLPResultType mlpResultType, AtiResponseValues ati, String errorMessage) {
+    CoalescedLookupResult result = new CoalescedLookupResult(Kind.ATI, mlpResultType, errorMessage);
+    result.atiResponseValues = ati == null ? null : ati.copy();
+    return result;
+  }
+
+  public static CoalescedLookupResult lsm(MLPResponse.MLPResultType mlpResultType, SriForLcsResponseValues sri, PslResponseValues psl,
+                                          SlrRequestValues slr, String errorMessage) {
+    CoalescedLookupResult result = new CoalescedLookupResult(Kind.LSM, mlpResultType, errorMessage);
+    result.sriForLcsResponseValues = sri == null ? null : sri.copy();
+    result.pslResponseValues = psl == null ? null : psl.copy();
+    result.slrRequestValues = slr;
+    return result;
+  }
+
+  public static CoalescedLookupResult psi(MLPResponse.MLPResultType mlpResultType, PsiResponseValues psi, String errorMessage) {
+    CoalescedLookupResult result = new CoalescedLookupResult(Kind.PSI, mlpResultType, errorMessage);
+    result.psiResponseValues = psi == null ? null : psi.copy();
+    return result;
+  }
+
+  public static CoalescedLookupResult dialogError(MLPResponse.MLPResultType mlpResultType, String errorMessage) {
+    return new CoalescedLookupResult(Kind.DIALOG_ERROR, mlpResultType, errorMessage);
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public MLPResponse.MLPResultType getMlpResultType() {
+    return mlpResultType;
+  }
+
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  public AtiResponseValues getAtiResponseValues() {
+    // each waiting request gets a copy of its own
+    return atiResponseValues == null ? null : atiResponseValues.copy();
+  }
+
+  public SriForLcsResponseValues getSriForLcsResponseValues() {
+    return sriForLcsResponseValues == null ? null : sriForLcsResponseValues.copy();
+  }
+
+  public PslResponseValues getPslResponseValues() {
+    return pslResponseValues == null ? null : pslResponseValues.copy();
+  }
+
+  public SlrRequestValues getSlrRequestValues() {
+    return slrRequestValues;
+  }
+
+  public PsiResponseValues getPsiResponseValues() {
+    return psiResponseValues == null ? null : psiResponseValues.copy();
+  }
+
+  /**
+   * @return copy of the CDR state of the leading lookup, null if none was initialized
+   */
+  public GMLCCDRState getCdrState() {
+    return cdrState;
+  }
+
+  public void setCdrState(GMLCCDRState cdrState) {
+    this.cdrState = cdrState == null ? null : cdrState.copy();
+  }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.map;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Supervision of the MAP dialogs initiated by the GMLC, on one hashed timing wheel shared by all of them rather than
+ * one timer facility timer per dialog. Supervising and releasing a dialog only queue it, which is O(1) and takes no lock.
+ * The wheel has no thread of its own: {@link DialogSupervisorSbb} advances it every {@link #TICK} milliseconds on
+ * the events of a single periodic SLEE timer, which moves queued supervisions into the wheel slot of their deadline,
+ * unlinks released ones and collects the due ones of the slots passed. Each expired dialog is then handed to the
+ * SBB entity which sent it as a DialogExpired event on the dialog activity, so that it is aborted within a SLEE transaction.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class DialogSupervisor {
+
+  /**
+   * Wheel resolution in milliseconds, the period of the SLEE timer advancing the wheel
+   */
+  public static final long TICK = 100;
+
+  // number of slots, a power of two: a rotation lasts WHEEL_SIZE * TICK milliseconds
+  private static final int WHEEL_SIZE = 512;
+  private static final int MASK = WHEEL_SIZE - 1;
+
+  // bound on the supervisions moved into the wheel per advance, so a burst does not delay expiries
+  private static final int MAX_TRANSFERS = 100000;
+
+  private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+  private static final DialogSupervisor instance = new DialogSupervisor();
+
+  private final ConcurrentHashMap<Long, Timeout> timeouts = new ConcurrentHashMap<Long, Timeout>();
+  private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<Timeout>();
+  private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<Timeout>();
+  private final AtomicLong expired = new AtomicLong();
+
+  // wheel state, only accessed while advancing
+  private final Timeout[] wheel = new Timeout[WHEEL_SIZE];
+  private final long startTime = System.currentTimeMillis();
+  private long tick;
+
+  private DialogSupervisor() {
+  }
+
+  public static DialogSupervisor getInstance() {
+    return instance;
+  }
+
+  /**
+   * Supervise a dialog, replacing any supervision it is already under
+   *
+   * @param dialogId local dialog id
+   * @param timeout  milliseconds after which the dialog expires
+   */
+  public void supervise(long dialogId, long timeout) {
+    Timeout supervision = new Timeout(this, dialogId, timeout, System.currentTimeMillis() + Math.max(0, timeout));
+    Timeout previous = this.timeouts.put(dialogId, supervision);
+    if (previous != null) {
+      previous.cancel();
+    }
+    this.scheduled.offer(supervision);
+  }
+
+  /**
+   * End the supervision of a released dialog, if it has not expired yet
+   *
+   * @param dialogId local dialog id
+   */
+  public void release(long dialogId) {
+    Timeout supervision = this.timeouts.remove(dialogId);
+    if (supervision != null) {
+      supervision.cancel();
+    }
+  }
+
+  /**
+   * @return number of dialogs under supervision
+   */
+  public int getSupervisedDialogs() {
+    return this.timeouts.size();
+  }
+
+  /**
+   * @return number of dialogs whose supervision expired
+   */
+  public long getExpiredDialogs() {
+    return this.expired.get();
+  }
+
+  /**
+   * Advance the wheel up to the current time
+   *
+   * @param now current time in milliseconds
+   * @return supervisions expired since the previous advance, each of them reported once
+   */
+  public synchronized List<Timeout> advance(long now) {
+    this.unlinkCancelled();
+    this.transferScheduled();
+    List<Timeout> due = null;
+    long lastTick = (now - this.startTime) / TICK;
+    while (this.tick <= lastTick) {
+      due = this.collectDue((int) (this.tick & MASK), now, due);
+      this.tick++;
+    }
+    if (due == null) {
+      return Collections.emptyList();
+    }
+    this.expired.addAndGet(due.size());
+    return due;
+  }
+
+  private void transferScheduled() {
+    for (int i = 0; i < MAX_TRANSFERS; i++) {
+      Timeout supervision = this.scheduled.poll();
+      if (supervision == null) {
+        return;
+      }
+      if (supervision.state != Timeout.PENDING) {
+        continue;
+      }
+      long ticks = (supervision.deadline - this.startTime + TICK - 1) / TICK;
+      long target = Math.max(ticks, this.tick);
+      supervision.rounds = (target - this.tick) / WHEEL_SIZE;
+      supervision.slot = (int) (target & MASK);
+      this.link(supervision);
+    }
+  }
+
+  private void unlinkCancelled() {
+    Timeout supervision;
+    while ((supervision = this.cancelled.poll()) != null) {
+      if (supervision.slot >= 0) {
+        this.unlink(supervision);
+      }
+    }
+  }
+
+  private List<Timeout> collectDue(int slot, long now, List<Timeout> due) {
+    Timeout supervision = this.wheel[slot];
+    while (supervision != null) {
+      Timeout next = supervision.next;
+      if (supervision.rounds > 0) {
+        supervision.rounds--;
+      } else if (supervision.deadline <= now) {
+        this.unlink(supervision);
+        if (STATE.compareAndSet(supervision, Timeout.PENDING, Timeout.EXPIRED)) {
+          this.timeouts.remove(supervision.dialogId, supervision);
+          if (due == null) {
+            due = new ArrayList<Timeout>();
+          }
+          due.add(supervision);
+        }
+      }
+      supervision = next;
+    }
+    return due;
+  }
+
+  private void link(Timeout supervision) {
+    Timeout head = this.wheel[supervision.slot];
+    supervision.next = head;
+    if (head != null) {
+      head.previous = supervision;
+    }
+    this.wheel[supervision.slot] = supervision;
+  }
+
+  private void unlink(Timeout supervision) {
+    if (supervision.previous != null) {
+      supervision.previous.next = supervision.next;
+    } else if (this.wheel[supervision.slot] == supervision) {
+      this.wheel[supervision.slot] = supervision.next;
+    } else {
+      // already unlinked
+      return;
+    }
+    if (supervision.next != null) {
+      supervision.next.previous = supervision.previous;
+    }
+    supervision.next = null;
+    supervision.previous = null;
+    supervision.slot = -1;
+  }
+
+  /**
+   * Supervision of a dialog
+   */
+  public static final class Timeout {
+    private static final int PENDING = 0;
+    private static final int EXPIRED = 1;
+    private static final int CANCELLED = 2;
+
+    private final DialogSupervisor supervisor;
+    private final long dialogId;
+    private final long timeout;
+    private final long deadline;
+    // package private for the field updater
+    volatile int state = PENDING;
+
+    // wheel position, only accessed while advancing
+    private int slot = -1;
+    private long rounds;
+    private Timeout next;
+    private Timeout previous;
+
+    private Timeout(DialogSupervisor supervisor, long dialogId, long timeout, long deadline) {
+      this.supervisor = supervisor;
+      this.dialogId = dialogId;
+      this.timeout = timeout;
+      this.deadline = deadline;
+    }
+
+    private void cancel() {
+      if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+        this.supervisor.cancelled.offer(this);
+      }
+    }
+
+    public long getDialogId() {
+      return this.dialogId;
+    }
+
+    /**
+     * @return dialog timeout in milliseconds
+     */
+    public long getTimeout() {
+      return this.timeout;
+    }
+  }
+
+}
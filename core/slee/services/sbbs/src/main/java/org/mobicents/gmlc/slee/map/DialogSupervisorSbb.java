@@ -0,0 +1,120 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.map;
+
+import org.mobicents.gmlc.slee.GMLCBaseSbb;
+import org.mobicents.gmlc.slee.events.DialogExpired;
+import org.mobicents.protocols.ss7.map.api.MAPDialog;
+import org.mobicents.protocols.ss7.map.api.MAPProvider;
+import org.mobicents.slee.resource.map.MAPContextInterfaceFactory;
+
+import javax.slee.ActivityContextInterface;
+import javax.slee.ActivityEndEvent;
+import javax.slee.Address;
+import javax.slee.SbbContext;
+import javax.slee.facilities.TimerEvent;
+import javax.slee.facilities.TimerFacility;
+import javax.slee.facilities.TimerOptions;
+import javax.slee.facilities.TimerPreserveMissed;
+import javax.slee.nullactivity.NullActivity;
+import javax.slee.serviceactivity.ServiceActivity;
+import javax.slee.serviceactivity.ServiceStartedEvent;
+
+/**
+ * Advances the {@link DialogSupervisor} wheel on a single periodic timer, set on a null activity when the service
+ * starts, and fires a {@link DialogExpired} event on the activity of every MAP dialog whose supervision expired.
+ * The SBB entity which sent the dialog is attached to that activity and aborts the dialog on this event.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public abstract class DialogSupervisorSbb extends GMLCBaseSbb {
+
+  private static final DialogSupervisor dialogSupervisor = DialogSupervisor.getInstance();
+
+  private TimerFacility timerFacility;
+
+  public DialogSupervisorSbb() {
+    super("DialogSupervisorSbb");
+  }
+
+  @Override
+  public void setSbbContext(SbbContext sbbContext) {
+    super.setSbbContext(sbbContext);
+    try {
+      this.mapAcif = (MAPContextInterfaceFactory) this.sbbContext.getActivityContextInterfaceFactory(mapRATypeID);
+      this.mapProvider = (MAPProvider) this.sbbContext.getResourceAdaptorInterface(mapRATypeID, mapRaLink);
+      this.timerFacility = this.sbbContext.getTimerFacility();
+    } catch (Exception ne) {
+      logger.severe("Could not set SBB context:", ne);
+    }
+  }
+
+  // -------------------------------------------------------------
+  // SLEE events
+  // -------------------------------------------------------------
+  public void onStartServiceEvent(ServiceStartedEvent event, ActivityContextInterface aci) {
+    NullActivity wheelActivity = this.sbbContext.getNullActivityFactory().createNullActivity();
+    ActivityContextInterface wheelAci = this.sbbContext.getNullActivityContextInterfaceFactory().getActivityContextInterface(wheelActivity);
+    wheelAci.attach(this.sbbContext.getSbbLocalObject());
+    // ticks missed while the SLEE was busy are not replayed, the next one expires whatever is due
+    TimerOptions timerOptions = new TimerOptions();
+    timerOptions.setPreserveMissed(TimerPreserveMissed.NONE);
+    this.timerFacility.setTimer(wheelAci, null, System.currentTimeMillis() + DialogSupervisor.TICK, DialogSupervisor.TICK, 0,
+            timerOptions);
+    if (logger.isInfoEnabled()) {
+      logger.info("Supervising MAP dialogs on a timing wheel advanced every " + DialogSupervisor.TICK + " ms");
+    }
+  }
+
+  /**
+   * Ending the service ends the null activity too, and with it the timer, so that the service can stop
+   */
+  public void onActivityEndEvent(ActivityEndEvent event, ActivityContextInterface aci) {
+    if (!(aci.getActivity() instanceof ServiceActivity)) {
+      return;
+    }
+    for (ActivityContextInterface activity : this.sbbContext.getActivities()) {
+      if (activity.getActivity() instanceof NullActivity) {
+        ((NullActivity) activity.getActivity()).endActivity();
+      }
+    }
+  }
+
+  public void onTimerEvent(TimerEvent event, ActivityContextInterface aci) {
+    for (DialogSupervisor.Timeout supervision : dialogSupervisor.advance(System.currentTimeMillis())) {
+      MAPDialog mapDialog = this.mapProvider.getMAPDialog(supervision.getDialogId());
+      if (mapDialog == null) {
+        // released while its supervision expired
+        continue;
+      }
+      try {
+        this.fireDialogExpired(new DialogExpired(supervision.getDialogId(), supervision.getTimeout()),
+                this.mapAcif.getActivityContextInterface(mapDialog), null);
+      } catch (Exception e) {
+        logger.severe("Could not fire the expiry of MAP dialog " + supervision.getDialogId(), e);
+      }
+    }
+  }
+
+  public abstract void fireDialogExpired(DialogExpired event, ActivityContextInterface aci, Address address);
+
+}
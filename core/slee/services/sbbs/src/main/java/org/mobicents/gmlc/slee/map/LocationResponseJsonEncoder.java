@@ -0,0 +1,532 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.map;
+
+import org.mobicents.gmlc.slee.http.JsonWriter;
+import org.mobicents.gmlc.slee.mlp.MLPResponse;
+import org.mobicents.protocols.ss7.map.api.MAPException;
+import org.mobicents.protocols.ss7.map.api.primitives.AddressString;
+import org.mobicents.protocols.ss7.map.api.primitives.CellGlobalIdOrServiceAreaIdFixedLength;
+import org.mobicents.protocols.ss7.map.api.primitives.CellGlobalIdOrServiceAreaIdOrLAI;
+import org.mobicents.protocols.ss7.map.api.primitives.DiameterIdentity;
+import org.mobicents.protocols.ss7.map.api.primitives.GSNAddress;
+import org.mobicents.protocols.ss7.map.api.primitives.IMEI;
+import org.mobicents.protocols.ss7.map.api.primitives.IMSI;
+import org.mobicents.protocols.ss7.map.api.primitives.LAIFixedLength;
+import org.mobicents.protocols.ss7.map.api.primitives.LMSI;
+import org.mobicents.protocols.ss7.map.api.service.lsm.AccuracyFulfilmentIndicator;
+import org.mobicents.protocols.ss7.map.api.service.lsm.AddGeographicalInformation;
+import org.mobicents.protocols.ss7.map.api.service.lsm.AdditionalNumber;
+import org.mobicents.protocols.ss7.map.api.service.lsm.DeferredLocationEventType;
+import org.mobicents.protocols.ss7.map.api.service.lsm.DeferredmtlrData;
+import org.mobicents.protocols.ss7.map.api.service.lsm.ExtGeographicalInformation;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSClientExternalID;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSClientID;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSClientInternalID;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSClientName;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSClientType;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSEvent;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSLocationInfo;
+import org.mobicents.protocols.ss7.map.api.service.lsm.LCSRequestorID;
+import org.mobicents.protocols.ss7.map.api.service.lsm.PeriodicLDRInfo;
+import org.mobicents.protocols.ss7.map.api.service.lsm.TerminationCause;
+import org.mobicents.protocols.ss7.map.api.service.mobility.locationManagement.SupportedLCSCapabilitySets;
+import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberInformation.GeodeticInformation;
+import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberInformation.GeographicalInformation;
+import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberInformation.LocationInformation;
+import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberInformation.LocationInformationEPS;
+import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberInformation.LocationInformationGPRS;
+import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberInformation.MNPInfoRes;
+import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberManagement.APN;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+
+/**
+ * Encodes location results as JSON documents with a stable schema, for REST clients asking for JSON.
+ * Every document starts with the result, its MLP result code and the operation, followed by the values
+ * of that operation; values absent from the network response are left out.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class LocationResponseJsonEncoder {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private LocationResponseJsonEncoder() {
+  }
+
+  /**
+   * Encode a failed location attempt
+   *
+   * @param json       JSON writer
+   * @param operation  operation that failed, or null when unknown
+   * @param msisdn     target subscriber MSISDN
+   * @param resultType error type
+   * @param message    error message
+   * @throws IOException error while writing
+   */
+  public static void encodeError(JsonWriter json, String operation, String msisdn, MLPResponse.MLPResultType resultType,
+                                 String message) throws IOException {
+    json.beginObject();
+    result(json, resultType, operation, msisdn);
+    json.field("message", message);
+    json.endObject();
+  }
+
+  /**
+   * Encode an ATI result
+   *
+   * @param json   JSON writer
+   * @param msisdn target subscriber MSISDN
+   * @param ati    ATI response values
+   * @throws IOException error while writing
+   */
+  public static void encodeAti(JsonWriter json, String msisdn, AtiResponseValues ati) throws IOException {
+    json.beginObject();
+    result(json, MLPResponse.MLPResultType.OK, "ATI", msisdn);
+    LocationInformation locationInformation = ati.getLocationInformation();
+    if (locationInformation != null) {
+      cellGlobalId(json, "cellGlobalId", locationInformation.getCellGlobalIdOrServiceAreaIdOrLAI());
+      if (locationInformation.getAgeOfLocationInformation() != null)
+        json.field("ageOfLocationInformation", locationInformation.getAgeOfLocationInformation().intValue());
+      address(json, "vlrNumber", locationInformation.getVlrNumber());
+    }
+    if (ati.getSubscriberState() != null)
+      json.field("subscriberState", String.valueOf(ati.getSubscriberState().getSubscriberStateChoice()));
+    json.endObject();
+  }
+
+  /**
+   * Encode an SRIforLCS and PSL result
+   *
+   * @param json   JSON writer
+   * @param msisdn target subscriber MSISDN
+   * @param sri    SRIforLCS response values, may be null
+   * @param psl    PSL response values, may be null
+   * @throws IOException error while writing
+   */
+  public static void encodeLsm(JsonWriter json, String msisdn, SriForLcsResponseValues sri, PslResponseValues psl) throws IOException {
+    json.beginObject();
+    result(json, MLPResponse.MLPResultType.OK, "PSL", msisdn);
+    if (sri != null) {
+      json.name("sriForLcs").beginObject();
+      if (sri.getImsi() != null)
+        json.field("imsi", sri.getImsi().getData());
+      address(json, "networkNodeNumber", sri.getNetworkNodeNumber());
+      json.field("gprsNodeIndicator", sri.isGprsNodeIndicator());
+      if (sri.getMmeName() != null)
+        json.field("mmeName", new String(sri.getMmeName().getData()));
+      if (sri.getSgsnName() != null)
+        json.field("sgsnName", new String(sri.getSgsnName().getData()));
+      if (sri.getAaaServerName() != null)
+        json.field("aaaServerName", new String(sri.getAaaServerName().getData()));
+      gsnAddress(json, "hGmlcAddress", sri.gethGmlcAddress());
+      gsnAddress(json, "vGmlcAddress", sri.getvGmlcAddress());
+      gsnAddress(json, "pprAddress", sri.getPprAddress());
+      json.endObject();
+    }
+    if (psl != null) {
+      json.name("psl").beginObject();
+      locationEstimate(json, "locationEstimate", psl.getLocationEstimate());
+      json.field("ageOfLocationEstimate", psl.getAgeOfLocationEstimate());
+      additionalLocationEstimate(json, "additionalLocationEstimate", psl.getAdditionalLocationEstimate());
+      json.field("deferredMTLRResponseIndicator", psl.isDeferredMTLRResponseIndicator());
+      json.field("moLrShortCircuitIndicator", psl.isMoLrShortCircuitIndicator());
+      cellGlobalId(json, "cellGlobalId", psl.getCellGlobalIdOrServiceAreaIdOrLAI());
+      if (psl.getAccuracyFulfilmentIndicator() != null)
+        json.field("accuracyFulfilmentIndicator", psl.getAccuracyFulfilmentIndicator().getIndicator());
+      json.endObject();
+    }
+    json.endObject();
+  }
+
+  /**
+   * Encode an SRIforSM and PSI result
+   *
+   * @param json   JSON writer
+   * @param msisdn target subscriber MSISDN
+   * @param imsi   IMSI the PSI was sent for
+   * @param psi    PSI response values
+   * @throws IOException error while writing
+   */
+  public static void encodePsi(JsonWriter json, String msisdn, String imsi, PsiResponseValues psi) throws IOException {
+    json.beginObject();
+    result(json, MLPResponse.MLPResultType.OK, "PSI", msisdn);
+    json.field("imsi", imsi);
+    LocationInformation locationInformation = psi.getLocationInformation();
+    if (locationInformation != null) {
+      json.name("locationInformation").beginObject();
+      cellGlobalId(json, "cellGlobalId", locationInformation.getCellGlobalIdOrServiceAreaIdOrLAI());
+      json.field("saiPresent", locationInformation.getSaiPresent());
+      if (locationInformation.getLocationNumber() != null) {
+        try {
+          if (locationInformation.getLocationNumber().getLocationNumber() != null)
+            json.field("locationNumber", locationInformation.getLocationNumber().getLocationNumber().getAddress());
+        } catch (MAPException me) {
+          // undecodable location number, left out
+        }
+      }
+      if (locationInformation.getAgeOfLocationInformation() != null)
+        json.field("ageOfLocationInformation", locationInformation.getAgeOfLocationInformation().intValue());
+      address(json, "vlrNumber", locationInformation.getVlrNumber());
+      address(json, "mscNumber", locationInformation.getMscNumber());
+      geographicalInformation(json, locationInformation.getGeographicalInformation());
+      geodeticInformation(json, locationInformation.getGeodeticInformation());
+      json.field("currentLocationRetrieved", locationInformation.getCurrentLocationRetrieved());
+      LocationInformationEPS eps = locationInformation.getLocationInformationEPS();
+      if (eps != null) {
+        json.name("eps").beginObject();
+        if (eps.getMmeName() != null)
+          json.field("mmeName", new String(eps.getMmeName().getData()));
+        if (eps.getEUtranCellGlobalIdentity() != null)
+          hex(json, "eUtranCellGlobalIdentity", eps.getEUtranCellGlobalIdentity().getData());
+        if (eps.getTrackingAreaIdentity() != null)
+          hex(json, "trackingAreaIdentity", eps.getTrackingAreaIdentity().getData());
+        json.endObject();
+      }
+      json.endObject();
+    }
+    LocationInformationGPRS gprs = psi.getLocationInformationGPRS();
+    if (gprs != null) {
+      json.name("locationInformationGPRS").beginObject();
+      cellGlobalId(json, "cellGlobalId", gprs.getCellGlobalIdOrServiceAreaIdOrLAI());
+      address(json, "sgsnNumber", gprs.getSGSNNumber());
+      geographicalInformation(json, gprs.getGeographicalInformation());
+      geodeticInformation(json, gprs.getGeodeticInformation());
+      if (gprs.getLSAIdentity() != null)
+        hex(json, "lsaIdentity", gprs.getLSAIdentity().getData());
+      if (gprs.getRouteingAreaIdentity() != null)
+        hex(json, "routeingAreaIdentity", gprs.getRouteingAreaIdentity().getData());
+      json.endObject();
+    }
+    if (psi.getSubscriberState() != null)
+      json.field("subscriberState", String.valueOf(psi.getSubscriberState().getSubscriberStateChoice()));
+    if (psi.getImei() != null)
+      json.field("imei", psi.getImei().getIMEI());
+    MNPInfoRes mnpInfoRes = psi.getMnpInfoRes();
+    if (mnpInfoRes != null) {
+      json.name("mnpInfoResult").beginObject();
+      if (mnpInfoRes.getNumberPortabilityStatus() != null)
+        json.field("numberPortabilityStatus", mnpInfoRes.getNumberPortabilityStatus().getType());
+      address(json, "msisdn", mnpInfoRes.getMSISDN());
+      if (mnpInfoRes.getIMSI() != null)
+        json.field("imsi", mnpInfoRes.getIMSI().getData());
+      if (mnpInfoRes.getRouteingNumber() != null)
+        json.field("routeingNumber", mnpInfoRes.getRouteingNumber().getRouteingNumber());
+      json.endObject();
+    }
+    json.endObject();
+  }
+
+  /**
+   * Encode a Subscriber Location Report
+   *
+   * @param json JSON writer
+   * @param slr  SLR request values
+   * @throws IOException error while writing
+   */
+  public static void encodeSlr(JsonWriter json, SlrRequestValues slr) throws IOException {
+    encodeSlr(json, slr, null);
+  }
+
+  /**
+   * Encode a Subscriber Location Report in a single pass over its values
+   *
+   * @param json             JSON writer
+   * @param slr              SLR request values
+   * @param reportParameters parameters of the deferred location registration the report is sent for, may be null
+   * @throws IOException error while writing
+   */
+  public static void encodeSlr(JsonWriter json, SlrRequestValues slr, Map<String, String> reportParameters) throws IOException {
+    json.beginObject();
+    json.field("operation", "SLR");
+    json.field("lcsReferenceNumber", slr.getLcsReferenceNumber());
+    json.field("sequenceNumber", slr.getSequenceNumber());
+    address(json, "msisdn", slr.getMsisdn());
+    IMSI imsi = slr.getImsi();
+    if (imsi != null)
+      json.field("imsi", imsi.getData());
+    IMEI imei = slr.getImei();
+    if (imei != null)
+      json.field("imei", imei.getIMEI());
+    LCSEvent lcsEvent = slr.getLcsEvent();
+    if (lcsEvent != null)
+      json.field("lcsEvent", lcsEvent.getEvent());
+    json.field("lcsServiceTypeID", slr.getLcsServiceTypeID());
+    LCSClientID lcsClientID = slr.getLcsClientID();
+    if (lcsClientID != null) {
+      json.name("lcsClientID").beginObject();
+      LCSClientType lcsClientType = lcsClientID.getLCSClientType();
+      if (lcsClientType != null)
+        json.field("type", lcsClientType.getType());
+      LCSClientExternalID lcsClientExternalID = lcsClientID.getLCSClientExternalID();
+      if (lcsClientExternalID != null)
+        address(json, "externalAddress", lcsClientExternalID.getExternalAddress());
+      LCSClientInternalID lcsClientInternalID = lcsClientID.getLCSClientInternalID();
+      if (lcsClientInternalID != null)
+        json.field("internalID", lcsClientInternalID.getId());
+      LCSClientName lcsClientName = lcsClientID.getLCSClientName();
+      if (lcsClientName != null) {
+        json.name("name").beginObject();
+        json.field("nameString", new String(lcsClientName.getNameString().getEncodedString()));
+        json.field("dataCodingScheme", lcsClientName.getDataCodingScheme().getCode());
+        json.field("formatIndicator", lcsClientName.getLCSFormatIndicator().getIndicator());
+        json.endObject();
+      }
+      APN lcsApn = lcsClientID.getLCSAPN();
+      if (lcsApn != null) {
+        try {
+          json.field("apn", lcsApn.getApn());
+        } catch (MAPException me) {
+          // undecodable APN, left out
+        }
+      }
+      LCSRequestorID lcsRequestorID = lcsClientID.getLCSRequestorID();
+      if (lcsRequestorID != null) {
+        json.name("requestorID").beginObject();
+        json.field("requestorIDString", new String(lcsRequestorID.getRequestorIDString().getEncodedString()));
+        json.field("dataCodingScheme", lcsRequestorID.getDataCodingScheme().getCode());
+        json.field("formatIndicator", lcsRequestorID.getLCSFormatIndicator().getIndicator());
+        json.endObject();
+      }
+      address(json, "dialedByMS", lcsClientID.getLCSClientDialedByMS());
+      json.endObject();
+    }
+    address(json, "networkNodeNumber", slr.getNetworkNodeNumber());
+    locationEstimate(json, "locationEstimate", slr.getLocationEstimate());
+    json.field("ageOfLocationEstimate", slr.getAgeOfLocationEstimate());
+    additionalLocationEstimate(json, "additionalLocationEstimate", slr.getAdditionalLocationEstimate());
+    AccuracyFulfilmentIndicator accuracyFulfilmentIndicator = slr.getAccuracyFulfilmentIndicator();
+    if (accuracyFulfilmentIndicator != null)
+      json.field("accuracyFulfilmentIndicator", accuracyFulfilmentIndicator.getIndicator());
+    cellGlobalId(json, "cellGlobalId", slr.getCellGlobalIdOrServiceAreaIdOrLAI());
+    json.field("pseudonymIndicator", slr.getPseudonymIndicator());
+    json.field("moLrShortCircuitIndicator", slr.isMoLrShortCircuitIndicator());
+    PeriodicLDRInfo periodicLDRInfo = slr.getPeriodicLDRInfo();
+    if (periodicLDRInfo != null) {
+      json.name("periodicLDRInfo").beginObject();
+      json.field("reportingAmount", periodicLDRInfo.getReportingAmount());
+      json.field("reportingInterval", periodicLDRInfo.getReportingInterval());
+      json.endObject();
+    }
+    DeferredmtlrData deferredmtlrData = slr.getDeferredmtlrData();
+    if (deferredmtlrData != null) {
+      json.name("deferredMTLRData").beginObject();
+      DeferredLocationEventType deferredLocationEventType = deferredmtlrData.getDeferredLocationEventType();
+      if (deferredLocationEventType != null) {
+        json.field("msAvailable", deferredLocationEventType.getMsAvailable());
+        json.field("enteringIntoArea", deferredLocationEventType.getEnteringIntoArea());
+        json.field("leavingFromArea", deferredLocationEventType.getLeavingFromArea());
+        json.field("beingInsideArea", deferredLocationEventType.getBeingInsideArea());
+      }
+      TerminationCause terminationCause = deferredmtlrData.getTerminationCause();
+      if (terminationCause != null)
+        json.field("terminationCause", terminationCause.getCause());
+      LCSLocationInfo lcsLocationInfo = deferredmtlrData.getLCSLocationInfo();
+      if (lcsLocationInfo != null) {
+        json.name("lcsLocationInfo").beginObject();
+        address(json, "networkNodeNumber", lcsLocationInfo.getNetworkNodeNumber());
+        json.field("gprsNodeIndicator", lcsLocationInfo.getGprsNodeIndicator());
+        LMSI lmsi = lcsLocationInfo.getLMSI();
+        if (lmsi != null)
+          hex(json, "lmsi", lmsi.getData());
+        DiameterIdentity mmeName = lcsLocationInfo.getMmeName();
+        if (mmeName != null)
+          json.field("mmeName", new String(mmeName.getData()));
+        DiameterIdentity aaaServerName = lcsLocationInfo.getAaaServerName();
+        if (aaaServerName != null)
+          json.field("aaaServerName", new String(aaaServerName.getData()));
+        AdditionalNumber additionalNumber = lcsLocationInfo.getAdditionalNumber();
+        if (additionalNumber != null) {
+          address(json, "mscNumber", additionalNumber.getMSCNumber());
+          address(json, "sgsnNumber", additionalNumber.getSGSNNumber());
+        }
+        lcsCapabilitySets(json, "supportedLCSCapabilitySets", lcsLocationInfo.getSupportedLCSCapabilitySets());
+        lcsCapabilitySets(json, "additionalLCSCapabilitySets", lcsLocationInfo.getAdditionalLCSCapabilitySets());
+        json.endObject();
+      }
+      json.endObject();
+    }
+    if (reportParameters != null && !reportParameters.isEmpty()) {
+      json.name("reportParameters").beginObject();
+      for (Map.Entry<String, String> reportParameter : reportParameters.entrySet())
+        json.field(reportParameter.getKey(), reportParameter.getValue());
+      json.endObject();
+    }
+    json.endObject();
+  }
+
+  private static void lcsCapabilitySets(JsonWriter json, String name, SupportedLCSCapabilitySets capabilitySets) throws IOException {
+    if (capabilitySets == null)
+      return;
+    json.name(name).beginObject();
+    json.field("release98_99", capabilitySets.getCapabilitySetRelease98_99());
+    json.field("release4", capabilitySets.getCapabilitySetRelease4());
+    json.field("release5", capabilitySets.getCapabilitySetRelease5());
+    json.field("release6", capabilitySets.getCapabilitySetRelease6());
+    json.field("release7", capabilitySets.getCapabilitySetRelease7());
+    json.endObject();
+  }
+
+  private static void result(JsonWriter json, MLPResponse.MLPResultType resultType, String operation, String msisdn) throws IOException {
+    json.field("result", MLPResponse.getResultStringForType(resultType));
+    json.field("resultCode", Integer.parseInt(MLPResponse.getResultCodeForType(resultType)));
+    if (operation != null)
+      json.field("operation", operation);
+    json.field("msisdn", msisdn);
+  }
+
+  private static void address(JsonWriter json, String name, AddressString address) throws IOException {
+    if (address != null)
+      json.field(name, address.getAddress());
+  }
+
+  private static void gsnAddress(JsonWriter json, String name, GSNAddress address) throws IOException {
+    if (address == null || address.getGSNAddressData() == null)
+      return;
+    byte[] data = address.getGSNAddressData();
+    String hostAddress;
+    try {
+      hostAddress = InetAddress.getByAddress(data).getHostAddress();
+    } catch (UnknownHostException e) {
+      // neither an IPv4 nor an IPv6 address
+      hex(json, name, data);
+      return;
+    }
+    json.field(name, hostAddress);
+  }
+
+  /**
+   * Cell global identity or location area; MAP decoding is done before writing, so that a decoding
+   * failure leaves the value out instead of a half written object
+   */
+  private static void cellGlobalId(JsonWriter json, String name, CellGlobalIdOrServiceAreaIdOrLAI cgiOrLai) throws IOException {
+    if (cgiOrLai == null)
+      return;
+    int mcc, mnc, lac, ci = -1;
+    try {
+      CellGlobalIdOrServiceAreaIdFixedLength cgi = cgiOrLai.getCellGlobalIdOrServiceAreaIdFixedLength();
+      LAIFixedLength lai = cgiOrLai.getLAIFixedLength();
+      if (cgi != null) {
+        mcc = cgi.getMCC();
+        mnc = cgi.getMNC();
+        lac = cgi.getLac();
+        ci = cgi.getCellIdOrServiceAreaCode();
+      } else if (lai != null) {
+        mcc = lai.getMCC();
+        mnc = lai.getMNC();
+        lac = lai.getLac();
+      } else {
+        return;
+      }
+    } catch (MAPException me) {
+      return;
+    }
+    json.name(name).beginObject();
+    json.field("mcc", mcc);
+    json.field("mnc", mnc);
+    json.field("lac", lac);
+    if (ci != -1)
+      json.field("ci", ci);
+    json.endObject();
+  }
+
+  private static void locationEstimate(JsonWriter json, String name, ExtGeographicalInformation estimate) throws IOException {
+    if (estimate == null)
+      return;
+    json.name(name).beginObject();
+    if (estimate.getTypeOfShape() != null)
+      json.field("typeOfShape", estimate.getTypeOfShape().name());
+    json.field("latitude", estimate.getLatitude());
+    json.field("longitude", estimate.getLongitude());
+    json.field("uncertainty", estimate.getUncertainty());
+    json.field("uncertaintySemiMajorAxis", estimate.getUncertaintySemiMajorAxis());
+    json.field("uncertaintySemiMinorAxis", estimate.getUncertaintySemiMinorAxis());
+    json.field("confidence", estimate.getConfidence());
+    json.field("altitude", estimate.getAltitude());
+    json.field("uncertaintyAltitude", estimate.getUncertaintyAltitude());
+    json.field("innerRadius", estimate.getInnerRadius());
+    json.field("uncertaintyRadius", estimate.getUncertaintyRadius());
+    json.field("offsetAngle", estimate.getOffsetAngle());
+    json.field("includedAngle", estimate.getIncludedAngle());
+    json.endObject();
+  }
+
+  private static void additionalLocationEstimate(JsonWriter json, String name, AddGeographicalInformation estimate) throws IOException {
+    if (estimate == null)
+      return;
+    json.name(name).beginObject();
+    if (estimate.getTypeOfShape() != null)
+      json.field("typeOfShape", estimate.getTypeOfShape().name());
+    json.field("latitude", estimate.getLatitude());
+    json.field("longitude", estimate.getLongitude());
+    json.field("uncertainty", estimate.getUncertainty());
+    json.field("uncertaintySemiMajorAxis", estimate.getUncertaintySemiMajorAxis());
+    json.field("uncertaintySemiMinorAxis", estimate.getUncertaintySemiMinorAxis());
+    json.field("confidence", estimate.getConfidence());
+    json.field("altitude", estimate.getAltitude());
+    json.field("uncertaintyAltitude", estimate.getUncertaintyAltitude());
+    json.field("innerRadius", estimate.getInnerRadius());
+    json.field("uncertaintyRadius", estimate.getUncertaintyRadius());
+    json.field("offsetAngle", estimate.getOffsetAngle());
+    json.field("includedAngle", estimate.getIncludedAngle());
+    json.endObject();
+  }
+
+  private static void geographicalInformation(JsonWriter json, GeographicalInformation information) throws IOException {
+    if (information == null)
+      return;
+    json.name("geographicalInformation").beginObject();
+    if (information.getTypeOfShape() != null)
+      json.field("typeOfShape", information.getTypeOfShape().name());
+    json.field("latitude", information.getLatitude());
+    json.field("longitude", information.getLongitude());
+    json.field("uncertainty", information.getUncertainty());
+    json.endObject();
+  }
+
+  private static void geodeticInformation(JsonWriter json, GeodeticInformation information) throws IOException {
+    if (information == null)
+      return;
+    json.name("geodeticInformation").beginObject();
+    if (information.getTypeOfShape() != null)
+      json.field("typeOfShape", information.getTypeOfShape().name());
+    json.field("latitude", information.getLatitude());
+    json.field("longitude", information.getLongitude());
+    json.field("uncertainty", information.getUncertainty());
+    json.field("confidence", information.getConfidence());
+    json.field("screeningAndPresentationIndicators", information.getScreeningAndPresentationIndicators());
+    json.endObject();
+  }
+
+  private static void hex(JsonWriter json, String name, byte[] data) throws IOException {
+    char[] chars = new char[data.length * 2];
+    for (int i = 0; i < data.length; i++) {
+      chars[2 * i] = HEX[(data[i] >> 4) & 0xf];
+      chars[2 * i + 1] = HEX[data[i] & 0xf];
+    }
+    json.field(name, new String(chars));
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.map;
+
+import org.mobicents.gmlc.GmlcPropertiesManagement;
+import org.mobicents.gmlc.slee.http.HttpResponseWriter;
+import org.mobicents.gmlc.slee.http.LocationRequest;
+import org.mobicents.gmlc.slee.mlp.MLPResponse;
+import org.mobicents.slee.ChildRelationExt;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.slee.ActivityContextInterface;
+import javax.slee.facilities.TimerEvent;
+import javax.slee.nullactivity.NullActivity;
+import java.io.IOException;
+
+/**
+ * SBB answering client location requests. On top of the lookups it shares with {@link BatchMemberSbb},
+ * it fans batch location requests out to one batch member child entity per subscriber.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public abstract class MobileCoreNetworkInterfaceParentSbb extends MobileCoreNetworkInterfaceSbb {
+
+  private static final GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+
+  public MobileCoreNetworkInterfaceParentSbb() {
+    super();
+  }
+
+  public abstract ChildRelationExt getBatchMemberChildRelation();
+
+  /**
+   * Timer of a batch request whose members have handed back results, any other timer is handled
+   * as by every location SBB
+   */
+  @Override
+  public void onTimerEvent(TimerEvent event, ActivityContextInterface aci) {
+    if (aci.getActivity() instanceof NullActivity) {
+      HttpRequest request = getHttpRequest();
+      if (request != null && request.batch != null) {
+        ((NullActivity) aci.getActivity()).endActivity();
+        this.resumeBatch();
+        return;
+      }
+    }
+    super.onTimerEvent(event, aci);
+  }
+
+  /**
+   * Fan a request carrying several MSISDNs out to one child SBB entity per subscriber;
+   * REST batches are always answered with a JSON array
+   */
+  @Override
+  protected void startBatch(LocationRequest locationRequest) {
+    HttpRequest request = getHttpRequest();
+    if (request.type == HttpRequestType.REST) {
+      locationRequest.setJsonResponse(true);
+      request.json = true;
+      setHttpRequest(request);
+    }
+
+    int batchSize = locationRequest.getMsisdns().size();
+    int maxBatchSize = gmlcPropertiesManagement.getMaxBatchSize();
+    if (batchSize > maxBatchSize) {
+      this.handleDialogError(MLPResponse.MLPResultType.FORMAT_ERROR,
+              String.format("Batch of %d MSISDNs exceeds the maximum of %d", batchSize, maxBatchSize));
+      return;
+    }
+    if (!this.admitClientRequest()) {
+      return;
+    }
+
+    BatchLocationRequest batch = new BatchLocationRequest(locationRequest, request.type == HttpRequestType.MLP,
+            gmlcPropertiesManagement.getBatchConcurrency());
+    request.batch = batch;
+    setHttpRequest(request);
+    if (logger.isFineEnabled()) {
+      logger.fine(String.format("Locating %d subscribers of batch request, %d in parallel", batchSize,
+              gmlcPropertiesManagement.getBatchConcurrency()));
+    }
+    this.startBatchMembers();
+  }
+
+  /**
+   * Start the lookups of the batch subscribers as long as the concurrency limit allows,
+   * then answer the batch if every subscriber already has a result.
+   * A member answering straight away is removed at once, the others once they have handed back their result.
+   */
+  private void startBatchMembers() {
+    HttpRequest request = getHttpRequest();
+    BatchLocationRequest batch = request.batch;
+    MobileCoreNetworkInterfaceSbbLocalObject parent = (MobileCoreNetworkInterfaceSbbLocalObject) this.sbbContext.getSbbLocalObject();
+    int index;
+    while ((index = batch.nextMember()) >= 0) {
+      BatchMemberSbbLocalObject member = null;
+      BatchLocationRequest.MemberResult result;
+      try {
+        member = (BatchMemberSbbLocalObject) this.getBatchMemberChildRelation().create();
+        result = member.locateBatchMember(batch.getMemberRequest(index), index, batch.isMlp(), parent);
+      } catch (Exception e) {
+        logger.severe("Error while starting the lookup of batch MSISDN " + batch.getMsisdn(index), e);
+        result = BatchLocationRequest.MemberResult.failure(batch.getMsisdn(index), batch.isMlp(),
+                MLPResponse.MLPResultType.SYSTEM_FAILURE, "Internal failure while starting the lookup");
+      }
+      if (result == null) {
+        batch.started(index, member);
+        continue;
+      }
+      batch.complete(index, result);
+      if (member != null) {
+        this.removeBatchMember(member);
+      }
+    }
+    boolean answer = batch.markAnswered();
+    setHttpRequest(request);
+
+    if (answer) {
+      this.answerBatch(batch);
+    }
+  }
+
+  /**
+   * Carry on with the batch once members have handed back their results, in an event of its own
+   * so that the members are no longer running when they are removed
+   */
+  private void resumeBatch() {
+    HttpRequest request = getHttpRequest();
+    request.batch.wokenUp();
+    for (BatchMemberSbbLocalObject member : request.batch.takeAnsweredMembers()) {
+      this.removeBatchMember(member);
+    }
+    setHttpRequest(request);
+    this.startBatchMembers();
+  }
+
+  private void removeBatchMember(BatchMemberSbbLocalObject member) {
+    try {
+      member.remove();
+    } catch (Exception e) {
+      logger.warning("Error while removing a batch member", e);
+    }
+  }
+
+  /**
+   * Answer a batch request with the results of all its subscribers, in request order
+   */
+  private void answerBatch(BatchLocationRequest batch) {
+    HttpResponseWriter responseWriter = HttpResponseWriter.getInstance();
+    String contentType;
+    try {
+      if (batch.isMlp()) {
+        new MLPResponse(this.logger).writeMultiplePositionXML(batch.getPositions(), responseWriter);
+        contentType = HttpResponseWriter.APPLICATION_XML;
+      } else {
+        batch.writeJson(responseWriter);
+        contentType = HttpResponseWriter.APPLICATION_JSON;
+      }
+    } catch (IOException e) {
+      logger.severe("Error while encoding the batch response", e);
+      responseWriter.close();
+      this.sendHTTPResult(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal failure while encoding the batch response");
+      this.releaseAdmission();
+      return;
+    }
+    this.sendHTTPResult(HttpServletResponse.SC_OK, contentType, responseWriter);
+    this.releaseAdmission();
+  }
+
+}
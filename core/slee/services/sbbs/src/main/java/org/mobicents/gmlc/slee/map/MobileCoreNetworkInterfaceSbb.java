@@ -22,21 +22,35 @@ package org.mobicents.gmlc.slee.map;
 import net.java.slee.resource.http.events.HttpServletRequestEvent;
 import org.joda.time.DateTime;
 
+import org.mobicents.gmlc.AdmissionControl;
+import org.mobicents.gmlc.CachedValue;
+import org.mobicents.gmlc.ClientRateLimiter;
 import org.mobicents.gmlc.GmlcPropertiesManagement;
+import org.mobicents.gmlc.GmlcStatAggregator;
+import org.mobicents.gmlc.HlrRoutingTable;
+import org.mobicents.gmlc.LocationRequestCoalescer;
+import org.mobicents.gmlc.LocationResultCache;
+import org.mobicents.gmlc.MapVersionCache;
+import org.mobicents.gmlc.RoutingInfoCache;
+import org.mobicents.gmlc.TimeoutPolicy;
 
 import org.mobicents.gmlc.slee.GMLCBaseSbb;
 import org.mobicents.gmlc.slee.cdr.CDRInterface;
 import org.mobicents.gmlc.slee.cdr.CDRInterfaceParent;
 import org.mobicents.gmlc.slee.cdr.GMLCCDRState;
 import org.mobicents.gmlc.slee.cdr.RecordStatus;
+import org.mobicents.gmlc.slee.events.DialogExpired;
 import org.mobicents.gmlc.slee.http.HttpReport;
+import org.mobicents.gmlc.slee.http.HttpResponseWriter;
+import org.mobicents.gmlc.slee.http.JsonWriter;
+import org.mobicents.gmlc.slee.http.LocationRequest;
+import org.mobicents.gmlc.slee.http.PrometheusMetricsWriter;
+import org.mobicents.gmlc.slee.http.RestLocationRequestParser;
+import org.mobicents.gmlc.slee.http.report.ReportElement;
 import org.mobicents.gmlc.slee.mlp.MLPException;
 import org.mobicents.gmlc.slee.mlp.MLPRequest;
 import org.mobicents.gmlc.slee.mlp.MLPResponse;
 
-import org.mobicents.protocols.ss7.indicator.NatureOfAddress;
-import org.mobicents.protocols.ss7.indicator.NumberingPlan;
-import org.mobicents.protocols.ss7.indicator.RoutingIndicator;
 
 import org.mobicents.protocols.ss7.map.api.MAPApplicationContext;
 import org.mobicents.protocols.ss7.map.api.MAPApplicationContextName;
@@ -45,6 +59,9 @@ import org.mobicents.protocols.ss7.map.api.MAPDialog;
 import org.mobicents.protocols.ss7.map.api.MAPException;
 import org.mobicents.protocols.ss7.map.api.MAPParameterFactory;
 import org.mobicents.protocols.ss7.map.api.MAPProvider;
+import org.mobicents.protocols.ss7.map.api.dialog.MAPDialogState;
+import org.mobicents.protocols.ss7.map.api.dialog.MAPRefuseReason;
+import org.mobicents.protocols.ss7.map.api.dialog.MAPUserAbortChoice;
 import org.mobicents.protocols.ss7.map.api.errors.MAPErrorMessage;
 import org.mobicents.protocols.ss7.map.api.errors.MAPErrorCode;
 
@@ -133,11 +150,8 @@ import org.mobicents.protocols.ss7.map.service.lsm.SupportedGADShapesImpl;
 import org.mobicents.protocols.ss7.map.service.mobility.subscriberInformation.RequestedInfoImpl;
 
 import org.mobicents.protocols.ss7.sccp.impl.SccpStackImpl;
-import org.mobicents.protocols.ss7.sccp.impl.parameter.ParameterFactoryImpl;
-import org.mobicents.protocols.ss7.sccp.parameter.EncodingScheme;
-import org.mobicents.protocols.ss7.sccp.parameter.GlobalTitle;
-import org.mobicents.protocols.ss7.sccp.parameter.ParameterFactory;
 import org.mobicents.protocols.ss7.sccp.parameter.SccpAddress;
+import org.mobicents.protocols.ss7.tcap.asn.ApplicationContextName;
 
 import org.mobicents.slee.ChildRelationExt;
 import org.mobicents.slee.SbbContextExt;
@@ -166,21 +180,22 @@ import javax.slee.Sbb;
 import javax.slee.SbbContext;
 import javax.slee.SbbLocalObject;
 import javax.slee.TransactionRequiredLocalException;
+import javax.slee.facilities.TimerEvent;
 import javax.slee.facilities.TimerFacility;
-import javax.slee.facilities.TimerID;
 import javax.slee.facilities.TimerOptions;
 import javax.slee.facilities.Tracer;
+import javax.slee.nullactivity.NullActivity;
 import javax.slee.resource.ResourceAdaptorTypeID;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.InputStream;
-import java.io.PrintWriter;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
@@ -200,30 +215,34 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
   protected MAPContextInterfaceFactory mapAcif;
   protected MAPProvider mapProvider;
   protected MAPParameterFactory mapParameterFactory;
-  protected ParameterFactory sccpParameterFact;
   protected SccpStackImpl sccpStack;
+  private TimerFacility timerFacility;
 
   protected static final ResourceAdaptorTypeID mapRATypeID = new ResourceAdaptorTypeID("MAPResourceAdaptorType",
           "org.mobicents", "2.0");
   protected static final String mapRaLink = "MAPRA";
 
   private static final GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+  private static final LocationResultCache locationResultCache = LocationResultCache.getInstance();
+  private static final RoutingInfoCache routingInfoCache = RoutingInfoCache.getInstance();
+  private static final LocationRequestCoalescer locationRequestCoalescer = LocationRequestCoalescer.getInstance();
+  private static final DialogSupervisor dialogSupervisor = DialogSupervisor.getInstance();
+  private static final AdmissionControl admissionControl = AdmissionControl.getInstance();
+  private static final ClientRateLimiter clientRateLimiter = ClientRateLimiter.getInstance();
+  private static final SccpAddressCache sccpAddressCache = SccpAddressCache.getInstance();
+  private static final HlrRoutingTable hlrRoutingTable = HlrRoutingTable.getInstance();
+  private static final MapVersionCache mapVersionCache = MapVersionCache.getInstance();
+  private static final TimeoutPolicy timeoutPolicy = TimeoutPolicy.getInstance();
+  private static final int SC_TOO_MANY_REQUESTS = 429;
+  // shortest timeout a MAP dialog is given, a request with less time left to its deadline is not sent
+  private static final long MIN_DIALOG_TIMEOUT = 100L;
 
-  private SccpAddress gmlcSCCPAddress = null;
-  private MAPApplicationContext anyTimeEnquiryContext = null;
-  private MAPApplicationContext locationSvcEnquiryContext = null;
-  private MAPApplicationContext locationSvcGatewayContext = null;
-  private MAPApplicationContext shortMsgGatewayContext = null;
-  private MAPApplicationContext subscriberInfoEnquiryContext = null;
 
-  private TimerFacility timerFacility = null;
 
-  private String pslLcsServiceTypeID, pslIntervalTime, pslReportingAmount, pslReportingInterval,
-          pslLcsHorizontalAccuracy, pslLcsVerticalAccuracy, pslOccurrenceInfo, pslAreaType, pslAreaId, pslLocationEstimateType, pslDeferredLocationEventType,
-          pslLcsPriority, pslVerticalCoordinateRequest, pslResponseTimeCategory, slrCallbackUrl, sriForSMImsi, psiService, psiServiceType, psiOnlyImsi, psiOnlyNnn;
-  private Integer pslLcsReferenceNumber, pslReferenceNumber;
 
-  private HttpReport httpSubscriberLocationReport = new HttpReport();
+  private static final HttpReport httpSubscriberLocationReport = new HttpReport();
+
+  private static final RestLocationRequestParser restLocationRequestParser = new RestLocationRequestParser();
 
   /**
    * Creates a new instance of CallSbb
@@ -232,12 +251,17 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     super("MobileCoreNetworkInterfaceSbb");
   }
 
+  protected MobileCoreNetworkInterfaceSbb(String loggerName) {
+    super(loggerName);
+  }
+
   /**
    * HTTP Request Types (GET or MLP)
    */
-  private enum HttpRequestType {
+  enum HttpRequestType {
     REST("rest"),
     MLP("mlp"),
+    METRICS("metrics"),
     UNSUPPORTED("404");
 
     private String path;
@@ -264,7 +288,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
   /**
    * HTTP Request
    */
-  private class HttpRequest implements Serializable {
+  class HttpRequest implements Serializable {
 
     HttpRequestType type;
     String msisdn;
@@ -281,78 +305,59 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     AreaEventInfo areaEventInfo; // AreaEventInfoImpl(areaDefinition, occurrenceInfo, intervalTime);
     PeriodicLDRInfo periodicLDRInfo; // PeriodicLDRInfoImpl(reportingAmount, reportingInterval);
     String slrCallbackUrl;
-    String psiService;
-
-
-    public HttpRequest(HttpRequestType type, String subscriberIdentity, String coreNetwork,
-                       String priority, int horAccuracy, int vertAccuracy, String vertCoordRequest, String responseTimeCat,
-                       int lcsReferenceNumber, int lcsServiceTypeID, String areaType, String areaId,
-                       String occurrenceInfo, int intervalTime, int reportingAmount, int reportingInterval, String slrCallbackUrl,
-                       String psiService) {
+    boolean psiService;
+    LocationResultCache.Operation leadingOperation; // set when this request leads a coalesced lookup
+    LocationResultCache.Operation coalescedOperation; // set while this request waits on a lookup led by another SBB entity
+    LocationResultCache.Operation admittedOperation; // set while this request holds an admission control slot
+    String clientId; // MLP serviceid or REST API key
+    ClientRateLimiter.Admission clientAdmission; // set while this request holds a slot of its client concurrency quota
+    boolean json; // REST result to be returned as JSON instead of plain text
+    BatchLocationRequest batch; // batch answered by this request, with the results of its members
+    int batchIndex = -1; // index of the subscriber located by this batch member
+    MobileCoreNetworkInterfaceSbbLocalObject batchParent; // SBB answering the batch this request is a member of
+    boolean batchStarting; // set while the batch parent waits on this member to start its lookup
+    BatchLocationRequest.MemberResult batchResult; // result of this member obtained while it was being started
+    long receivedAt = System.currentTimeMillis(); // time the HTTP request was received, for the latency statistics
+    long deadline; // time by which the request must be answered under the timeout policy, 0 until located
+    LocationRequest locationRequest; // parsed request, read by the MAP events following the HTTP one
+    String sriForSMImsi; // IMSI of the subscriber located by PSI, from SRIforSM or the routing info cache
+    Long expiredDialogId; // local id of the MAP dialog aborted for lack of a response within its dialog timeout
+
+
+    public HttpRequest(HttpRequestType type, LocationRequest locationRequest) {
       this.type = type;
-      this.lcsPriority = LCSPriority.normalPriority;
-      if (priority.equalsIgnoreCase("highest")) {
-        this.lcsPriority = LCSPriority.highestPriority;
-      }
-      this.msisdn = subscriberIdentity;
-      this.coreNetwork = "GSM";
-      if (coreNetwork.equalsIgnoreCase("umts")) {
-        this.coreNetwork = "UMTS";
-      }
-      this.lcsReferenceNumber = lcsReferenceNumber;
-      this.lcsServiceTypeID = lcsServiceTypeID;
-      this.horizontalAccuracy = horAccuracy;
-      this.verticalAccuracy = vertAccuracy;
-      this.verticalCoordinateRequest = false;
-      if (!vertCoordRequest.equalsIgnoreCase("false")) {
-        this.verticalCoordinateRequest = true;
-      }
-      this.responseTimeCategory = ResponseTimeCategory.delaytolerant;
-      if (!responseTimeCat.equalsIgnoreCase("tolerant")) {
-        this.responseTimeCategory = ResponseTimeCategory.lowdelay;
-      }
-      //temporary hardcoded
+      this.locationRequest = locationRequest;
+      this.msisdn = locationRequest.getMsisdn();
+      this.coreNetwork = locationRequest.getCoreNetwork();
+      this.lcsPriority = locationRequest.getLcsPriority();
+      this.lcsReferenceNumber = locationRequest.getLcsReferenceNumber();
+      this.lcsServiceTypeID = locationRequest.getLcsServiceTypeID();
+      this.horizontalAccuracy = locationRequest.getHorizontalAccuracy();
+      this.verticalAccuracy = locationRequest.getVerticalAccuracy();
+      this.verticalCoordinateRequest = locationRequest.isVerticalCoordinateRequest();
+      this.responseTimeCategory = locationRequest.getResponseTimeCategory();
       this.responseTime = new ResponseTimeImpl(responseTimeCategory);
       MAPExtensionContainer mec = null;
       this.lcsQoS = new LCSQoSImpl(horizontalAccuracy, verticalAccuracy, verticalCoordinateRequest, responseTime, mec);
       try {
         ArrayList<Area> areaArrayList = new ArrayList<Area>();
-        AreaType areaT = AreaType.locationAreaId;
-        if (areaType.equalsIgnoreCase("routing")) {
-          areaT = AreaType.routingAreaId;
-        } else if(areaType.equalsIgnoreCase("cgi")) {
-          areaT = AreaType.cellGlobalId;
-        } else if(areaType.equalsIgnoreCase("cc")) {
-          areaT = AreaType.countryCode;
-        } else if(areaType.equalsIgnoreCase("utranCid")) {
-          areaT = AreaType.utranCellId;
-        } else if(areaType.equalsIgnoreCase("plmn")) {
-          areaT = AreaType.plmnId;
-        }
-        byte[] aId = areaId.getBytes();
-        AreaIdentification areaIdentification = new AreaIdentificationImpl(aId);
-        Area area = new AreaImpl(areaT, areaIdentification);
+        AreaIdentification areaIdentification = new AreaIdentificationImpl(locationRequest.getAreaId().getBytes());
+        Area area = new AreaImpl(locationRequest.getAreaType(), areaIdentification);
         areaArrayList.add(area);
         AreaDefinition areaDefinition = new AreaDefinitionImpl(areaArrayList);
-        OccurrenceInfo occurrenceInformation = OccurrenceInfo.oneTimeEvent;
-        if (occurrenceInfo.equalsIgnoreCase("multiple")) {
-          occurrenceInformation = OccurrenceInfo.multipleTimeEvent;
-        }
-        this.areaEventInfo = new AreaEventInfoImpl(areaDefinition, occurrenceInformation, intervalTime);
+        this.areaEventInfo = new AreaEventInfoImpl(areaDefinition, locationRequest.getOccurrenceInfo(), locationRequest.getIntervalTime());
       } catch (Exception e) {
         logger.info(String.format("Error while creating AreaEventInfo from HttpRequest:" + e));
       }
-      this.periodicLDRInfo = new PeriodicLDRInfoImpl(reportingAmount, reportingInterval);
-      this.slrCallbackUrl = slrCallbackUrl;
-      this.psiService = psiService;
-
+      this.periodicLDRInfo = new PeriodicLDRInfoImpl(locationRequest.getReportingAmount(), locationRequest.getReportingInterval());
+      this.slrCallbackUrl = locationRequest.getSlrCallbackUrl();
+      this.psiService = locationRequest.isPsiService();
+      this.clientId = locationRequest.getClientId();
+      this.json = locationRequest.isJsonResponse();
     }
 
     public HttpRequest(HttpRequestType type) {
-
-      this(type, "", "", "", -1, -1, "",
-              "", -1, -1, "", "", "",
-              -1, -1, -1, "", "");
+      this(type, new LocationRequest());
     }
   }
 
@@ -390,7 +395,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
       this.mapAcif = (MAPContextInterfaceFactory) this.sbbContext.getActivityContextInterfaceFactory(mapRATypeID);
       this.mapProvider = (MAPProvider) this.sbbContext.getResourceAdaptorInterface(mapRATypeID, mapRaLink);
       this.mapParameterFactory = this.mapProvider.getMAPParameterFactory();
-      this.sccpParameterFact = new ParameterFactoryImpl();
       this.timerFacility = this.sbbContext.getTimerFacility();
     } catch (Exception ne) {
       logger.severe("Could not set SBB context:", ne);
@@ -419,9 +423,14 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
   }
 
   public void sbbRemove() {
+    this.abandonCoalescedLookup("Location lookup in progress ended without a result");
+    // backstop for a request never answered
+    this.releaseAdmission();
   }
 
   public void sbbExceptionThrown(Exception exception, Object object, ActivityContextInterface activityContextInterface) {
+    this.abandonCoalescedLookup("Location lookup in progress failed: " + exception);
+    this.releaseAdmission();
   }
 
   public void sbbRolledBack(RolledBackContext rolledBackContext) {
@@ -465,6 +474,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
    */
   public void onAnyTimeInterrogationResponse(AnyTimeInterrogationResponse event, ActivityContextInterface aci) {
 
+    this.updateMapResponseStat(GmlcStatAggregator.MapOperation.ATI);
     MAPErrorMessage mapErrorMessage = this.getErrorResponse();
 
     try {
@@ -495,8 +505,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
         aci.attach(sbbLO);
       }
-      // Set timer last
-      this.setTimer(aci);
 
       // Inquire if MAP ATI response includes subscriber's info
       if (subscriberInfo != null) {
@@ -633,6 +641,9 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         mlpRespResult = MLPResponse.MLPResultType.SYSTEM_FAILURE;
         mlpClientErrorMessage = "Bad AnyTimeInterrogationResponse received: " + event;
       }
+      if (mlpRespResult == MLPResponse.MLPResultType.OK) {
+        this.storeLocationResult(LocationResultCache.Operation.ATI, atiResponseValues);
+      }
       // Handle successful retrieval of subscriber's info
       this.handleLocationResponse(mlpRespResult, atiResponseValues, mlpClientErrorMessage);
 
@@ -668,6 +679,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
    */
   public void onSendRoutingInfoForLCSResponse(SendRoutingInfoForLCSResponse event, ActivityContextInterface aci, EventContext eventContext) {
 
+    this.updateMapResponseStat(GmlcStatAggregator.MapOperation.SRI_FOR_LCS);
     MAPErrorMessage mapErrorMessage = this.getErrorResponse();
 
     try {
@@ -705,8 +717,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
         aci.attach(sbbLO);
       }
-      // Set timer last
-      this.setTimer(aci);
 
       if (subscriberIdentity != null) {
         if (this.logger.isFineEnabled()) {
@@ -906,116 +916,14 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
 
       if (this.getSendRoutingInfoForLCSResponse() != null) {
 
-        ISDNAddressString mlcNumber = new ISDNAddressStringImpl(AddressNature.international_number,
-                org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan.ISDN, this.getGmlcSccpAddress().getGlobalTitle().getDigits());
-
-        // LocationType for PSL composed from HTTP request values
-        LocationEstimateType locationEstimateType = LocationEstimateType.valueOf(pslLocationEstimateType);
-        String deferredLocEvType = this.pslDeferredLocationEventType;
-        DeferredLocationEventType deferredLocationEventType = new DeferredLocationEventTypeImpl();
-        switch (deferredLocEvType) {
-          case "inside":
-            deferredLocationEventType.getBeingInsideArea();
-            break;
-          case "entering":
-            deferredLocationEventType.getEnteringIntoArea();
-            break;
-          case "leaving":
-            deferredLocationEventType.getLeavingFromArea();
-            break;
-          case "available":
-            deferredLocationEventType.getMsAvailable();
-            break;
-          default:
-            deferredLocationEventType.getBeingInsideArea();
-            break;
+        if (mlpRespResult == MLPResponse.MLPResultType.OK && sriForLcsResponseValues.getNetworkNodeNumber() != null
+                && getHttpRequest() != null) {
+          routingInfoCache.put(RoutingInfoCache.Operation.SRI_FOR_LCS, getHttpRequest().msisdn, sriForLcsResponseValues);
         }
-        LocationType locationType = new LocationTypeImpl(locationEstimateType, deferredLocationEventType);
-
-        // IMEI hardcoded to null for now
-        IMEI imei = null;
-
-        // LCSClientID hardcoded to nul for now
-        LCSClientID lcsClientID = null;
-
-        // LCSPriority for PSL composed from HTTP request values
-        LCSPriority lcsPriority = LCSPriority.valueOf(pslLcsPriority);
-
-        // LCSQoS for PSL composed from HTTP request values
-        Integer horizontalAccuracy = Integer.valueOf(this.pslLcsHorizontalAccuracy);
-        Integer verticalAccuracy = Integer.valueOf(this.pslLcsVerticalAccuracy);
-        boolean verticalCoordinateRequest = Boolean.parseBoolean(pslVerticalCoordinateRequest);
-        ResponseTimeCategory responseTimeCategory = ResponseTimeCategory.valueOf(pslResponseTimeCategory);
-        ResponseTime responseTime = new ResponseTimeImpl(responseTimeCategory);
-        MAPExtensionContainer PslMapExtensionContainer = null;
-        LCSQoS lcsQoS = new LCSQoSImpl(horizontalAccuracy, verticalAccuracy, verticalCoordinateRequest, responseTime, PslMapExtensionContainer);
-        if (gmlcCdrState.isInitialized()) {
-          gmlcCdrState.setLcsQoS(lcsQoS);
-        }
-
-        // SupportedGADShapes hardcoded to true for all shapes for now
-        boolean ellipsoidPoint = true;
-        boolean ellipsoidPointWithUncertaintyCircle = true;
-        boolean ellipsoidPointWithUncertaintyEllipse = true;
-        boolean polygon = true;
-        boolean ellipsoidPointWithAltitude = true;
-        boolean ellipsoidPointWithAltitudeAndUncertaintyElipsoid = true;
-        boolean ellipsoidArc = true;
-        SupportedGADShapes supportedGADShapes = new SupportedGADShapesImpl(ellipsoidPoint, ellipsoidPointWithUncertaintyCircle,
-                ellipsoidPointWithUncertaintyEllipse, polygon, ellipsoidPointWithAltitude, ellipsoidPointWithAltitudeAndUncertaintyElipsoid, ellipsoidArc);
-
-        // LCSCodeword hardcoded to nul for now
-        LCSCodeword lcsCodeword = null;
-
-        // LCSPrivacyCheck hardcoded to nul for now
-        LCSPrivacyCheck lcsPrivacyCheck = null;
-
-        // AreaEventInfo for PSL composed from HTTP request values
-        ArrayList<Area> areaList = new ArrayList<Area>();
-        AreaType areaType = AreaType.valueOf(pslAreaType);
-        byte[] areaId = pslAreaId.getBytes();
-        AreaIdentification areaIdentification = new AreaIdentificationImpl(areaId);
-        Area area1 = new AreaImpl(areaType, areaIdentification);
-        areaList.add(area1);
-        AreaDefinition areaDefinition = new AreaDefinitionImpl(areaList);
-        OccurrenceInfo occurrenceInfo = OccurrenceInfo.valueOf(pslOccurrenceInfo);
-        Integer intervalTime = Integer.parseInt(this.pslIntervalTime);
-        AreaEventInfo areaEventInfo = new AreaEventInfoImpl(areaDefinition, occurrenceInfo, intervalTime);
-
-        // PeriodicLDRInfo for PSL composed from HTTP request values
-        PeriodicLDRInfo periodicLDRInfo = new PeriodicLDRInfoImpl(Integer.parseInt(pslReportingAmount), Integer.parseInt(pslReportingInterval));
-
-        // moLrShortCircuitIndicator hardcoded to false for now
-        boolean moLrShortCircuitIndicator = false;
-
-        // ReportingPLMNList hardcoded to null for now
-        ReportingPLMNList reportingPLMNList = null;
-
-        // TODO: register CallbackURL for PSL Report
-        this.pslReferenceNumber = httpSubscriberLocationReport.Register(pslLcsReferenceNumber, slrCallbackUrl, null);
-        logger.info(String.format("Sending PSL Req with ref# %d from LCS request ref# %d with url '%s'",
-                pslReferenceNumber, pslLcsReferenceNumber, slrCallbackUrl));
 
-        AddressString originAddressString, destinationAddressString;
-        originAddressString = destinationAddressString = null;
-
-        MAPDialogLsm mapDialogLsmPsl = this.mapProvider.getMAPServiceLsm().createNewDialog(
-                this.getMAPPslSlrApplicationContext(),  this.getGmlcSccpAddress(), originAddressString,
-                getNNNSCCPAddress(lcsLocationInfo.getNetworkNodeNumber().getAddress()), destinationAddressString);
-
-        mapDialogLsmPsl.addProvideSubscriberLocationRequest(locationType, mlcNumber, lcsClientID, false,
-                sriForLcsResponseValues.getImsi(), sriForLcsResponseValues.getMsisdn().getClass().newInstance().getMSISDN(),
-                sriForLcsResponseValues.getLmsi(), imei, lcsPriority, lcsQoS, mapExtensionContainer,
-                supportedGADShapes, pslReferenceNumber, Integer.parseInt(pslLcsServiceTypeID), lcsCodeword, lcsPrivacyCheck,
-                areaEventInfo, hGmlcAddress, moLrShortCircuitIndicator, periodicLDRInfo, reportingPLMNList);
-
-        // Keep ACI in across MAP dialog for PSL
-        ActivityContextInterface lsmPslDialogACI = this.mapAcif.getActivityContextInterface(mapDialogLsmPsl);
-        lsmPslDialogACI.attach(this.sbbContext.getSbbLocalObject());
-
-        // ProvideSubscriberLocationRequest is now composed by values taken from SRIforLCS response and HTTP request
-        // Send PSL
-        mapDialogLsmPsl.send();
+        this.sendProvideSubscriberLocationRequest(lcsLocationInfo.getNetworkNodeNumber(), sriForLcsResponseValues.getImsi(),
+                sriForLcsResponseValues.getMsisdn().getClass().newInstance().getMSISDN(), sriForLcsResponseValues.getLmsi(),
+                mapExtensionContainer, hGmlcAddress, gmlcCdrState);
 
       } else {
         // SRIforLCS Error CDR creation
@@ -1051,6 +959,144 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     }
   }
 
+  /**
+   * Compose the MAP PSL request from the HTTP request values and the SRIforLCS routing info, and send it to the serving node
+   */
+  private void sendProvideSubscriberLocationRequest(ISDNAddressString networkNodeNumber, IMSI imsi, ISDNAddressString msisdn, LMSI lmsi,
+                                                    MAPExtensionContainer mapExtensionContainer, GSNAddress hGmlcAddress,
+                                                    GMLCCDRState gmlcCdrState) throws MAPException {
+    if (!this.checkRequestDeadline(GmlcStatAggregator.MapOperation.PSL)) {
+      return;
+    }
+
+    ISDNAddressString mlcNumber = sccpAddressCache.getGmlcISDNAddressString();
+    LocationRequest locationRequest = this.getLocationRequest();
+
+    // LocationType for PSL composed from HTTP request values
+    LocationEstimateType locationEstimateType = locationRequest.getLocationEstimateType();
+    DeferredLocationEventType deferredLocationEventType = new DeferredLocationEventTypeImpl();
+    switch (locationRequest.getDeferredLocationEventType()) {
+      case inside:
+        deferredLocationEventType.getBeingInsideArea();
+        break;
+      case entering:
+        deferredLocationEventType.getEnteringIntoArea();
+        break;
+      case leaving:
+        deferredLocationEventType.getLeavingFromArea();
+        break;
+      case available:
+        deferredLocationEventType.getMsAvailable();
+        break;
+      default:
+        deferredLocationEventType.getBeingInsideArea();
+        break;
+    }
+    LocationType locationType = new LocationTypeImpl(locationEstimateType, deferredLocationEventType);
+
+    // IMEI hardcoded to null for now
+    IMEI imei = null;
+
+    // LCSClientID hardcoded to nul for now
+    LCSClientID lcsClientID = null;
+
+    // LCSPriority for PSL composed from HTTP request values
+    LCSPriority lcsPriority = locationRequest.getLcsPriority();
+
+    // LCSQoS for PSL composed from HTTP request values
+    Integer horizontalAccuracy = locationRequest.getHorizontalAccuracy();
+    Integer verticalAccuracy = locationRequest.getVerticalAccuracy();
+    boolean verticalCoordinateRequest = locationRequest.isVerticalCoordinateRequest();
+    ResponseTimeCategory responseTimeCategory = locationRequest.getResponseTimeCategory();
+    ResponseTime responseTime = new ResponseTimeImpl(responseTimeCategory);
+    MAPExtensionContainer PslMapExtensionContainer = null;
+    LCSQoS lcsQoS = new LCSQoSImpl(horizontalAccuracy, verticalAccuracy, verticalCoordinateRequest, responseTime, PslMapExtensionContainer);
+    if (gmlcCdrState.isInitialized()) {
+      gmlcCdrState.setLcsQoS(lcsQoS);
+    }
+
+    // SupportedGADShapes hardcoded to true for all shapes for now
+    boolean ellipsoidPoint = true;
+    boolean ellipsoidPointWithUncertaintyCircle = true;
+    boolean ellipsoidPointWithUncertaintyEllipse = true;
+    boolean polygon = true;
+    boolean ellipsoidPointWithAltitude = true;
+    boolean ellipsoidPointWithAltitudeAndUncertaintyElipsoid = true;
+    boolean ellipsoidArc = true;
+    SupportedGADShapes supportedGADShapes = new SupportedGADShapesImpl(ellipsoidPoint, ellipsoidPointWithUncertaintyCircle,
+            ellipsoidPointWithUncertaintyEllipse, polygon, ellipsoidPointWithAltitude, ellipsoidPointWithAltitudeAndUncertaintyElipsoid, ellipsoidArc);
+
+    // LCSCodeword hardcoded to nul for now
+    LCSCodeword lcsCodeword = null;
+
+    // LCSPrivacyCheck hardcoded to nul for now
+    LCSPrivacyCheck lcsPrivacyCheck = null;
+
+    // AreaEventInfo for PSL composed from HTTP request values
+    ArrayList<Area> areaList = new ArrayList<Area>();
+    AreaType areaType = locationRequest.getAreaType();
+    byte[] areaId = locationRequest.getAreaId().getBytes();
+    AreaIdentification areaIdentification = new AreaIdentificationImpl(areaId);
+    Area area1 = new AreaImpl(areaType, areaIdentification);
+    areaList.add(area1);
+    AreaDefinition areaDefinition = new AreaDefinitionImpl(areaList);
+    OccurrenceInfo occurrenceInfo = locationRequest.getOccurrenceInfo();
+    Integer intervalTime = locationRequest.getIntervalTime();
+    AreaEventInfo areaEventInfo = new AreaEventInfoImpl(areaDefinition, occurrenceInfo, intervalTime);
+
+    // PeriodicLDRInfo for PSL composed from HTTP request values
+    PeriodicLDRInfo periodicLDRInfo = new PeriodicLDRInfoImpl(locationRequest.getReportingAmount(),
+            locationRequest.getReportingInterval());
+
+    // moLrShortCircuitIndicator hardcoded to false for now
+    boolean moLrShortCircuitIndicator = false;
+
+    // ReportingPLMNList hardcoded to null for now
+    ReportingPLMNList reportingPLMNList = null;
+
+    // Register the callback URL for the SLR reports of deferred location requests, the register id is sent as LCS reference number.
+    // Immediate location requests get no SLR, so they neither register nor carry a reference number
+    int lcsReferenceNumber = locationRequest.getLcsReferenceNumber();
+    String slrCallbackUrl = locationRequest.getSlrCallbackUrl();
+    Integer pslReferenceNumber = null;
+    if (locationEstimateType == LocationEstimateType.activateDeferredLocation) {
+      // the registration outlives the last periodic report or the area event interval by slrRegistrationTtl seconds,
+      // and is dropped as soon as the last expected report arrives
+      int reportingAmount = locationRequest.getReportingAmount();
+      long registrationTtl = Math.max((long) reportingAmount * locationRequest.getReportingInterval(),
+              locationRequest.getIntervalTime()) + GmlcPropertiesManagement.getInstance().getSlrRegistrationTtl();
+      int reports = reportingAmount > 0 ? reportingAmount : occurrenceInfo == OccurrenceInfo.oneTimeEvent ? 1 : 0;
+      pslReferenceNumber = httpSubscriberLocationReport.Register(lcsReferenceNumber, slrCallbackUrl,
+              locationRequest.getSlrReportFormat(), locationRequest.isSlrBatch(), null, reports,
+              registrationTtl * 1000);
+    }
+    logger.info(String.format("Sending PSL Req with ref# %d from LCS request ref# %d with url '%s'",
+            pslReferenceNumber, lcsReferenceNumber, slrCallbackUrl));
+
+    AddressString originAddressString, destinationAddressString;
+    originAddressString = destinationAddressString = null;
+
+    SccpAddress networkNodeAddress = getNNNSCCPAddress(networkNodeNumber.getAddress());
+    MAPDialogLsm mapDialogLsmPsl = this.mapProvider.getMAPServiceLsm().createNewDialog(
+            this.getMAPPslSlrApplicationContext(networkNodeAddress),  this.getGmlcSccpAddress(), originAddressString,
+            networkNodeAddress, destinationAddressString);
+
+    mapDialogLsmPsl.addProvideSubscriberLocationRequest(locationType, mlcNumber, lcsClientID, false,
+            imsi, msisdn, lmsi, imei, lcsPriority, lcsQoS, mapExtensionContainer,
+            supportedGADShapes, pslReferenceNumber, locationRequest.getLcsServiceTypeID(), lcsCodeword, lcsPrivacyCheck,
+            areaEventInfo, hGmlcAddress, moLrShortCircuitIndicator, periodicLDRInfo, reportingPLMNList);
+
+    // Keep ACI in across MAP dialog for PSL
+    ActivityContextInterface lsmPslDialogACI = this.mapAcif.getActivityContextInterface(mapDialogLsmPsl);
+    lsmPslDialogACI.attach(this.sbbContext.getSbbLocalObject());
+
+    // ProvideSubscriberLocationRequest is now composed by values taken from SRIforLCS response and HTTP request
+    // Send PSL
+    mapDialogLsmPsl.send();
+    this.updateMapRequestStat(GmlcStatAggregator.MapOperation.PSL);
+    this.superviseDialog(mapDialogLsmPsl, GmlcStatAggregator.MapOperation.PSL);
+  }
+
   /**
    * Location Service Management (LSM) services
    * MAP_PROVIDE_SUBSCRIBER_LOCATION (PSL) Events
@@ -1077,6 +1123,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
    */
   public void onProvideSubscriberLocationResponse(ProvideSubscriberLocationResponse event, ActivityContextInterface aci) {
 
+    this.updateMapResponseStat(GmlcStatAggregator.MapOperation.PSL);
     MAPErrorMessage mapErrorMessage = this.getErrorResponse();
     this.setProvideSubscriberLocationResponse(event);
 
@@ -1123,8 +1170,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
         aci.attach(sbbLO);
       }
-      // Set timer last
-      this.setTimer(aci);
 
       if (extGeographicalInformation != null) {
         mlpRespResult = MLPResponse.MLPResultType.OK;
@@ -1544,6 +1589,9 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         }
       }
 
+      if (mlpRespResult == MLPResponse.MLPResultType.OK) {
+        this.storeLocationResult(LocationResultCache.Operation.PSL, pslResponseValues);
+      }
       // Handle successful retrieval of response to subscriber's location request (PSL response) info
       this.handleLsmLocationResponse(mlpRespResult, null, pslResponseValues, null, mlpClientErrorMessage);
 
@@ -1570,6 +1618,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     //temporary log
     this.logger.info("\nReceived onSubscriberLocationReportRequest = " + event);
 
+    gmlcStatAggregator.updateRequests(GmlcStatAggregator.MapOperation.SLR);
     MAPErrorMessage mapErrorMessage = this.getErrorResponse();
 
     try {
@@ -1629,8 +1678,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
         aci.attach(sbbLO);
       }
-      // Set timer last
-      this.setTimer(aci);
 
       if (lcsEvent != null) {
         mlpRespResult = MLPResponse.MLPResultType.OK;
@@ -2438,10 +2485,20 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
 
         // SubscriberLocationReportResponse is now composed by values taken from SubscriberLocationReportRequest and ready to be sent:
         mapDialogLsmSlr.close(false);
-
-        // Handle successful retrieval of subscriber's location report request (SLR request) info by sending HTTP POST back to the requestor
-        logger.info(String.format("Handling SubscriberLocationReport POST ReferenceNumber '%s'\n", lcsReferenceNumber));
-        httpSubscriberLocationReport.Perform(HttpReport.HttpMethod.POST, lcsReferenceNumber, slrReportParameters(slrRequestValues));
+        gmlcStatAggregator.updateSuccesses(GmlcStatAggregator.MapOperation.SLR);
+
+        // Handle successful retrieval of subscriber's location report request (SLR request) info by sending HTTP POST back to the requestor,
+        // the callback is only queued here and delivered asynchronously so that a slow LCS client does not hold this event thread
+        logger.info(String.format("Queueing SubscriberLocationReport POST ReferenceNumber '%s'\n", lcsReferenceNumber));
+        ReportElement slrRegistration = httpSubscriberLocationReport.Lookup(lcsReferenceNumber);
+        if (slrRegistration != null) {
+          httpSubscriberLocationReport.Perform(HttpReport.HttpMethod.POST, slrRegistration,
+                  SlrReportEncoder.encode(slrRequestValues, slrRegistration.reportFormat, slrRegistration.reportParameters));
+        } else {
+          // registrations are local to the node that sent the PSL, see ReportRegister
+          logger.warning(String.format("No callback registered on this node for SubscriberLocationReport ReferenceNumber '%s', " +
+                  "the registration expired or was made on another GMLC node; report not sent", lcsReferenceNumber));
+        }
 
       }
 
@@ -2491,6 +2548,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
 
   public void onSendRoutingInfoForSMResponse(SendRoutingInfoForSMResponse event, ActivityContextInterface aci) {
 
+    this.updateMapResponseStat(GmlcStatAggregator.MapOperation.SRI_FOR_SM);
     MAPErrorMessage mapErrorMessage = this.getErrorResponse();
 
     try {
@@ -2523,8 +2581,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
         aci.attach(sbbLO);
       }
-      // Set timer last
-      this.setTimer(aci);
 
       if (locationInfoWithLMSI != null) {
         mlpRespResult = MLPResponse.MLPResultType.OK;
@@ -2577,7 +2633,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
           this.logger.fine("\nonSendRoutingInfoForSmResponse: received IMSI parameter");
         }
         sriForSmResponseValues.setImsi(imsi);
-        this.sriForSMImsi = new String(imsi.getData().getBytes());
+        this.setSriForSMImsi(new String(imsi.getData().getBytes()));
         if (gmlcCdrState.isInitialized()) {
           gmlcCdrState.setImsi(sriForSmResponseValues.getImsi());
           if (this.logger.isFineEnabled()) {
@@ -2593,32 +2649,12 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         LMSI lmsi = null;
         if (locationInfoWithLMSI.getLMSI() != null)
           lmsi = event.getLocationInfoWithLMSI().getLMSI();
-        boolean locationInformation = true;
-        boolean subscriberState = true;
-        MAPExtensionContainer extensionContainer = null;
-        boolean currentLocation = true;
-        DomainType requestedDomain = null;
-        boolean imei = true;
-        boolean msClassmark = false;
-        boolean mnpRequestedInfo = false;
-        RequestedInfo requestedInfo = new RequestedInfoImpl(locationInformation, subscriberState, extensionContainer, currentLocation, requestedDomain, imei, msClassmark, mnpRequestedInfo);
-
-        AddressString originAddressString, destinationAddressString;
-        originAddressString = destinationAddressString = null;
-
-        MAPDialogMobility mapDialogMobility = this.mapProvider.getMAPServiceMobility().createNewDialog(
-                this.getMAPPsiApplicationContext(), this.getGmlcSccpAddress(), originAddressString,
-                getNNNSCCPAddress(locationInfoWithLMSI.getNetworkNodeNumber().getAddress()), destinationAddressString);
-
-        mapDialogMobility.addProvideSubscriberInfoRequest(imsi, lmsi, requestedInfo, mapExtensionContainer, null);
 
-        // Keep ACI in across MAP dialog for PSL
-        ActivityContextInterface lsmPslDialogACI = this.mapAcif.getActivityContextInterface(mapDialogMobility);
-        lsmPslDialogACI.attach(this.sbbContext.getSbbLocalObject());
+        if (imsi != null && sriForSmResponseValues.getNetworkNodeNumber() != null && getHttpRequest() != null) {
+          routingInfoCache.put(RoutingInfoCache.Operation.SRI_FOR_SM, getHttpRequest().msisdn, sriForSmResponseValues);
+        }
 
-        // ProvideSubscriberInfoRequest is now composed by values taken from SRIforSM response
-        // Send PSI
-        mapDialogMobility.send();
+        this.sendProvideSubscriberInfoRequest(imsi, lmsi, locationInfoWithLMSI.getNetworkNodeNumber(), mapExtensionContainer);
       } else {
         if (mapErrorMessage != null) {
           // SRIforSM error CDR creation
@@ -2667,6 +2703,45 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     }
   }
 
+  /**
+   * Compose the MAP PSI request from the SRIforSM routing info and send it to the serving node
+   */
+  private void sendProvideSubscriberInfoRequest(IMSI imsi, LMSI lmsi, ISDNAddressString networkNodeNumber,
+                                                MAPExtensionContainer mapExtensionContainer) throws MAPException {
+    if (!this.checkRequestDeadline(GmlcStatAggregator.MapOperation.PSI)) {
+      return;
+    }
+    boolean locationInformation = true;
+    boolean subscriberState = true;
+    MAPExtensionContainer extensionContainer = null;
+    boolean currentLocation = true;
+    DomainType requestedDomain = null;
+    boolean imei = true;
+    boolean msClassmark = false;
+    boolean mnpRequestedInfo = false;
+    RequestedInfo requestedInfo = new RequestedInfoImpl(locationInformation, subscriberState, extensionContainer, currentLocation, requestedDomain, imei, msClassmark, mnpRequestedInfo);
+
+    AddressString originAddressString, destinationAddressString;
+    originAddressString = destinationAddressString = null;
+
+    SccpAddress networkNodeAddress = getNNNSCCPAddress(networkNodeNumber.getAddress());
+    MAPDialogMobility mapDialogMobility = this.mapProvider.getMAPServiceMobility().createNewDialog(
+            this.getMAPPsiApplicationContext(networkNodeAddress), this.getGmlcSccpAddress(), originAddressString,
+            networkNodeAddress, destinationAddressString);
+
+    mapDialogMobility.addProvideSubscriberInfoRequest(imsi, lmsi, requestedInfo, mapExtensionContainer, null);
+
+    // Keep ACI in across MAP dialog for PSL
+    ActivityContextInterface lsmPslDialogACI = this.mapAcif.getActivityContextInterface(mapDialogMobility);
+    lsmPslDialogACI.attach(this.sbbContext.getSbbLocalObject());
+
+    // ProvideSubscriberInfoRequest is now composed by values taken from SRIforSM response
+    // Send PSI
+    mapDialogMobility.send();
+    this.updateMapRequestStat(GmlcStatAggregator.MapOperation.PSI);
+    this.superviseDialog(mapDialogMobility, GmlcStatAggregator.MapOperation.PSI);
+  }
+
   /**
    * MAP-PROVIDE-SUBSCRIBER-INFO (PSI) Events
    */
@@ -2684,6 +2759,9 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
    * MAP-PROVIDE-SUBSCRIBER-INFO (PSI)
    */
   public void provideSubscriberInfoRequestFirst(String imsiStr, String nnn) {
+    if (!this.checkRequestDeadline(GmlcStatAggregator.MapOperation.PSI)) {
+      return;
+    }
 
     IMSI imsi = new IMSIImpl(imsiStr);
     LMSI lmsi = null;
@@ -2704,7 +2782,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     MAPDialogMobility mapDialogMobility = null;
     try {
       mapDialogMobility = this.mapProvider.getMAPServiceMobility().createNewDialog(
-              this.getMAPPsiApplicationContext(), this.getGmlcSccpAddress(), originAddressString,
+              this.getMAPPsiApplicationContext(networkNodeAddress), this.getGmlcSccpAddress(), originAddressString,
               networkNodeAddress, destinationAddressString);
     } catch (MAPException e) {
       e.printStackTrace();
@@ -2725,6 +2803,8 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     // Send PSI
     try {
       mapDialogMobility.send();
+      this.updateMapRequestStat(GmlcStatAggregator.MapOperation.PSI);
+      this.superviseDialog(mapDialogMobility, GmlcStatAggregator.MapOperation.PSI);
     } catch (MAPException e) {
       logger.severe(String.format("MAP Exception while trying to send PSI on provideSubscriberInfoRequestFirst=%s", e.getMessage()));
       e.printStackTrace();
@@ -2733,6 +2813,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
 
   public void onProvideSubscriberInformationResponse(ProvideSubscriberInfoResponse event, ActivityContextInterface aci) {
 
+    this.updateMapResponseStat(GmlcStatAggregator.MapOperation.PSI);
     MAPErrorMessage mapErrorMessage = this.getErrorResponse();
     this.setProvideSubscriberInformationResponse(event);
 
@@ -2765,8 +2846,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
         aci.attach(sbbLO);
       }
-      // Set timer last
-      this.setTimer(aci);
 
       if (subscriberInfo != null) {
         mlpRespResult = MLPResponse.MLPResultType.OK;
@@ -3229,8 +3308,8 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
 
           }
         }
-        if (gmlcCdrState.isInitialized() && this.psiServiceType.equalsIgnoreCase("psiFirst") && this.psiOnlyImsi != null && this.psiOnlyNnn != null) {
-          IMSI imsi = new IMSIImpl(this.psiOnlyImsi);
+        if (gmlcCdrState.isInitialized() && this.getLocationRequest().isPsiOnly()) {
+          IMSI imsi = new IMSIImpl(this.getLocationRequest().getPsiImsi());
           gmlcCdrState.setImsi(imsi);
         }
       }
@@ -3336,6 +3415,12 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         }
       }
 
+      if (mlpRespResult == MLPResponse.MLPResultType.OK) {
+        if (psiResponseValues.getImsiData() == null) {
+          psiResponseValues.setImsiData(this.getSriForSMImsi());
+        }
+        this.storeLocationResult(LocationResultCache.Operation.PSI, psiResponseValues);
+      }
       // handle successful retrieval of PSI response
       handlePsiResponse(mlpRespResult, psiResponseValues, mlpClientErrorMessage);
 
@@ -3353,6 +3438,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     }
     this.handleDialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Dialog Timeout: " + event);
     MAPDialog mapDialog = event.getMAPDialog();
+    this.updateDialogFailureStat(mapDialog, RecordStatus.TCAP_DIALOG_TIMEOUT);
     CDRInterface cdrInterface = this.getCDRInterface();
     GMLCCDRState gmlcCdrState = cdrInterface.getState();
     gmlcCdrState.init(mapDialog.getLocalDialogId(), mapDialog.getReceivedDestReference(), mapDialog.getReceivedOrigReference(),
@@ -3362,7 +3448,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     cdrInterface.setState(gmlcCdrState);
     SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
     aci.attach(sbbLO);
-    this.setTimer(aci);
     if (gmlcCdrState.isInitialized()) {
       this.createCDRRecord(RecordStatus.TCAP_DIALOG_TIMEOUT);
     }
@@ -3384,8 +3469,12 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     if (this.logger.isFineEnabled()) {
       this.logger.fine("\nRx :  onDialogReject " + event);
     }
-    this.handleDialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Dialog Rejected: " + event);
     MAPDialog mapDialog = event.getMAPDialog();
+    this.updateDialogFailureStat(mapDialog, RecordStatus.TCAP_DIALOG_REJECTED);
+    if (this.retryWithLowerMapVersion(mapDialog, event.getRefuseReason(), event.getAlternativeApplicationContext())) {
+      return;
+    }
+    this.handleDialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Dialog Rejected: " + event);
     CDRInterface cdrInterface = this.getCDRInterface();
     GMLCCDRState gmlcCdrState = cdrInterface.getState();
     gmlcCdrState.init(mapDialog.getLocalDialogId(), mapDialog.getReceivedDestReference(), mapDialog.getReceivedOrigReference(),
@@ -3395,7 +3484,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     cdrInterface.setState(gmlcCdrState);
     SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
     aci.attach(sbbLO);
-    this.setTimer(aci);
     if (gmlcCdrState.isInitialized()) {
       this.createCDRRecord(RecordStatus.TCAP_DIALOG_REJECTED);
     }
@@ -3407,6 +3495,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     }
     this.handleDialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Dialog U-ABORT: " + event);
     MAPDialog mapDialog = event.getMAPDialog();
+    this.updateDialogFailureStat(mapDialog, RecordStatus.TCAP_DIALOG_USER_ABORT);
     CDRInterface cdrInterface = this.getCDRInterface();
     GMLCCDRState gmlcCdrState = cdrInterface.getState();
     gmlcCdrState.init(mapDialog.getLocalDialogId(), mapDialog.getReceivedDestReference(), mapDialog.getReceivedOrigReference(),
@@ -3416,7 +3505,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     cdrInterface.setState(gmlcCdrState);
     SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
     aci.attach(sbbLO);
-    this.setTimer(aci);
     if (gmlcCdrState.isInitialized()) {
       this.createCDRRecord(RecordStatus.TCAP_DIALOG_USER_ABORT);
     }
@@ -3428,6 +3516,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     }
     this.handleDialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Dialog P-ABORT: " + event);
     MAPDialog mapDialog = event.getMAPDialog();
+    this.updateDialogFailureStat(mapDialog, RecordStatus.TCAP_DIALOG_PROVIDER_ABORT);
     CDRInterface cdrInterface = this.getCDRInterface();
     GMLCCDRState gmlcCdrState = cdrInterface.getState();
     gmlcCdrState.init(mapDialog.getLocalDialogId(), mapDialog.getReceivedDestReference(), mapDialog.getReceivedOrigReference(),
@@ -3437,7 +3526,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     cdrInterface.setState(gmlcCdrState);
     SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
     aci.attach(sbbLO);
-    this.setTimer(aci);
     if (gmlcCdrState.isInitialized()) {
       this.createCDRRecord(RecordStatus.TCAP_DIALOG_PROVIDER_ABORT);
     }
@@ -3459,6 +3547,29 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     if (this.logger.isFineEnabled()) {
       this.logger.fine("\nReceived onDialogRelease = " + event);
     }
+    MAPDialog mapDialog = event.getMAPDialog();
+    dialogSupervisor.release(mapDialog.getLocalDialogId());
+    HttpRequest request = getHttpRequest();
+    if (request == null || request.expiredDialogId == null || !request.expiredDialogId.equals(mapDialog.getLocalDialogId())) {
+      return;
+    }
+    // no response came within the dialog timeout, the dialog was aborted on its expiry
+    request.expiredDialogId = null;
+    setHttpRequest(request);
+    gmlcStatAggregator.updateAppTimeouts();
+    this.handleDialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, gmlcPropertiesManagement.getDialogTimeoutErrorMessage());
+    CDRInterface cdrInterface = this.getCDRInterface();
+    GMLCCDRState gmlcCdrState = cdrInterface.getState();
+    gmlcCdrState.init(mapDialog.getLocalDialogId(), mapDialog.getReceivedDestReference(), mapDialog.getReceivedOrigReference(),
+            null, mapDialog.getLocalAddress(), mapDialog.getRemoteAddress());
+    gmlcCdrState.setDialogStartTime(DateTime.now());
+    gmlcCdrState.setRemoteDialogId(mapDialog.getRemoteDialogId());
+    cdrInterface.setState(gmlcCdrState);
+    SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
+    aci.attach(sbbLO);
+    if (gmlcCdrState.isInitialized()) {
+      this.createCDRRecord(RecordStatus.FAILED_APP_TIMEOUT);
+    }
   }
 
   /**
@@ -3470,6 +3581,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     }
     this.handleDialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Invoke timeout: " + event);
     MAPDialog mapDialog = event.getMAPDialog();
+    this.updateDialogFailureStat(mapDialog, RecordStatus.FAILED_INVOKE_TIMEOUT);
     CDRInterface cdrInterface = this.getCDRInterface();
     GMLCCDRState gmlcCdrState = cdrInterface.getState();
     gmlcCdrState.init(mapDialog.getLocalDialogId(), mapDialog.getReceivedDestReference(), mapDialog.getReceivedOrigReference(),
@@ -3479,7 +3591,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     cdrInterface.setState(gmlcCdrState);
     SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
     aci.attach(sbbLO);
-    this.setTimer(aci);
     if (gmlcCdrState.isInitialized()) {
       this.createCDRRecord(RecordStatus.FAILED_INVOKE_TIMEOUT);
     }
@@ -3493,6 +3604,9 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     MAPErrorMessage mapErrorMessage = event.getMAPErrorMessage();
     long error_code = mapErrorMessage.getErrorCode().longValue();
 
+    this.updateRoutingInfoCache(event.getMAPDialog(), error_code);
+    this.updateMapErrorStat(event.getMAPDialog(), error_code);
+
     this.handleDialogError(
             (error_code == MAPErrorCode.unknownSubscriber ? MLPResponse.MLPResultType.UNKNOWN_SUBSCRIBER
                     : MLPResponse.MLPResultType.SYSTEM_FAILURE), "Component error: " + String.valueOf(error_code) + " : "
@@ -3507,12 +3621,220 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     cdrInterface.setState(gmlcCdrState);
     SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
     aci.attach(sbbLO);
-    this.setTimer(aci);
     if (gmlcCdrState.isInitialized()) {
       this.createCDRRecord(RecordStatus.FAILED_MAP_ERROR_COMPONENT);
     }
   }
 
+  /**
+   * Keep the routing info cache consistent with a MAP error: an HLR reporting an unknown subscriber
+   * is remembered, and routing info is dropped when the serving node no longer knows or reaches the subscriber.
+   */
+  private void updateRoutingInfoCache(MAPDialog mapDialog, long errorCode) {
+    HttpRequest request = getHttpRequest();
+    if (request == null || mapDialog.getApplicationContext() == null) {
+      return;
+    }
+    switch (mapDialog.getApplicationContext().getApplicationContextName()) {
+      case locationSvcGatewayContext:
+        if (errorCode == MAPErrorCode.unknownSubscriber)
+          routingInfoCache.putUnknownSubscriber(RoutingInfoCache.Operation.SRI_FOR_LCS, request.msisdn);
+        break;
+      case shortMsgGatewayContext:
+        if (errorCode == MAPErrorCode.unknownSubscriber)
+          routingInfoCache.putUnknownSubscriber(RoutingInfoCache.Operation.SRI_FOR_SM, request.msisdn);
+        break;
+      case locationSvcEnquiryContext:
+      case subscriberInfoEnquiryContext:
+        if (errorCode == MAPErrorCode.unknownSubscriber || errorCode == MAPErrorCode.absentSubscriber)
+          routingInfoCache.invalidate(request.msisdn);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Get the MAP operation a dialog is counted under in the statistics, told by its application context
+   */
+  private static GmlcStatAggregator.MapOperation getStatisticsOperation(MAPDialog mapDialog) {
+    if (mapDialog == null || mapDialog.getApplicationContext() == null) {
+      return null;
+    }
+    switch (mapDialog.getApplicationContext().getApplicationContextName()) {
+      case anyTimeEnquiryContext:
+        return GmlcStatAggregator.MapOperation.ATI;
+      case locationSvcGatewayContext:
+        return GmlcStatAggregator.MapOperation.SRI_FOR_LCS;
+      case locationSvcEnquiryContext:
+        return GmlcStatAggregator.MapOperation.PSL;
+      case shortMsgGatewayContext:
+        return GmlcStatAggregator.MapOperation.SRI_FOR_SM;
+      case subscriberInfoEnquiryContext:
+        return GmlcStatAggregator.MapOperation.PSI;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Supervise a MAP dialog just sent on the shared dialog supervisor: unless a response releases the dialog within
+   * the dialog timeout of its operation, a DialogExpired event fired on its activity aborts the dialog and its release
+   * answers the request with the dialog timeout error
+   */
+  private void superviseDialog(MAPDialog mapDialog, GmlcStatAggregator.MapOperation operation) {
+    try {
+      ActivityContextInterface mapDialogAci = this.mapAcif.getActivityContextInterface(mapDialog);
+      mapDialogAci.attach(this.sbbContext.getSbbLocalObject());
+      dialogSupervisor.supervise(mapDialog.getLocalDialogId(), this.getDialogTimeout(operation));
+    } catch (Exception e) {
+      logger.severe("Could not supervise MAP dialog " + mapDialog.getLocalDialogId(), e);
+    }
+  }
+
+  /**
+   * MAP dialog left without a response within its dialog timeout, fired by the DialogSupervisorSbb on its activity
+   */
+  public void onDialogExpired(DialogExpired event, ActivityContextInterface aci) {
+    if (aci.getActivity() instanceof MAPDialog) {
+      this.expireDialog((MAPDialog) aci.getActivity());
+    }
+  }
+
+  /**
+   * Abort a MAP dialog left without a response within its dialog timeout, its release then answers the request
+   */
+  private void expireDialog(MAPDialog mapDialog) {
+    if (mapDialog.getState() == MAPDialogState.EXPUNGED) {
+      return;
+    }
+    HttpRequest request = getHttpRequest();
+    if (request != null) {
+      request.expiredDialogId = mapDialog.getLocalDialogId();
+      setHttpRequest(request);
+    }
+    if (logger.isFineEnabled()) {
+      logger.fine(String.format("MAP dialog %d got no response within its dialog timeout, aborting it", mapDialog.getLocalDialogId()));
+    }
+    this.updateDialogFailureStat(mapDialog, RecordStatus.TCAP_DIALOG_TIMEOUT);
+    MAPUserAbortChoice mapUserAbortChoice = this.mapParameterFactory.createMAPUserAbortChoice();
+    mapUserAbortChoice.setUserSpecificReason();
+    try {
+      mapDialog.abort(mapUserAbortChoice);
+    } catch (MAPException e) {
+      logger.severe("Could not abort expired MAP dialog " + mapDialog.getLocalDialogId(), e);
+    }
+  }
+
+  /**
+   * Get the timeout of a MAP dialog of the pending request under the timeout policy, bounded by the time left
+   * to the request deadline and never shorter than MIN_DIALOG_TIMEOUT
+   */
+  private long getDialogTimeout(GmlcStatAggregator.MapOperation operation) {
+    HttpRequest request = getHttpRequest();
+    long timeout = getPolicyTimeout(operation, request);
+    if (request != null && request.deadline > 0) {
+      timeout = Math.min(timeout, request.deadline - System.currentTimeMillis());
+    }
+    return Math.max(timeout, MIN_DIALOG_TIMEOUT);
+  }
+
+  /**
+   * Check, before opening a MAP dialog for the pending request, that the request deadline leaves it
+   * at least MIN_DIALOG_TIMEOUT, failing the request right away otherwise
+   *
+   * @return false if the request was answered with the dialog timeout error
+   */
+  private boolean checkRequestDeadline(GmlcStatAggregator.MapOperation operation) {
+    HttpRequest request = getHttpRequest();
+    if (request == null || request.deadline <= 0 || request.deadline - System.currentTimeMillis() >= MIN_DIALOG_TIMEOUT) {
+      return true;
+    }
+    if (logger.isFineEnabled()) {
+      logger.fine(String.format("%s request for MSISDN %s not sent, its deadline has passed", operation, request.msisdn));
+    }
+    gmlcStatAggregator.updateAppTimeouts();
+    this.handleDialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, gmlcPropertiesManagement.getDialogTimeoutErrorMessage());
+    return false;
+  }
+
+  private static long getPolicyTimeout(GmlcStatAggregator.MapOperation operation, HttpRequest request) {
+    TimeoutPolicy.Priority priority = request != null && request.lcsPriority == LCSPriority.highestPriority
+            ? TimeoutPolicy.Priority.HIGHEST : TimeoutPolicy.Priority.NORMAL;
+    TimeoutPolicy.ResponseTime responseTime = request != null && request.responseTimeCategory == ResponseTimeCategory.lowdelay
+            ? TimeoutPolicy.ResponseTime.LOWDELAY : TimeoutPolicy.ResponseTime.DELAYTOLERANT;
+    return timeoutPolicy.getTimeout(operation, priority, responseTime);
+  }
+
+  /**
+   * Give the pending request the deadline of its location operation under the timeout policy, counted from
+   * its arrival, failing it right away if the deadline has already passed
+   *
+   * @return false if the request was answered with the dialog timeout error
+   */
+  private boolean setRequestDeadline(LocationResultCache.Operation operation) {
+    HttpRequest request = getHttpRequest();
+    GmlcStatAggregator.MapOperation mapOperation = operation == LocationResultCache.Operation.PSL ? GmlcStatAggregator.MapOperation.PSL
+            : operation == LocationResultCache.Operation.PSI ? GmlcStatAggregator.MapOperation.PSI : GmlcStatAggregator.MapOperation.ATI;
+    request.deadline = request.receivedAt + getPolicyTimeout(mapOperation, request);
+    setHttpRequest(request);
+    if (request.deadline > System.currentTimeMillis()) {
+      return true;
+    }
+    if (logger.isFineEnabled()) {
+      logger.fine(String.format("%s request for MSISDN %s timed out before being sent", operation, request.msisdn));
+    }
+    gmlcStatAggregator.updateAppTimeouts();
+    this.handleDialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, gmlcPropertiesManagement.getDialogTimeoutErrorMessage());
+    return false;
+  }
+
+  /**
+   * Count a MAP request sent, remembering when for the latency of its response
+   */
+  private void updateMapRequestStat(GmlcStatAggregator.MapOperation operation) {
+    gmlcStatAggregator.updateRequests(operation);
+    this.setMapRequestSentAt(System.currentTimeMillis());
+  }
+
+  private void updateMapResponseStat(GmlcStatAggregator.MapOperation operation) {
+    gmlcStatAggregator.updateSuccesses(operation);
+    long sentAt = this.getMapRequestSentAt();
+    if (sentAt > 0) {
+      gmlcStatAggregator.updateLatency(operation, System.currentTimeMillis() - sentAt);
+    }
+  }
+
+  private void updateMapErrorStat(MAPDialog mapDialog, long errorCode) {
+    GmlcStatAggregator.MapOperation operation = getStatisticsOperation(mapDialog);
+    if (operation != null) {
+      gmlcStatAggregator.updateErrors(operation, errorCode);
+    }
+  }
+
+  private void updateDialogFailureStat(MAPDialog mapDialog, RecordStatus recordStatus) {
+    GmlcStatAggregator.MapOperation operation = getStatisticsOperation(mapDialog);
+    if (operation == null) {
+      return;
+    }
+    switch (recordStatus) {
+      case TCAP_DIALOG_TIMEOUT:
+      case FAILED_INVOKE_TIMEOUT:
+        gmlcStatAggregator.updateTimeouts(operation);
+        break;
+      case TCAP_DIALOG_USER_ABORT:
+      case TCAP_DIALOG_PROVIDER_ABORT:
+        gmlcStatAggregator.updateAborts(operation);
+        break;
+      case TCAP_DIALOG_REJECTED:
+      case FAILED_MAP_REJECT_COMPONENT:
+        gmlcStatAggregator.updateRejects(operation);
+        break;
+      default:
+        break;
+    }
+  }
+
   public void onRejectComponent(RejectComponent event, ActivityContextInterface aci) {
     if (this.logger.isFineEnabled()) {
       this.logger.fine("\nRx : onRejectComponent " + event);
@@ -3520,6 +3842,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
 
     this.handleDialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, "RejectedComponent: " + event);
     MAPDialog mapDialog = event.getMAPDialog();
+    this.updateDialogFailureStat(mapDialog, RecordStatus.FAILED_MAP_REJECT_COMPONENT);
     CDRInterface cdrInterface = this.getCDRInterface();
     GMLCCDRState gmlcCdrState = cdrInterface.getState();
     gmlcCdrState.init(mapDialog.getLocalDialogId(), mapDialog.getReceivedDestReference(), mapDialog.getReceivedOrigReference(),
@@ -3529,7 +3852,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     cdrInterface.setState(gmlcCdrState);
     SbbLocalObject sbbLO = (SbbLocalObject) cdrInterface;
     aci.attach(sbbLO);
-    this.setTimer(aci);
     if (gmlcCdrState.isInitialized()) {
       this.createCDRRecord(RecordStatus.FAILED_MAP_REJECT_COMPONENT);
     }
@@ -3566,233 +3888,139 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     setEventContext(eventContext);
     HttpServletRequest httpServletRequest = event.getRequest();
     HttpRequestType httpRequestType = HttpRequestType.fromPath(httpServletRequest.getPathInfo());
-    String requestingMLP, requestingMSISDN, coreNetwork, inputIllegalArgument="";
+    LocationRequest locationRequest;
+
+    // Requests failing to parse are answered according to their type, and for REST to the content type asked for
+    HttpRequest unparsedRequest = new HttpRequest(httpRequestType);
+    unparsedRequest.json = httpRequestType == HttpRequestType.REST && RestLocationRequestParser.acceptsJson(httpServletRequest);
+    setHttpRequest(unparsedRequest);
 
     switch (httpRequestType) {
-      case REST: {
-        requestingMSISDN = httpServletRequest.getParameter("msisdn");
+      case METRICS:
+        this.sendMetrics();
+        return;
+      case REST:
         try {
-          coreNetwork = httpServletRequest.getParameter("coreNetwork");
-          if (coreNetwork == null) {
-            coreNetwork = "gsm";
-          }
-
-          this.pslLcsPriority = httpServletRequest.getParameter("priority");
-          if (pslLcsPriority == null) {
-            pslLcsPriority = String.valueOf(LCSPriority.normalPriority);
-          } else if (!pslLcsPriority.equalsIgnoreCase("normalPriority") && !pslLcsPriority.equalsIgnoreCase("highestPriority")) {
-            inputIllegalArgument = "priority argument must be normalPriority or highestPriority";
-            throw new IllegalArgumentException();
-          }
+          locationRequest = restLocationRequestParser.parse(httpServletRequest);
+        } catch (IllegalArgumentException iae) {
+          handleLsmLocationResponse(MLPResponse.MLPResultType.FORMAT_ERROR, null, null, null, "Failure: " + iae.getMessage());
+          return;
+        } catch (Exception e) {
+          e.printStackTrace();
+          handleLsmLocationResponse(MLPResponse.MLPResultType.FORMAT_ERROR, null, null, null, "System Failure: Failed to read from server input stream");
+          return;
+        }
+        break;
+      case MLP:
+        try {
+          // Get the XML request from the POST data
+          InputStream body = httpServletRequest.getInputStream();
+          // Parse the request and retrieve the requested MSISDN and serviceid
+          MLPRequest mlpRequest = new MLPRequest(logger);
+          locationRequest = mlpRequest.parseRequest(body);
+        } catch (MLPException e) {
+          handleLsmLocationResponse(e.getMlpClientErrorType(), null, null, null, "System Failure: " + e.getMlpClientErrorMessage());
+          return;
+        } catch (IOException e) {
+          e.printStackTrace();
+          handleLsmLocationResponse(MLPResponse.MLPResultType.FORMAT_ERROR, null, null, null, "System Failure: Failed to read from server input stream");
+          return;
+        }
+        break;
+      default:
+        sendHTTPResult(HttpServletResponse.SC_NOT_FOUND, "Request URI unsupported");
+        return;
+    }
 
-          this.pslLcsHorizontalAccuracy = httpServletRequest.getParameter("horizontalAccuracy");
-          if (pslLcsHorizontalAccuracy == null) {
-            pslLcsHorizontalAccuracy = "999999";
-          }
+    String requestingMSISDN = locationRequest.getMsisdn();
+    HttpRequest httpRequest = new HttpRequest(httpRequestType, locationRequest);
+    httpRequest.receivedAt = unparsedRequest.receivedAt;
+    setHttpRequest(httpRequest);
 
-          this.pslLcsVerticalAccuracy = httpServletRequest.getParameter("verticalAccuracy");
-          if (pslLcsVerticalAccuracy == null) {
-            pslLcsVerticalAccuracy = "999999";
-          }
+    if (logger.isFineEnabled()) {
+      logger.fine(String.format("Handling %s request, MSISDN: %s from %s", httpRequestType.name().toUpperCase(), requestingMSISDN,
+              locationRequest.getCoreNetwork()));
+    }
 
-          this.pslVerticalCoordinateRequest   = httpServletRequest.getParameter("vertCoordinateRequest");
-          if (pslVerticalCoordinateRequest == null) {
-            pslVerticalCoordinateRequest = String.valueOf(false);
-          } else if (!pslVerticalCoordinateRequest.equalsIgnoreCase("true") && !pslVerticalCoordinateRequest.equalsIgnoreCase("false")) {
-            logger.info("");
-            inputIllegalArgument = "vertCoordinateRequest argument must be true or false";
-            throw new IllegalArgumentException();
-          }
+    if (locationRequest.isBatch()) {
+      eventContext.suspendDelivery();
+      setEventContextCMP(eventContext);
+      this.startBatch(locationRequest);
 
-          this.pslResponseTimeCategory = httpServletRequest.getParameter("responseTimeCategory");
-          if (pslResponseTimeCategory == null) {
-            pslResponseTimeCategory = String.valueOf(ResponseTimeCategory.delaytolerant);
-          } else if (!pslResponseTimeCategory.equalsIgnoreCase("delaytolerant") && !pslResponseTimeCategory.equalsIgnoreCase("lowdelay")) {
-            inputIllegalArgument = "responseTimeCategory argument must be delaytolerant or lowdelay";
-            throw new IllegalArgumentException();
-          }
+    } else if (requestingMSISDN != null) {
+      eventContext.suspendDelivery();
+      setEventContextCMP(eventContext);
+      if (this.admitClientRequest()) {
+        this.locate(locationRequest);
+      }
 
-          this.pslLocationEstimateType = httpServletRequest.getParameter("locationEstimateType");
-          if (pslLocationEstimateType == null) {
-            pslLocationEstimateType = String.valueOf(LocationEstimateType.currentOrLastKnownLocation);
-          } else if (!pslLocationEstimateType.equalsIgnoreCase("currentOrLastKnownLocation") && !pslLocationEstimateType.equalsIgnoreCase("initialLocation")
-                  && !pslLocationEstimateType.equalsIgnoreCase("currentLocation") && !pslLocationEstimateType.equalsIgnoreCase("activateDeferredLocation")
-                  && !pslLocationEstimateType.equalsIgnoreCase("cancelDeferredLocation")) {
-            inputIllegalArgument = "locationEstimateType argument must be one of currentLocation, currentOrLastKnownLocation, initialLocation, activateDeferredLocation or cancelDeferredLocation";
-            throw new IllegalArgumentException();
-          }
-
-          this.pslDeferredLocationEventType = httpServletRequest.getParameter("deferredLocationEventType");
-          if (pslDeferredLocationEventType == null) {
-            pslDeferredLocationEventType = "available";
-          } else if (!pslDeferredLocationEventType.equalsIgnoreCase("inside") && !pslDeferredLocationEventType.equalsIgnoreCase("entering")
-                  && !pslDeferredLocationEventType.equalsIgnoreCase("leaving") && !pslDeferredLocationEventType.equalsIgnoreCase("available")) {
-            inputIllegalArgument = "deferredLocationEventType argument must be one of available, inside, entering or leaving";
-            throw new IllegalArgumentException();
-          }
-
-          this.pslAreaType = httpServletRequest.getParameter("areaType");
-          if (pslAreaType == null) {
-            pslAreaType = String.valueOf(AreaType.cellGlobalId);
-          } else if (!pslAreaType.equalsIgnoreCase("locationAreaId") && !pslAreaType.equalsIgnoreCase("cellGlobalId")
-                  && !pslAreaType.equalsIgnoreCase("countryCode") && !pslAreaType.equalsIgnoreCase("plmnId") &&
-                  !pslAreaType.equalsIgnoreCase("routingAreaId") && !pslAreaType.equalsIgnoreCase("utranCellId")) {
-            inputIllegalArgument = "areaType argument must be one of locationAreaId, cellGlobalId, countryCode, plmnId, routingAreaId or utranCellId";
-            throw new IllegalArgumentException();
-          }
-
-          this.pslAreaId = httpServletRequest.getParameter("areaId");
-          if (pslAreaId == null) {
-            pslAreaId = "9999999";
-          }
-
-          this.pslOccurrenceInfo = httpServletRequest.getParameter("occurrenceInfo");
-          if (pslOccurrenceInfo == null) {
-            pslOccurrenceInfo = String.valueOf(OccurrenceInfo.oneTimeEvent);
-          } else if (!pslOccurrenceInfo.equalsIgnoreCase("oneTimeEvent") && !pslOccurrenceInfo.equalsIgnoreCase("multipleTimeEvent")) {
-            inputIllegalArgument = "occurrenceInfo argument must be oneTimeEvent or multipleTimeEvent";
-            throw new IllegalArgumentException();
-          }
-
-          try {
-            this.pslLcsReferenceNumber = Integer.parseInt(httpServletRequest.getParameter("lcsReferenceNumber"));
-          } catch (NumberFormatException nfe) {
-            pslLcsReferenceNumber = 0;
-          }
-
-          this.pslLcsServiceTypeID =  httpServletRequest.getParameter("lcsServiceTypeID");
-          if (pslLcsServiceTypeID == null) {
-            pslLcsServiceTypeID = "1";
-          }
-
-          this.pslIntervalTime =  httpServletRequest.getParameter("intervalTime");
-          if (pslIntervalTime == null) {
-            pslIntervalTime = "999999";
-          }
-
-          this.pslReportingAmount =  httpServletRequest.getParameter("reportingAmount");
-          if (pslReportingAmount == null) {
-            pslReportingAmount = "0";
-          }
-
-          this.pslReportingInterval =  httpServletRequest.getParameter("reportingInterval");
-          if (pslReportingInterval == null) {
-            pslReportingInterval = "999999";
-          }
-
-          this.slrCallbackUrl = httpServletRequest.getParameter("slrCallbackUrl");
-          if (this.slrCallbackUrl == null) {
-            slrCallbackUrl = "http://localhost:8080";
-          }
-
-          this.psiService = httpServletRequest.getParameter("psiService");
-          if (psiService == null) {
-            psiService = "false";
-          }
-
-          this.psiServiceType = httpServletRequest.getParameter("psiServiceType");
-          if (psiServiceType == null) {
-            psiServiceType = "sriFirst";
-          }
-          if (psiServiceType.equalsIgnoreCase("psiFirst")) {
-            psiServiceType = "psiFirst";
-          } else {
-            psiServiceType = "sriFirst";
-          }
-
-          this.psiOnlyImsi = httpServletRequest.getParameter("psiImsi");
-          this.psiOnlyNnn = httpServletRequest.getParameter("psiNnn");
-          if (psiOnlyImsi != null && psiOnlyNnn != null && psiServiceType.equalsIgnoreCase("psiFirst")) {
-            psiServiceType = "psiFirst";
-          }
-
-
-        } catch (IllegalArgumentException iae) {
-          iae.printStackTrace();
-          handleLsmLocationResponse(MLPResponse.MLPResultType.FORMAT_ERROR, null, null, null, "Failure: " + inputIllegalArgument);
-          return;
-        } catch (Exception e) {
-          e.printStackTrace();
-          handleLsmLocationResponse(MLPResponse.MLPResultType.FORMAT_ERROR, null, null, null, "System Failure: Failed to read from server input stream");
-          return;
-        }
+    } else {
+      logger.info("MSISDN is null, sending back -1 for Global Cell Identity");
+      handleLsmLocationResponse(MLPResponse.MLPResultType.FORMAT_ERROR, null, null, null, "Invalid MSISDN specified");
+    }
+  }
 
-      }
-      break;
-      case MLP:
-        try {
-          // Get the XML request from the POST data
-          InputStream body = httpServletRequest.getInputStream();
-          // Parse the request and retrieve the requested MSISDN and coreNetwork
-          MLPRequest mlpRequest = new MLPRequest(logger);
-          requestingMLP = mlpRequest.parseRequest(body);
-          String[] output = requestingMLP.split(";");
-          requestingMSISDN = output[0];
-          coreNetwork = output[1];
-          this.pslLcsPriority =  output[2];
-          this.pslLcsHorizontalAccuracy= output[3];
-          this.pslLcsVerticalAccuracy = output[4];
-          this.pslVerticalCoordinateRequest  = output[5];
-          this.pslResponseTimeCategory = output[6];
-          this.pslLocationEstimateType = output[7];
-          this.pslDeferredLocationEventType = output[8];
-          this.pslAreaType = output[9];
-          this.pslAreaId = output[10];
-          this.pslOccurrenceInfo = output[11];
-          this.pslLcsReferenceNumber = Integer.parseInt(output[12]);
-          this.pslLcsServiceTypeID  = output[13];
-          this.pslIntervalTime = output[14];
-          this.pslReportingAmount = output[15];
-          this.pslReportingInterval = output[16];
-          this.slrCallbackUrl = output[17];
-          this.psiService = output[18];
+  /**
+   * Locate the subscriber of the pending request, from the location cache, by joining a lookup
+   * already in progress or through a new MAP dialog
+   */
+  private void locate(LocationRequest locationRequest) {
+    String requestingMSISDN = locationRequest.getMsisdn();
+    LocationResultCache.Operation operation;
+    if (locationRequest.isPsiService()) {
+      operation = LocationResultCache.Operation.PSI;
+    } else if (locationRequest.getCoreNetwork().equals("UMTS")) {
+      operation = LocationResultCache.Operation.PSL;
+    } else {
+      operation = LocationResultCache.Operation.ATI;
+    }
+    if (this.handleCachedLocationResult(operation, requestingMSISDN)
+            || !this.setRequestDeadline(operation)
+            || !this.admitLocationRequest(operation)
+            || this.coalesceLocationRequest(operation, requestingMSISDN)) {
+      return;
+    }
 
-        } catch (MLPException e) {
-          handleLsmLocationResponse(e.getMlpClientErrorType(), null, null, null, "System Failure: " + e.getMlpClientErrorMessage());
-          return;
-        } catch (IOException e) {
-          e.printStackTrace();
-          handleLsmLocationResponse(MLPResponse.MLPResultType.FORMAT_ERROR, null, null, null, "System Failure: Failed to read from server input stream");
-          return;
-        }
+    switch (operation) {
+      case PSI:
+        if (locationRequest.isPsiOnly())
+          provideSubscriberInfoRequestFirst(locationRequest.getPsiImsi(), locationRequest.getPsiNnn());
+        else
+          getLocationViaSubscriberInformation(requestingMSISDN);
+        break;
+      case PSL:
+        getMsisdnGeolocationViaLsm(requestingMSISDN);
         break;
       default:
-        sendHTTPResult(HttpServletResponse.SC_NOT_FOUND, "Request URI unsupported");
-        return;
+        getMsisdnCellGlobalId(requestingMSISDN);
+        break;
     }
+  }
 
-    setHttpRequest(new HttpRequest(httpRequestType, requestingMSISDN, coreNetwork, pslLcsPriority, Integer.parseInt(pslLcsHorizontalAccuracy),
-            Integer.parseInt(pslLcsVerticalAccuracy), pslVerticalCoordinateRequest, pslResponseTimeCategory, pslLcsReferenceNumber,
-            Integer.parseInt(pslLcsServiceTypeID), pslAreaType, pslAreaId, pslOccurrenceInfo, Integer.parseInt(pslIntervalTime),
-            Integer.parseInt(pslReportingAmount), Integer.parseInt(pslReportingInterval), slrCallbackUrl, psiService));
+  /**
+   * Answer a request carrying several MSISDNs, which only the SBB answering client requests fans out
+   * to batch members: any other entity rejects it
+   */
+  protected void startBatch(LocationRequest locationRequest) {
+    this.handleDialogError(MLPResponse.MLPResultType.FORMAT_ERROR, "Batch location requests are not accepted");
+  }
 
-    if (logger.isFineEnabled()) {
-      logger.fine(String.format("Handling %s request, MSISDN: %s from %s", httpRequestType.name().toUpperCase(), requestingMSISDN, coreNetwork));
+  /**
+   * Hand the result of the subscriber located by this batch member to the SBB answering the batch,
+   * or keep it for the parent to take when it is obtained while the parent is starting this member
+   */
+  private void completeBatchMember(BatchLocationRequest.MemberResult result) {
+    this.releaseAdmission();
+    HttpRequest request = getHttpRequest();
+    if (request.batchStarting) {
+      request.batchResult = result;
+      setHttpRequest(request);
+      return;
     }
-
-    if (requestingMSISDN != null) {
-      eventContext.suspendDelivery();
-      setEventContextCMP(eventContext);
-      if (psiService.equalsIgnoreCase("true")) {
-        if (!psiServiceType.equalsIgnoreCase("psiFirst")) {
-          getLocationViaSubscriberInformation(requestingMSISDN);
-        } else {
-          if (psiOnlyImsi != null && psiOnlyNnn != null)
-            provideSubscriberInfoRequestFirst(psiOnlyImsi, psiOnlyNnn);
-          else
-            getLocationViaSubscriberInformation(requestingMSISDN);
-        }
-      } else {
-        if (coreNetwork.equalsIgnoreCase("UMTS")) {
-          getMsisdnGeolocationViaLsm(requestingMSISDN);
-        } else {
-          getMsisdnCellGlobalId(requestingMSISDN);
-        }
-      }
-
-    } else {
-      logger.info("MSISDN is null, sending back -1 for Global Cell Identity");
-      handleLsmLocationResponse(MLPResponse.MLPResultType.FORMAT_ERROR, null, null, null, "Invalid MSISDN specified");
+    try {
+      request.batchParent.batchMemberCompleted(request.batchIndex, result);
+    } catch (Exception e) {
+      logger.severe("Error while handing the result of batch MSISDN " + request.msisdn + " to the batch", e);
     }
   }
 
@@ -3811,10 +4039,6 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
 
   public abstract HttpRequest getHttpRequest();
 
-  public abstract void setTimerID(TimerID value);
-
-  public abstract TimerID getTimerID();
-
   public abstract void setGMLCCDRState(GMLCCDRState gmlcSdrState);
 
   public abstract GMLCCDRState getGMLCCDRState();
@@ -3843,6 +4067,14 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
 
   public abstract MAPErrorMessage getErrorResponse();
 
+  public abstract void setMapRequestSentAt(long mapRequestSentAt);
+
+  public abstract long getMapRequestSentAt();
+
+  public abstract void setMapDestination(String mapDestination);
+
+  public abstract String getMapDestination();
+
   /**
    * Private helper methods
    */
@@ -3853,12 +4085,16 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
   private void getMsisdnCellGlobalId(String requestingMSISDN) {
 
     if (!requestingMSISDN.equals(fakeNumber)) {
+      if (!this.checkRequestDeadline(GmlcStatAggregator.MapOperation.ATI)) {
+        return;
+      }
       try {
         AddressString originAddressString, destinationAddressString;
         originAddressString = destinationAddressString = null;
+        SccpAddress hlrAddress = getHlrSCCPAddress(requestingMSISDN);
         MAPDialogMobility mapDialogMobility = this.mapProvider.getMAPServiceMobility().createNewDialog(
-                this.getMAPAtiApplicationContext(), this.getGmlcSccpAddress(), originAddressString,
-                getHlrSCCPAddress(requestingMSISDN), destinationAddressString);
+                this.getMAPAtiApplicationContext(hlrAddress), this.getGmlcSccpAddress(), originAddressString,
+                hlrAddress, destinationAddressString);
         ISDNAddressString msisdn = new ISDNAddressStringImpl(AddressNature.international_number,
                 org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan.ISDN, requestingMSISDN);
         SubscriberIdentity subscriberIdentity = new SubscriberIdentityImpl(msisdn);
@@ -3876,15 +4112,15 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         // locationInformation: true (response includes mcc, mnc, lac, cellid, aol, vlrNumber)
         // subscriberState: true (response can be assumedIdle, camelBusy, networkDeterminedNotReachable, notProvidedFromVlr)
         // Rest of params are null or not requested
-        ISDNAddressString gscmSCFAddress = new ISDNAddressStringImpl(AddressNature.international_number,
-                org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan.ISDN,
-                gmlcPropertiesManagement.getGmlcGt());
+        ISDNAddressString gscmSCFAddress = sccpAddressCache.getGmlcISDNAddressString();
 
         mapDialogMobility.addAnyTimeInterrogationRequest(subscriberIdentity, requestedInfo, gscmSCFAddress, mapExtensionContainer);
 
         ActivityContextInterface atiDialogACI = this.mapAcif.getActivityContextInterface(mapDialogMobility);
         atiDialogACI.attach(this.sbbContext.getSbbLocalObject());
         mapDialogMobility.send();
+        this.updateMapRequestStat(GmlcStatAggregator.MapOperation.ATI);
+        this.superviseDialog(mapDialogMobility, GmlcStatAggregator.MapOperation.ATI);
 
       } catch (MAPException e) {
         this.logger.severe("MAPException while trying to send MAP ATI request for MSISDN=" + requestingMSISDN, e);
@@ -3927,23 +4163,41 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
   private void getMsisdnGeolocationViaLsm(String requestingMSISDN) {
 
     if (!requestingMSISDN.equals(fakeNumber)) {
+      if (!this.checkRequestDeadline(GmlcStatAggregator.MapOperation.SRI_FOR_LCS)) {
+        return;
+      }
       try {
+        ISDNAddressString msisdn = new ISDNAddressStringImpl(AddressNature.international_number,
+                org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan.ISDN, requestingMSISDN);
+        CachedValue routingInfo = routingInfoCache.get(RoutingInfoCache.Operation.SRI_FOR_LCS, requestingMSISDN);
+        if (routingInfo == RoutingInfoCache.UNKNOWN_SUBSCRIBER) {
+          this.handleCachedUnknownSubscriber(requestingMSISDN);
+          return;
+        } else if (routingInfo != null) {
+          // skip SRIforLCS, the serving node of the subscriber is already known
+          SriForLcsResponseValues sriForLcsResponseValues = (SriForLcsResponseValues) routingInfo;
+          this.sendProvideSubscriberLocationRequest(sriForLcsResponseValues.getNetworkNodeNumber(), sriForLcsResponseValues.getImsi(),
+                  msisdn, sriForLcsResponseValues.getLmsi(), null, sriForLcsResponseValues.gethGmlcAddress(),
+                  this.getCDRInterface().getState());
+          return;
+        }
+
         AddressString originAddressString, destinationAddressString;
         originAddressString = destinationAddressString = null;
+        SccpAddress hlrAddress = getHlrSCCPAddress(requestingMSISDN);
         MAPDialogLsm mapDialogLsmSRIforLCS = this.mapProvider.getMAPServiceLsm().createNewDialog(
-                this.getMAPSRIforLCSApplicationContext(),  this.getGmlcSccpAddress(), originAddressString,
-                getHlrSCCPAddress(requestingMSISDN), destinationAddressString);
-        ISDNAddressString msisdn = new ISDNAddressStringImpl(AddressNature.international_number,
-                org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan.ISDN, requestingMSISDN);
+                this.getMAPSRIforLCSApplicationContext(hlrAddress),  this.getGmlcSccpAddress(), originAddressString,
+                hlrAddress, destinationAddressString);
         SubscriberIdentity subscriberIdentity = new SubscriberIdentityImpl(msisdn);
-        ISDNAddressString gmlcAddress = new ISDNAddressStringImpl(AddressNature.international_number,
-                org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan.ISDN, this.getGmlcSccpAddress().getGlobalTitle().getDigits());
+        ISDNAddressString gmlcAddress = sccpAddressCache.getGmlcISDNAddressString();
         MAPExtensionContainer mapExtensionContainer = null;
         mapDialogLsmSRIforLCS.addSendRoutingInfoForLCSRequest(gmlcAddress, subscriberIdentity, mapExtensionContainer);
         // Create the ACI and attach this SBB
         ActivityContextInterface sriForLcsDialogACI = this.mapAcif.getActivityContextInterface(mapDialogLsmSRIforLCS);
         sriForLcsDialogACI.attach(this.sbbContext.getSbbLocalObject());
         mapDialogLsmSRIforLCS.send();
+        this.updateMapRequestStat(GmlcStatAggregator.MapOperation.SRI_FOR_LCS);
+        this.superviseDialog(mapDialogLsmSRIforLCS, GmlcStatAggregator.MapOperation.SRI_FOR_LCS);
 
       } catch (MAPException e) {
         this.logger.severe("MAPException while trying to send MAP SRIforLCS request for MSISDN=" + requestingMSISDN, e);
@@ -4028,17 +4282,33 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
   private void getLocationViaSubscriberInformation(String requestingMSISDN) {
 
     if (!requestingMSISDN.equals(fakeNumber)) {
+      if (!this.checkRequestDeadline(GmlcStatAggregator.MapOperation.SRI_FOR_SM)) {
+        return;
+      }
       try {
+        CachedValue routingInfo = routingInfoCache.get(RoutingInfoCache.Operation.SRI_FOR_SM, requestingMSISDN);
+        if (routingInfo == RoutingInfoCache.UNKNOWN_SUBSCRIBER) {
+          this.handleCachedUnknownSubscriber(requestingMSISDN);
+          return;
+        } else if (routingInfo != null) {
+          // skip SRIforSM, the serving node of the subscriber is already known
+          SriForSmResponseValues sriForSmResponseValues = (SriForSmResponseValues) routingInfo;
+          this.setSriForSMImsi(new String(sriForSmResponseValues.getImsi().getData().getBytes()));
+          this.sendProvideSubscriberInfoRequest(sriForSmResponseValues.getImsi(), sriForSmResponseValues.getLmsi(),
+                  sriForSmResponseValues.getNetworkNodeNumber(), null);
+          return;
+        }
+
         AddressString originAddressString, destinationAddressString;
         originAddressString = destinationAddressString = null;
+        SccpAddress hlrAddress = getHlrSCCPAddress(requestingMSISDN);
         MAPDialogSms mapDialogSms = this.mapProvider.getMAPServiceSms().createNewDialog(
-                this.getMAPSRIforSMApplicationContext(), this.getGmlcSccpAddress(), originAddressString,
-                getHlrSCCPAddress(requestingMSISDN), destinationAddressString);
+                this.getMAPSRIforSMApplicationContext(hlrAddress), this.getGmlcSccpAddress(), originAddressString,
+                hlrAddress, destinationAddressString);
         ISDNAddressString msisdn = new ISDNAddressStringImpl(AddressNature.international_number,
                 org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan.ISDN, requestingMSISDN);
         boolean sm_RP_PRI = true;
-        AddressString serviceCentreAddressString = this.mapParameterFactory.createAddressString(AddressNature.international_number,
-                org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan.ISDN, gmlcPropertiesManagement.getGmlcGt());
+        AddressString serviceCentreAddressString = sccpAddressCache.getGmlcAddressString();
         mapDialogSms.addSendRoutingInfoForSMRequest(msisdn, sm_RP_PRI, serviceCentreAddressString,
                 null, false, null, null, null);
         // Create the ACI and attach this SBB
@@ -4047,6 +4317,8 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
 
         // Send SRIforSM
         mapDialogSms.send();
+        this.updateMapRequestStat(GmlcStatAggregator.MapOperation.SRI_FOR_SM);
+        this.superviseDialog(mapDialogSms, GmlcStatAggregator.MapOperation.SRI_FOR_SM);
 
       } catch (MAPException e) {
         this.logger.severe("MAPException while trying to send MAP ATI request for MSISDN=" + requestingMSISDN, e);
@@ -4083,74 +4355,437 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
   }
 
 
-  protected SccpAddress getGmlcSccpAddress() {
+  /**
+   * Answer a subscriber the HLR recently reported as unknown with the same error
+   * the SRIforLCS or SRIforSM unknownSubscriber error component would produce
+   */
+  private void handleCachedUnknownSubscriber(String requestingMSISDN) {
+    if (logger.isFineEnabled()) {
+      logger.fine(String.format("MSISDN %s served from unknown subscriber cache", requestingMSISDN));
+    }
+    this.handleDialogError(MLPResponse.MLPResultType.UNKNOWN_SUBSCRIBER, "Component error: "
+            + String.valueOf(MAPErrorCode.unknownSubscriber) + " : unknown subscriber " + requestingMSISDN);
+  }
 
-    if (this.gmlcSCCPAddress == null) {
-      int translationType = 0; // Translation Type = 0 : Unknown
-      EncodingScheme encodingScheme = null;
-      GlobalTitle gt = sccpParameterFact.createGlobalTitle(gmlcPropertiesManagement.getGmlcGt(), translationType,
-              NumberingPlan.ISDN_TELEPHONY, encodingScheme, NatureOfAddress.INTERNATIONAL);
-      this.gmlcSCCPAddress = sccpParameterFact.createSccpAddress(RoutingIndicator.ROUTING_BASED_ON_GLOBAL_TITLE,
-              gt, translationType, gmlcPropertiesManagement.getGmlcSsn());
+  /**
+   * Whether the requested location estimate type allows a previously obtained location to be returned.
+   * Only currentOrLastKnownLocation may be answered from cache; currentLocation, initialLocation and
+   * deferred location requests always go to the network.
+   */
+  private boolean isLocationCacheable() {
+    LocationRequest locationRequest = this.getLocationRequest();
+    return locationRequest == null
+            || locationRequest.getLocationEstimateType() == LocationEstimateType.currentOrLastKnownLocation;
+  }
+
+  /**
+   * Location request being answered, kept in the CMP request as the SBB object may serve other entities between events
+   */
+  private LocationRequest getLocationRequest() {
+    HttpRequest request = getHttpRequest();
+    return request != null ? request.locationRequest : null;
+  }
+
+  private String getSriForSMImsi() {
+    HttpRequest request = getHttpRequest();
+    return request != null ? request.sriForSMImsi : null;
+  }
 
-//			GlobalTitle0100 gt = new GlobalTitle0100Impl(gmlcPropertiesManagement.getGmlcGt(),0,BCDEvenEncodingScheme.INSTANCE,NumberingPlan.ISDN_TELEPHONY,NatureOfAddress.INTERNATIONAL);
-//			this.serviceCenterSCCPAddress = new SccpAddressImpl(RoutingIndicator.ROUTING_BASED_ON_GLOBAL_TITLE, gt, 0, gmlcPropertiesManagement.getGmlcSsn());
+  private void setSriForSMImsi(String imsi) {
+    HttpRequest request = getHttpRequest();
+    if (request != null) {
+      request.sriForSMImsi = imsi;
+      setHttpRequest(request);
     }
-    return this.gmlcSCCPAddress;
   }
 
-  private MAPApplicationContext getMAPAtiApplicationContext() {
+  /**
+   * Answer the pending HTTP request with a cached location result, if a fresh one is held for the MSISDN
+   *
+   * @param operation        MAP operation the request would be served with
+   * @param requestingMSISDN target MSISDN
+   * @return true if the request was answered from cache
+   */
+  private boolean handleCachedLocationResult(LocationResultCache.Operation operation, String requestingMSISDN) {
+    if (!isLocationCacheable()) {
+      return false;
+    }
+    CachedValue cachedResult = locationResultCache.get(operation, requestingMSISDN);
+    if (cachedResult == null) {
+      return false;
+    }
 
-    if (this.anyTimeEnquiryContext == null) {
-      this.anyTimeEnquiryContext = MAPApplicationContext.getInstance(
-              MAPApplicationContextName.anyTimeEnquiryContext, MAPApplicationContextVersion.version3);
+    if (logger.isFineEnabled()) {
+      logger.fine(String.format("Location of MSISDN %s served from %s cache", requestingMSISDN, operation));
+    }
+    switch (operation) {
+      case ATI:
+        this.handleLocationResponse(MLPResponse.MLPResultType.OK, (AtiResponseValues) cachedResult, null);
+        break;
+      case PSL:
+        this.handleLsmLocationResponse(MLPResponse.MLPResultType.OK, null, (PslResponseValues) cachedResult, null, null);
+        break;
+      case PSI:
+        PsiResponseValues psiResponseValues = (PsiResponseValues) cachedResult;
+        this.setSriForSMImsi(psiResponseValues.getImsiData());
+        this.handlePsiResponse(MLPResponse.MLPResultType.OK, psiResponseValues, null);
+        break;
     }
-    return this.anyTimeEnquiryContext;
+    return true;
   }
 
-  private MAPApplicationContext getMAPSRIforLCSApplicationContext() {
-    if (this.locationSvcGatewayContext == null) {
-      this.locationSvcGatewayContext = MAPApplicationContext.getInstance(
-              MAPApplicationContextName.locationSvcGatewayContext, MAPApplicationContextVersion.version3);
+  /**
+   * Keep a successful location result for later currentOrLastKnownLocation requests on the same MSISDN
+   */
+  private void storeLocationResult(LocationResultCache.Operation operation, CachedValue result) {
+    HttpRequest request = getHttpRequest();
+    if (request == null || !isLocationCacheable()
+            && this.getLocationRequest().getLocationEstimateType() != LocationEstimateType.currentLocation) {
+      return;
     }
-    return this.locationSvcGatewayContext;
+    locationResultCache.put(operation, request.msisdn, result);
   }
 
-  private MAPApplicationContext getMAPPslSlrApplicationContext() {
-    if (this.locationSvcEnquiryContext == null) {
-      this.locationSvcEnquiryContext = MAPApplicationContext.getInstance(
-              MAPApplicationContextName.locationSvcEnquiryContext, MAPApplicationContextVersion.version3);
+  /**
+   * Admission control of the pending HTTP request: rejected straight away with the server overloaded message
+   * when the MAP dialogs in progress reach maxActivityCount or too many requests are pending for the operation
+   *
+   * @return true if the request was admitted
+   */
+  private boolean admitLocationRequest(LocationResultCache.Operation operation) {
+    if (!this.checkMaxActivityCount(gmlcPropertiesManagement.getMaxActivityCount())) {
+      admissionControl.shedOnOverload();
+      this.rejectOverloadedRequest(operation);
+      return false;
+    }
+    if (!admissionControl.admit(operation)) {
+      this.rejectOverloadedRequest(operation);
+      return false;
     }
-    return this.locationSvcEnquiryContext;
+    HttpRequest request = getHttpRequest();
+    request.admittedOperation = operation;
+    setHttpRequest(request);
+    return true;
   }
 
-  private MAPApplicationContext getMAPSRIforSMApplicationContext() {
-    if (this.shortMsgGatewayContext == null) {
-      this.shortMsgGatewayContext = MAPApplicationContext.getInstance(
-              MAPApplicationContextName.shortMsgGatewayContext, MAPApplicationContextVersion.version3);
+  /**
+   * Rate limit and concurrency quota of the client sending the pending HTTP request: rejected straight away
+   * when the client exceeds either of them
+   *
+   * @return true if the request was admitted
+   */
+  protected boolean admitClientRequest() {
+    HttpRequest request = getHttpRequest();
+    ClientRateLimiter.Admission admission = clientRateLimiter.acquire(request.clientId);
+    ClientRateLimiter.Result result = admission.getResult();
+    if (result == ClientRateLimiter.Result.ADMITTED) {
+      if (admission.isCounted()) {
+        request.clientAdmission = admission;
+        setHttpRequest(request);
+      }
+      return true;
+    }
+
+    String rejectionMessage = String.format("Client %s exceeded its %s", request.clientId,
+            result == ClientRateLimiter.Result.RATE_EXCEEDED ? "rate limit" : "concurrency quota");
+    if (logger.isFineEnabled()) {
+      logger.fine(String.format("Request for MSISDN %s rejected: %s", request.msisdn, rejectionMessage));
     }
-    return this.shortMsgGatewayContext;
+    switch (request.type) {
+      case REST:
+        this.sendHTTPResult(SC_TOO_MANY_REQUESTS, rejectionMessage);
+        break;
+
+      case MLP:
+        this.sendMLPPositionError(MLPResponse.MLPResultType.CONGESTION_IN_LOCATION_SERVER, rejectionMessage);
+        break;
+    }
+    return false;
   }
 
-  private MAPApplicationContext getMAPPsiApplicationContext() {
-    if (this.subscriberInfoEnquiryContext == null) {
-      this.subscriberInfoEnquiryContext = MAPApplicationContext.getInstance(
-              MAPApplicationContextName.subscriberInfoEnquiryContext, MAPApplicationContextVersion.version3);
+  private void rejectOverloadedRequest(LocationResultCache.Operation operation) {
+    HttpRequest request = getHttpRequest();
+    String serverOverloadedMessage = gmlcPropertiesManagement.getServerOverloadedMessage();
+    if (logger.isFineEnabled()) {
+      logger.fine(String.format("%s request for MSISDN %s rejected: %s", operation, request.msisdn, serverOverloadedMessage));
+    }
+    switch (request.type) {
+      case REST:
+        this.sendHTTPResult(HttpServletResponse.SC_SERVICE_UNAVAILABLE, serverOverloadedMessage);
+        break;
+
+      case MLP:
+        this.sendMLPPositionError(MLPResponse.MLPResultType.SYSTEM_FAILURE, serverOverloadedMessage);
+        break;
     }
-    return this.subscriberInfoEnquiryContext;
   }
 
-  private SccpAddress getHlrSCCPAddress(String address) {
+  /**
+   * Give back the admission control and client quota slots held by the pending HTTP request, once it has been answered,
+   * at most once since the slots held are recorded in the CMP request
+   */
+  protected void releaseAdmission() {
+    HttpRequest request;
+    try {
+      request = getHttpRequest();
+    } catch (Exception e) {
+      return;
+    }
+    if (request == null) {
+      return;
+    }
+    if (request.admittedOperation != null || request.clientAdmission != null) {
+      if (request.admittedOperation != null) {
+        admissionControl.release(request.admittedOperation);
+        request.admittedOperation = null;
+      }
+      if (request.clientAdmission != null) {
+        clientRateLimiter.release(request.clientAdmission);
+        request.clientAdmission = null;
+      }
+      setHttpRequest(request);
+    }
+  }
+
+  /**
+   * Attach the pending HTTP request to a lookup already in progress for the same MSISDN and operation,
+   * or register it as the leader of a new one
+   *
+   * @return true if the request was attached and will be answered by the leading lookup
+   */
+  private boolean coalesceLocationRequest(LocationResultCache.Operation operation, String requestingMSISDN) {
+    if (!isLocationCacheable() || requestingMSISDN.equals(fakeNumber)) {
+      return false;
+    }
+    HttpRequest request = getHttpRequest();
+    if (locationRequestCoalescer.join(operation, requestingMSISDN, this.sbbContext.getSbbLocalObject(), request.deadline)) {
+      if (logger.isFineEnabled()) {
+        logger.fine(String.format("%s request for MSISDN %s attached to lookup in progress", operation, requestingMSISDN));
+      }
+      request.coalescedOperation = operation;
+      setHttpRequest(request);
+      this.setNullActivityTimer(request.deadline);
+      return true;
+    }
+    request.leadingOperation = operation;
+    setHttpRequest(request);
+    return false;
+  }
+
+  /**
+   * Set a timer on a null activity of its own, since the delivery of events on the HTTP request activity
+   * is suspended until the request is answered: the deadline of a request waiting on a coalesced lookup,
+   * or the wake up of a batch request whose members have handed back results
+   */
+  private void setNullActivityTimer(long time) {
+    try {
+      NullActivity nullActivity = this.sbbContext.getNullActivityFactory().createNullActivity();
+      ActivityContextInterface nullActivityContextInterface =
+              this.sbbContext.getNullActivityContextInterfaceFactory().getActivityContextInterface(nullActivity);
+      nullActivityContextInterface.attach(this.sbbContext.getSbbLocalObject());
+      this.timerFacility.setTimer(nullActivityContextInterface, null, time, new TimerOptions());
+    } catch (Exception e) {
+      logger.severe("Could not set the timer of a location request", e);
+    }
+  }
+
+  /**
+   * End the null activity carrying the coalesced lookup timer, which cancels the timer along with it
+   */
+  private void endCoalescedLookupTimer() {
+    for (ActivityContextInterface activityContextInterface : this.sbbContext.getActivities()) {
+      if (activityContextInterface.getActivity() instanceof NullActivity) {
+        ((NullActivity) activityContextInterface.getActivity()).endActivity();
+      }
+    }
+  }
+
+  /**
+   * Timer of a request waiting on a coalesced lookup which did not complete before the request deadline
+   */
+  public void onTimerEvent(TimerEvent event, ActivityContextInterface aci) {
+    HttpRequest request = getHttpRequest();
+    if (aci.getActivity() instanceof NullActivity) {
+      ((NullActivity) aci.getActivity()).endActivity();
+    }
+    if (request == null || request.coalescedOperation == null) {
+      return;
+    }
+    locationRequestCoalescer.leave(request.coalescedOperation, request.msisdn, this.sbbContext.getSbbLocalObject());
+    request.coalescedOperation = null;
+    setHttpRequest(request);
+    if (logger.isFineEnabled()) {
+      logger.fine(String.format("Request for MSISDN %s timed out waiting on the lookup in progress", request.msisdn));
+    }
+    gmlcStatAggregator.updateAppTimeouts();
+    this.handleDialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, gmlcPropertiesManagement.getDialogTimeoutErrorMessage());
+  }
+
+  /**
+   * Clean up a coalesced lookup this entity takes part in when it goes away without completing it:
+   * a leader hands the failure to its waiters, a waiter leaves the lookup
+   */
+  private void abandonCoalescedLookup(String errorMessage) {
+    HttpRequest request;
+    try {
+      request = getHttpRequest();
+    } catch (Exception e) {
+      return;
+    }
+    if (request == null) {
+      return;
+    }
+    if (request.leadingOperation != null) {
+      this.answerCoalescedRequests(CoalescedLookupResult.dialogError(MLPResponse.MLPResultType.SYSTEM_FAILURE, errorMessage));
+    } else if (request.coalescedOperation != null) {
+      locationRequestCoalescer.leave(request.coalescedOperation, request.msisdn, this.sbbContext.getSbbLocalObject());
+      request.coalescedOperation = null;
+      setHttpRequest(request);
+    }
+  }
+
+  /**
+   * End the lookup led by this SBB and hand its outcome to every SBB entity that waits on it,
+   * each of them answers its own HTTP request
+   */
+  private void answerCoalescedRequests(CoalescedLookupResult result) {
+    HttpRequest request = getHttpRequest();
+    if (request == null || request.leadingOperation == null) {
+      return;
+    }
+    List<Object> waiters = locationRequestCoalescer.release(request.leadingOperation, request.msisdn);
+    request.leadingOperation = null;
+    setHttpRequest(request);
+    if (waiters.isEmpty()) {
+      return;
+    }
+
+    try {
+      GMLCCDRState cdrState = this.getCDRInterface().getState();
+      if (cdrState != null && cdrState.isInitialized()) {
+        result.setCdrState(cdrState);
+      }
+    } catch (Exception e) {
+      logger.warning("Could not get the CDR state of the lookup for MSISDN " + request.msisdn, e);
+    }
+    for (Object waiter : waiters) {
+      try {
+        ((MobileCoreNetworkInterfaceSbbLocalObject) waiter).coalescedLookupCompleted(result);
+      } catch (Exception e) {
+        logger.warning("Could not answer coalesced request for MSISDN " + request.msisdn, e);
+      }
+    }
+  }
 
-    int translationType = 0; // Translation Type = 0 : Unknown
-    EncodingScheme encodingScheme = null;
-    GlobalTitle gt = sccpParameterFact.createGlobalTitle(address, translationType, NumberingPlan.ISDN_TELEPHONY, encodingScheme,
-            NatureOfAddress.INTERNATIONAL);
-    return sccpParameterFact.createSccpAddress(RoutingIndicator.ROUTING_BASED_ON_GLOBAL_TITLE, gt, translationType,
-            gmlcPropertiesManagement.getHlrSsn());
+  protected SccpAddress getGmlcSccpAddress() {
+    return sccpAddressCache.getGmlcSccpAddress();
+  }
+
+  private MAPApplicationContext getMAPAtiApplicationContext(SccpAddress destination) throws MAPException {
+    return this.getMAPApplicationContext(MAPApplicationContextName.anyTimeEnquiryContext, destination);
+  }
+
+  private MAPApplicationContext getMAPSRIforLCSApplicationContext(SccpAddress destination) throws MAPException {
+    return this.getMAPApplicationContext(MAPApplicationContextName.locationSvcGatewayContext, destination);
+  }
+
+  private MAPApplicationContext getMAPPslSlrApplicationContext(SccpAddress destination) throws MAPException {
+    return this.getMAPApplicationContext(MAPApplicationContextName.locationSvcEnquiryContext, destination);
+  }
 
-//	    GlobalTitle0100 gt = new GlobalTitle0100Impl(address, 0, BCDEvenEncodingScheme.INSTANCE,NumberingPlan.ISDN_TELEPHONY, NatureOfAddress.INTERNATIONAL);
-//		return new SccpAddressImpl(RoutingIndicator.ROUTING_BASED_ON_GLOBAL_TITLE, gt, 0, gmlcPropertiesManagement.getHlrSsn());
+  private MAPApplicationContext getMAPSRIforSMApplicationContext(SccpAddress destination) throws MAPException {
+    return this.getMAPApplicationContext(MAPApplicationContextName.shortMsgGatewayContext, destination);
+  }
+
+  private MAPApplicationContext getMAPPsiApplicationContext(SccpAddress destination) throws MAPException {
+    return this.getMAPApplicationContext(MAPApplicationContextName.subscriberInfoEnquiryContext, destination);
+  }
+
+  /**
+   * Get the application context to propose to a destination: the highest version up to the configured maximum
+   * MAP version, lowered to the version learned for the destination if it refused a higher one before.
+   * The destination is remembered for learning the version it supports should it refuse the dialog.
+   */
+  private MAPApplicationContext getMAPApplicationContext(MAPApplicationContextName applicationContextName, SccpAddress destination)
+          throws MAPException {
+    String destinationDigits = getGlobalTitleDigits(destination);
+    this.setMapDestination(destinationDigits);
+    int version = mapVersionCache.getVersion(applicationContextName.getApplicationContextCode(), destinationDigits,
+            gmlcPropertiesManagement.getMaxMapVersion());
+    for (; version > MapVersionCache.NOT_SUPPORTED; version--) {
+      MAPApplicationContext applicationContext = MAPApplicationContext.getInstance(applicationContextName,
+              MAPApplicationContextVersion.getInstance(version));
+      if (applicationContext != null) {
+        return applicationContext;
+      }
+    }
+    throw new MAPException("MAP application context " + applicationContextName + " is not supported by destination "
+            + destinationDigits);
+  }
+
+  /**
+   * Retry a dialog refused because of its application context version, at the highest lower version
+   * the destination may support, and remember that version for the destination
+   *
+   * @return true if the request was sent again
+   */
+  private boolean retryWithLowerMapVersion(MAPDialog mapDialog, MAPRefuseReason refuseReason,
+                                           ApplicationContextName alternativeApplicationContext) {
+    MAPApplicationContext applicationContext = mapDialog.getApplicationContext();
+    HttpRequest request = getHttpRequest();
+    if (applicationContext == null || request == null || gmlcPropertiesManagement.getMapVersionCacheTtl() <= 0
+            || (refuseReason != MAPRefuseReason.ApplicationContextNotSupported
+            && refuseReason != MAPRefuseReason.PotentialVersionIncompatibility)) {
+      return false;
+    }
+
+    MAPApplicationContextName applicationContextName = applicationContext.getApplicationContextName();
+    int version = applicationContext.getApplicationContextVersion().getVersion() - 1;
+    // a peer refusing the application context may propose the one it supports, whose OID ends with the version
+    long[] oid = alternativeApplicationContext != null ? alternativeApplicationContext.getOid() : null;
+    if (oid != null && oid.length == 8 && oid[6] == applicationContextName.getApplicationContextCode() && oid[7] < version) {
+      version = (int) oid[7];
+    }
+    while (version > MapVersionCache.NOT_SUPPORTED && MAPApplicationContext.getInstance(applicationContextName,
+            MAPApplicationContextVersion.getInstance(version)) == null) {
+      version--;
+    }
+    mapVersionCache.setVersion(applicationContextName.getApplicationContextCode(), this.getMapDestination(), version);
+    if (version == MapVersionCache.NOT_SUPPORTED) {
+      return false;
+    }
+
+    if (this.logger.isInfoEnabled()) {
+      this.logger.info(String.format("%s version %d refused by %s, retrying with version %d", applicationContextName,
+              applicationContext.getApplicationContextVersion().getVersion(), this.getMapDestination(), version));
+    }
+    switch (applicationContextName) {
+      case anyTimeEnquiryContext:
+        this.getMsisdnCellGlobalId(request.msisdn);
+        return true;
+      case locationSvcGatewayContext:
+        this.getMsisdnGeolocationViaLsm(request.msisdn);
+        return true;
+      case shortMsgGatewayContext:
+        this.getLocationViaSubscriberInformation(request.msisdn);
+        return true;
+      default:
+        // requests to the serving node are built from the HLR response, the version is learned for the next ones
+        return false;
+    }
+  }
+
+  private static String getGlobalTitleDigits(SccpAddress address) {
+    return address != null && address.getGlobalTitle() != null ? address.getGlobalTitle().getDigits() : null;
+  }
+
+  private SccpAddress getHlrSCCPAddress(String address) {
+    // the HLR configured for the longest matching MSISDN prefix if any, otherwise leave it to GTT on the MSISDN
+    HlrRoutingTable.HlrReplica hlr = hlrRoutingTable.route(address);
+    if (hlr != null) {
+      return sccpAddressCache.getSccpAddress(hlr.getGt(), hlr.getSsn(), 0, hlr.getSpc());
+    }
+    return sccpAddressCache.getHlrSccpAddress(address);
   }
 
   protected ISDNAddressString getCalledPartyISDNAddressString(String destinationAddress, int ton, int npi) {
@@ -4159,14 +4794,17 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
   }
 
   private SccpAddress getNNNSCCPAddress(String address) {
+    return sccpAddressCache.getMscSccpAddress(address);
+  }
 
-    int translationType = 0; // Translation Type = 0 : Unknown
-    EncodingScheme encodingScheme = null;
-    GlobalTitle gt = sccpParameterFact.createGlobalTitle(address, translationType, NumberingPlan.ISDN_TELEPHONY, encodingScheme,
-            NatureOfAddress.INTERNATIONAL);
-    return sccpParameterFact.createSccpAddress(RoutingIndicator.ROUTING_BASED_ON_GLOBAL_TITLE, gt, translationType,
-            gmlcPropertiesManagement.getMscSsn());
-
+  /**
+   * Answer the pending HTTP request, and any request coalesced with it, with the result of an ATI or PSI location attempt
+   */
+  protected void handleLocationResponse(final MLPResponse.MLPResultType mlpResultType, final AtiResponseValues atiResponseValues,
+                                        final String mlpClientErrorMessage) {
+    this.writeLocationResponse(mlpResultType, atiResponseValues, mlpClientErrorMessage);
+    this.releaseAdmission();
+    this.answerCoalescedRequests(CoalescedLookupResult.ati(mlpResultType, atiResponseValues, mlpClientErrorMessage));
   }
 
   /**
@@ -4178,14 +4816,30 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
    * @param atiResponseValues     ATIResponse on location attempt
    * @param mlpClientErrorMessage Error message to send to client
    */
-  protected void handleLocationResponse(MLPResponse.MLPResultType mlpResultType, AtiResponseValues atiResponseValues, String mlpClientErrorMessage) {
+  private void writeLocationResponse(MLPResponse.MLPResultType mlpResultType, AtiResponseValues atiResponseValues, String mlpClientErrorMessage) {
 
     HttpRequest request = getHttpRequest();
     EventContext httpEventContext = this.resumeHttpEventContext();
 
     switch (request.type) {
       case REST:
-        if (mlpResultType == MLPResponse.MLPResultType.OK && httpEventContext != null) {
+        if (request.json) {
+          HttpResponseWriter responseWriter = HttpResponseWriter.getInstance();
+          try {
+            JsonWriter json = new JsonWriter(responseWriter);
+            if (mlpResultType == MLPResponse.MLPResultType.OK)
+              LocationResponseJsonEncoder.encodeAti(json, request.msisdn, atiResponseValues);
+            else
+              LocationResponseJsonEncoder.encodeError(json, "ATI", request.msisdn, mlpResultType, mlpClientErrorMessage);
+          } catch (Exception e) {
+            logger.severe("Exception while encoding ATI response values as JSON: " + e);
+            responseWriter.close();
+            this.sendHTTPResult(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal failure while encoding the ATI response");
+            break;
+          }
+          this.sendJSONResult(mlpResultType, responseWriter);
+
+        } else if (mlpResultType == MLPResponse.MLPResultType.OK && httpEventContext != null) {
 
           HttpServletRequestEvent httpRequest = (HttpServletRequestEvent) httpEventContext.getEvent();
           HttpServletResponse httpServletResponse = httpRequest.getResponse();
@@ -4233,7 +4887,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
             logger.severe("Exception while retrieving ATI response values: " +e);
           }
 
-          this.sendHTTPResult(httpServletResponse.SC_OK, atiResponseSb.toString());
+          this.sendHTTPResult(httpServletResponse.SC_OK, atiResponseSb);
 
         } else {
           this.sendHTTPResult(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, mlpClientErrorMessage);
@@ -4241,23 +4895,22 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         break;
 
       case MLP:
-        String svcResultXml;
-        MLPResponse mlpResponse = new MLPResponse(this.logger);
-
-        if (mlpResultType == MLPResponse.MLPResultType.OK) {
-          MLPResponseParams atiResponse = new MLPResponseParams();
-          svcResultXml = mlpResponse.getSinglePositionSuccessXML(atiResponse.x, atiResponse.y, atiResponse.radius, request.msisdn);
-        } else if (MLPResponse.isSystemError(mlpResultType)) {
-          svcResultXml = mlpResponse.getSystemErrorResponseXML(mlpResultType, mlpClientErrorMessage);
-        } else {
-          svcResultXml = mlpResponse.getPositionErrorResponseXML(request.msisdn, mlpResultType, mlpClientErrorMessage);
-        }
-
-        this.sendHTTPResult(HttpServletResponse.SC_OK, svcResultXml);
+        MLPResponseParams atiResponse = new MLPResponseParams();
+        this.sendMLPResult(mlpResultType, atiResponse.x, atiResponse.y, atiResponse.radius, mlpClientErrorMessage);
         break;
     }
   }
 
+  /**
+   * Answer the pending HTTP request, and any request coalesced with it, with the result of an LSM location attempt
+   */
+  protected void handleLsmLocationResponse(final MLPResponse.MLPResultType mlpResultType, final SriForLcsResponseValues sri,
+                                           final PslResponseValues psl, final SlrRequestValues slrReq, final String mlpClientErrorMessage) {
+    this.writeLsmLocationResponse(mlpResultType, sri, psl, slrReq, mlpClientErrorMessage);
+    this.releaseAdmission();
+    this.answerCoalescedRequests(CoalescedLookupResult.lsm(mlpResultType, sri, psl, slrReq, mlpClientErrorMessage));
+  }
+
   /**
    * Handle generating the appropriate HTTP response
    * We're making use of the MLPResponse class for both GET/POST requests for convenience and
@@ -4269,8 +4922,8 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
    * @param slrReq                SLR request report after location attempt
    * @param mlpClientErrorMessage Error message to send to client
    */
-  protected void handleLsmLocationResponse(MLPResponse.MLPResultType mlpResultType, SriForLcsResponseValues sri,
-                                           PslResponseValues psl, SlrRequestValues slrReq, String mlpClientErrorMessage) {
+  private void writeLsmLocationResponse(MLPResponse.MLPResultType mlpResultType, SriForLcsResponseValues sri,
+                                        PslResponseValues psl, SlrRequestValues slrReq, String mlpClientErrorMessage) {
 
     HttpRequest request = getHttpRequest();
     EventContext httpEventContext = this.resumeHttpEventContext();
@@ -4278,7 +4931,23 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
 
     switch (request.type) {
       case REST:
-        if (mlpResultType == MLPResponse.MLPResultType.OK && httpEventContext != null) {
+        if (request.json) {
+          HttpResponseWriter responseWriter = HttpResponseWriter.getInstance();
+          try {
+            JsonWriter json = new JsonWriter(responseWriter);
+            if (mlpResultType == MLPResponse.MLPResultType.OK)
+              LocationResponseJsonEncoder.encodeLsm(json, request.msisdn, sri, psl);
+            else
+              LocationResponseJsonEncoder.encodeError(json, "PSL", request.msisdn, mlpResultType, mlpClientErrorMessage);
+          } catch (Exception e) {
+            logger.severe("Exception while encoding LSM response values as JSON: " + e);
+            responseWriter.close();
+            this.sendHTTPResult(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal failure while encoding the LSM response");
+            break;
+          }
+          this.sendJSONResult(mlpResultType, responseWriter);
+
+        } else if (mlpResultType == MLPResponse.MLPResultType.OK && httpEventContext != null) {
 
           HttpServletRequestEvent httpRequest = (HttpServletRequestEvent) httpEventContext.getEvent();
           HttpServletResponse httpServletResponse = httpRequest.getResponse();
@@ -4383,7 +5052,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
             logger.severe("Exception while processing LSM operations for displaying via HTTP at handleLsmLocationResponse" +e);
           }
 
-          this.sendHTTPResult(httpServletResponse.SC_OK, mapLsmResponseSb.toString());
+          this.sendHTTPResult(httpServletResponse.SC_OK, mapLsmResponseSb);
 
         } else {
           this.sendHTTPResult(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, mlpClientErrorMessage);
@@ -4391,23 +5060,22 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         break;
 
       case MLP:
-        String svcResultXml;
-        MLPResponse mlpResponse = new MLPResponse(this.logger);
-
-        if (mlpResultType == MLPResponse.MLPResultType.OK) {
-          String radius = "-1";
-          svcResultXml = mlpResponse.getSinglePositionSuccessXML(mapLsmResponse.x, mapLsmResponse.y, radius, request.msisdn);
-        } else if (MLPResponse.isSystemError(mlpResultType)) {
-          svcResultXml = mlpResponse.getSystemErrorResponseXML(mlpResultType, mlpClientErrorMessage);
-        } else {
-          svcResultXml = mlpResponse.getPositionErrorResponseXML(request.msisdn, mlpResultType, mlpClientErrorMessage);
-        }
-
-        this.sendHTTPResult(HttpServletResponse.SC_OK, svcResultXml);
+        String radius = "-1";
+        this.sendMLPResult(mlpResultType, mapLsmResponse.x, mapLsmResponse.y, radius, mlpClientErrorMessage);
         break;
     }
   }
 
+  /**
+   * Answer the pending HTTP request, and any request coalesced with it, with the result of a PSI location attempt
+   */
+  protected void handlePsiResponse(final MLPResponse.MLPResultType mlpResultType, final PsiResponseValues psiResponseValues,
+                                   final String mlpClientErrorMessage) {
+    this.writePsiResponse(mlpResultType, psiResponseValues, mlpClientErrorMessage);
+    this.releaseAdmission();
+    this.answerCoalescedRequests(CoalescedLookupResult.psi(mlpResultType, psiResponseValues, mlpClientErrorMessage));
+  }
+
   /**
    * Handle generating the appropriate HTTP response
    * We're making use of the MLPResponse class for both GET/POST requests for convenience and
@@ -4417,14 +5085,31 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
    * @param psiResponseValues       PSI values on SPI attempt
    * @param mlpClientErrorMessage   Error message to send to client
    */
-  protected void handlePsiResponse(MLPResponse.MLPResultType mlpResultType, PsiResponseValues psiResponseValues, String mlpClientErrorMessage) {
+  private void writePsiResponse(MLPResponse.MLPResultType mlpResultType, PsiResponseValues psiResponseValues, String mlpClientErrorMessage) {
 
     HttpRequest request = getHttpRequest();
     EventContext httpEventContext = this.resumeHttpEventContext();
 
     switch (request.type) {
       case REST:
-        if (mlpResultType == MLPResponse.MLPResultType.OK && httpEventContext != null) {
+        if (request.json) {
+          HttpResponseWriter responseWriter = HttpResponseWriter.getInstance();
+          try {
+            JsonWriter json = new JsonWriter(responseWriter);
+            if (mlpResultType == MLPResponse.MLPResultType.OK)
+              LocationResponseJsonEncoder.encodePsi(json, request.msisdn,
+                  this.getLocationRequest().isPsiOnly() ? this.getLocationRequest().getPsiImsi() : this.getSriForSMImsi(), psiResponseValues);
+            else
+              LocationResponseJsonEncoder.encodeError(json, "PSI", request.msisdn, mlpResultType, mlpClientErrorMessage);
+          } catch (Exception e) {
+            logger.severe("Exception while encoding PSI response values as JSON: " + e);
+            responseWriter.close();
+            this.sendHTTPResult(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal failure while encoding the PSI response");
+            break;
+          }
+          this.sendJSONResult(mlpResultType, responseWriter);
+
+        } else if (mlpResultType == MLPResponse.MLPResultType.OK && httpEventContext != null) {
 
           HttpServletRequestEvent httpRequest = (HttpServletRequestEvent) httpEventContext.getEvent();
           HttpServletResponse httpServletResponse = httpRequest.getResponse();
@@ -4466,11 +5151,11 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
           StringBuilder psiResponseSb = new StringBuilder();
           psiResponseSb.append("PSI response: ");
           psiResponseSb.append("IMSI: ");
-          if (psiOnlyImsi != null && psiOnlyNnn != null && psiServiceType.equalsIgnoreCase("psiFirst")) {
-            imsi = this.psiOnlyImsi;
+          if (this.getLocationRequest().isPsiOnly()) {
+            imsi = this.getLocationRequest().getPsiImsi();
             psiResponseSb.append(imsi);
           } else {
-            imsi = this.sriForSMImsi;
+            imsi = this.getSriForSMImsi();
             psiResponseSb.append(imsi);
           }
 
@@ -4724,7 +5409,7 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
             e.printStackTrace();
           }
 
-          this.sendHTTPResult(httpServletResponse.SC_OK, psiResponseSb.toString());
+          this.sendHTTPResult(httpServletResponse.SC_OK, psiResponseSb);
 
         } else {
           this.sendHTTPResult(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, mlpClientErrorMessage);
@@ -4732,24 +5417,22 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
         break;
 
       case MLP:
-        String svcResultXml;
-        MLPResponse mlpResponse = new MLPResponse(this.logger);
-
-        if (mlpResultType == MLPResponse.MLPResultType.OK) {
-          MLPResponseParams atiResponse = new MLPResponseParams();
-          svcResultXml = mlpResponse.getSinglePositionSuccessXML(atiResponse.x, atiResponse.y, atiResponse.radius, request.msisdn);
-        } else if (MLPResponse.isSystemError(mlpResultType)) {
-          svcResultXml = mlpResponse.getSystemErrorResponseXML(mlpResultType, mlpClientErrorMessage);
-        } else {
-          svcResultXml = mlpResponse.getPositionErrorResponseXML(request.msisdn, mlpResultType, mlpClientErrorMessage);
-        }
-
-        this.sendHTTPResult(HttpServletResponse.SC_OK, svcResultXml);
+        MLPResponseParams atiResponse = new MLPResponseParams();
+        this.sendMLPResult(mlpResultType, atiResponse.x, atiResponse.y, atiResponse.radius, mlpClientErrorMessage);
         break;
     }
   }
 
 
+  /**
+   * Answer the pending HTTP request, and any request coalesced with it, with a MAP dialog error
+   */
+  protected void handleDialogError(final MLPResponse.MLPResultType mlpResultType, final String tcapDialogErrorMessage) {
+    this.writeDialogError(mlpResultType, tcapDialogErrorMessage);
+    this.releaseAdmission();
+    this.answerCoalescedRequests(CoalescedLookupResult.dialogError(mlpResultType, tcapDialogErrorMessage));
+  }
+
   /**
    * Handle generating the appropriate HTTP response
    * We're making use of the MLPResponse class for both GET/POST requests for convenience and
@@ -4758,250 +5441,245 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
    * @param mlpResultType           OK or error type to return to client
    * @param tcapDialogErrorMessage  Error message to send to client
    */
-  protected void handleDialogError(MLPResponse.MLPResultType mlpResultType, String tcapDialogErrorMessage) {
+  private void writeDialogError(MLPResponse.MLPResultType mlpResultType, String tcapDialogErrorMessage) {
 
     HttpRequest request = getHttpRequest();
     EventContext httpEventContext = this.resumeHttpEventContext();
 
     switch (request.type) {
       case REST:
-        this.sendHTTPResult(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, tcapDialogErrorMessage);
+        if (request.json) {
+          HttpResponseWriter responseWriter = HttpResponseWriter.getInstance();
+          try {
+            LocationResponseJsonEncoder.encodeError(new JsonWriter(responseWriter), null, request.msisdn, mlpResultType, tcapDialogErrorMessage);
+          } catch (IOException e) {
+            logger.severe("Exception while encoding dialog error as JSON: " + e);
+          }
+          this.sendJSONResult(mlpResultType, responseWriter);
+        } else {
+          this.sendHTTPResult(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, tcapDialogErrorMessage);
+        }
         break;
 
       case MLP:
-        String svcResultXml;
-        MLPResponse mlpResponse = new MLPResponse(this.logger);
-        svcResultXml = mlpResponse.getPositionErrorResponseXML(request.msisdn, mlpResultType, tcapDialogErrorMessage);
-        this.sendHTTPResult(HttpServletResponse.SC_OK, svcResultXml);
+        this.sendMLPPositionError(mlpResultType, tcapDialogErrorMessage);
         break;
     }
   }
 
   /**
-   * SLR Parameters construction for HTTP POST to send back to LCS requestor after SLR request
+   * Return the specified response data to the HTTP client as UTF-8 encoded plain text
+   *
+   * @param responseData Response data to send to client
    */
-  protected List<String> slrReportParameters(SlrRequestValues slrReq) throws Exception {
-
-    List<String> slrParamList = new ArrayList<>();
+  protected void sendHTTPResult(int statusCode, CharSequence responseData) {
+    HttpRequest request = getHttpRequest();
+    if (request != null && request.batchParent != null) {
+      boolean congestion = statusCode == SC_TOO_MANY_REQUESTS || statusCode == HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+      this.completeBatchMember(BatchLocationRequest.MemberResult.failure(request.msisdn, request.type == HttpRequestType.MLP,
+              congestion ? MLPResponse.MLPResultType.CONGESTION_IN_LOCATION_SERVER : MLPResponse.MLPResultType.SYSTEM_FAILURE,
+              String.valueOf(responseData)));
+      return;
+    }
     try {
-      /*** LCS Client ID ***/
-      if (slrReq.getLcsClientID() != null) {
-        if (slrReq.getLcsClientID().getLCSClientType() != null && (slrReq.getLcsClientID().getLCSClientType().getType() > Integer.MIN_VALUE
-                && slrReq.getLcsClientID().getLCSClientType().getType() < Integer.MAX_VALUE))
-          slrParamList.add("LCSClientIDType=" + Integer.toString(slrReq.getLcsClientID().getLCSClientType().getType()) + ", ");
-        if (slrReq.getLcsClientID().getLCSClientExternalID() != null)
-          slrParamList.add("LCSClientIDExternalID=" + slrReq.getLcsClientID().getLCSClientExternalID().getExternalAddress().getAddress() + ", ");
-        if (slrReq.getLcsClientID().getLCSClientInternalID() != null
-                && (slrReq.getLcsClientID().getLCSClientInternalID().getId() > Integer.MIN_VALUE
-                && slrReq.getLcsClientID().getLCSClientInternalID().getId() < Integer.MAX_VALUE))
-          slrParamList.add("LCSClientIDInternalID=" + Integer.toString(slrReq.getLcsClientID().getLCSClientInternalID().getId()) + ", ");
-        if (slrReq.getLcsClientID().getLCSClientName() != null) {
-          slrParamList.add("LCSClientIDNameString=" + new String(slrReq.getLcsClientID().getLCSClientName().getNameString().getEncodedString()) + ", ");
-          slrParamList.add("LCSClientIDNameDCS=" + Integer.toString(slrReq.getLcsClientID().getLCSClientName().getDataCodingScheme().getCode()) + ", ");
-          slrParamList.add("LCSClientIDNameFormatIndicator=" + Integer.toString(slrReq.getLcsClientID().getLCSClientName().getLCSFormatIndicator().getIndicator()) + ", ");
-        }
-        if (slrReq.getLcsClientID().getLCSAPN() != null)
-          slrParamList.add("LCSClientIDAPN=" + new String(slrReq.getLcsClientID().getLCSAPN().getApn().getBytes()) + ", ");
-        if (slrReq.getLcsClientID().getLCSRequestorID() != null) {
-          slrParamList.add("LCSClientIDRequestorIDEncodedString=" + new String(slrReq.getLcsClientID().getLCSRequestorID().getRequestorIDString().getEncodedString()) + ", ");
-          slrParamList.add("LCSClientIDRequestorIDFormatIndicator=" + Integer.toString(slrReq.getLcsClientID().getLCSRequestorID().getLCSFormatIndicator().getIndicator()) + ", ");
-          slrParamList.add("LCSClientIDRequestorIDDCS=" + Integer.toString(slrReq.getLcsClientID().getLCSRequestorID().getDataCodingScheme().getCode()) + ", ");
-        }
-        if (slrReq.getLcsClientID().getLCSClientDialedByMS() != null)
-          slrParamList.add("LCSClientIDLCSClientDialedByMS=" + slrReq.getLcsClientID().getLCSClientDialedByMS().getAddress() + ", ");
-      }
-
-      /*** LCSC Event ***/
-      if (slrReq.getLcsEvent() != null) {
-        slrParamList.add("LCSEvent=" + Integer.toString(slrReq.getLcsEvent().getEvent()) + ", ");
+      EventContext ctx = this.getEventContext();
+      if (ctx == null) {
+        if (logger.isWarningEnabled()) {
+          logger.warning("When responding to HTTP no pending HTTP request is found, responseData=" + responseData);
+          return;
+        }
       }
 
-      /*** LCS Reference Number ***/
-      if (slrReq.getLcsReferenceNumber() > Integer.MIN_VALUE && slrReq.getLcsReferenceNumber() < Integer.MAX_VALUE) {
-        slrParamList.add("LCSReferenceNumber=" + Integer.toString(slrReq.getLcsReferenceNumber()) + ", ");
-      }
+      HttpServletRequestEvent event = (HttpServletRequestEvent) ctx.getEvent();
 
-      /*** LCS Service Type ID ***/
-      if (slrReq.getLcsServiceTypeID() > Integer.MIN_VALUE && slrReq.getLcsServiceTypeID() < Integer.MAX_VALUE) {
-        slrParamList.add("LCSServiceTypeID=" + Integer.toString(slrReq.getLcsServiceTypeID()) + ", ");
-      }
+      HttpServletResponse response = event.getResponse();
+      HttpResponseWriter.send(response, statusCode, HttpResponseWriter.TEXT_PLAIN, responseData);
+      response.flushBuffer();
+      this.updateHttpLatencyStat();
+      this.releaseAdmission();
 
-      /*** Location Estimate ***/
-      if (slrReq.getLocationEstimate() != null) {
-        slrParamList.add("Location Estimate: ");
-        slrParamList.add("Latitude=" + Double.toString(slrReq.getLocationEstimate().getLatitude()) + ", ");
-        slrParamList.add("Longitude=" + Double.toString(slrReq.getLocationEstimate().getLongitude()) + ", ");
-        slrParamList.add("Altitude=" + Double.toString(slrReq.getLocationEstimate().getAltitude()) + ", ");
-        slrParamList.add("Confidence=" + Double.toString(slrReq.getLocationEstimate().getInnerRadius()) + ", ");
-        slrParamList.add("Uncertainty=" + Double.toString(slrReq.getLocationEstimate().getUncertainty()) + ", ");
-        slrParamList.add("UncertaintyAltitude=" + Double.toString(slrReq.getLocationEstimate().getUncertaintyAltitude()) + ", ");
-        slrParamList.add("UncertaintyInnerRadius=" + Double.toString(slrReq.getLocationEstimate().getUncertaintyRadius()) + ", ");
-        slrParamList.add("UncertaintySemiMajorAxis=" + Double.toString(slrReq.getLocationEstimate().getUncertaintySemiMajorAxis()) + ", ");
-        slrParamList.add("UncertaintySemiMinorAxis=" + Double.toString(slrReq.getLocationEstimate().getUncertaintySemiMinorAxis()) + ", ");
-        slrParamList.add("OffsetAngle=" + Double.toString(slrReq.getLocationEstimate().getOffsetAngle()) + ", ");
-        slrParamList.add("IncludeAngle=" + Double.toString(slrReq.getLocationEstimate().getIncludedAngle()) + ", ");
-        slrParamList.add("TypeOfShape=" + slrReq.getLocationEstimate().getTypeOfShape() + ", ");
+      if (ctx.isSuspended()) {
+        ctx.resumeDelivery();
       }
 
-      /*** Age of Location Estimate ***/
-      if (slrReq.getAgeOfLocationEstimate() > Integer.MIN_VALUE && slrReq.getAgeOfLocationEstimate() < Integer.MAX_VALUE) {
-        slrParamList.add("AgeOfLocationEstimate=" + Integer.toString(slrReq.getAgeOfLocationEstimate()) + ", ");
+      if (logger.isFineEnabled()) {
+        logger.fine("HTTP Request received and response sent, responseData=" + responseData);
       }
 
-      /*** Additional Location Estimate ***/
-      if (slrReq.getAdditionalLocationEstimate() != null) {
-        slrParamList.add("Additional Location Estimate: ");
-        slrParamList.add("addLatitude=" + Double.toString(slrReq.getAdditionalLocationEstimate().getLatitude()) + ", ");
-        slrParamList.add("addLongitude=" + Double.toString(slrReq.getAdditionalLocationEstimate().getLongitude()) + ", ");
-        slrParamList.add("addAltitude=" + Double.toString(slrReq.getAdditionalLocationEstimate().getAltitude()) + ", ");
-        slrParamList.add("addConfidence=" + Double.toString(slrReq.getAdditionalLocationEstimate().getInnerRadius()) + ", ");
-        slrParamList.add("addUncertainty=" + Double.toString(slrReq.getAdditionalLocationEstimate().getUncertainty()) + ", ");
-        slrParamList.add("addUncertaintyAltitude=" + Double.toString(slrReq.getAdditionalLocationEstimate().getUncertaintyAltitude()) + ", ");
-        slrParamList.add("addUncertaintyInnerRadius=" + Double.toString(slrReq.getAdditionalLocationEstimate().getUncertaintyRadius()) + ", ");
-        slrParamList.add("UncertaintySemiMajorAxis=" + Double.toString(slrReq.getAdditionalLocationEstimate().getUncertaintySemiMajorAxis()) + ", ");
-        slrParamList.add("UncertaintySemiMinorAxis=" + Double.toString(slrReq.getAdditionalLocationEstimate().getUncertaintySemiMinorAxis()) + ", ");
-        slrParamList.add("addOffset=" + Double.toString(slrReq.getAdditionalLocationEstimate().getOffsetAngle()) + ", ");
-        slrParamList.add("addInclude=" + Double.toString(slrReq.getAdditionalLocationEstimate().getIncludedAngle()) + ", ");
-        slrParamList.add("addTypeOfShape=" + slrReq.getAdditionalLocationEstimate().getTypeOfShape() + ", ");
-      }
+      // getNullActivity().endActivity();
+    } catch (Exception e) {
+      logger.severe("Error while sending back HTTP response", e);
+    }
+  }
 
-      /*** Accuracy Fulfillment Indicator ***/
-      if (slrReq.getAccuracyFulfilmentIndicator() != null) {
-        slrParamList.add("AccuracyFulfillmentIndicator=" + Integer.toString(slrReq.getAccuracyFulfilmentIndicator().getIndicator()) + ", ");
-      }
+  /**
+   * Return the JSON document encoded into the response writer to the HTTP client,
+   * with status 200 on success and 500 otherwise, as for plain text results
+   *
+   * @param mlpResultType  OK or error type the document was encoded for
+   * @param responseWriter response writer of this thread holding the encoded document
+   */
+  protected void sendJSONResult(MLPResponse.MLPResultType mlpResultType, HttpResponseWriter responseWriter) {
+    HttpRequest request = getHttpRequest();
+    if (request != null && request.batchParent != null) {
+      byte[] json = responseWriter.toByteArray();
+      responseWriter.close();
+      this.completeBatchMember(BatchLocationRequest.MemberResult.json(json));
+      return;
+    }
+    int statusCode = mlpResultType == MLPResponse.MLPResultType.OK ? HttpServletResponse.SC_OK : HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+    this.sendHTTPResult(statusCode, HttpResponseWriter.APPLICATION_JSON, responseWriter);
+  }
 
-      /*** CGI or SAI or LAI ***/
-      if (slrReq.getCellGlobalIdOrServiceAreaIdOrLAI() != null) {
-        /*** LAI fixed length ***/
-        if (slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getLAIFixedLength() != null) {
-          slrParamList.add("LAI fixed length: ");
-          slrParamList.add("MCC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getLAIFixedLength().getMCC()) + ", ");
-          slrParamList.add("MNC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getLAIFixedLength().getMNC()) + ", ");
-          slrParamList.add("LAC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getLAIFixedLength().getLac()) + ", ");
-        }
-        /*** CGI or SAI fixed length ***/
-        if (slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getCellGlobalIdOrServiceAreaIdFixedLength() != null) {
-          slrParamList.add("CGI or SAI fixed length: ");
-          slrParamList.add("MCC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getCellGlobalIdOrServiceAreaIdFixedLength().getMCC()) + ", ");
-          slrParamList.add("MNC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getCellGlobalIdOrServiceAreaIdFixedLength().getMNC()) + ", ");
-          slrParamList.add("LAC=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getCellGlobalIdOrServiceAreaIdFixedLength().getLac()) + ", ");
-          slrParamList.add("CGI=" + Integer.toString(slrReq.getCellGlobalIdOrServiceAreaIdOrLAI().getCellGlobalIdOrServiceAreaIdFixedLength().getCellIdOrServiceAreaCode()) + ", ");
+  /**
+   * Return the response encoded into the response writer to the HTTP client
+   *
+   * @param statusCode     HTTP status code
+   * @param contentType    content type, including the charset
+   * @param responseWriter response writer of this thread holding the encoded response
+   */
+  protected void sendHTTPResult(int statusCode, String contentType, HttpResponseWriter responseWriter) {
+    try {
+      EventContext ctx = this.getEventContext();
+      if (ctx == null) {
+        if (logger.isWarningEnabled()) {
+          logger.warning("When responding to HTTP no pending HTTP request is found, contentType=" + contentType);
         }
+        responseWriter.close();
+        return;
       }
 
-      /*** Pseudonym Indicator ***/
-      if (slrReq.getPseudonymIndicator() != false && slrReq.getPseudonymIndicator() != true) {
-        slrParamList.add("PseudonymIndicator=" + Boolean.toString(slrReq.getPseudonymIndicator()) + ", ");
-      }
-
-      /*** MO LR Short Circuit Indicator ***/
-      if (slrReq.isMoLrShortCircuitIndicator() != false && slrReq.isMoLrShortCircuitIndicator() != true) {
-        slrParamList.add("MOLRShortCircuitIndicator=" + Boolean.toString(slrReq.isMoLrShortCircuitIndicator()) + ", ");
-      }
-
-      /*** Periodic LDR Info ***/
-      if (slrReq.getPeriodicLDRInfo() != null) {
-        slrParamList.add("ReportingAmount=" + Integer.toString(slrReq.getPeriodicLDRInfo().getReportingAmount()) + ", ");
-        slrParamList.add("ReportingInterval=" + Integer.toString(slrReq.getPeriodicLDRInfo().getReportingInterval()) + ", ");
-      }
+      HttpServletRequestEvent event = (HttpServletRequestEvent) ctx.getEvent();
+      HttpServletResponse response = event.getResponse();
+      responseWriter.send(response, statusCode, contentType);
+      response.flushBuffer();
+      this.updateHttpLatencyStat();
+      this.releaseAdmission();
 
-      /*** Sequence Number ***/
-      if (slrReq.getSequenceNumber() > Integer.MIN_VALUE && slrReq.getSequenceNumber() < Integer.MAX_VALUE) {
-        slrParamList.add("Sequence Number=" + Integer.toString(slrReq.getSequenceNumber()) + ", ");
+      if (ctx.isSuspended()) {
+        ctx.resumeDelivery();
       }
 
-      /*** Deferred MT LR Data ***/
-      if (slrReq.getDeferredmtlrData() != null) {
-        slrParamList.add("Deferred MT LR Data: ");
-        if (slrReq.getDeferredmtlrData().getDeferredLocationEventType() != null) {
-          slrParamList.add("EnteringArea=" + Boolean.toString(slrReq.getDeferredmtlrData().getDeferredLocationEventType().getEnteringIntoArea()) + ", ");
-          slrParamList.add("InsideArea=" + Boolean.toString(slrReq.getDeferredmtlrData().getDeferredLocationEventType().getBeingInsideArea()) + ", ");
-          slrParamList.add("LeavingArea=" + Boolean.toString(slrReq.getDeferredmtlrData().getDeferredLocationEventType().getLeavingFromArea()) + ", ");
-          slrParamList.add("MSAvailable=" + Boolean.toString(slrReq.getDeferredmtlrData().getDeferredLocationEventType().getMsAvailable()) + ", ");
-        }
-        if (slrReq.getDeferredmtlrData().getTerminationCause() != null) {
-          slrParamList.add("TerminationCause=" + Integer.toString(slrReq.getDeferredmtlrData().getTerminationCause().getCause()) + ", ");
-        }
-        if (slrReq.getDeferredmtlrData().getLCSLocationInfo() != null) {
-          slrParamList.add("GPRSNodeIndicator=" + Boolean.toString(slrReq.getDeferredmtlrData().getLCSLocationInfo().getGprsNodeIndicator()) + ", ");
-          if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getNetworkNodeNumber() != null)
-            slrParamList.add("NetworkNodeNumber=" + slrReq.getDeferredmtlrData().getLCSLocationInfo().getNetworkNodeNumber().getAddress() + ", ");
-          if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getLMSI() != null)
-            slrParamList.add("LMSI=" + new String(slrReq.getDeferredmtlrData().getLCSLocationInfo().getLMSI().getData()) + ", ");
-          if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getMmeName() != null)
-            slrParamList.add("MMEName=" + new String(slrReq.getDeferredmtlrData().getLCSLocationInfo().getMmeName().getData()) + ", ");
-          if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getAaaServerName() != null)
-            slrParamList.add("AAAServerName=" + new String(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAaaServerName().getData()));
-          if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalNumber() != null) {
-            if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalNumber().getMSCNumber() != null)
-              slrParamList.add("MSCNumber=" + slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalNumber().getMSCNumber().getAddress() + ", ");
-            if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalNumber().getSGSNNumber() != null)
-              slrParamList.add("SGSNNumber=" + slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalNumber().getSGSNNumber().getAddress() + ", ");
-          }
-          if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets() != null) {
-            slrParamList.add("SupportedLCSCapabilitySetRelease98_99=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets().getCapabilitySetRelease98_99()) + ", ");
-            slrParamList.add("SupportedLCSCapabilitySetRelease4=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets().getCapabilitySetRelease4()) + ", ");
-            slrParamList.add("SupportedLCSCapabilitySetRelease4=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets().getCapabilitySetRelease5()) + ", ");
-            slrParamList.add("SupportedLCSCapabilitySetRelease4=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets().getCapabilitySetRelease6()) + ", ");
-            slrParamList.add("SupportedLCSCapabilitySetRelease4=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getSupportedLCSCapabilitySets().getCapabilitySetRelease7()));
-          }
-          if (slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets() != null) {
-            slrParamList.add(", AdditionalLCSCapabilitySetRelease98_99=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets().getCapabilitySetRelease98_99()) + ", ");
-            slrParamList.add("AdditionalLCSCapabilitySetRelease4=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets().getCapabilitySetRelease4()) + ", ");
-            slrParamList.add("AdditionalLCSCapabilitySetRelease5=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets().getCapabilitySetRelease5()) + ", ");
-            slrParamList.add("AdditionalLCSCapabilitySetRelease6=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets().getCapabilitySetRelease6()) + ", ");
-            slrParamList.add("AdditionalLCSCapabilitySetRelease7=" + Boolean.valueOf(slrReq.getDeferredmtlrData().getLCSLocationInfo().getAdditionalLCSCapabilitySets().getCapabilitySetRelease7()));
-          }
-        }
+      if (logger.isFineEnabled()) {
+        logger.fine("HTTP Request received and response sent, statusCode=" + statusCode + ", contentType=" + contentType);
       }
-
-      return slrParamList;
-
     } catch (Exception e) {
-      e.printStackTrace();
-      return null;
+      logger.severe("Error while sending back HTTP response", e);
+      responseWriter.close();
     }
   }
 
+
   /**
-   * Return the specified response data to the HTTP client
+   * Return the MLP result to the HTTP client: the position on success, otherwise a system or position error
    *
-   * @param responseData Response data to send to client
+   * @param mlpResultType         OK or error type to return to client
+   * @param x                     X coordinate in WGS84 DMS format
+   * @param y                     Y coordinate in WGS84 DMS format
+   * @param radius                Position radius in meters
+   * @param mlpClientErrorMessage Error message to send to client
+   */
+  protected void sendMLPResult(MLPResponse.MLPResultType mlpResultType, String x, String y, String radius, String mlpClientErrorMessage) {
+    this.sendMLPResult(mlpResultType, x, y, radius, mlpClientErrorMessage, false);
+  }
+
+  /**
+   * Return an MLP position error to the HTTP client, whatever the error type
+   *
+   * @param mlpResultType         Error type to return to client
+   * @param mlpClientErrorMessage Error message to send to client
    */
-  protected void sendHTTPResult(int statusCode, String responseData) {
+  protected void sendMLPPositionError(MLPResponse.MLPResultType mlpResultType, String mlpClientErrorMessage) {
+    this.sendMLPResult(mlpResultType, null, null, null, mlpClientErrorMessage, true);
+  }
+
+  /**
+   * Marshal the MLP result into the response writer buffer, with no intermediate String, and send it
+   */
+  private void sendMLPResult(MLPResponse.MLPResultType mlpResultType, String x, String y, String radius, String mlpClientErrorMessage,
+                             boolean positionError) {
+    HttpRequest request = getHttpRequest();
+    if (request != null && request.batchParent != null) {
+      this.completeBatchMember(BatchLocationRequest.MemberResult.position(
+              new MLPResponse.Position(request.msisdn, mlpResultType, x, y, radius, mlpClientErrorMessage)));
+      return;
+    }
     try {
       EventContext ctx = this.getEventContext();
       if (ctx == null) {
         if (logger.isWarningEnabled()) {
-          logger.warning("When responding to HTTP no pending HTTP request is found, responseData=" + responseData);
-          return;
+          logger.warning("When responding to HTTP no pending HTTP request is found, mlpResultType=" + mlpResultType);
         }
+        return;
       }
 
       HttpServletRequestEvent event = (HttpServletRequestEvent) ctx.getEvent();
-
       HttpServletResponse response = event.getResponse();
-      response.setStatus(statusCode);
-      PrintWriter w;
-      w = response.getWriter();
-      w.print(responseData);
-      w.flush();
+      HttpResponseWriter out = HttpResponseWriter.getInstance();
+
+      String msisdn = getHttpRequest().msisdn;
+      MLPResponse mlpResponse = new MLPResponse(this.logger);
+      try {
+        if (positionError) {
+          mlpResponse.writePositionErrorResponseXML(msisdn, mlpResultType, mlpClientErrorMessage, out);
+        } else if (mlpResultType == MLPResponse.MLPResultType.OK) {
+          mlpResponse.writeSinglePositionSuccessXML(x, y, radius, msisdn, out);
+        } else if (MLPResponse.isSystemError(mlpResultType)) {
+          mlpResponse.writeSystemErrorResponseXML(mlpResultType, mlpClientErrorMessage, out);
+        } else {
+          mlpResponse.writePositionErrorResponseXML(msisdn, mlpResultType, mlpClientErrorMessage, out);
+        }
+        out.send(response, HttpServletResponse.SC_OK, HttpResponseWriter.APPLICATION_XML);
+      } finally {
+        out.close();
+      }
       response.flushBuffer();
+      this.updateHttpLatencyStat();
+      this.releaseAdmission();
 
       if (ctx.isSuspended()) {
         ctx.resumeDelivery();
       }
 
       if (logger.isFineEnabled()) {
-        logger.fine("HTTP Request received and response sent, responseData=" + responseData);
+        logger.fine("HTTP Request received and MLP response sent, mlpResultType=" + mlpResultType);
       }
-
-      // getNullActivity().endActivity();
     } catch (Exception e) {
       logger.severe("Error while sending back HTTP response", e);
     }
   }
 
+  /**
+   * Answer a scrape of the metrics path with the statistics in the Prometheus text format
+   */
+  private void sendMetrics() {
+    try {
+      EventContext ctx = this.getEventContext();
+      HttpServletRequestEvent event = (HttpServletRequestEvent) ctx.getEvent();
+      HttpServletResponse response = event.getResponse();
+      HttpResponseWriter out = HttpResponseWriter.getInstance();
+      try {
+        PrometheusMetricsWriter.write(out, this.mapProvider.getCurrentDialogsCount());
+        out.send(response, HttpServletResponse.SC_OK, PrometheusMetricsWriter.CONTENT_TYPE);
+      } finally {
+        out.close();
+      }
+      response.flushBuffer();
+    } catch (Exception e) {
+      logger.severe("Error while sending back the metrics", e);
+    }
+  }
+
+  /**
+   * Record the end-to-end latency of the pending HTTP request, once its response has been sent
+   */
+  private void updateHttpLatencyStat() {
+    HttpRequest request = getHttpRequest();
+    if (request != null) {
+      gmlcStatAggregator.updateHttpLatency(System.currentTimeMillis() - request.receivedAt);
+    }
+  }
+
   /**
    *
    */
@@ -5009,7 +5687,10 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     EventContext httpEventContext = getEventContextCMP();
 
     if (httpEventContext == null) {
-      logger.severe("No HTTP event context, can not resume ");
+      HttpRequest request = getHttpRequest();
+      if (request == null || request.batchParent == null) {
+        logger.severe("No HTTP event context, can not resume ");
+      }
       return null;
     }
 
@@ -5021,6 +5702,103 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
   // SBB LO methods //
   // ////////////////
 
+  /**
+   * @see BatchMemberSbbLocalObject#locateBatchMember
+   */
+  public BatchLocationRequest.MemberResult locateBatchMember(LocationRequest locationRequest, int index, boolean mlp,
+                                                             MobileCoreNetworkInterfaceSbbLocalObject parent) {
+    HttpRequest request = new HttpRequest(mlp ? HttpRequestType.MLP : HttpRequestType.REST, locationRequest);
+    request.batchIndex = index;
+    request.batchParent = parent;
+    request.batchStarting = true;
+    setHttpRequest(request);
+    this.locate(locationRequest);
+
+    request = getHttpRequest();
+    BatchLocationRequest.MemberResult result = request.batchResult;
+    request.batchStarting = false;
+    request.batchResult = null;
+    setHttpRequest(request);
+    return result;
+  }
+
+  /**
+   * @see MobileCoreNetworkInterfaceSbbLocalObject#batchMemberCompleted
+   */
+  public void batchMemberCompleted(int index, BatchLocationRequest.MemberResult result) {
+    HttpRequest request = getHttpRequest();
+    if (request == null || request.batch == null || !request.batch.complete(index, result)) {
+      return;
+    }
+    // the member handing its result is still running: remove it and start the next ones in a timer event
+    boolean wakeUp = request.batch.scheduleWakeUp();
+    setHttpRequest(request);
+    if (wakeUp) {
+      this.setNullActivityTimer(System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * @see MobileCoreNetworkInterfaceSbbLocalObject#coalescedLookupCompleted
+   */
+  public void coalescedLookupCompleted(CoalescedLookupResult result) {
+    HttpRequest request = getHttpRequest();
+    if (request == null || request.coalescedOperation == null) {
+      // already answered, e.g. timed out waiting
+      return;
+    }
+    request.coalescedOperation = null;
+    setHttpRequest(request);
+    this.endCoalescedLookupTimer();
+    this.createCoalescedLookupRecord(result);
+
+    switch (result.getKind()) {
+      case ATI:
+        this.handleLocationResponse(result.getMlpResultType(), result.getAtiResponseValues(), result.getErrorMessage());
+        break;
+      case LSM:
+        this.handleLsmLocationResponse(result.getMlpResultType(), result.getSriForLcsResponseValues(), result.getPslResponseValues(),
+                result.getSlrRequestValues(), result.getErrorMessage());
+        break;
+      case PSI:
+        if (result.getPsiResponseValues() != null) {
+          this.setSriForSMImsi(result.getPsiResponseValues().getImsiData());
+        }
+        this.handlePsiResponse(result.getMlpResultType(), result.getPsiResponseValues(), result.getErrorMessage());
+        break;
+      default:
+        this.handleDialogError(result.getMlpResultType(), result.getErrorMessage());
+        break;
+    }
+  }
+
+  /**
+   * Record the CDR of a request answered by a coalesced lookup, from the CDR state of the lookup
+   * and with the outcome it was recorded with, if any yet
+   */
+  private void createCoalescedLookupRecord(CoalescedLookupResult result) {
+    if (result.getCdrState() == null) {
+      return;
+    }
+    GMLCCDRState gmlcCdrState = result.getCdrState().copy();
+    RecordStatus recordStatus = gmlcCdrState.isGenerated() ? gmlcCdrState.getRecordStatus() : null;
+    if (recordStatus == null) {
+      if (result.getMlpResultType() != MLPResponse.MLPResultType.OK) {
+        recordStatus = RecordStatus.FAILED_SYSTEM_FAILURE;
+      } else if (result.getKind() == CoalescedLookupResult.Kind.LSM) {
+        recordStatus = RecordStatus.PSL_SUCCESS;
+      } else if (result.getKind() == CoalescedLookupResult.Kind.PSI) {
+        recordStatus = RecordStatus.PSI_LOC_SUCCESS;
+      } else {
+        recordStatus = RecordStatus.ATI_CGI_SUCCESS;
+      }
+    }
+    gmlcCdrState.setId(UUID.randomUUID().toString());
+    gmlcCdrState.setGenerated(false);
+    this.getCDRInterface().setState(gmlcCdrState);
+    this.createCDRRecord(recordStatus);
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -5100,14 +5878,8 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
   public abstract ChildRelationExt getCDRPlainInterfaceChildRelation();
 
   public CDRInterface getCDRInterface() {
-    GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
-    ChildRelationExt childExt;
-    if (gmlcPropertiesManagement.getCdrLoggingTo() == GmlcPropertiesManagement.CdrLoggedType.Textfile) {
-      childExt = getCDRPlainInterfaceChildRelation();
-    } else {
-      //childExt = getCDRInterfaceChildRelation();
-      childExt = null; // temporary
-    }
+    // the CDR generator writes to the text file or to the database as set by cdrloggingto
+    ChildRelationExt childExt = getCDRPlainInterfaceChildRelation();
 
     CDRInterface child = (CDRInterface) childExt.get(CDR);
     if (child == null) {
@@ -5137,27 +5909,4 @@ public abstract class MobileCoreNetworkInterfaceSbb extends GMLCBaseSbb implemen
     }
   }
 
-  // ///////////////////////////////////////////////
-  // protected child stuff, to be used in parent //
-  // /////////////////////////////////////////////
-
-  protected void cancelTimer() {
-    try {
-      TimerID timerID = this.getTimerID();
-      if (timerID != null) {
-        this.timerFacility.cancelTimer(timerID);
-      }
-    } catch (Exception e) {
-      logger.severe("Could not cancel Timer", e);
-    }
-  }
-
-  protected void setTimer(ActivityContextInterface ac) {
-    TimerOptions options = new TimerOptions();
-    long waitingTime = gmlcPropertiesManagement.getDialogTimeout();
-    // Set the timer on ACI
-    TimerID timerID = this.timerFacility.setTimer(ac, null, System.currentTimeMillis() + waitingTime, options);
-    this.setTimerID(timerID);
-  }
-
 }
@@ -30,4 +30,19 @@ import org.mobicents.slee.SbbLocalObjectExt;
  */
 public interface MobileCoreNetworkInterfaceSbbLocalObject extends SbbLocalObjectExt {
 
+  /**
+   * Hand the SBB answering a batch location request the result of one more subscriber
+   *
+   * @param index  index of the subscriber in the batch
+   * @param result result of the subscriber
+   */
+  void batchMemberCompleted(int index, BatchLocationRequest.MemberResult result);
+
+  /**
+   * Answer the HTTP request of an SBB waiting on a location lookup led by another SBB entity
+   *
+   * @param result outcome of the leading lookup
+   */
+  void coalescedLookupCompleted(CoalescedLookupResult result);
+
 }
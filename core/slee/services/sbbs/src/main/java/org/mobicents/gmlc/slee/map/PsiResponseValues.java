@@ -21,6 +21,7 @@
 
 package org.mobicents.gmlc.slee.map;
 
+import org.mobicents.gmlc.CachedValue;
 import org.mobicents.protocols.ss7.map.api.MAPException;
 
 import org.mobicents.protocols.ss7.map.api.primitives.CellGlobalIdOrServiceAreaIdFixedLength;
@@ -55,7 +56,7 @@ import java.util.TimeZone;
  * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
  * @author <a href="mailto:aferreiraguido@gmail.com"> Alejandro Ferreira Guido </a>
  */
-public class PsiResponseValues implements Serializable {
+public class PsiResponseValues implements Serializable, Cloneable, CachedValue {
 
     private static final long serialVersionUID = 6506587872040660967L;
 
@@ -634,6 +635,22 @@ public class PsiResponseValues implements Serializable {
         this.timeZone = timeZone;
     }
 
+    /**
+     * @return a shallow copy, MAP parameters are read only so only the values object itself is duplicated
+     */
+    @Override
+    public PsiResponseValues copy() {
+        try {
+            PsiResponseValues copy = (PsiResponseValues) super.clone();
+            if (copy.timeZone != null) {
+                copy.timeZone = (TimeZone) copy.timeZone.clone();
+            }
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     @Override
     public String toString() {
 
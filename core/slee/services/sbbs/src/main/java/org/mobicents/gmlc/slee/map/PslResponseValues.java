@@ -21,6 +21,7 @@
 
 package org.mobicents.gmlc.slee.map;
 
+import org.mobicents.gmlc.CachedValue;
 import org.mobicents.protocols.ss7.map.api.primitives.CellGlobalIdOrServiceAreaIdOrLAI;
 import org.mobicents.protocols.ss7.map.api.service.lsm.AccuracyFulfilmentIndicator;
 import org.mobicents.protocols.ss7.map.api.service.lsm.AddGeographicalInformation;
@@ -37,7 +38,7 @@ import java.io.Serializable;
 /**
  * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
  */
-public class PslResponseValues implements Serializable {
+public class PslResponseValues implements Serializable, Cloneable, CachedValue {
 
   private static final long serialVersionUID = 4123540909710455319L;
 
@@ -252,6 +253,18 @@ public class PslResponseValues implements Serializable {
     this.servingNodeAddress = servingNodeAddress;
   }
 
+  /**
+   * @return a shallow copy, MAP parameters are read only so only the values object itself is duplicated
+   */
+  @Override
+  public PslResponseValues copy() {
+    try {
+      return (PslResponseValues) super.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new AssertionError(e);
+    }
+  }
+
   @Override
   public String toString() {
 
@@ -0,0 +1,217 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.map;
+
+import org.mobicents.gmlc.GmlcPropertiesManagement;
+import org.mobicents.protocols.ss7.indicator.NatureOfAddress;
+import org.mobicents.protocols.ss7.indicator.NumberingPlan;
+import org.mobicents.protocols.ss7.indicator.RoutingIndicator;
+import org.mobicents.protocols.ss7.map.api.primitives.AddressNature;
+import org.mobicents.protocols.ss7.map.api.primitives.AddressString;
+import org.mobicents.protocols.ss7.map.api.primitives.ISDNAddressString;
+import org.mobicents.protocols.ss7.map.primitives.AddressStringImpl;
+import org.mobicents.protocols.ss7.map.primitives.ISDNAddressStringImpl;
+import org.mobicents.protocols.ss7.sccp.impl.parameter.ParameterFactoryImpl;
+import org.mobicents.protocols.ss7.sccp.parameter.EncodingScheme;
+import org.mobicents.protocols.ss7.sccp.parameter.GlobalTitle;
+import org.mobicents.protocols.ss7.sccp.parameter.ParameterFactory;
+import org.mobicents.protocols.ss7.sccp.parameter.SccpAddress;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Interned SCCP addresses of the HLRs and serving nodes the GMLC sends MAP requests to, keyed by
+ * global title digits, SSN, translation type and point code, along with the SCCP address and MAP address strings
+ * of the GMLC itself. Addresses are immutable once built, so every dialog shares the same instances.
+ * They are held by a snapshot replaced as a whole as soon as the GMLC GT or SSN, or the HLR or MSC SSN,
+ * are set, so a dialog never mixes addresses built from old and new values.
+ * Each table of SCCP addresses holds at most {@link #MAX_ENTRIES} addresses and is emptied when full.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class SccpAddressCache {
+
+  public static final int MAX_ENTRIES = 8192;
+
+  private static final int TRANSLATION_TYPE = 0; // Translation Type = 0 : Unknown
+
+  private static final SccpAddressCache instance = new SccpAddressCache();
+
+  private final ParameterFactory sccpParameterFactory = new ParameterFactoryImpl();
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>();
+
+  private SccpAddressCache() {
+  }
+
+  public static SccpAddressCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * @return SCCP address of the GMLC, routed on its global title
+   */
+  public SccpAddress getGmlcSccpAddress() {
+    return this.snapshot().gmlcSccpAddress;
+  }
+
+  /**
+   * @return GMLC GT as an international ISDN address string, used as MLC number, gsmSCF address and GMLC address
+   */
+  public ISDNAddressString getGmlcISDNAddressString() {
+    return this.snapshot().gmlcISDNAddressString;
+  }
+
+  /**
+   * @return GMLC GT as an international ISDN address string, used as service centre address
+   */
+  public AddressString getGmlcAddressString() {
+    return this.snapshot().gmlcAddressString;
+  }
+
+  /**
+   * Get the SCCP address of an HLR, with the HLR SSN
+   *
+   * @param digits global title digits
+   */
+  public SccpAddress getHlrSccpAddress(String digits) {
+    Snapshot current = this.snapshot();
+    return current.get(digits, current.hlrSsn, TRANSLATION_TYPE, 0);
+  }
+
+  /**
+   * Get the SCCP address of a serving MSC/VLR or SGSN, with the MSC SSN
+   *
+   * @param digits global title digits
+   */
+  public SccpAddress getMscSccpAddress(String digits) {
+    Snapshot current = this.snapshot();
+    return current.get(digits, current.mscSsn, TRANSLATION_TYPE, 0);
+  }
+
+  /**
+   * Get an SCCP address routed on global title or, when a point code is given, on point code and SSN
+   *
+   * @param digits          global title digits
+   * @param ssn             subsystem number
+   * @param translationType global title translation type
+   * @param pointCode       destination signalling point code, 0 to route on global title
+   */
+  public SccpAddress getSccpAddress(String digits, int ssn, int translationType, int pointCode) {
+    return this.snapshot().get(digits, ssn, translationType, pointCode);
+  }
+
+  private Snapshot snapshot() {
+    GmlcPropertiesManagement gmlcPropertiesManagement = GmlcPropertiesManagement.getInstance();
+    int generation = gmlcPropertiesManagement.getAddressGeneration();
+    Snapshot current = this.snapshot.get();
+    if (current == null || current.generation != generation) {
+      Snapshot rebuilt = new Snapshot(generation, gmlcPropertiesManagement);
+      this.snapshot.compareAndSet(current, rebuilt);
+      return rebuilt;
+    }
+    return current;
+  }
+
+  private SccpAddress createSccpAddress(String digits, int ssn, int translationType, int pointCode) {
+    EncodingScheme encodingScheme = null;
+    GlobalTitle gt = this.sccpParameterFactory.createGlobalTitle(digits, translationType, NumberingPlan.ISDN_TELEPHONY, encodingScheme,
+            NatureOfAddress.INTERNATIONAL);
+    RoutingIndicator routingIndicator = pointCode > 0 ? RoutingIndicator.ROUTING_BASED_ON_DPC_AND_SSN
+            : RoutingIndicator.ROUTING_BASED_ON_GLOBAL_TITLE;
+    return this.sccpParameterFactory.createSccpAddress(routingIndicator, gt, pointCode, ssn);
+  }
+
+  private class Snapshot {
+    private final int generation;
+    private final int hlrSsn;
+    private final int mscSsn;
+    private final SccpAddress gmlcSccpAddress;
+    private final ISDNAddressString gmlcISDNAddressString;
+    private final AddressString gmlcAddressString;
+    private final AtomicReference<Table[]> tables = new AtomicReference<Table[]>(new Table[0]);
+
+    private Snapshot(int generation, GmlcPropertiesManagement gmlcPropertiesManagement) {
+      String gmlcGt = gmlcPropertiesManagement.getGmlcGt();
+      this.generation = generation;
+      this.hlrSsn = gmlcPropertiesManagement.getHlrSsn();
+      this.mscSsn = gmlcPropertiesManagement.getMscSsn();
+      this.gmlcSccpAddress = createSccpAddress(gmlcGt, gmlcPropertiesManagement.getGmlcSsn(), TRANSLATION_TYPE, 0);
+      this.gmlcISDNAddressString = new ISDNAddressStringImpl(AddressNature.international_number,
+              org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan.ISDN, gmlcGt);
+      this.gmlcAddressString = new AddressStringImpl(AddressNature.international_number,
+              org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan.ISDN, gmlcGt);
+    }
+
+    private SccpAddress get(String digits, int ssn, int translationType, int pointCode) {
+      Table table = this.table(ssn, translationType, pointCode);
+      SccpAddress address = table.addresses.get(digits);
+      if (address == null) {
+        address = createSccpAddress(digits, ssn, translationType, pointCode);
+        if (table.entryCount.get() >= MAX_ENTRIES) {
+          table.addresses.clear();
+          table.entryCount.set(0);
+        }
+        SccpAddress previous = table.addresses.putIfAbsent(digits, address);
+        if (previous == null) {
+          table.entryCount.incrementAndGet();
+        } else {
+          address = previous;
+        }
+      }
+      return address;
+    }
+
+    private Table table(int ssn, int translationType, int pointCode) {
+      while (true) {
+        Table[] current = this.tables.get();
+        for (Table table : current) {
+          if (table.ssn == ssn && table.translationType == translationType && table.pointCode == pointCode) {
+            return table;
+          }
+        }
+        Table[] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = new Table(ssn, translationType, pointCode);
+        if (this.tables.compareAndSet(current, extended)) {
+          return extended[current.length];
+        }
+      }
+    }
+  }
+
+  private static class Table {
+    private final int ssn;
+    private final int translationType;
+    private final int pointCode;
+    private final ConcurrentHashMap<String, SccpAddress> addresses = new ConcurrentHashMap<String, SccpAddress>();
+    private final AtomicInteger entryCount = new AtomicInteger();
+
+    private Table(int ssn, int translationType, int pointCode) {
+      this.ssn = ssn;
+      this.translationType = translationType;
+      this.pointCode = pointCode;
+    }
+  }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.gmlc.slee.map;
+
+import org.mobicents.gmlc.slee.http.HttpResponseWriter;
+import org.mobicents.gmlc.slee.http.JsonWriter;
+import org.mobicents.gmlc.slee.http.report.ReportFormat;
+import org.mobicents.gmlc.slee.mlp.MLPResponse;
+import org.mobicents.protocols.ss7.map.api.primitives.IMSI;
+import org.mobicents.protocols.ss7.map.api.primitives.ISDNAddressString;
+import org.mobicents.protocols.ss7.map.api.service.lsm.DeferredLocationEventType;
+import org.mobicents.protocols.ss7.map.api.service.lsm.DeferredmtlrData;
+import org.mobicents.protocols.ss7.map.api.service.lsm.ExtGeographicalInformation;
+import org.mobicents.protocols.ss7.map.api.service.mobility.subscriberInformation.TypeOfShape;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Encodes Subscriber Location Reports for the LCS client callback in a single pass over the SLR values,
+ * straight into the UTF-8 buffer of the current thread: as a JSON document (see
+ * {@link LocationResponseJsonEncoder#encodeSlr}) or as an MLP triggered location report (tlrep).
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class SlrReportEncoder {
+
+  private static final String MLP_VERSION = "3.1.0";
+
+  /**
+   * Time and UTC offset formats of each SBB thread, SimpleDateFormat being costly to build and not thread safe
+   */
+  private static final ThreadLocal<SimpleDateFormat[]> timeFormats = new ThreadLocal<SimpleDateFormat[]>();
+
+  private SlrReportEncoder() {
+  }
+
+  /**
+   * Encode a Subscriber Location Report
+   *
+   * @param slr              SLR request values
+   * @param reportFormat     format requested at registration
+   * @param reportParameters parameters of the registration, only sent along with JSON reports, may be null
+   * @return the encoded report, a copy that can be queued for delivery
+   * @throws IOException error while encoding
+   */
+  public static byte[] encode(SlrRequestValues slr, ReportFormat reportFormat, Map<String, String> reportParameters)
+      throws IOException {
+    HttpResponseWriter writer = HttpResponseWriter.getInstance();
+    try {
+      if (reportFormat == ReportFormat.MLP) {
+        encodeTlrep(writer, slr);
+      } else {
+        LocationResponseJsonEncoder.encodeSlr(new JsonWriter(writer), slr, reportParameters);
+      }
+      return writer.toByteArray();
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Encode a Subscriber Location Report as an MLP svc_result holding a triggered location report
+   *
+   * @param out destination of the XML
+   * @param slr SLR request values
+   * @throws IOException error while writing
+   */
+  public static void encodeTlrep(Appendable out, SlrRequestValues slr) throws IOException {
+    out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    out.append("<!DOCTYPE svc_result SYSTEM \"MLP_SVC_RESULT_310.DTD\">\n");
+    out.append("<svc_result xmlns=\"MLP_SVC_RESULT_310.dtd\" ver=\"").append(MLP_VERSION).append("\">");
+    out.append("<tlrep ver=\"").append(MLP_VERSION).append("\">");
+    out.append("<req_id>").append(Integer.toString(slr.getLcsReferenceNumber())).append("</req_id>");
+    out.append("<trl_pos trl_trigger=\"").append(trigger(slr)).append("\">");
+
+    ISDNAddressString msisdn = slr.getMsisdn();
+    IMSI imsi = slr.getImsi();
+    if (msisdn != null) {
+      out.append("<msid>");
+      escape(out, msisdn.getAddress());
+      out.append("</msid>");
+    } else if (imsi != null) {
+      out.append("<msid type=\"IMSI\">");
+      escape(out, imsi.getData());
+      out.append("</msid>");
+    }
+
+    // the age of the location estimate is given in minutes
+    int age = slr.getAgeOfLocationEstimate();
+    Date time = new Date(System.currentTimeMillis() - (age > 0 && age <= 32767 ? age * 60000L : 0L));
+
+    ExtGeographicalInformation locationEstimate = slr.getLocationEstimate();
+    if (locationEstimate != null) {
+      out.append("<pd>");
+      time(out, time);
+      out.append("<shape>");
+      shape(out, locationEstimate);
+      out.append("</shape>");
+      out.append("</pd>");
+    } else {
+      MLPResponse.MLPResultType resultType = MLPResponse.MLPResultType.POSITION_METHOD_FAILURE;
+      out.append("<poserr><result resid=\"").append(MLPResponse.getResultCodeForType(resultType)).append("\">");
+      out.append(MLPResponse.getResultStringForType(resultType)).append("</result>");
+      time(out, time);
+      out.append("</poserr>");
+    }
+
+    out.append("</trl_pos>");
+    out.append("</tlrep>");
+    out.append("</svc_result>");
+  }
+
+  private static String trigger(SlrRequestValues slr) {
+    if (slr.getPeriodicLDRInfo() != null)
+      return "PERIODIC";
+    DeferredmtlrData deferredmtlrData = slr.getDeferredmtlrData();
+    if (deferredmtlrData != null) {
+      DeferredLocationEventType deferredLocationEventType = deferredmtlrData.getDeferredLocationEventType();
+      if (deferredLocationEventType != null && deferredLocationEventType.getMsAvailable())
+        return "MS_AVAIL";
+      return "CHANGE_AREA";
+    }
+    return "MS_AVAIL";
+  }
+
+  private static void time(Appendable out, Date time) throws IOException {
+    SimpleDateFormat[] formats = timeFormats.get();
+    if (formats == null) {
+      formats = new SimpleDateFormat[]{new SimpleDateFormat("Z"), new SimpleDateFormat("yyyyMMddHHmmss")};
+      timeFormats.set(formats);
+    }
+    out.append("<time utc_off=\"").append(formats[0].format(time)).append("\">");
+    out.append(formats[1].format(time)).append("</time>");
+  }
+
+  /**
+   * Coordinates are given as decimal degrees, X the latitude and Y the longitude, like in the slia positions
+   */
+  private static void shape(Appendable out, ExtGeographicalInformation estimate) throws IOException {
+    TypeOfShape typeOfShape = estimate.getTypeOfShape();
+    double radius;
+    if (typeOfShape == TypeOfShape.EllipsoidArc) {
+      out.append("<CircularArcArea>");
+      coord(out, estimate);
+      out.append("<inRadius>").append(Double.toString(estimate.getInnerRadius())).append("</inRadius>");
+      out.append("<outRadius>").append(Double.toString(estimate.getInnerRadius() + estimate.getUncertaintyRadius()))
+          .append("</outRadius>");
+      out.append("<startAngle>").append(Double.toString(estimate.getOffsetAngle())).append("</startAngle>");
+      out.append("<stopAngle>").append(Double.toString(estimate.getOffsetAngle() + estimate.getIncludedAngle()))
+          .append("</stopAngle>");
+      out.append("</CircularArcArea>");
+      return;
+    } else if (typeOfShape == TypeOfShape.EllipsoidPointWithUncertaintyCircle) {
+      radius = estimate.getUncertainty();
+    } else if (typeOfShape == TypeOfShape.EllipsoidPointWithUncertaintyEllipse) {
+      // the ellipse orientation is not carried over, the circle around its major axis contains it
+      radius = estimate.getUncertaintySemiMajorAxis();
+    } else {
+      out.append("<Point>");
+      coord(out, estimate);
+      out.append("</Point>");
+      return;
+    }
+
+    out.append("<CircularArea>");
+    coord(out, estimate);
+    out.append("<radius>").append(Double.toString(radius)).append("</radius>");
+    out.append("</CircularArea>");
+  }
+
+  private static void coord(Appendable out, ExtGeographicalInformation estimate) throws IOException {
+    out.append("<coord><X>").append(Double.toString(estimate.getLatitude())).append("</X>");
+    out.append("<Y>").append(Double.toString(estimate.getLongitude())).append("</Y></coord>");
+  }
+
+  private static void escape(Appendable out, String value) throws IOException {
+    if (value == null)
+      return;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '<':
+          out.append("&lt;");
+          break;
+        case '>':
+          out.append("&gt;");
+          break;
+        case '&':
+          out.append("&amp;");
+          break;
+        case '"':
+          out.append("&quot;");
+          break;
+        default:
+          out.append(c);
+      }
+    }
+  }
+}
@@ -21,6 +21,7 @@
 
 package org.mobicents.gmlc.slee.map;
 
+import org.mobicents.gmlc.CachedValue;
 import org.mobicents.protocols.ss7.map.api.primitives.DiameterIdentity;
 import org.mobicents.protocols.ss7.map.api.primitives.GSNAddress;
 import org.mobicents.protocols.ss7.map.api.primitives.IMSI;
@@ -36,7 +37,7 @@ import java.nio.charset.Charset;
 /**
  * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
  */
-public class SriForLcsResponseValues implements Serializable {
+public class SriForLcsResponseValues implements Serializable, Cloneable, CachedValue {
 
   private static final long serialVersionUID = -8634011303930031063L;
 
@@ -258,6 +259,18 @@ public class SriForLcsResponseValues implements Serializable {
     this.addVGmlcAddress = addVGmlcAddress;
   }
 
+  /**
+   * @return a shallow copy, MAP parameters are read only so only the values object itself is duplicated
+   */
+  @Override
+  public SriForLcsResponseValues copy() {
+    try {
+      return (SriForLcsResponseValues) super.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new AssertionError(e);
+    }
+  }
+
   @Override
   public String toString() {
 
@@ -21,6 +21,7 @@
 
 package org.mobicents.gmlc.slee.map;
 
+import org.mobicents.gmlc.CachedValue;
 import org.mobicents.protocols.ss7.map.api.primitives.IMSI;
 import org.mobicents.protocols.ss7.map.api.primitives.ISDNAddressString;
 import org.mobicents.protocols.ss7.map.api.primitives.LMSI;
@@ -34,7 +35,7 @@ import java.nio.charset.Charset;
  * @author <a href="mailto:aferreiraguido@gmail.com"> Alejandro Ferreira Guido </a>
  * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
  */
-public class SriForSmResponseValues implements Serializable {
+public class SriForSmResponseValues implements Serializable, Cloneable, CachedValue {
 
     private static final long serialVersionUID = -1994406774148014950L;
 
@@ -165,6 +166,18 @@ public class SriForSmResponseValues implements Serializable {
         this.additionalNumber = additionalNumber;
     }
 
+    /**
+     * @return a shallow copy, MAP parameters are read only so only the values object itself is duplicated
+     */
+    @Override
+    public SriForSmResponseValues copy() {
+        try {
+            return (SriForSmResponseValues) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     @Override
     public String toString() {
 
@@ -25,11 +25,15 @@ import org.jibx.runtime.BindingDirectory;
 import org.jibx.runtime.IBindingFactory;
 import org.jibx.runtime.IUnmarshallingContext;
 import org.jibx.runtime.JiBXException;
+import org.mobicents.gmlc.slee.http.LocationRequest;
+import org.mobicents.gmlc.slee.http.report.ReportFormat;
 import org.oma.protocols.mlp.svc_init.Serviceid;
 
 import javax.slee.facilities.Tracer;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Helper class to handle an incoming MLP XML request
@@ -38,6 +42,16 @@ import java.io.InputStream;
  */
 public class MLPRequest {
 
+  /**
+   * JiBX binding factory for svc_init, resolved once
+   */
+  private static volatile IBindingFactory svcInitBindingFactory;
+
+  /**
+   * JiBX unmarshalling context of each SBB thread, reset and reused for every request
+   */
+  private static final ThreadLocal<IUnmarshallingContext> unmarshallingContexts = new ThreadLocal<IUnmarshallingContext>();
+
   /**
    * Logger from the calling SBB
    */
@@ -53,35 +67,47 @@ public class MLPRequest {
   }
 
   /**
-   * Parse incoming XML request data via JiBX's unmarshaller and return only the MSISDN being requested
+   * Parse incoming XML request data via JiBX's unmarshaller into a location request
    *
    * @param requestStream InputStream (likely directly from the HTTP POST) of the XML input data
-   * @return MSISDN of device to locate
+   * @return location request holding the MSISDNs of the devices to locate and the requesting service id,
+   * every other parameter keeps its default
    * @throws MLPException
    */
-  public String parseRequest(InputStream requestStream) throws MLPException {
-    // Result XML
-    String requestingserviceid, requestingMSISDN = null;
+  public LocationRequest parseRequest(InputStream requestStream) throws MLPException {
+    LocationRequest locationRequest = new LocationRequest();
+    // location reports of MLP clients are MLP triggered location reports
+    locationRequest.setSlrReportFormat(ReportFormat.MLP);
 
     // Process the request
     try {
-      // Create the JiBX unmarshalling object
-      IBindingFactory jc = BindingDirectory.getFactory(org.oma.protocols.mlp.svc_init.SvcInit.class);
-      IUnmarshallingContext unmarshaller = jc.createUnmarshallingContext();
+      // Get the JiBX unmarshalling object of this thread
+      IUnmarshallingContext unmarshaller = getUnmarshallingContext();
 
       // Unmarshal directly from the POST input stream
       org.oma.protocols.mlp.svc_init.SvcInit svcInit = (org.oma.protocols.mlp.svc_init.SvcInit) unmarshaller.unmarshalDocument(requestStream, "UTF-8");
 
-      // Process the location request for the specified MSISDN
+      // Process the location request for every specified MSISDN
       org.oma.protocols.mlp.svc_init.Msids msids = svcInit.getSlir().getMsids();
-      org.oma.protocols.mlp.svc_init.Msids.Choice c = msids.getChoiceList().get(0);
-      org.oma.protocols.mlp.svc_init.Msid msisdn = c.getMsid();
-      requestingMSISDN = msisdn.getString();
+      List<String> msisdns = new ArrayList<String>(msids.getChoiceList().size());
+      for (org.oma.protocols.mlp.svc_init.Msids.Choice c : msids.getChoiceList()) {
+        org.oma.protocols.mlp.svc_init.Msid msisdn = c.getMsid();
+        if (msisdn != null) {
+          msisdns.add(msisdn.getString());
+        }
+      }
+      locationRequest.setMsisdns(msisdns);
       //Process the location request for serviceid
-      org.oma.protocols.mlp.svc_init.Serviceid serviceidd = svcInit.getHdr().getClient().getServiceid();
-      requestingserviceid = serviceidd.getServiceid();
-      this.logger.info("Parsed location request for MSISDN: " + requestingMSISDN);
-      return requestingMSISDN + ";" + requestingserviceid;
+      Serviceid serviceid = svcInit.getHdr().getClient().getServiceid();
+      if (serviceid != null) {
+        locationRequest.setClientId(serviceid.getServiceid());
+      }
+      if (locationRequest.isBatch()) {
+        this.logger.info("Parsed location request for " + msisdns.size() + " MSISDNs, first: " + locationRequest.getMsisdn());
+      } else {
+        this.logger.info("Parsed location request for MSISDN: " + locationRequest.getMsisdn());
+      }
+      return locationRequest;
     } catch (JiBXException e) {
       e.printStackTrace();
       this.logger.info("Exception while unmarshalling XML request data: " + e.getMessage());
@@ -94,4 +120,24 @@ public class MLPRequest {
       throw mlpException;
     }
   }
+
+  /**
+   * @return the unmarshalling context of the current thread, created on first use
+   * @throws JiBXException binding factory for svc_init could not be found
+   */
+  private static IUnmarshallingContext getUnmarshallingContext() throws JiBXException {
+    IUnmarshallingContext unmarshaller = unmarshallingContexts.get();
+    if (unmarshaller == null) {
+      IBindingFactory bindingFactory = svcInitBindingFactory;
+      if (bindingFactory == null) {
+        bindingFactory = BindingDirectory.getFactory(org.oma.protocols.mlp.svc_init.SvcInit.class);
+        svcInitBindingFactory = bindingFactory;
+      }
+      unmarshaller = bindingFactory.createUnmarshallingContext();
+      unmarshallingContexts.set(unmarshaller);
+    } else {
+      unmarshaller.reset();
+    }
+    return unmarshaller;
+  }
 }
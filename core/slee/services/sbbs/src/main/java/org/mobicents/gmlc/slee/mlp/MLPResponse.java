@@ -25,11 +25,15 @@ import org.jibx.runtime.BindingDirectory;
 import org.jibx.runtime.IBindingFactory;
 import org.jibx.runtime.IMarshallingContext;
 import org.jibx.runtime.IXMLWriter;
+import org.jibx.runtime.JiBXException;
+import org.mobicents.gmlc.GmlcPropertiesManagement;
+import org.mobicents.gmlc.slee.http.HttpResponseWriter;
 import org.oma.protocols.mlp.svc_result.Pos;
+import org.oma.protocols.mlp.svc_result.SvcResult;
 
 import javax.slee.facilities.Tracer;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -39,7 +43,8 @@ import java.util.List;
  * This is a helper for generating MLP XML responses to send to a MLP client.
  * It uses the JiBX generated XML bound classes in org.oma.protocols.mlp
  * It exists to generates consistent XML output using the JiBX marshaller
- * It supports generating a result only for a single MSISDN that has a single Point (X/Y - lat/lon) result
+ * It supports generating a result for a single MSISDN that has a single Point (X/Y - lat/lon) result,
+ * or one result for each MSISDN of a multiple MSISDN request
  * In the future, it will likely be replaced by a more complex structure for handling the full variety of MLP
  * results, but I wanted to keep it simple and clear for the first version.
  *
@@ -54,8 +59,40 @@ public class MLPResponse {
     ABSENT_SUBSCRIBER,
     QOP_NOT_ATTAINABLE,
     POSITION_METHOD_FAILURE,
+    CONGESTION_IN_LOCATION_SERVER,
   }
 
+  /**
+   * Result of one subscriber of a multiple MSISDN request: a position on success, otherwise a position error
+   */
+  public static class Position implements Serializable {
+    private final String msid;
+    private final MLPResultType resultType;
+    private final String x;
+    private final String y;
+    private final String radius;
+    private final String message;
+
+    public Position(String msid, MLPResultType resultType, String x, String y, String radius, String message) {
+      this.msid = msid;
+      this.resultType = resultType;
+      this.x = x;
+      this.y = y;
+      this.radius = radius;
+      this.message = message;
+    }
+  }
+
+  /**
+   * JiBX binding factory for svc_result, resolved once
+   */
+  private static volatile IBindingFactory svcResultBindingFactory;
+
+  /**
+   * JiBX marshalling context of each SBB thread, reset and reused for every response
+   */
+  private static final ThreadLocal<IMarshallingContext> marshallingContexts = new ThreadLocal<IMarshallingContext>();
+
   /**
    * Logger from the calling SBB
    */
@@ -67,7 +104,7 @@ public class MLPResponse {
 
   // If there's an internal exception or other error, we have to fallback to some "worst case scenario"
   // static XML return data
-  private String genericErrorXML =
+  private static final String genericErrorXML =
       "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
           "  <!DOCTYPE svc_result SYSTEM \"MLP_SVC_RESULT_310.dtd\">" +
           "  <svc_result xmlns=\"MLP_SVC_RESULT_310.dtd\" ver=\"3.1.0\">\n" +
@@ -99,6 +136,8 @@ public class MLPResponse {
         return "201";
       case POSITION_METHOD_FAILURE:
         return "6";
+      case CONGESTION_IN_LOCATION_SERVER:
+        return "101";
     }
 
     return "1";
@@ -126,6 +165,8 @@ public class MLPResponse {
         return "QOP NOT ATTAINABLE";
       case POSITION_METHOD_FAILURE:
         return "POSITION METHOD FAILURE";
+      case CONGESTION_IN_LOCATION_SERVER:
+        return "CONGESTION IN LOCATION SERVER";
     }
 
     return "1";
@@ -156,9 +197,10 @@ public class MLPResponse {
    * @param y      Y coordinate in WGS84 DMS format
    * @param radius Position radius in meters (e.g. 5000 for 5km of accuracy)
    * @param msid   Location for MSISDN
-   * @return String XML result to return to client
+   * @param out    Response writer the XML result is written to
+   * @throws IOException IO error occurred while writing the XML result
    * Example usage:
-   * svcResultXml = MLPResponse.getSinglePositionSuccessXML("27 28 25.00S", "153 01 43.00E", "+1000", "20140507082957", "61307341370");
+   * mlpResponse.writeSinglePositionSuccessXML("27 28 25.00S", "153 01 43.00E", "+1000", "61307341370", out);
    * Example result based on above usage:
    * <?xml version="1.0" encoding="UTF-8"?>
    * <!DOCTYPE svc_result SYSTEM "MLP_SVC_RESULT_310.DTD">
@@ -181,10 +223,8 @@ public class MLPResponse {
    * </slia>
    * </svc_result>
    */
-  public String getSinglePositionSuccessXML(String x, String y, String radius, String msid) {
-    // Generate XML response
-    String svcResultXml = "";
-
+  public void writeSinglePositionSuccessXML(String x, String y, String radius, String msid, HttpResponseWriter out) throws IOException {
+    int mark = out.mark();
     try {
       // Eventually this timestamp should be replaced by the actual network position time
       Date requestTime = new Date();
@@ -192,23 +232,20 @@ public class MLPResponse {
       String utcOffset = new SimpleDateFormat("Z").format(requestTime);
 
       // Generate the response XML
-      svcResultXml = this.generateSinglePositionSuccessXML(x, y, radius, utcOffset, date, msid);
+      marshalMlpResult(this.generateSinglePositionSuccessXML(x, y, radius, utcOffset, date, msid), out);
     } catch (IllegalArgumentException e) {
-      // Generate the error XML
-      svcResultXml = this.getSystemErrorResponseXML(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Failed to create request timestamp");
-    } catch (IOException e) {
-      // Generate the error XML
-      svcResultXml = this.getSystemErrorResponseXML(MLPResponse.MLPResultType.SYSTEM_FAILURE, "IO failure generating XML");
-    } catch (org.jibx.runtime.JiBXException e) {
-      // Generate the error XML
-      svcResultXml = this.getSystemErrorResponseXML(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Failed to generate XML response from internal objects");
+      // Generate the error XML in place of whatever was written
+      out.reset(mark);
+      this.writeSystemErrorResponseXML(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Failed to create request timestamp", out);
+    } catch (JiBXException e) {
+      // Generate the error XML in place of whatever was written
+      out.reset(mark);
+      this.writeSystemErrorResponseXML(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Failed to generate XML response from internal objects", out);
     }
-
-    return svcResultXml;
   }
 
   /**
-   * Internal XML generation support function for above getSinglePositionSuccessXML()
+   * Internal XML generation support function for above writeSinglePositionSuccessXML()
    *
    * @param x         X coordinate in WGS84 DMS format
    * @param y         Y coordinate in WGS84 DMS format
@@ -216,18 +253,39 @@ public class MLPResponse {
    * @param utcOffSet Utc offset for location timestamp in "[+/-]HHmm" format
    * @param time      Location timestamp at above UTC offset in "yyyyMMddHHmmss" format
    * @param msid      Location for MSISDN
-   * @return String XML result to return to client
-   * @throws org.jibx.runtime.JiBXException JiBX had an internal failure of some kind while marshalling the XML
-   * @throws IOException                    IO error occurred while generating the XML result
+   * @return SvcResult to marshal
    */
-  private String generateSinglePositionSuccessXML(String x, String y, String radius, String utcOffSet, String time, String msid)
-      throws org.jibx.runtime.JiBXException, IOException {
-    String lXml = null;
+  private SvcResult generateSinglePositionSuccessXML(String x, String y, String radius, String utcOffSet, String time, String msid) {
     String ver = "3.1.0";
 
     // Create all the objects we'll use to generate our svc_result XML
     org.oma.protocols.mlp.svc_result.SvcResult mlpSvcResult = new org.oma.protocols.mlp.svc_result.SvcResult();
     org.oma.protocols.mlp.svc_result.Slia mlpSlia = new org.oma.protocols.mlp.svc_result.Slia();
+    List<Pos> posList = new ArrayList();
+
+    // Add the single position to the position list and result
+    posList.add(generatePositionSuccessPos(x, y, radius, utcOffSet, time, msid));
+    mlpSlia.setPoList(posList);
+    mlpSlia.setVer(ver);
+    mlpSvcResult.setSlia(mlpSlia);
+    mlpSvcResult.setVer(ver);
+
+    return mlpSvcResult;
+  }
+
+  /**
+   * Internal XML generation support function for a successful position of a svc_result
+   *
+   * @param x         X coordinate in WGS84 DMS format
+   * @param y         Y coordinate in WGS84 DMS format
+   * @param radius    Position radius in meters (e.g. 5000 for 5km of accuracy)
+   * @param utcOffSet Utc offset for location timestamp in "[+/-]HHmm" format
+   * @param time      Location timestamp at above UTC offset in "yyyyMMddHHmmss" format
+   * @param msid      Location for MSISDN
+   * @return Pos to add to the position list of the slia
+   */
+  private static Pos generatePositionSuccessPos(String x, String y, String radius, String utcOffSet, String time, String msid) {
+    // Create all the objects we'll use to generate our pos XML
     org.oma.protocols.mlp.svc_result.Pos mlpPos = new org.oma.protocols.mlp.svc_result.Pos();
     org.oma.protocols.mlp.svc_result.Msid mlpMsid = new org.oma.protocols.mlp.svc_result.Msid();
     org.oma.protocols.mlp.svc_result.Pd mlpPd = new org.oma.protocols.mlp.svc_result.Pd();
@@ -238,7 +296,6 @@ public class MLPResponse {
     org.oma.protocols.mlp.svc_result.X mlpX = new org.oma.protocols.mlp.svc_result.X();
     org.oma.protocols.mlp.svc_result.Y mlpY = new org.oma.protocols.mlp.svc_result.Y();
     org.oma.protocols.mlp.svc_result.Radius mlpRadius = new org.oma.protocols.mlp.svc_result.Radius();
-    List<Pos> posList = new ArrayList();
 
     // Set the key location data
     mlpX.setX(x);
@@ -259,17 +316,7 @@ public class MLPResponse {
     mlpPos.setMsid(mlpMsid);
     mlpPos.setPd(mlpPd);
 
-    // Add it to the position list and result
-    posList.add(mlpPos);
-    mlpSlia.setPoList(posList);
-    mlpSlia.setVer(ver);
-    mlpSvcResult.setSlia(mlpSlia);
-    mlpSvcResult.setVer(ver);
-
-    lXml = marshalMlpResult(mlpSvcResult);
-
-    // Return our XML string result
-    return lXml;
+    return mlpPos;
   }
 
   /**
@@ -277,41 +324,32 @@ public class MLPResponse {
    *
    * @param mlpClientErrorType    Error type to return to client
    * @param mlpClientErrorMessage Error message to send to client
-   * @return String XML result to return to client
+   * @param out                   Response writer the XML result is written to
+   * @throws IOException          IO error occurred while writing the XML result
    */
-  public String getSystemErrorResponseXML(MLPResultType mlpClientErrorType, String mlpClientErrorMessage) {
-    // Generate XML response
-    String svcResultXml = "";
-
+  public void writeSystemErrorResponseXML(MLPResultType mlpClientErrorType, String mlpClientErrorMessage, HttpResponseWriter out)
+      throws IOException {
+    int mark = out.mark();
     try {
       // Generate the error XML
-      svcResultXml = this.generateSystemErrorXML(mlpClientErrorType, mlpClientErrorMessage);
-      return svcResultXml;
-    } catch (IOException e) {
-      // Return generic XML error response because we couldn't generate the correct response
-      e.printStackTrace();
-      this.logger.info("Exception while creating XML response data: " + e.getMessage());
-      return genericErrorXML;
-    } catch (org.jibx.runtime.JiBXException e) {
+      marshalMlpResult(this.generateSystemErrorXML(mlpClientErrorType, mlpClientErrorMessage), out);
+    } catch (JiBXException e) {
       // Return generic XML error response because we couldn't generate the correct response
       e.printStackTrace();
       this.logger.info("Exception while marshalling XML response data: " + e.getMessage());
-      return genericErrorXML;
+      out.reset(mark);
+      out.write(genericErrorXML.getBytes("UTF-8"));
     }
   }
 
   /**
-   * Internal XML generation support function for above getSystemErrorResponseXML()
+   * Internal XML generation support function for above writeSystemErrorResponseXML()
    *
    * @param mlpClientErrorType                Error type to return to client
    * @param mlpClientErrorMessage             Error message to send to client
-   * @return                                  String XML result to return to client
-   * @throws org.jibx.runtime.JiBXException   JiBX had an internal failure of some kind while marshalling the XML
-   * @throws IOException                      IO error occurred while generating the XML result
+   * @return                                  SvcResult to marshal
    */
-  private String generateSystemErrorXML(MLPResultType mlpClientErrorType, String mlpClientErrorMessage)
-      throws org.jibx.runtime.JiBXException, IOException {
-    String lXml = null;
+  private SvcResult generateSystemErrorXML(MLPResultType mlpClientErrorType, String mlpClientErrorMessage) {
     String ver = "3.1.0";
 
     // Create all the objects we'll use to generate our svc_result XML
@@ -333,27 +371,7 @@ public class MLPResponse {
     mlpSvcResult.setSlia(mlpSlia);
     mlpSvcResult.setVer(ver);
 
-    IBindingFactory jc = BindingDirectory.getFactory(org.oma.protocols.mlp.svc_result.SvcResult.class);
-    IMarshallingContext marshaller = jc.createMarshallingContext();
-    ByteArrayOutputStream lOutputStream = new ByteArrayOutputStream();
-    marshaller.setOutput(lOutputStream, "UTF-8");
-    IXMLWriter ix = marshaller.getXmlWriter();
-
-    // Add XML and DOCTYPE headers
-    ix.writeXMLDecl("1.0", "UTF-8", null);
-    ix.writeDocType("svc_result", "MLP_SVC_RESULT_310.DTD", null, null);
-
-    // Set 4 spaces as the default indenting
-    marshaller.setIndent(4);
-
-    // Generate the XML
-    marshaller.marshalDocument(mlpSvcResult);
-
-    // Convert the stream to a string
-    lXml = new String(lOutputStream.toByteArray(), "UTF-8");
-
-    // Return our XML string result
-    return lXml;
+    return mlpSvcResult;
   }
 
   /**
@@ -362,12 +380,12 @@ public class MLPResponse {
    * @param msid                  Device MSISDN
    * @param mlpClientErrorType    Error type to return to client
    * @param mlpClientErrorMessage Error message to send to client
-   * @return String XML result to return to client
+   * @param out                   Response writer the XML result is written to
+   * @throws IOException          IO error occurred while writing the XML result
    */
-  public String getPositionErrorResponseXML(String msid, MLPResultType mlpClientErrorType, String mlpClientErrorMessage) {
-    // Generate XML response
-    String svcResultXml = "";
-
+  public void writePositionErrorResponseXML(String msid, MLPResultType mlpClientErrorType, String mlpClientErrorMessage,
+                                            HttpResponseWriter out) throws IOException {
+    int mark = out.mark();
     try {
       // Eventually this timestamp should be replaced by the actual network position time
       Date requestTime = new Date();
@@ -376,53 +394,69 @@ public class MLPResponse {
 
       // Generate the error XML
       this.logger.info("Creating error XML response for type: " + MLPResponse.getResultCodeForType(mlpClientErrorType) + " message: " + mlpClientErrorMessage);
-      svcResultXml = this.generatePositionErrorXML(utcOffset, date, msid, mlpClientErrorType, mlpClientErrorMessage);
-      return svcResultXml;
+      marshalMlpResult(this.generatePositionErrorXML(utcOffset, date, msid, mlpClientErrorType, mlpClientErrorMessage), out);
     } catch (IllegalArgumentException e) {
       // Return generic XML error response because we couldn't generate the correct response
       e.printStackTrace();
       this.logger.info("Exception while creating timestamp: " + e.getMessage());
-      return genericErrorXML;
-    } catch (IOException e) {
-      // Return generic XML error response because we couldn't generate the correct response
-      e.printStackTrace();
-      this.logger.info("Exception while creating XML response data: " + e.getMessage());
-      return genericErrorXML;
-    } catch (org.jibx.runtime.JiBXException e) {
+      out.reset(mark);
+      out.write(genericErrorXML.getBytes("UTF-8"));
+    } catch (JiBXException e) {
       // Return generic XML error response because we couldn't generate the correct response
       e.printStackTrace();
       this.logger.info("Exception while marshalling XML response data: " + e.getMessage());
-      return genericErrorXML;
+      out.reset(mark);
+      out.write(genericErrorXML.getBytes("UTF-8"));
     }
   }
 
   /**
-   * Internal XML generation support function for above getSystemErrorResponseXML()
+   * Internal XML generation support function for above writePositionErrorResponseXML()
    *
    * @param utcOffSet             Utc offset for location timestamp in "[+/-]HHmm" format
    * @param time                  Location timestamp at above UTC offset in "yyyyMMddHHmmss" format
    * @param msid                  Device MSISDN
    * @param mlpClientErrorType    Error type to return to client
    * @param mlpClientErrorMessage Error message to send to client
-   * @return                      String XML result to return to client
-   * @throws org.jibx.runtime.JiBXException JiBX had an internal failure of some kind while marshalling the XML
-   * @throws IOException          IO error occurred while generating the XML result
+   * @return                      SvcResult to marshal
    */
-  private String generatePositionErrorXML(String utcOffSet, String time, String msid, MLPResultType mlpClientErrorType, String mlpClientErrorMessage)
-      throws org.jibx.runtime.JiBXException, IOException {
-    String lXml = null;
+  private SvcResult generatePositionErrorXML(String utcOffSet, String time, String msid, MLPResultType mlpClientErrorType,
+                                             String mlpClientErrorMessage) {
     String ver = "3.1.0";
 
     // Create all the objects we'll use to generate our svc_result XML
     org.oma.protocols.mlp.svc_result.SvcResult mlpSvcResult = new org.oma.protocols.mlp.svc_result.SvcResult();
     org.oma.protocols.mlp.svc_result.Slia mlpSlia = new org.oma.protocols.mlp.svc_result.Slia();
+    List<Pos> posList = new ArrayList();
+
+    posList.add(generatePositionErrorPos(utcOffSet, time, msid, mlpClientErrorType, mlpClientErrorMessage));
+    mlpSlia.setPoList(posList);
+    mlpSlia.setVer(ver);
+    mlpSvcResult.setSlia(mlpSlia);
+    mlpSvcResult.setVer(ver);
+
+    return mlpSvcResult;
+  }
+
+  /**
+   * Internal XML generation support function for a position error of a svc_result
+   *
+   * @param utcOffSet             Utc offset for location timestamp in "[+/-]HHmm" format
+   * @param time                  Location timestamp at above UTC offset in "yyyyMMddHHmmss" format
+   * @param msid                  Device MSISDN
+   * @param mlpClientErrorType    Error type to return to client
+   * @param mlpClientErrorMessage Error message to send to client
+   * @return                      Pos to add to the position list of the slia
+   */
+  private static Pos generatePositionErrorPos(String utcOffSet, String time, String msid, MLPResultType mlpClientErrorType,
+                                              String mlpClientErrorMessage) {
+    // Create all the objects we'll use to generate our pos XML
     org.oma.protocols.mlp.svc_result.Pos mlpPos = new org.oma.protocols.mlp.svc_result.Pos();
     org.oma.protocols.mlp.svc_result.Msid mlpMsid = new org.oma.protocols.mlp.svc_result.Msid();
     org.oma.protocols.mlp.svc_result.Result mlpResult = new org.oma.protocols.mlp.svc_result.Result();
     org.oma.protocols.mlp.svc_result.AddInfo mlpAddInfo = new org.oma.protocols.mlp.svc_result.AddInfo();
     org.oma.protocols.mlp.svc_result.Poserr mlpPosErr = new org.oma.protocols.mlp.svc_result.Poserr();
     org.oma.protocols.mlp.svc_result.Time mlpTime = new org.oma.protocols.mlp.svc_result.Time();
-    List<Pos> posList = new ArrayList();
 
     // Set the data
     mlpTime.setUtcOff(utcOffSet);
@@ -441,50 +475,110 @@ public class MLPResponse {
     mlpPosErr.setTime(mlpTime);
     mlpPos.setMsid(mlpMsid);
     mlpPos.setPoserr(mlpPosErr);
-    posList.add(mlpPos);
+
+    return mlpPos;
+  }
+
+  /**
+   * Generate a MLP response holding one position, or position error, for every subscriber of a multiple MSISDN request
+   *
+   * @param positions Results of the subscribers, in request order
+   * @param out       Response writer the XML result is written to
+   * @throws IOException IO error occurred while writing the XML result
+   */
+  public void writeMultiplePositionXML(List<Position> positions, HttpResponseWriter out) throws IOException {
+    int mark = out.mark();
+    try {
+      // Eventually this timestamp should be replaced by the actual network position time
+      Date requestTime = new Date();
+      String date = new SimpleDateFormat("yyyyMMddHHmmss").format(requestTime);
+      String utcOffset = new SimpleDateFormat("Z").format(requestTime);
+
+      // Generate the response XML
+      marshalMlpResult(this.generateMultiplePositionXML(positions, utcOffset, date), out);
+    } catch (IllegalArgumentException e) {
+      // Generate the error XML in place of whatever was written
+      out.reset(mark);
+      this.writeSystemErrorResponseXML(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Failed to create request timestamp", out);
+    } catch (JiBXException e) {
+      // Generate the error XML in place of whatever was written
+      out.reset(mark);
+      this.writeSystemErrorResponseXML(MLPResponse.MLPResultType.SYSTEM_FAILURE, "Failed to generate XML response from internal objects", out);
+    }
+  }
+
+  /**
+   * Internal XML generation support function for above writeMultiplePositionXML()
+   *
+   * @param positions Results of the subscribers, in request order
+   * @param utcOffSet Utc offset for location timestamp in "[+/-]HHmm" format
+   * @param time      Location timestamp at above UTC offset in "yyyyMMddHHmmss" format
+   * @return SvcResult to marshal
+   */
+  private SvcResult generateMultiplePositionXML(List<Position> positions, String utcOffSet, String time) {
+    String ver = "3.1.0";
+
+    org.oma.protocols.mlp.svc_result.SvcResult mlpSvcResult = new org.oma.protocols.mlp.svc_result.SvcResult();
+    org.oma.protocols.mlp.svc_result.Slia mlpSlia = new org.oma.protocols.mlp.svc_result.Slia();
+    List<Pos> posList = new ArrayList<Pos>(positions.size());
+
+    for (Position position : positions) {
+      if (position.resultType == MLPResultType.OK) {
+        posList.add(generatePositionSuccessPos(position.x, position.y, position.radius, utcOffSet, time, position.msid));
+      } else {
+        posList.add(generatePositionErrorPos(utcOffSet, time, position.msid, position.resultType, position.message));
+      }
+    }
     mlpSlia.setPoList(posList);
     mlpSlia.setVer(ver);
     mlpSvcResult.setSlia(mlpSlia);
     mlpSvcResult.setVer(ver);
 
-    lXml = marshalMlpResult(mlpSvcResult);
-
-    // Return our XML string result
-    return lXml;
+    return mlpSvcResult;
   }
 
   /**
    * Create the svc_result XML result for any type of result (error or success)
    *
    * @param mlpSvcResult  Fully filled in SvcResult object to marshal (convert to XML)
-   * @return              String of XML result to send to client
-   * @throws org.jibx.runtime.JiBXException JiBX had an internal failure of some kind while marshalling the XML
-   * @throws IOException  IO error occurred while generating the XML result
+   * @param out           Writer the XML result is written to, partially when marshalling fails
+   * @throws JiBXException JiBX had an internal failure of some kind while marshalling the XML
+   * @throws IOException  IO error occurred while writing the XML result
    */
-  private String marshalMlpResult(org.oma.protocols.mlp.svc_result.SvcResult mlpSvcResult)
-      throws org.jibx.runtime.JiBXException, IOException {
-    String lXml = null;
-
-    IBindingFactory jc = BindingDirectory.getFactory(org.oma.protocols.mlp.svc_result.SvcResult.class);
-    IMarshallingContext marshaller = jc.createMarshallingContext();
-    ByteArrayOutputStream lOutputStream = new ByteArrayOutputStream();
-    marshaller.setOutput(lOutputStream, "UTF-8");
+  private static void marshalMlpResult(SvcResult mlpSvcResult, HttpResponseWriter out) throws JiBXException, IOException {
+    IMarshallingContext marshaller = getMarshallingContext();
+    marshaller.setOutput(out, "UTF-8");
     IXMLWriter ix = marshaller.getXmlWriter();
 
     // Add XML and DOCTYPE headers
     ix.writeXMLDecl("1.0", "UTF-8", null);
     ix.writeDocType("svc_result", "MLP_SVC_RESULT_310.DTD", null, null);
 
-    // Set 4 spaces as the default indenting
-    marshaller.setIndent(4);
+    // Indent as configured, 0 writes the whole document without whitespace between elements
+    int indent = GmlcPropertiesManagement.getInstance().getMlpIndent();
+    marshaller.setIndent(indent > 0 ? indent : -1);
 
     // Generate the XML
     marshaller.marshalDocument(mlpSvcResult);
+  }
 
-    // Convert the stream to a string
-    lXml = new String(lOutputStream.toByteArray(), "UTF-8");
-
-    // Return our XML string result
-    return lXml;
+  /**
+   * @return the marshalling context of the current thread, created on first use
+   * @throws JiBXException binding factory for svc_result could not be found
+   */
+  private static IMarshallingContext getMarshallingContext() throws JiBXException {
+    IMarshallingContext marshaller = marshallingContexts.get();
+    if (marshaller == null) {
+      IBindingFactory bindingFactory = svcResultBindingFactory;
+      if (bindingFactory == null) {
+        bindingFactory = BindingDirectory.getFactory(SvcResult.class);
+        svcResultBindingFactory = bindingFactory;
+      }
+      marshaller = bindingFactory.createMarshallingContext();
+      marshallingContexts.set(marshaller);
+    } else {
+      marshaller.reset();
+    }
+    return marshaller;
   }
 }
@@ -0,0 +1,273 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.gmlc.slee.cdr;
+
+import org.joda.time.DateTime;
+import org.mobicents.protocols.ss7.indicator.NatureOfAddress;
+import org.mobicents.protocols.ss7.indicator.NumberingPlan;
+import org.mobicents.protocols.ss7.indicator.RoutingIndicator;
+import org.mobicents.protocols.ss7.map.api.primitives.AddressNature;
+import org.mobicents.protocols.ss7.map.primitives.CellGlobalIdOrServiceAreaIdFixedLengthImpl;
+import org.mobicents.protocols.ss7.map.primitives.CellGlobalIdOrServiceAreaIdOrLAIImpl;
+import org.mobicents.protocols.ss7.map.primitives.DiameterIdentityImpl;
+import org.mobicents.protocols.ss7.map.primitives.GSNAddressImpl;
+import org.mobicents.protocols.ss7.map.primitives.IMSIImpl;
+import org.mobicents.protocols.ss7.map.primitives.ISDNAddressStringImpl;
+import org.mobicents.protocols.ss7.map.primitives.LMSIImpl;
+import org.mobicents.protocols.ss7.sccp.impl.parameter.ParameterFactoryImpl;
+import org.mobicents.protocols.ss7.sccp.parameter.GlobalTitle;
+import org.mobicents.protocols.ss7.sccp.parameter.ParameterFactory;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Round trips of {@link GMLCCDRState} through its externalized form. Every field is filled reflectively,
+ * so a field added to the state but left out of writeExternal/readExternal fails here.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class GMLCCDRStateTest {
+
+  @Test
+  public void testCopyKeepsEveryField() throws Exception {
+    GMLCCDRState state = new GMLCCDRState();
+    List<Field> fields = stateFields();
+    for (int i = 0; i < fields.size(); i++) {
+      fields.get(i).set(state, sampleValue(fields.get(i).getType(), i + 1));
+    }
+
+    GMLCCDRState copy = state.copy();
+
+    for (Field field : fields) {
+      Object expected = field.get(state);
+      Object actual = field.get(copy);
+      assertNotNull(actual, field.getName() + " was not copied");
+      if (hasValueEquality(expected.getClass())) {
+        assertEquals(actual, expected, field.getName() + " was not copied");
+      } else {
+        assertSame(actual.getClass(), expected.getClass(), field.getName() + " was not copied");
+        assertEquals(actual.toString(), expected.toString(), field.getName() + " was not copied");
+      }
+    }
+  }
+
+  @Test
+  public void testRecordIsWrittenInWireForm() throws Exception {
+    ParameterFactory sccpParameterFactory = new ParameterFactoryImpl();
+    GlobalTitle gt = sccpParameterFactory.createGlobalTitle("59899077937", 0, NumberingPlan.ISDN_TELEPHONY, null,
+        NatureOfAddress.INTERNATIONAL);
+    GMLCCDRState state = new GMLCCDRState();
+    state.init(1L, null, null, new ISDNAddressStringImpl(AddressNature.international_number,
+        org.mobicents.protocols.ss7.map.api.primitives.NumberingPlan.ISDN, "59899077937"), null, null);
+    state.setLocalAddress(sccpParameterFactory.createSccpAddress(RoutingIndicator.ROUTING_BASED_ON_GLOBAL_TITLE, gt, 0, 145));
+    state.setRemoteAddress(sccpParameterFactory.createSccpAddress(RoutingIndicator.ROUTING_BASED_ON_DPC_AND_SSN, gt, 2012, 6));
+    state.setImsi(new IMSIImpl("748026871012345"));
+    state.setLmsi(new LMSIImpl(new byte[]{1, 2, 3, 4}));
+    state.sethGmlcAddress(new GSNAddressImpl(new byte[]{4, 10, 0, 0, 1}));
+    state.setMmeName(new DiameterIdentityImpl("mme.epc.example.org".getBytes("US-ASCII")));
+    state.setCellGlobalIdOrServiceAreaIdOrLAI(new CellGlobalIdOrServiceAreaIdOrLAIImpl(
+        new CellGlobalIdOrServiceAreaIdFixedLengthImpl(748, 1, 1234, 5678)));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    state.writeExternal(out);
+    out.close();
+    // no class descriptor of any jSS7 implementation is written
+    assertFalse(new String(bytes.toByteArray(), "ISO-8859-1").contains("org.mobicents"));
+    assertTrue(bytes.size() < 512, "externalized to " + bytes.size() + " bytes");
+
+    GMLCCDRState copy = new GMLCCDRState();
+    copy.readExternal(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(copy.getLocalAddress(), state.getLocalAddress());
+    assertEquals(copy.getRemoteAddress(), state.getRemoteAddress());
+    assertEquals(copy.getISDNAddressString(), state.getISDNAddressString());
+    assertEquals(copy.getImsi(), state.getImsi());
+    assertEquals(copy.getLmsi(), state.getLmsi());
+    assertEquals(copy.gethGmlcAddress(), state.gethGmlcAddress());
+    assertEquals(copy.getMmeName(), state.getMmeName());
+    assertEquals(copy.getCellGlobalIdOrServiceAreaIdOrLAI(), state.getCellGlobalIdOrServiceAreaIdOrLAI());
+  }
+
+  @Test
+  public void testFlagsAreIndependent() throws Exception {
+    List<Field> flags = new ArrayList<Field>();
+    for (Field field : stateFields()) {
+      if (field.getType() == boolean.class) {
+        flags.add(field);
+      }
+    }
+    for (Field flag : flags) {
+      GMLCCDRState state = new GMLCCDRState();
+      flag.setBoolean(state, true);
+      GMLCCDRState copy = state.copy();
+      for (Field other : flags) {
+        assertEquals(other.getBoolean(copy), other == flag, other.getName() + " after setting " + flag.getName());
+      }
+    }
+  }
+
+  @Test
+  public void testCopyOfEmptyState() throws Exception {
+    GMLCCDRState copy = new GMLCCDRState().copy();
+    for (Field field : stateFields()) {
+      if (field.getType().isPrimitive()) {
+        assertEquals(String.valueOf(field.get(copy)), field.getType() == boolean.class ? "false" : "0", field.getName());
+      } else {
+        assertNull(field.get(copy), field.getName());
+      }
+    }
+  }
+
+  @Test
+  public void testExternalizedStateIsVersioned() throws Exception {
+    GMLCCDRState state = new GMLCCDRState();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    state.writeExternal(out);
+    out.close();
+    byte[] encoded = bytes.toByteArray();
+
+    // the version byte follows the 4 byte stream header and the block data header
+    encoded[6]++;
+    try {
+      new GMLCCDRState().readExternal(new ObjectInputStream(new ByteArrayInputStream(encoded)));
+      assertFalse(true, "an unknown version must be rejected");
+    } catch (java.io.IOException e) {
+      assertTrue(e.getMessage().contains("version"));
+    }
+  }
+
+  private static List<Field> stateFields() {
+    List<Field> fields = new ArrayList<Field>();
+    for (Field field : GMLCCDRState.class.getDeclaredFields()) {
+      if (!Modifier.isStatic(field.getModifiers())) {
+        field.setAccessible(true);
+        fields.add(field);
+      }
+    }
+    return fields;
+  }
+
+  private static Object sampleValue(Class<?> type, int seed) throws Exception {
+    if (type == boolean.class || type == Boolean.class) {
+      return true;
+    }
+    if (type == int.class || type == Integer.class) {
+      return seed;
+    }
+    if (type == long.class || type == Long.class) {
+      return 1000L + seed;
+    }
+    if (type == Double.class || type == double.class) {
+      return seed + 0.25;
+    }
+    if (type == String.class) {
+      return "value" + seed;
+    }
+    if (type == byte[].class) {
+      return new byte[]{(byte) seed, 2, 3};
+    }
+    if (type == DateTime.class) {
+      return new DateTime(1500000000000L + seed);
+    }
+    if (type.isEnum()) {
+      Object[] constants = type.getEnumConstants();
+      return constants[seed % constants.length];
+    }
+    return newInstance(implementationOf(type), seed);
+  }
+
+  /**
+   * Implementation class of a jSS7 API type, e.g. map.api.primitives.IMSI is implemented by map.primitives.IMSIImpl
+   */
+  private static Class<?> implementationOf(Class<?> type) throws ClassNotFoundException {
+    if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+      return type;
+    }
+    String name = type.getName();
+    if (name.startsWith("org.mobicents.protocols.ss7.map.api.")) {
+      return Class.forName(name.replace(".map.api.", ".map.") + "Impl");
+    }
+    if (name.startsWith("org.mobicents.protocols.ss7.sccp.parameter.")) {
+      return Class.forName(name.replace(".sccp.parameter.", ".sccp.impl.parameter.") + "Impl");
+    }
+    throw new ClassNotFoundException("No implementation known for " + name);
+  }
+
+  /**
+   * Build an instance with the widest public constructor that takes only simple values,
+   * any API type argument being left null
+   */
+  private static Object newInstance(Class<?> type, int seed) throws Exception {
+    Constructor<?>[] constructors = type.getConstructors();
+    Arrays.sort(constructors, new Comparator<Constructor<?>>() {
+      @Override
+      public int compare(Constructor<?> c1, Constructor<?> c2) {
+        return c2.getParameterTypes().length - c1.getParameterTypes().length;
+      }
+    });
+    Exception failure = null;
+    for (Constructor<?> constructor : constructors) {
+      Class<?>[] parameterTypes = constructor.getParameterTypes();
+      Object[] arguments = new Object[parameterTypes.length];
+      for (int i = 0; i < parameterTypes.length; i++) {
+        Class<?> parameterType = parameterTypes[i];
+        if (parameterType.isInterface() || Modifier.isAbstract(parameterType.getModifiers()) && !parameterType.isPrimitive()
+            && !parameterType.isArray()) {
+          arguments[i] = null;
+        } else if (parameterType == String.class) {
+          arguments[i] = "1234" + seed;
+        } else {
+          arguments[i] = sampleValue(parameterType, seed);
+        }
+      }
+      try {
+        return constructor.newInstance(arguments);
+      } catch (Exception e) {
+        failure = e;
+      }
+    }
+    throw new IllegalStateException("Could not build a " + type.getName(), failure);
+  }
+
+  private static boolean hasValueEquality(Class<?> type) throws NoSuchMethodException {
+    return type.getMethod("equals", Object.class).getDeclaringClass() != Object.class;
+  }
+
+}
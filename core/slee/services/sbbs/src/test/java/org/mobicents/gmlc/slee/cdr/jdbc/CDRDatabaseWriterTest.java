@@ -0,0 +1,190 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2018, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.gmlc.slee.cdr.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.mobicents.gmlc.slee.cdr.GMLCCDRState;
+import org.mobicents.gmlc.slee.cdr.RecordStatus;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Inserts of {@link CDRDatabaseWriter} into an in-memory H2 database: batching, a database going away
+ * and coming back, and a record the database refuses.
+ *
+ * @author <a href="mailto:fernando.mendioroz@gmail.com"> Fernando Mendioroz </a>
+ */
+public class CDRDatabaseWriterTest {
+
+  private static int databases;
+
+  private JdbcDataSource h2;
+  private Connection keepAlive;
+  private boolean available;
+  private CDRDatabaseWriter writer;
+
+  @BeforeMethod
+  public void setUp() throws SQLException {
+    h2 = new JdbcDataSource();
+    h2.setURL("jdbc:h2:mem:cdr" + (++databases));
+    // an in-memory database lives as long as one of its connections
+    keepAlive = h2.getConnection();
+    available = true;
+    DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("getConnection") && !available) {
+              throw new SQLNonTransientConnectionException("Connection refused", "08001");
+            }
+            try {
+              return method.invoke(h2, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          }
+        });
+    writer = new CDRDatabaseWriter(dataSource, "java:/GmlcCdrTest");
+  }
+
+  @AfterMethod
+  public void tearDown() throws SQLException {
+    keepAlive.close();
+  }
+
+  @Test
+  public void testBatchIsInsertedInOneTransaction() throws SQLException {
+    List<CDRDatabaseWriter.Row> rows = rows(50);
+
+    assertTrue(writer.insert(rows));
+
+    assertTrue(rows.isEmpty());
+    assertEquals(count(), 50);
+    assertEquals(writer.getInserted(), 50);
+    assertEquals(writer.getBatches(), 1);
+    assertEquals(writer.getRejected(), 0);
+  }
+
+  @Test
+  public void testBatchIsKeptWhileTheDatabaseIsUnavailable() throws SQLException {
+    List<CDRDatabaseWriter.Row> rows = rows(10);
+    available = false;
+
+    assertFalse(writer.insert(rows));
+    assertFalse(writer.insert(rows));
+    assertEquals(rows.size(), 10);
+
+    available = true;
+    assertTrue(writer.insert(rows));
+    assertTrue(rows.isEmpty());
+    assertEquals(count(), 10);
+    assertEquals(writer.getRejected(), 0);
+  }
+
+  @Test
+  public void testRefusedRecordIsDroppedAndTheRestInserted() throws SQLException {
+    List<CDRDatabaseWriter.Row> rows = rows(10);
+    char[] tooLong = new char[9000];
+    Arrays.fill(tooLong, 'x');
+    rows.set(4, row("poison", new String(tooLong)));
+
+    assertTrue(writer.insert(rows));
+
+    assertTrue(rows.isEmpty());
+    assertEquals(count(), 9);
+    assertEquals(writer.getInserted(), 9);
+    assertEquals(writer.getRejected(), 1);
+    assertEquals(count("SELECT COUNT(*) FROM GMLC_CDR WHERE ID = 'poison'"), 0);
+
+    // the next batch goes through as a batch again
+    assertTrue(writer.insert(rows(5)));
+    assertEquals(count(), 14);
+  }
+
+  @Test
+  public void testErrorsAreClassified() {
+    assertTrue(CDRDatabaseWriter.isRejected(new SQLException("Value too long for column", "22001")));
+    assertTrue(CDRDatabaseWriter.isRejected(new SQLIntegrityConstraintViolationException("Unique index violation")));
+    assertFalse(CDRDatabaseWriter.isRejected(new SQLTransientConnectionException("Pool exhausted")));
+    assertFalse(CDRDatabaseWriter.isRejected(new SQLNonTransientConnectionException("Connection reset", "08006")));
+    assertFalse(CDRDatabaseWriter.isRejected(new SQLException("Table not found", "42S02")));
+
+    BatchUpdateException batch = new BatchUpdateException("Batch failed", "22001", new int[0]);
+    assertTrue(CDRDatabaseWriter.isRejected(batch));
+    BatchUpdateException lost = new BatchUpdateException("Batch failed", null, new int[0]);
+    lost.setNextException(new SQLNonTransientConnectionException("Connection reset", "08006"));
+    assertFalse(CDRDatabaseWriter.isRejected(lost));
+  }
+
+  private static List<CDRDatabaseWriter.Row> rows(int count) {
+    List<CDRDatabaseWriter.Row> rows = new ArrayList<CDRDatabaseWriter.Row>();
+    for (int i = 0; i < count; i++) {
+      rows.add(row("cdr-" + i, "record " + i));
+    }
+    return rows;
+  }
+
+  private static CDRDatabaseWriter.Row row(String id, String record) {
+    GMLCCDRState state = new GMLCCDRState();
+    state.setId(id);
+    state.setRecordStatus(RecordStatus.ATI_CGI_SUCCESS);
+    state.setLocalDialogId(1L);
+    return new CDRDatabaseWriter.Row(state, record);
+  }
+
+  private int count() throws SQLException {
+    return count("SELECT COUNT(*) FROM GMLC_CDR");
+  }
+
+  private int count(String query) throws SQLException {
+    Statement statement = keepAlive.createStatement();
+    try {
+      ResultSet resultSet = statement.executeQuery(query);
+      resultSet.next();
+      return resultSet.getInt(1);
+    } finally {
+      statement.close();
+    }
+  }
+
+}